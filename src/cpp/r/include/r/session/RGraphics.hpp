@@ -74,6 +74,8 @@ namespace graphics {
 
 namespace device {
 
+int getWidth();
+int getHeight();
 double devicePixelRatio();
 
 }
@@ -124,6 +126,10 @@ public:
    virtual core::Error setActivePlot(int index) = 0;
    virtual core::Error removePlot(int index) = 0;
 
+   // render an image of a plot at the current size without activating it
+   virtual core::Error renderPlotImage(int index,
+                                       std::string* pImageFilename) = 0;
+
    // actions on active plot   
    virtual core::Error savePlotAsImage(const core::FilePath& filePath,
                                        const std::string& format,
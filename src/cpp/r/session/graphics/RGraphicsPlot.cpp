@@ -219,6 +219,14 @@ Error Plot::renderToDisplay()
       return Success();
 }
    
+// replay the plot onto whichever device is active (e.g. a file device)
+Error Plot::renderToActiveDevice() const
+{
+   return r::exec::RFunction(
+            ".rs.restoreGraphics",
+            string_utils::utf8ToSystem(snapshotFilePath().absolutePath())).call();
+}
+
 Error Plot::removeFiles()
 {
    // bail if we don't have any storage
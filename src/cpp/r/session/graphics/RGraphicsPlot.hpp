@@ -70,6 +70,7 @@ public:
    std::string imageFilename() const;
    
    core::Error renderToDisplay();
+   core::Error renderToActiveDevice() const;
    
    core::Error removeFiles();
 
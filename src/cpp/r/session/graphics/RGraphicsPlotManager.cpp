@@ -22,10 +22,12 @@
 #include <boost/format.hpp>
 #include <boost/lexical_cast.hpp>
 #include <boost/foreach.hpp>
+#include <boost/algorithm/string/predicate.hpp>
 
 #include <core/Log.hpp>
 #include <core/Error.hpp>
 #include <core/FileSerializer.hpp>
+#include <core/system/System.hpp>
 
 #include <r/RExec.hpp>
 #include <r/RUtil.hpp>
@@ -51,6 +53,10 @@ double pixelsToInches(int pixels)
    return (double)pixels / 96.0;
 }
 
+// images rendered by renderPlotImage
+const char * const kRenderedImagePrefix = "rendered-";
+const std::size_t kMaxRenderedImages = 20;
+
 } // anonymous namespace
 
 const char * const kPngFormat = "png";
@@ -98,6 +104,22 @@ Error PlotManager::initialize(const FilePath& graphicsPath,
    if (error)
       return error;
 
+   // remove any images rendered by a previous session (they are never
+   // referenced by the saved plots state)
+   std::vector<FilePath> children;
+   error = graphicsPath_.children(&children);
+   if (error)
+      LOG_ERROR(error);
+   BOOST_FOREACH(const FilePath& child, children)
+   {
+      if (boost::algorithm::starts_with(child.filename(), kRenderedImagePrefix))
+      {
+         Error removeError = child.removeIfExists();
+         if (removeError)
+            LOG_ERROR(removeError);
+      }
+   }
+
    // save reference to plots state file
    plotsStateFile_ = graphicsPath_.complete("INDEX");
    
@@ -227,6 +249,69 @@ Error PlotManager::removePlot(int index)
    return Success();
 }
 
+// Renders the given plot (which needn't be the active one) at the current
+// size of the device, without disturbing the display. The image is written
+// alongside the display images so it can be served the same way, and is
+// kept until kMaxRenderedImages newer ones have been rendered.
+Error PlotManager::renderPlotImage(int index, std::string* pImageFilename)
+{
+   if (!isValidPlotIndex(index))
+      return plotIndexError(index, ERROR_LOCATION);
+
+   Plot& plot = *(plots_[index]);
+   if (!plot.hasValidStorage())
+      return Error(errc::PlotFileError, ERROR_LOCATION);
+
+   Error error = graphicsPath_.ensureDirectory();
+   if (error)
+      return Error(errc::PlotFileError, error, ERROR_LOCATION);
+
+   FilePath imagePath = graphicsPath_.complete(
+                              kRenderedImagePrefix +
+                              core::system::generateUuid() + "." +
+                              graphicsDevice_.imageFileExtension());
+   std::string deviceCreationCode = bitmapDeviceCreationCode(
+                              imagePath,
+                              kPngFormat,
+                              r::session::graphics::device::getWidth(),
+                              r::session::graphics::device::getHeight(),
+                              r::session::graphics::device::devicePixelRatio());
+
+   {
+      // restore previous device after invoking file device
+      RestorePreviousGraphicsDeviceScope restoreScope;
+
+      error = r::exec::executeString(deviceCreationCode);
+      if (error)
+         return error;
+
+      // replay the plot then close the device to save the file (closing it
+      // even if the replay failed)
+      error = plot.renderToActiveDevice();
+      Error closeError = r::exec::RFunction("dev.off").call();
+      if (error)
+         return Error(errc::PlotRenderingError, error, ERROR_LOCATION);
+      else if (closeError)
+         return closeError;
+   }
+
+   if (!imagePath.exists())
+      return Error(errc::PlotRenderingError, ERROR_LOCATION);
+
+   // only keep the most recent images
+   renderedImages_.push_back(imagePath);
+   while (renderedImages_.size() > kMaxRenderedImages)
+   {
+      Error removeError = renderedImages_.front().removeIfExists();
+      if (removeError)
+         LOG_ERROR(removeError);
+      renderedImages_.pop_front();
+   }
+
+   *pImageFilename = imagePath.filename();
+   return Success();
+}
+
 Error PlotManager::savePlotAsFile(const boost::function<Error()>&
                                      deviceCreationFunction)
 {
@@ -302,6 +387,21 @@ Error PlotManager::savePlotAsBitmapFile(const FilePath& targetPath,
                                         int width,
                                         int height,
                                         double pixelRatio)
+{
+   // save the file
+   return savePlotAsFile(bitmapDeviceCreationCode(targetPath,
+                                                  bitmapFileType,
+                                                  width,
+                                                  height,
+                                                  pixelRatio));
+}
+
+std::string PlotManager::bitmapDeviceCreationCode(
+                                        const FilePath& targetPath,
+                                        const std::string& bitmapFileType,
+                                        int width,
+                                        int height,
+                                        double pixelRatio) const
 {
    // default res
    int res = 96;
@@ -325,15 +425,12 @@ Error PlotManager::savePlotAsBitmapFile(const FilePath& targetPath,
    boost::format fmt(
       "{ require(grDevices, quietly=TRUE); "
       "  %1%(filename=\"%2%\", width=%3%, height=%4%, res = %5% %6%); }");
-   std::string deviceCreationCode = boost::str(fmt % bitmapFileType %
-                                                     string_utils::utf8ToSystem(targetPath.absolutePath()) %
-                                                     width %
-                                                     height %
-                                                     res %
-                                                     extraParams);
-
-   // save the file
-   return savePlotAsFile(deviceCreationCode);
+   return boost::str(fmt % bitmapFileType %
+                           string_utils::utf8ToSystem(targetPath.absolutePath()) %
+                           width %
+                           height %
+                           res %
+                           extraParams);
 }
 
 Error PlotManager::savePlotAsPdf(const FilePath& filePath, 
@@ -815,6 +912,7 @@ void PlotManager::onDeviceClosed()
    // clear plots
    activePlot_ = -1;
    plots_.clear();
+   renderedImages_.clear();
    
    // trip changes flag to ensure repaint
    setDisplayHasChanges(true);
@@ -16,6 +16,7 @@
 #ifndef R_SESSION_GRAPHICS_PLOT_MANAGER_HPP
 #define R_SESSION_GRAPHICS_PLOT_MANAGER_HPP
 
+#include <deque>
 #include <string>
 #include <vector>
 
@@ -73,6 +74,7 @@ public:
    virtual int activePlotIndex() const;
    virtual core::Error setActivePlot(int index) ;
    virtual core::Error removePlot(int index);
+   virtual core::Error renderPlotImage(int index, std::string* pImageFilename);
    
    // actions on active plot
    virtual core::Error savePlotAsImage(const core::FilePath& filePath,
@@ -163,6 +165,12 @@ private:
                                     int height,
                                     double pixelRatio);
 
+   std::string bitmapDeviceCreationCode(const core::FilePath& targetPath,
+                                        const std::string& bitmapFileType,
+                                        int width,
+                                        int height,
+                                        double pixelRatio) const;
+
    core::Error savePlotAsSvg(const core::FilePath& targetPath,
                              int width,
                              int height);
@@ -195,6 +203,9 @@ private:
    
    int activePlot_;
    boost::circular_buffer<PtrPlot> plots_ ;
+
+   // images rendered by renderPlotImage, oldest first
+   std::deque<core::FilePath> renderedImages_;
    
    boost::regex plotInfoRegex_;
 };
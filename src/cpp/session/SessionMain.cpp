@@ -246,6 +246,7 @@ const char * const kHandleUnsavedChangesCompleted = "handle_unsaved_changes_comp
 const char * const kQuitSession = "quit_session" ;   
 const char * const kSuspendSession = "suspend_session";
 const char * const kInterrupt = "interrupt";
+const char * const kBatchRequests = "batch_requests";
 
 // convenience function for disallowing suspend (note still doesn't override
 // the presence of s_forceSuspend = 1)
@@ -720,6 +721,8 @@ void handleClientInit(const boost::function<void()>& initFunction,
    }
    sessionInfo["session_id"] = sessionId;
 
+   sessionInfo["rpc_batch_supported"] = true;
+
    module_context::events().onSessionInfo(&sessionInfo);
 
    // send response  (we always set kEventsPending to false so that the client
@@ -889,6 +892,30 @@ bool isWaitForMethodUri(const std::string& uri)
    return false;
 }
 
+Error validateJsonRpcRequest(const json::JsonRpcRequest& jsonRpcRequest)
+{
+   // check for invalid client id
+   if (jsonRpcRequest.clientId != rsession::persistentState().activeClientId())
+      return Error(json::errc::InvalidClientId, ERROR_LOCATION);
+
+   // check for legacy client version (need to invalidate any client using
+   // the old version field)
+   if ( (jsonRpcRequest.version > 0) &&
+        (s_version > jsonRpcRequest.version) )
+   {
+      return Error(json::errc::InvalidClientVersion, ERROR_LOCATION);
+   }
+
+   // check for client version
+   if (!jsonRpcRequest.clientVersion.empty() &&
+       clientVersion() != jsonRpcRequest.clientVersion)
+   {
+      return Error(json::errc::InvalidClientVersion, ERROR_LOCATION);
+   }
+
+   return Success();
+}
+
 bool parseAndValidateJsonRpcConnection(
          boost::shared_ptr<HttpConnection> ptrConnection,
          json::JsonRpcRequest* pJsonRpcRequest)
@@ -902,29 +929,10 @@ bool parseAndValidateJsonRpcConnection(
       return false;
    }
 
-   // check for invalid client id
-   if (pJsonRpcRequest->clientId != rsession::persistentState().activeClientId())
-   {
-      Error error(json::errc::InvalidClientId, ERROR_LOCATION);
-      ptrConnection->sendJsonRpcError(error);
-      return false;
-   }
-
-   // check for legacy client version (need to invalidate any client using
-   // the old version field)
-   if ( (pJsonRpcRequest->version > 0) &&
-        (s_version > pJsonRpcRequest->version) )
-   {
-      Error error(json::errc::InvalidClientVersion, ERROR_LOCATION);
-      ptrConnection->sendJsonRpcError(error);
-      return false;
-   }
-
-   // check for client version
-   if (!pJsonRpcRequest->clientVersion.empty() &&
-       clientVersion() != pJsonRpcRequest->clientVersion)
+   // validate it
+   error = validateJsonRpcRequest(*pJsonRpcRequest);
+   if (error)
    {
-      Error error(json::errc::InvalidClientVersion, ERROR_LOCATION);
       ptrConnection->sendJsonRpcError(error);
       return false;
    }
@@ -942,6 +950,194 @@ void endHandleConnection(boost::shared_ptr<HttpConnection> ptrConnection,
       detectChanges(module_context::ChangeSourceURI);
 }
 
+// a batch of rpc requests sent by the client in a single connection. the
+// requests are executed in order and the responses are sent (as an array)
+// once all of them have completed
+struct RpcBatch
+{
+   RpcBatch(boost::shared_ptr<HttpConnection> ptrConnection,
+            std::size_t count)
+      : ptrConnection(ptrConnection),
+        executeStartTime(boost::posix_time::microsec_clock::universal_time()),
+        responses(count),
+        pending(count),
+        detectChanges(false)
+   {
+   }
+
+   boost::shared_ptr<HttpConnection> ptrConnection;
+   boost::posix_time::ptime executeStartTime;
+   std::vector<json::JsonRpcResponse> responses;
+   std::size_t pending;
+   bool detectChanges;
+};
+
+// methods which can't be part of a batch, since they're handled specially
+// (the client never batches them)
+bool isBatchableMethod(const std::string& method)
+{
+   if (method == kClientInit ||
+       method == kConsoleInput ||
+       method == kQuitSession ||
+       method == kSuspendSession ||
+       method == kInterrupt)
+   {
+      return false;
+   }
+
+   BOOST_FOREACH(const std::string& methodName, s_waitForMethodNames)
+   {
+      if (method == methodName)
+         return false;
+   }
+
+   return true;
+}
+
+void sendRpcBatchResponses(boost::shared_ptr<RpcBatch> pBatch)
+{
+   bool eventsAdded =
+         clientEventQueue().eventAddedSince(pBatch->executeStartTime);
+
+   json::Array responsesJson;
+   BOOST_FOREACH(json::JsonRpcResponse& response, pBatch->responses)
+   {
+      // as for single requests, let the client know if there are (or will
+      // likely be) no events pending
+      if (!eventsAdded && !response.hasAfterResponse())
+         response.setField(kEventsPending, "false");
+      responsesJson.push_back(response.getRawResponse());
+   }
+
+   http::Response response;
+   if (pBatch->ptrConnection->request().acceptsEncoding(http::kGzipEncoding))
+      response.setContentEncoding(http::kGzipEncoding);
+   response.setNoCacheHeaders();
+   response.setContentType(json::kJsonContentType);
+   Error error = response.setBody(json::write(responsesJson));
+   if (error)
+   {
+      LOG_ERROR(error);
+      response.setError(http::status::InternalServerError,
+                        error.code().message());
+   }
+   pBatch->ptrConnection->sendResponse(response);
+
+   // run after responses (then detect changes)
+   BOOST_FOREACH(json::JsonRpcResponse& response, pBatch->responses)
+   {
+      if (response.hasAfterResponse())
+         response.runAfterResponse();
+   }
+   if (pBatch->detectChanges)
+      detectChanges(module_context::ChangeSourceRPC);
+}
+
+void endHandleBatchedRpcRequest(boost::shared_ptr<RpcBatch> pBatch,
+                                std::size_t index,
+                                const core::Error& executeError,
+                                json::JsonRpcResponse* pJsonRpcResponse)
+{
+   json::JsonRpcResponse& response = pBatch->responses[index];
+   if (executeError)
+   {
+      response.setError(executeError);
+   }
+   else if (pJsonRpcResponse)
+   {
+      response = *pJsonRpcResponse;
+      if (!response.suppressDetectChanges())
+         pBatch->detectChanges = true;
+   }
+
+   if (--pBatch->pending == 0)
+      sendRpcBatchResponses(pBatch);
+}
+
+void handleRpcBatch(boost::shared_ptr<HttpConnection> ptrConnection,
+                    ConnectionType connectionType)
+{
+   // the body is an object with an array of json-rpc requests
+   json::Value bodyJson;
+   if (!json::parse(ptrConnection->request().body(), &bodyJson) ||
+       !json::isType<json::Object>(bodyJson))
+   {
+      ptrConnection->sendJsonRpcError(
+                        Error(json::errc::InvalidRequest, ERROR_LOCATION));
+      return;
+   }
+   json::Array requestsJson;
+   Error error = json::readObject(bodyJson.get_obj(),
+                                  "requests", &requestsJson);
+   if (error || requestsJson.empty())
+   {
+      ptrConnection->sendJsonRpcError(
+                        Error(json::errc::InvalidRequest, ERROR_LOCATION));
+      return;
+   }
+
+   boost::shared_ptr<RpcBatch> pBatch(
+                           new RpcBatch(ptrConnection, requestsJson.size()));
+   for (std::size_t i = 0; i < requestsJson.size(); i++)
+   {
+      boost::function<void(const Error&, json::JsonRpcResponse*)> onDone =
+            boost::bind(endHandleBatchedRpcRequest, pBatch, i, _1, _2);
+
+      // parse and validate the request
+      json::JsonRpcRequest request;
+      error = json::parseJsonRpcRequest(json::write(requestsJson[i]),
+                                        &request);
+      if (!error)
+         error = validateJsonRpcRequest(request);
+      if (!error && !isBatchableMethod(request.method))
+      {
+         error = Error(json::errc::InvalidRequest, ERROR_LOCATION);
+         error.addProperty("method", request.method);
+      }
+      if (error)
+      {
+         onDone(error, NULL);
+         continue;
+      }
+      request.isBackgroundConnection =
+                              (connectionType == BackgroundConnection);
+
+      json::JsonRpcAsyncMethods::const_iterator it =
+                                       s_jsonRpcMethods.find(request.method);
+      if (it == s_jsonRpcMethods.end())
+      {
+         Error executeError(json::errc::MethodNotFound, ERROR_LOCATION);
+         executeError.addProperty("method", request.method);
+         LOG_ERROR(executeError);
+         onDone(executeError, NULL);
+         continue;
+      }
+
+      std::pair<bool, json::JsonRpcAsyncFunction> reg = it->second;
+      json::JsonRpcAsyncFunction handlerFunction = reg.second;
+      if (reg.first)
+      {
+         // direct return
+         handlerFunction(request, onDone);
+      }
+      else
+      {
+         // indirect return (asyncHandle style)
+         std::string handle = core::system::generateUuid(true);
+         json::JsonRpcResponse response;
+         response.setAsyncHandle(handle);
+         response.setField(kEventsPending, "false");
+         onDone(Success(), &response);
+
+         handlerFunction(request,
+                         boost::bind(endHandleRpcRequestIndirect,
+                                     handle,
+                                     _1,
+                                     _2));
+      }
+   }
+}
+
 void handleConnection(boost::shared_ptr<HttpConnection> ptrConnection,
                       ConnectionType connectionType)
 {
@@ -965,6 +1161,13 @@ void handleConnection(boost::shared_ptr<HttpConnection> ptrConnection,
       // r code may execute - ensure session is initialized
       ensureSessionInitialized();
 
+      // batch of requests (each one is validated in turn)
+      if (isMethod(ptrConnection, kBatchRequests))
+      {
+         handleRpcBatch(ptrConnection, connectionType);
+         return;
+      }
+
       // attempt to parse & validate
       json::JsonRpcRequest jsonRpcRequest;
       if (parseAndValidateJsonRpcConnection(ptrConnection, &jsonRpcRequest))
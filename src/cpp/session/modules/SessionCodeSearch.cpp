@@ -27,6 +27,7 @@
 #include <boost/foreach.hpp>
 #include <boost/format.hpp>
 #include <boost/regex.hpp>
+#include <boost/algorithm/string/classification.hpp>
 #include <boost/algorithm/string/predicate.hpp>
 #include <boost/algorithm/string/split.hpp>
 
@@ -111,6 +112,11 @@ bool isGlobalFunctionNamed(const r_util::RSourceItem& sourceItem,
           sourceItem.name() == name;
 }
 
+bool isAnySourceItem(const r_util::RSourceItem& sourceItem)
+{
+   return true;
+}
+
 // return if we are past max results
 template <typename T>
 bool enforceMaxResults(std::size_t maxResults,
@@ -746,6 +752,68 @@ public:
       }
    }
    
+   // list the source files beneath the given directory, along with the
+   // items indexed in each
+   template <typename T>
+   void listFiles(const FilePath& parentPath,
+                  T* pNames,
+                  T* pPaths,
+                  std::vector<r_util::RSourceItem>* pItems)
+   {
+      Entry parentEntry(core::toFileInfo(parentPath));
+      EntryTree::iterator parent = pEntries_->find(parentEntry);
+      if (parent == pEntries_->end())
+         return;
+
+      EntryTree::leaf_iterator it = parent.begin();
+      for (; pEntries_->is_valid(it); ++it)
+      {
+         const Entry& entry = *it;
+         if (!isSourceFile(entry.fileInfo))
+            continue;
+
+         FilePath filePath(entry.fileInfo.absolutePath());
+         pNames->push_back(filePath.filename());
+         pPaths->push_back(module_context::createAliasedPath(filePath));
+
+         if (entry.hasIndex())
+            entry.pIndex->search(isAnySourceItem, std::back_inserter(*pItems));
+      }
+   }
+
+   // list a single source file along with its items. the file is indexed
+   // afresh rather than looked up, since the client may hear about changes
+   // to it before we have caught up with them
+   template <typename T>
+   void listFile(const FilePath& filePath,
+                 T* pNames,
+                 T* pPaths,
+                 std::vector<r_util::RSourceItem>* pItems)
+   {
+      FileInfo fileInfo = core::toFileInfo(filePath);
+      if (!filePath.exists() ||
+          isWithinIgnoredDirectory(filePath) ||
+          !isSourceFile(fileInfo))
+      {
+         return;
+      }
+
+      pNames->push_back(filePath.filename());
+      pPaths->push_back(module_context::createAliasedPath(filePath));
+
+      if (isIndexableSourceFile(fileInfo))
+      {
+         boost::shared_ptr<r_util::RSourceIndex> pIndex = createIndex(filePath);
+         if (pIndex)
+            pIndex->search(isAnySourceItem, std::back_inserter(*pItems));
+      }
+   }
+
+   bool indexing() const
+   {
+      return indexing_;
+   }
+
    void walkFiles(const FilePath& parentPath,
                   boost::function<void(const Entry&)> operation,
                   boost::function<bool(const Entry&)> filter = NULL)
@@ -828,27 +896,9 @@ private:
 
       if (isIndexableSourceFile(fileInfo))
       {
-         std::string code;
-         Error error = module_context::readAndDecodeFile(
-                                 filePath,
-                                 projects::projectContext().defaultEncoding(),
-                                 true,
-                                 &code);
-         if (error)
-         {
-            // log if not path not found error (this can happen if the
-            // file was removed after entering the indexing queue)
-            if (!core::isPathNotFoundError(error))
-            {
-               error.addProperty("src-file", filePath.absolutePath());
-               LOG_ERROR(error);
-            }
+         pIndex = createIndex(filePath);
+         if (!pIndex)
             return;
-         }
-
-         // add index entry
-         std::string context = module_context::createAliasedPath(filePath);
-         pIndex.reset(new r_util::RSourceIndex(context, code));
       }
 
       // attempt to add the entry
@@ -859,6 +909,32 @@ private:
       r_packages::AsyncPackageInformationProcess::update();
    }
 
+   static boost::shared_ptr<r_util::RSourceIndex> createIndex(
+                                                const FilePath& filePath)
+   {
+      std::string code;
+      Error error = module_context::readAndDecodeFile(
+                              filePath,
+                              projects::projectContext().defaultEncoding(),
+                              true,
+                              &code);
+      if (error)
+      {
+         // log if not path not found error (this can happen if the
+         // file was removed after entering the indexing queue)
+         if (!core::isPathNotFoundError(error))
+         {
+            error.addProperty("src-file", filePath.absolutePath());
+            LOG_ERROR(error);
+         }
+         return boost::shared_ptr<r_util::RSourceIndex>();
+      }
+
+      std::string context = module_context::createAliasedPath(filePath);
+      return boost::shared_ptr<r_util::RSourceIndex>(
+                                 new r_util::RSourceIndex(context, code));
+   }
+
    void removeIndexEntry(const FileInfo& fileInfo)
    {
       // create a fake entry with a null source index to pass to find
@@ -1158,6 +1234,20 @@ void searchSource(const std::string& term,
    }
 }
 
+bool chunkLabel(const std::string& line, std::string* pLabel)
+{
+   // e.g. ```{r label, echo=FALSE} (but not ```{r echo=FALSE})
+   static const boost::regex reChunk(
+            "^\\s*`{3,}\\s*\\{\\s*\\w+[\\s,]+([^\\s,=}]+)\\s*[,}]");
+
+   boost::smatch match;
+   if (!boost::regex_search(line, match, reChunk))
+      return false;
+
+   *pLabel = match[1].str();
+   return true;
+}
+
 namespace {
 
 template <typename T>
@@ -1254,9 +1344,9 @@ void searchFiles(const std::string& term,
    }
 }
 
-// NOTE: When modifying this code, you should ensure that corresponding
-// changes are made to the client side scoreMatch function as well
-// (See: CodeSearchOracle.java)
+// NOTE: The client ranks the results it receives itself (See:
+// FuzzyMatcher.java); this only decides which of them are sent when there
+// are more than were asked for
 int scoreMatch(std::string const& suggestion,
                std::string const& query,
                bool isFile)
@@ -1378,7 +1468,8 @@ public:
       Class = 3,
       Enum = 4,
       EnumValue = 5,
-      Namespace = 6
+      Namespace = 6,
+      Chunk = 7
    };
 
    SourceItem()
@@ -1530,7 +1621,28 @@ json::Array toJsonArray(
    return col;
 }
 
+json::Object toFileItemsJson(const std::vector<std::string>& names,
+                             const std::vector<std::string>& paths)
+{
+   json::Object files;
+   files["filename"] = json::toJsonArray(names);
+   files["path"] = json::toJsonArray(paths);
+   return files;
+}
 
+// return rpc array list (wire efficiency)
+json::Object toSourceItemsJson(const std::vector<SourceItem>& srcItems)
+{
+   json::Object src;
+   src["type"] = toJsonArray<int>(srcItems, &SourceItem::type);
+   src["name"] = toJsonArray<std::string>(srcItems, &SourceItem::name);
+   src["parent_name"] = toJsonArray<std::string>(srcItems, &SourceItem::parentName);
+   src["extra_info"] = toJsonArray<std::string>(srcItems, &SourceItem::extraInfo);
+   src["context"] = toJsonArray<std::string>(srcItems, &SourceItem::context);
+   src["line"] = toJsonArray<int>(srcItems, &SourceItem::line);
+   src["column"] = toJsonArray<int>(srcItems, &SourceItem::column);
+   return src;
+}
 
 Error searchCode(const json::JsonRpcRequest& request,
                  json::JsonRpcResponse* pResponse)
@@ -1544,6 +1656,20 @@ Error searchCode(const json::JsonRpcRequest& request,
    std::size_t maxResults = safe_convert::numberTo<std::size_t>(maxResultsInt,
                                                                 20);
 
+   // clients that keep their own index of the project's files and R source
+   // only need to hear about what that index can't tell them: the current
+   // contents of the project's open documents (the source database, which
+   // may hold unsaved changes) and C/C++ definitions
+   bool excludeProject = false;
+   if (request.params.size() > 2)
+   {
+      error = json::readParam(request.params, 2, &excludeProject);
+      if (error)
+         return error;
+   }
+   if (!projects::projectContext().hasFileMonitor())
+      excludeProject = false;
+
    // object to return
    json::Object result;
 
@@ -1555,13 +1681,22 @@ Error searchCode(const json::JsonRpcRequest& request,
    // TODO: Refactor searchSourceFiles, searchSource to no longer take maximum number
    // of results (since we want to grab everything possible then filter before
    // sending over the wire). Simiarly with the 'more*Available' bools
-   searchFiles(term, 1E2, true, &names, &paths, &moreFilesAvailable);
+   if (!excludeProject)
+      searchFiles(term, 1E2, true, &names, &paths, &moreFilesAvailable);
 
    // search source and convert to source items
    std::vector<SourceItem> srcItems;
    std::vector<r_util::RSourceItem> rSrcItems;
    bool moreSourceItemsAvailable = false;
-   searchSource(term, 1E2, false, &rSrcItems, &moreSourceItemsAvailable);
+   if (excludeProject)
+   {
+      std::set<std::string> srcDBContexts;
+      searchSourceDatabase(term, 1E2, false, &rSrcItems, &srcDBContexts);
+   }
+   else
+   {
+      searchSource(term, 1E2, false, &rSrcItems, &moreSourceItemsAvailable);
+   }
    std::transform(rSrcItems.begin(),
                   rSrcItems.end(),
                   std::back_inserter(srcItems),
@@ -1630,21 +1765,8 @@ Error searchCode(const json::JsonRpcRequest& request,
    }
 
    // fill result
-   json::Object files;
-   files["filename"] = json::toJsonArray(namesFiltered);
-   files["path"] = json::toJsonArray(pathsFiltered);
-   result["file_items"] = files;
-
-   // return rpc array list (wire efficiency)
-   json::Object src;
-   src["type"] = toJsonArray<int>(srcItemsFiltered, &SourceItem::type);
-   src["name"] = toJsonArray<std::string>(srcItemsFiltered, &SourceItem::name);
-   src["parent_name"] = toJsonArray<std::string>(srcItemsFiltered, &SourceItem::parentName);
-   src["extra_info"] = toJsonArray<std::string>(srcItemsFiltered, &SourceItem::extraInfo);
-   src["context"] = toJsonArray<std::string>(srcItemsFiltered, &SourceItem::context);
-   src["line"] = toJsonArray<int>(srcItemsFiltered, &SourceItem::line);
-   src["column"] = toJsonArray<int>(srcItemsFiltered, &SourceItem::column);
-   result["source_items"] = src;
+   result["file_items"] = toFileItemsJson(namesFiltered, pathsFiltered);
+   result["source_items"] = toSourceItemsJson(srcItemsFiltered);
 
    // set more available bit
    result["more_available"] =
@@ -1655,6 +1777,110 @@ Error searchCode(const json::JsonRpcRequest& request,
    return Success();
 }
 
+// R Markdown chunks aren't part of the source index, so the labels of any
+// named chunks are found by reading the documents themselves
+void findChunks(const std::string& path, std::vector<SourceItem>* pItems)
+{
+   FilePath filePath = module_context::resolveAliasedPath(path);
+   std::string ext = filePath.extensionLowerCase();
+   if (ext != ".rmd" && ext != ".rmarkdown")
+      return;
+
+   std::string contents;
+   Error error = module_context::readAndDecodeFile(
+                              filePath,
+                              projects::projectContext().defaultEncoding(),
+                              true,
+                              &contents);
+   if (error)
+   {
+      if (!core::isPathNotFoundError(error))
+         LOG_ERROR(error);
+      return;
+   }
+
+   std::vector<std::string> lines;
+   boost::algorithm::split(lines, contents, boost::algorithm::is_any_of("\n"));
+   for (std::size_t i = 0; i < lines.size(); i++)
+   {
+      std::string label;
+      if (chunkLabel(lines[i], &label))
+      {
+         pItems->push_back(SourceItem(SourceItem::Chunk,
+                                      label,
+                                      "",
+                                      "",
+                                      path,
+                                      static_cast<int>(i + 1),
+                                      1));
+      }
+   }
+}
+
+// list the project's files and everything indexed in them (or, if paths are
+// passed, just those files) so that the client can search them itself
+Error getProjectSymbols(const json::JsonRpcRequest& request,
+                        json::JsonRpcResponse* pResponse)
+{
+   json::Array pathsJson;
+   Error error = json::readParams(request.params, &pathsJson);
+   if (error)
+      return error;
+
+   json::Object result;
+
+   // without a file monitor there is no project index to list
+   if (!projects::projectContext().hasFileMonitor())
+   {
+      result["available"] = false;
+      pResponse->setResult(result);
+      return Success();
+   }
+
+   std::vector<std::string> names;
+   std::vector<std::string> paths;
+   std::vector<r_util::RSourceItem> rSrcItems;
+   if (pathsJson.empty())
+   {
+      s_projectIndex.listFiles(projects::projectContext().directory(),
+                               &names,
+                               &paths,
+                               &rSrcItems);
+   }
+   else
+   {
+      BOOST_FOREACH(const json::Value& pathJson, pathsJson)
+      {
+         if (!json::isType<std::string>(pathJson))
+            continue;
+
+         s_projectIndex.listFile(
+                  module_context::resolveAliasedPath(pathJson.get_str()),
+                  &names,
+                  &paths,
+                  &rSrcItems);
+      }
+   }
+
+   std::vector<SourceItem> srcItems;
+   std::transform(rSrcItems.begin(),
+                  rSrcItems.end(),
+                  std::back_inserter(srcItems),
+                  fromRSourceItem);
+   BOOST_FOREACH(const std::string& path, paths)
+   {
+      findChunks(path, &srcItems);
+   }
+
+   result["available"] = true;
+   result["indexing"] = s_projectIndex.indexing();
+   result["file_items"] = toFileItemsJson(names, paths);
+   result["source_items"] = toSourceItemsJson(srcItems);
+   pResponse->setResult(result);
+
+   return Success();
+}
+
 
 bool namespaceIsPackage(const std::string& namespaceName,
                         std::string* pPackage)
@@ -2438,6 +2664,7 @@ Error initialize()
    ExecBlock initBlock ;
    initBlock.addFunctions()
       (bind(registerRpcMethod, "search_code", searchCode))
+      (bind(registerRpcMethod, "get_project_symbols", getProjectSymbols))
       (bind(registerRpcMethod, "get_function_definition", getFunctionDefinition))
       (bind(registerRpcMethod, "get_search_path_function_definition", getSearchPathFunctionDefinition))
       (bind(registerRpcMethod, "get_method_definition", getMethodDefinition))
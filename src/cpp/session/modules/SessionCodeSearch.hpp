@@ -111,6 +111,9 @@ void searchSource(const std::string& term,
 
 void addAllProjectSymbols(std::set<std::string>* pSymbols);
 
+// the label of the R Markdown chunk opened on this line (if it has one)
+bool chunkLabel(const std::string& line, std::string* pLabel);
+
 core::Error initialize();
    
 } // namespace code_search
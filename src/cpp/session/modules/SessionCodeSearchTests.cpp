@@ -0,0 +1,63 @@
+/*
+ * SessionCodeSearchTests.cpp
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+#include <tests/TestThat.hpp>
+
+#include "SessionCodeSearch.hpp"
+
+namespace rstudio {
+namespace session {
+namespace modules {
+namespace code_search {
+
+context("code_search")
+{
+   test_that("labelled chunks are found")
+   {
+      std::string label;
+      expect_true(chunkLabel("```{r setup}", &label));
+      expect_true(label == "setup");
+
+      expect_true(chunkLabel("```{r setup, echo=FALSE}", &label));
+      expect_true(label == "setup");
+
+      expect_true(chunkLabel("  ```{python load}", &label));
+      expect_true(label == "load");
+   }
+
+   test_that("labels following a comma are found")
+   {
+      std::string label;
+      expect_true(chunkLabel("```{r, plot-1}", &label));
+      expect_true(label == "plot-1");
+
+      expect_true(chunkLabel("```{r, plot-1, fig.width=7}", &label));
+      expect_true(label == "plot-1");
+   }
+
+   test_that("chunks with only options are not labelled")
+   {
+      std::string label;
+      expect_false(chunkLabel("```{r}", &label));
+      expect_false(chunkLabel("```{r echo=FALSE}", &label));
+      expect_false(chunkLabel("```{r, echo=FALSE}", &label));
+      expect_false(chunkLabel("plain text {r label}", &label));
+   }
+}
+
+} // namespace code_search
+} // namespace modules
+} // namespace session
+} // namespace rstudio
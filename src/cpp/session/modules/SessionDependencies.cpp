@@ -217,6 +217,17 @@ Error unsatisfiedDependencies(const json::JsonRpcRequest& request,
       return error;
    std::vector<Dependency> deps = dependenciesFromJson(depsJson);
 
+   // optionally skip looking up the versions available from CRAN (which may
+   // require a network round trip) for callers that only want to know what's
+   // installed
+   bool checkAvailable = true;
+   if (request.params.size() > 2)
+   {
+      error = json::readParam(request.params, 2, &checkAvailable);
+      if (error)
+         return error;
+   }
+
    // build the list of unsatisifed dependencies
    using namespace module_context;
    std::vector<Dependency> unsatisfiedDeps;
@@ -227,6 +238,12 @@ Error unsatisfiedDependencies(const json::JsonRpcRequest& request,
       case kCRANPackageDependency:
          if (!isPackageVersionInstalled(dep.name, dep.version))
          {
+            if (!checkAvailable)
+            {
+               unsatisfiedDeps.push_back(dep);
+               break;
+            }
+
             // presume package is available unless we can demonstrate otherwise
             // (we don't want to block installation attempt unless we're
             // reasonably confident it will not result in a viable version)
@@ -25,6 +25,7 @@
 #include "SessionRParser.hpp"
 
 #include <set>
+#include <algorithm>
 
 #include <core/Debug.hpp>
 #include <core/Exec.hpp>
@@ -180,6 +181,28 @@ void addInferredSymbols(const FilePath& filePath,
    }
 }
 
+// Add the symbols defined at the top level of the document itself. When the
+// whole document is parsed these are found by the parser anyway, but when
+// only some of its rows are linted the rest of the document is unseen.
+void addDocumentSymbols(const FilePath& filePath,
+                        const std::string& documentId,
+                        std::set<std::string>* pSymbols)
+{
+   using namespace code_search;
+   
+   boost::shared_ptr<RSourceIndex> pIndex = rSourceIndex().get(documentId);
+   if (!pIndex)
+      pIndex = code_search::getIndexedProjectFile(filePath);
+   
+   if (!pIndex)
+      return;
+   
+   BOOST_FOREACH(const RSourceItem& item, pIndex->items())
+   {
+      pSymbols->insert(item.name());
+   }
+}
+
 void addNamespaceSymbols(std::set<std::string>* pSymbols)
 {
    // Add symbols specifically mentioned as 'importFrom'
@@ -407,6 +430,7 @@ void addTestPackageSymbols(std::set<std::string>* pSymbols)
 Error getAllAvailableRSymbols(const FilePath& filePath,
                               const std::string& documentId,
                               const ParseResults& results,
+                              bool isPartial,
                               std::set<std::string>* pSymbols)
 {
    // If this file lies within the current project, then
@@ -462,12 +486,16 @@ Error getAllAvailableRSymbols(const FilePath& filePath,
    
    pSymbols->insert(results.globals().begin(), results.globals().end());
    
+   if (isPartial)
+      addDocumentSymbols(filePath, documentId, pSymbols);
+   
    return error;
       
 }
 
 void checkNoDefinitionInScope(const FilePath& origin,
                               const std::string& documentId,
+                              bool isPartial,
                               ParseResults& results)
 {
    ParseNode* pRoot = results.parseTree();
@@ -479,7 +507,11 @@ void checkNoDefinitionInScope(const FilePath& origin,
    // or symbols that would otherwise be made available at runtime (e.g.
    // package imports)
    std::set<std::string> objects;
-   Error error = getAllAvailableRSymbols(origin, documentId, results, &objects);
+   Error error = getAllAvailableRSymbols(origin,
+                                         documentId,
+                                         results,
+                                         isPartial,
+                                         &objects);
    if (error)
    {
       LOG_ERROR(error);
@@ -633,12 +665,77 @@ void setFileLocalParseOptions(const std::wstring& rCode,
    applyOptions(options, pOptions);
 }
 
+// Blanks out the rows of the code that lie outside of the given ranges (each
+// an array of the first and last row, inclusive), so that the remaining rows
+// keep their positions. Lint comments are retained wherever they are, since
+// they apply to the whole document.
+void retainRows(const json::Array& rangesJson, std::string* pCode)
+{
+   const std::string& code = *pCode;
+   
+   // the ranges come from the client, so never look past the last row
+   int lastRow = static_cast<int>(std::count(code.begin(), code.end(), '\n'));
+   
+   std::vector<bool> retain;
+   BOOST_FOREACH(const json::Value& rangeJson, rangesJson)
+   {
+      if (!json::isType<json::Array>(rangeJson))
+         continue;
+      
+      const json::Array& range = rangeJson.get_array();
+      if (range.size() != 2 ||
+          !json::isType<int>(range[0]) ||
+          !json::isType<int>(range[1]))
+         continue;
+      
+      int first = range[0].get_int();
+      int last = std::min(range[1].get_int(), lastRow);
+      if (first < 0 || last < first)
+         continue;
+      
+      if (retain.size() < static_cast<std::size_t>(last + 1))
+         retain.resize(last + 1, false);
+      std::fill(retain.begin() + first, retain.begin() + last + 1, true);
+   }
+   
+   boost::regex reLintComment(kLintComment);
+   std::string result;
+   result.reserve(code.size());
+   
+   std::size_t row = 0;
+   std::string::size_type start = 0;
+   while (true)
+   {
+      std::string::size_type end = code.find('\n', start);
+      if (end == std::string::npos)
+         end = code.size();
+      
+      if ((row < retain.size() && retain[row]) ||
+          boost::regex_search(code.begin() + start,
+                              code.begin() + end,
+                              reLintComment))
+      {
+         result.append(code, start, end - start);
+      }
+      
+      if (end == code.size())
+         break;
+      
+      result.push_back('\n');
+      start = end + 1;
+      ++row;
+   }
+   
+   pCode->swap(result);
+}
+
 } // end anonymous namespace
 
 ParseResults parse(const std::wstring& rCode,
                    const FilePath& origin,
                    const std::string& documentId = std::string(),
-                   bool isExplicit = false)
+                   bool isExplicit = false,
+                   bool isPartial = false)
 {
    ParseResults results;
    ParseOptions options;
@@ -683,7 +780,7 @@ ParseResults parse(const std::wstring& rCode,
    }
    
    if (options.warnIfNoSuchVariableInScope())
-      checkNoDefinitionInScope(origin, documentId, results);
+      checkNoDefinitionInScope(origin, documentId, isPartial, results);
    
    if (options.warnIfVariableIsDefinedButNotUsed())
       checkDefinedButNotUsed(results);
@@ -792,6 +889,12 @@ Error lintRSourceDocument(const json::JsonRpcRequest& request,
       return error;
    }
    
+   // optionally, the rows of the document to lint (when absent, the whole
+   // document is linted)
+   json::Value rangesJson;
+   if (request.params.size() > 4)
+      rangesJson = request.params[4];
+   
    // Try to get the contents from the database
    boost::shared_ptr<SourceDocument> pDoc(new SourceDocument());
    error = get(documentId, pDoc);
@@ -814,11 +917,16 @@ Error lintRSourceDocument(const json::JsonRpcRequest& request,
    if (error)
       return error;
    
+   bool isPartial = json::isType<json::Array>(rangesJson);
+   if (isPartial)
+      retainRows(rangesJson.get_array(), &content);
+   
    ParseResults results = diagnostics::parse(
             string_utils::utf8ToWide(content),
             origin,
             documentId,
-            isExplicit);
+            isExplicit,
+            isPartial);
    
    pResponse->setResult(lintAsJson(results.lint()));
    
@@ -77,6 +77,17 @@ namespace {
 // monitor for file listings
 FilesListingMonitor s_filesListingMonitor;
 
+// the rest of the most recent listing requested a page at a time. the
+// remaining pages are served from here rather than by listing the
+// directory again, so that they are consistent with the first page (and
+// with the file change events the client has received since)
+struct PagedListing
+{
+   std::string path;
+   json::Array files;
+};
+PagedListing s_pagedListing;
+
 // make sure that monitoring persists accross suspended sessions
 const char * const kFilesMonitoredPath = "files.monitored-path";
 
@@ -231,7 +242,31 @@ Error listFiles(const json::JsonRpcRequest& request, json::JsonRpcResponse* pRes
          return error;
    }
 
-   result["files"] = jsonFiles;
+   // optionally send only the first page of a large listing, keeping the
+   // rest for list_files_page
+   int pageSize = 0;
+   if (request.params.size() > 2)
+   {
+      error = json::readParam(request.params, 2, &pageSize);
+      if (error)
+         return error;
+
+      s_pagedListing.path.clear();
+      s_pagedListing.files.clear();
+   }
+
+   result["total_files"] = static_cast<int>(jsonFiles.size());
+   if (pageSize > 0 && static_cast<int>(jsonFiles.size()) > pageSize)
+   {
+      result["files"] = json::Array(jsonFiles.begin(),
+                                    jsonFiles.begin() + pageSize);
+      s_pagedListing.path = path;
+      s_pagedListing.files.swap(jsonFiles);
+   }
+   else
+   {
+      result["files"] = jsonFiles;
+   }
 
    bool browseable = true;
 
@@ -249,6 +284,36 @@ Error listFiles(const json::JsonRpcRequest& request, json::JsonRpcResponse* pRes
 }
 
 
+// IN: String path, Int offset, Int count
+// OUT: Array of files, or null if the listing is no longer available
+Error listFilesPage(const json::JsonRpcRequest& request,
+                    json::JsonRpcResponse* pResponse)
+{
+   std::string path;
+   int offset, count;
+   Error error = json::readParams(request.params, &path, &offset, &count);
+   if (error)
+      return error;
+
+   if (path != s_pagedListing.path)
+      return Success();
+
+   int size = s_pagedListing.files.size();
+   offset = std::max(0, std::min(offset, size));
+   int end = std::max(offset, std::min(offset + count, size));
+   pResponse->setResult(json::Array(s_pagedListing.files.begin() + offset,
+                                    s_pagedListing.files.begin() + end));
+
+   // free the listing once the last page has been sent
+   if (end == size)
+   {
+      s_pagedListing.path.clear();
+      s_pagedListing.files.clear();
+   }
+
+   return Success();
+}
+
 // IN: String path
 core::Error createFolder(const core::json::JsonRpcRequest& request,
                          json::JsonRpcResponse* pResponse)
@@ -1017,6 +1082,7 @@ Error initialize()
       (bind(registerRpcMethod, "is_text_file", isTextFile))
       (bind(registerRpcMethod, "get_file_contents", getFileContents))
       (bind(registerRpcMethod, "list_files", listFiles))
+      (bind(registerRpcMethod, "list_files_page", listFilesPage))
       (bind(registerRpcMethod, "create_folder", createFolder))
       (bind(registerRpcMethod, "delete_files", deleteFiles))
       (bind(registerRpcMethod, "copy_file", copyFile))
@@ -42,17 +42,22 @@ namespace find {
 
 namespace {
 
-// This must be the same as MAX_COUNT in FindOutputPane.java
-const size_t MAX_COUNT = 1000;
+// The matches are held in memory, so a search stops once it has found this
+// many. This must be the same as MAX_COUNT in FindOutputPane.java
+const size_t MAX_COUNT = 50000;
 
 // Reflects the current set of Find results that are being
-// displayed, in case they need to be re-fetched (i.e. browser
-// refresh)
+// displayed. The results themselves are kept only in memory; the client
+// is sent a compact index of them (the number of consecutive results in
+// each file) and fetches the results it displays a page at a time. Only
+// the query is persisted across suspends; the client re-runs it when the
+// session resumes.
 class FindInFilesState : public boost::noncopyable
 {
 public:
 
-   explicit FindInFilesState() : running_(false)
+   explicit FindInFilesState()
+      : regex_(false), ignoreCase_(false), running_(false), restored_(false)
    {
    }
 
@@ -88,19 +93,57 @@ public:
       std::copy(contents.begin(), contents.end(), std::back_inserter(contents_));
       std::copy(matchOns.begin(), matchOns.end(), std::back_inserter(matchOns_));
       std::copy(matchOffs.begin(), matchOffs.end(), std::back_inserter(matchOffs_));
+
+      BOOST_FOREACH(const json::Value& file, files)
+      {
+         if (!groupFiles_.empty() && groupFiles_.back() == file.get_str())
+            groupCounts_.back()++;
+         else
+         {
+            groupFiles_.push_back(file.get_str());
+            groupCounts_.push_back(1);
+         }
+      }
       return true;
    }
 
+   // Returns the results in the range [offset, offset + count) in the
+   // same form they are sent to the client
+   json::Object resultsAsJson(int offset, int count) const
+   {
+      int size = files_.size();
+      offset = std::max(0, std::min(offset, size));
+      int end = std::max(offset, std::min(offset + count, size));
+
+      json::Object results;
+      results["file"] = json::Array(files_.begin() + offset,
+                                    files_.begin() + end);
+      results["line"] = json::Array(lineNums_.begin() + offset,
+                                    lineNums_.begin() + end);
+      results["lineValue"] = json::Array(contents_.begin() + offset,
+                                         contents_.begin() + end);
+      results["matchOn"] = json::Array(matchOns_.begin() + offset,
+                                       matchOns_.begin() + end);
+      results["matchOff"] = json::Array(matchOffs_.begin() + offset,
+                                        matchOffs_.begin() + end);
+      return results;
+   }
+
    void onFindBegin(const std::string& handle,
                     const std::string& input,
                     const std::string& path,
-                    bool asRegex)
+                    bool asRegex,
+                    bool ignoreCase,
+                    const json::Array& filePatterns)
    {
       handle_ = handle;
       input_ = input;
       path_ = path;
       regex_ = asRegex;
+      ignoreCase_ = ignoreCase;
+      filePatterns_ = filePatterns;
       running_ = true;
+      restored_ = false;
    }
 
    void onFindEnd(const std::string& handle)
@@ -112,62 +155,63 @@ public:
    void clear()
    {
       handle_ = std::string();
+      restored_ = false;
       files_.clear();
       lineNums_.clear();
       contents_.clear();
       matchOns_.clear();
       matchOffs_.clear();
+      groupFiles_.clear();
+      groupCounts_.clear();
    }
 
    Error readFromJson(const json::Object& asJson)
    {
-      json::Object results;
       Error error = json::readObject(asJson,
                                      "handle", &handle_,
                                      "input", &input_,
                                      "path", &path_,
-                                     "regex", &regex_,
-                                     "results", &results,
-                                     "running", &running_);
+                                     "regex", &regex_);
       if (error)
          return error;
 
-      error = json::readObject(results,
-                               "file", &files_,
-                               "line", &lineNums_,
-                               "lineValue", &contents_,
-                               "matchOn", &matchOns_,
-                               "matchOff", &matchOffs_);
+      // older versions didn't persist these
+      error = json::readObject(asJson, "ignoreCase", false, &ignoreCase_);
+      if (error)
+         return error;
+      error = json::readObject(asJson, "filePatterns", json::Array(),
+                               &filePatterns_);
       if (error)
          return error;
 
-      if (files_.size() != lineNums_.size() || files_.size() != contents_.size())
-      {
-         files_.clear();
-         lineNums_.clear();
-         contents_.clear();
-      }
+      // the results didn't survive the suspend; the client will need to
+      // run the query again
+      running_ = false;
+      restored_ = !handle_.empty();
 
       return Success();
    }
 
-   json::Object asJson()
+   json::Object asJson(bool includeResults = true)
    {
       json::Object obj;
       obj["handle"] = handle_;
       obj["input"] = input_;
       obj["path"] = path_;
       obj["regex"] = regex_;
+      obj["ignoreCase"] = ignoreCase_;
+      obj["filePatterns"] = filePatterns_;
 
-      json::Object results;
-      results["file"] = files_;
-      results["line"] = lineNums_;
-      results["lineValue"] = contents_;
-      results["matchOn"] = matchOns_;
-      results["matchOff"] = matchOffs_;
-      obj["results"] = results;
+      if (includeResults)
+      {
+         json::Object groups;
+         groups["file"] = json::toJsonArray(groupFiles_);
+         groups["count"] = json::toJsonArray(groupCounts_);
+         obj["groups"] = groups;
 
-      obj["running"] = running_;
+         obj["running"] = running_;
+         obj["restored"] = restored_;
+      }
 
       return obj;
    }
@@ -177,12 +221,17 @@ private:
    std::string input_;
    std::string path_;
    bool regex_;
+   bool ignoreCase_;
+   json::Array filePatterns_;
+   bool running_;
+   bool restored_;
    json::Array files_;
    json::Array lineNums_;
    json::Array contents_;
    json::Array matchOns_;
    json::Array matchOffs_;
-   bool running_;
+   std::vector<std::string> groupFiles_;
+   std::vector<int> groupCounts_;
 };
 
 FindInFilesState& findResults()
@@ -381,15 +430,30 @@ private:
 
       if (files.size() > 0)
       {
+         // the client is only told how many results there are in each
+         // file; it fetches the results themselves as it displays them
+         json::Array groupFiles;
+         json::Array groupCounts;
+         BOOST_FOREACH(const json::Value& file, files)
+         {
+            if (!groupFiles.empty() &&
+                groupFiles.back().get_str() == file.get_str())
+            {
+               groupCounts.back() = groupCounts.back().get_int() + 1;
+            }
+            else
+            {
+               groupFiles.push_back(file);
+               groupCounts.push_back(1);
+            }
+         }
+
          json::Object result;
          result["handle"] = handle();
-         json::Object results;
-         results["file"] = files;
-         results["line"] = lineNums;
-         results["lineValue"] = contents;
-         results["matchOn"] = matchOns;
-         results["matchOff"] = matchOffs;
-         result["results"] = results;
+         json::Object groups;
+         groups["file"] = groupFiles;
+         groups["count"] = groupCounts;
+         result["groups"] = groups;
 
          findResults().addResult(handle(),
                                  files,
@@ -529,7 +593,9 @@ core::Error beginFind(const json::JsonRpcRequest& request,
    findResults().onFindBegin(ptrGrepOp->handle(),
                              searchString,
                              directory,
-                             asRegex);
+                             asRegex,
+                             ignoreCase,
+                             filePatterns);
    pResponse->setResult(ptrGrepOp->handle());
 
    return Success();
@@ -548,6 +614,24 @@ core::Error stopFind(const json::JsonRpcRequest& request,
    return Success();
 }
 
+core::Error getFindResults(const json::JsonRpcRequest& request,
+                           json::JsonRpcResponse* pResponse)
+{
+   std::string handle;
+   int offset, count;
+   Error error = json::readParams(request.params, &handle, &offset, &count);
+   if (error)
+      return error;
+
+   // the results may have been replaced by a newer search; the client
+   // ignores the null response in that case
+   if (handle != findResults().handle())
+      return Success();
+
+   pResponse->setResult(findResults().resultsAsJson(offset, count));
+   return Success();
+}
+
 core::Error clearFindResults(const json::JsonRpcRequest& request,
                              json::JsonRpcResponse* pResponse)
 {
@@ -558,7 +642,7 @@ core::Error clearFindResults(const json::JsonRpcRequest& request,
 void onSuspend(core::Settings* pSettings)
 {
    std::ostringstream os;
-   json::write(findResults().asJson(), os);
+   json::write(findResults().asJson(false), os);
    pSettings->set("find-in-files-state", os.str());
 }
 
@@ -598,6 +682,7 @@ core::Error initialize()
    initBlock.addFunctions()
       (bind(registerRpcMethod, "begin_find", beginFind))
       (bind(registerRpcMethod, "stop_find", stopFind))
+      (bind(registerRpcMethod, "get_find_results", getFindResults))
       (bind(registerRpcMethod, "clear_find_results", clearFindResults));
    return initBlock.execute();
 }
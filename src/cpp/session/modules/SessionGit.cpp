@@ -16,6 +16,8 @@
 
 #include <signal.h>
 
+#include <map>
+
 #ifdef _WIN32
 #include <windows.h>
 #include <shlobj.h>
@@ -145,6 +147,16 @@ struct CommitInfo
    std::string graph;
 };
 
+// The commits in the history of a revision, in the order they're shown,
+// along with the graph lines drawn for them
+struct HistoryIndex
+{
+   std::string rev;
+   std::string refs; // the output of show-ref when the index was built
+   std::vector<std::string> ids;
+   std::vector<std::string> graphs;
+};
+
 struct RemoteBranchInfo
 {
    RemoteBranchInfo() : commitsBehind(0) {}
@@ -266,6 +278,7 @@ class Git : public boost::noncopyable
 {
 private:
    FilePath root_;
+   HistoryIndex historyIndex_;
 
 protected:
    core::Error runGit(const ShellArgs& args,
@@ -923,7 +936,17 @@ public:
                          const std::string &searchText,
                          int *pLength)
    {
-      if (searchText.empty())
+      if (searchText.empty() && fileFilter.empty())
+      {
+         const HistoryIndex* pIndex;
+         Error error = historyIndex(rev, &pIndex);
+         if (error)
+            return error;
+
+         *pLength = static_cast<int>(pIndex->ids.size());
+         return Success();
+      }
+      else if (searchText.empty())
       {
          ShellArgs args = ShellArgs() << "log";
          args << "--pretty=oneline";
@@ -959,68 +982,133 @@ public:
                    const std::string& searchText,
                    std::vector<CommitInfo>* pOutput)
    {
+      // if we know that all commits are included we can page through the
+      // history index rather than reading all of the commits up to the page
+      if (searchText.empty() && fileFilter.empty())
+         return logPage(rev, skip, maxentries, pOutput);
+
       ShellArgs args = ShellArgs() << "log" << "--encoding=UTF-8"
                        << "--pretty=raw" << "--decorate=full"
                        << "--date-order";
 
-      ShellArgs revListArgs = ShellArgs() << "rev-list" << "--date-order" << "--parents";
-      int revListSkip = skip;
-
       if (!fileFilter.empty())
-      {
          args << "--" << fileFilter;
-         revListArgs << "--" << fileFilter;
-      }
 
-      if (searchText.empty() && fileFilter.empty())
+      if (!rev.empty())
+         args << rev;
+
+      if (maxentries < 0)
+         maxentries = std::numeric_limits<int>::max();
+
+      std::vector<CommitInfo> commits;
+      Error error = readLog(args, &commits);
+      if (error)
+         return error;
+
+      boost::function<bool(CommitInfo)> filter = createSearchTextPredicate(searchText);
+
+      int skipped = 0;
+      for (std::vector<CommitInfo>::const_iterator it = commits.begin();
+           it != commits.end() && pOutput->size() < static_cast<size_t>(maxentries);
+           it++)
       {
-         // This is a way more efficient way to implement skip and maxentries
-         // if we know that all commits are included.
-         if (skip > 0)
-         {
-            args << "--skip=" + safe_convert::numberToString(skip);
-            skip = 0;
-         }
-         if (maxentries >= 0)
-         {
-            args << "--max-count=" + safe_convert::numberToString(maxentries);
-            maxentries = -1;
+         if (!filter(*it))
+            continue;
 
-            revListArgs << "--max-count=" + safe_convert::numberToString(
-                  (skip < 0 ? 0 : skip) + maxentries);
-         }
+         if (skipped < skip)
+            skipped++;
+         else
+            pOutput->push_back(*it);
       }
 
-      if (!rev.empty())
+      return Success();
+   }
+
+   // Reads a page of the history of the given revision, starting at the
+   // given offset. Since the index holds every commit id in order, this
+   // takes the same time however far back the page is.
+   core::Error logPage(const std::string& rev,
+                       int skip,
+                       int maxentries,
+                       std::vector<CommitInfo>* pOutput)
+   {
+      const HistoryIndex* pIndex;
+      Error error = historyIndex(rev, &pIndex);
+      if (error)
+         return error;
+
+      size_t start = skip < 0 ? 0 : static_cast<size_t>(skip);
+
+      size_t end = pIndex->ids.size();
+      if (maxentries >= 0)
+         end = std::min(end, start + maxentries);
+      if (start >= end)
+         return Success();
+
+      ShellArgs args = ShellArgs() << "log" << "--encoding=UTF-8"
+                       << "--pretty=raw" << "--decorate=full"
+                       << "--no-walk";
+      for (size_t i = start; i < end; i++)
+         args << pIndex->ids[i];
+
+      std::vector<CommitInfo> commits;
+      error = readLog(args, &commits);
+      if (error)
+         return error;
+
+      // --no-walk orders the commits by date alone, so put them back in
+      // the order of the history (and the graph)
+      std::map<std::string, CommitInfo> commitsById;
+      BOOST_FOREACH(const CommitInfo& commit, commits)
       {
-         args << rev;
-         revListArgs << rev;
+         commitsById[commit.id] = commit;
       }
-      else
+
+      for (size_t i = start; i < end; i++)
       {
-         revListArgs << "HEAD";
+         std::map<std::string, CommitInfo>::const_iterator it =
+                                          commitsById.find(pIndex->ids[i]);
+         if (it == commitsById.end())
+            continue;
+
+         pOutput->push_back(it->second);
+         pOutput->back().graph = pIndex->graphs[i];
       }
 
-      if (maxentries < 0)
-         maxentries = std::numeric_limits<int>::max();
+      return Success();
+   }
 
-      std::vector<std::string> outLines;
-      std::string output;
-      Error error = runGit(args, &output);
+   // Returns the index of the history of the given revision, (re)building
+   // it if it's for a different revision or any of the refs have moved
+   // since it was built.
+   core::Error historyIndex(const std::string& rev,
+                            const HistoryIndex** ppIndex)
+   {
+      std::string refs;
+      Error error = runGit(ShellArgs() << "show-ref" << "--head", &refs);
       if (error)
          return error;
-      outLines = split(output);
-      output.clear();
 
-      std::vector<std::string> graphLines;
-      if (searchText.empty() && fileFilter.empty())
+      if (historyIndex_.ids.empty() ||
+          historyIndex_.rev != rev ||
+          historyIndex_.refs != refs)
       {
-         std::vector<std::string> revOutLines;
+         HistoryIndex index;
+         index.rev = rev;
+         index.refs = refs;
+
+         ShellArgs revListArgs = ShellArgs() << "rev-list" << "--date-order"
+                                 << "--parents";
+         if (!rev.empty())
+            revListArgs << rev;
+         else
+            revListArgs << "HEAD";
+
          std::string revOutput;
          error = runGit(revListArgs, &revOutput);
          if (error)
             return error;
-         revOutLines = split(revOutput);
+         std::vector<std::string> revOutLines = split(revOutput);
          revOutput.clear();
 
          gitgraph::GitGraph graph;
@@ -1030,29 +1118,44 @@ public:
             find_vector_type parents;
             boost::algorithm::split(parents, revOutLines[i],
                                     boost::algorithm::is_any_of(" "));
-            if (parents.size() < 1)
+            if (parents.size() < 1 || parents.front().empty())
                break;
 
             std::string commit = parents.front();
             parents.erase(parents.begin());
 
             gitgraph::Line line = graph.addCommit(commit, parents);
-            if (revListSkip <= 0 || static_cast<int>(i) >= revListSkip)
-               graphLines.push_back(line.string());
+
+            index.ids.push_back(commit);
+            index.graphs.push_back(line.string());
          }
+
+         historyIndex_ = index;
       }
 
-      boost::function<bool(CommitInfo)> filter = createSearchTextPredicate(searchText);
+      *ppIndex = &historyIndex_;
+      return Success();
+   }
+
+   // Parses the raw output of the given git log command.
+   core::Error readLog(const ShellArgs& args,
+                       std::vector<CommitInfo>* pCommits)
+   {
+      std::vector<std::string> outLines;
+      std::string output;
+      Error error = runGit(args, &output);
+      if (error)
+         return error;
+      outLines = split(output);
+      output.clear();
 
       boost::regex kvregex("^(\\w+) (.*)$");
       boost::regex authTimeRegex("^(.*?) (\\d+) ([+\\-]?\\d+)$");
 
-      size_t graphLineIndex = 0;
-      int skipped = 0;
       CommitInfo currentCommit;
 
       for (std::vector<std::string>::const_iterator it = outLines.begin();
-           it != outLines.end() && pOutput->size() < static_cast<size_t>(maxentries);
+           it != outLines.end();
            it++)
       {
          boost::smatch smatch;
@@ -1062,19 +1165,8 @@ public:
             std::string value = smatch[2];
             if (key == "commit")
             {
-               if (!currentCommit.id.empty() && filter(currentCommit))
-               {
-                  if (skipped < skip)
-                     skipped++;
-                  else
-                  {
-                     if (graphLineIndex < graphLines.size())
-                        currentCommit.graph = graphLines[graphLineIndex];
-                     pOutput->push_back(currentCommit);
-                  }
-
-                  graphLineIndex++;
-               }
+               if (!currentCommit.id.empty())
+                  pCommits->push_back(currentCommit);
 
                currentCommit = CommitInfo();
                parseCommitValue(value, &currentCommit);
@@ -1119,20 +1211,8 @@ public:
          }
       }
 
-      if (pOutput->size() < static_cast<size_t>(maxentries)
-          && !currentCommit.id.empty()
-          && filter(currentCommit))
-      {
-         if (skipped < skip)
-            skipped++;
-         else
-         {
-            if (graphLineIndex < graphLines.size())
-               currentCommit.graph = graphLines[graphLineIndex];
-            pOutput->push_back(currentCommit);
-         }
-         graphLineIndex++;
-      }
+      if (!currentCommit.id.empty())
+         pCommits->push_back(currentCommit);
 
       return Success();
    }
@@ -1624,7 +1704,7 @@ Error vcsDiffFile(const json::JsonRpcRequest& request,
    if (!usedSourceEncoding)
       sourceEncoding = "";
 
-   if (!noSizeWarning && output.size() > source_control::WARN_SIZE)
+   if (!noSizeWarning && output.size() > source_control::DIFF_WARN_SIZE)
    {
       error = systemError(boost::system::errc::file_too_large,
                           ERROR_LOCATION);
@@ -255,6 +255,26 @@ Error getHistoryArchiveItems(const json::JsonRpcRequest& request,
    return setJsonResultFromHistory(startIndex, endIndex, pResponse);
 }
    
+Error getRecentHistoryArchive(const json::JsonRpcRequest& request,
+                               json::JsonRpcResponse* pResponse)
+{
+   // get params
+   int maxItems;
+   Error error = json::readParam(request.params, 0, &maxItems);
+   if (error)
+      return error;
+
+   // validate
+   if (maxItems <= 0)
+      return Error(json::errc::ParamInvalid, ERROR_LOCATION);
+
+   // return the most recent items
+   int historySize = historyArchive().entries().size();
+   return setJsonResultFromHistory(std::max(0, historySize - maxItems),
+                                   historySize,
+                                   pResponse);
+}
+
 Error searchHistoryArchive(const json::JsonRpcRequest& request,
                            json::JsonRpcResponse* pResponse)
 {
@@ -264,6 +284,16 @@ Error searchHistoryArchive(const json::JsonRpcRequest& request,
    Error error = json::readParams(request.params, &query, &maxEntries);
    if (error)
       return error;
+
+   // optionally only search the items before a given index (e.g. because
+   // the client has already searched the ones after it)
+   int beforeIndex = -1;
+   if (request.params.size() > 2)
+   {
+      error = json::readParam(request.params, 2, &beforeIndex);
+      if (error)
+         return error;
+   }
    
    // convert the query into a list of search terms
    std::vector<std::string> searchTerms;
@@ -283,6 +313,10 @@ Error searchHistoryArchive(const json::JsonRpcRequest& request,
       if (matchingEntries.size() >= static_cast<std::size_t>(maxEntries))
          break;
 
+      // skip the items after the requested range
+      if (beforeIndex >= 0 && it->index >= beforeIndex)
+         continue;
+
       // look for match
       if (matches(*it, searchTerms))
       {
@@ -347,16 +381,23 @@ Error searchHistoryArchiveByPrefix(const json::JsonRpcRequest& request,
 void onHistoryAdd(const std::string& command)
 {   
    // add command to history archive
+   int archiveIndex = -1;
    Error error = historyArchive().add(command);
    if (error)
       LOG_ERROR(error);
+   else
+      archiveIndex = historyArchive().entries().size() - 1;
 
-   // fire event
+   // fire event (including the command's index in the archive, so that
+   // clients can keep their own copy of the archive up to date)
    int entryIndex = r::session::consoleHistory().size() - 1;
    std::vector<HistoryEntry> entries;
    entries.push_back(HistoryEntry(entryIndex, 0, command));
    json::Object entriesJson;
    historyEntriesAsJson(entries, &entriesJson);
+   json::Array archiveIndexArray;
+   archiveIndexArray.push_back(archiveIndex);
+   entriesJson["archive_index"] = archiveIndexArray;
    ClientEvent event(client_events::kHistoryEntriesAdded, entriesJson);
    module_context::enqueClientEvent(event);
 }
@@ -398,6 +439,7 @@ Error initialize()
       (bind(registerRpcMethod, "remove_history_items", removeHistoryItems))
       (bind(registerRpcMethod, "clear_history", clearHistory))
       (bind(registerRpcMethod, "get_history_archive_items", getHistoryArchiveItems))
+      (bind(registerRpcMethod, "get_recent_history_archive", getRecentHistoryArchive))
       (bind(registerRpcMethod, "search_history_archive", searchHistoryArchive))
       (bind(registerRpcMethod, "search_history_archive_by_prefix", searchHistoryArchiveByPrefix));
    return initBlock.execute();
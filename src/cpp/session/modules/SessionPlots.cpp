@@ -66,6 +66,36 @@ Error previousPlot(const json::JsonRpcRequest& request,
    return display.setActivePlot(display.activePlotIndex() - 1);
 }  
 
+Error prefetchPlot(const json::JsonRpcRequest& request,
+                   json::JsonRpcResponse* pResponse)
+{
+   int index;
+   Error error = json::readParam(request.params, 0, &index);
+   if (error)
+      return error;
+
+   // the plot may have been removed since it was requested; just return
+   // null in that case
+   r::session::graphics::Display& display = r::session::graphics::display();
+   if (index < 0 || index >= display.plotCount())
+      return Success();
+
+   std::string filename;
+   error = display.renderPlotImage(index, &filename);
+   if (error)
+   {
+      LOG_ERROR(error);
+      return Success();
+   }
+
+   json::Object imageJson;
+   imageJson["filename"] = filename;
+   imageJson["width"] = r::session::graphics::device::getWidth();
+   imageJson["height"] = r::session::graphics::device::getHeight();
+   imageJson["plotIndex"] = index;
+   pResponse->setResult(imageJson);
+   return Success();
+}
    
 Error removePlot(const json::JsonRpcRequest& request,
                  json::JsonRpcResponse* pResponse)
@@ -881,6 +911,7 @@ Error initialize()
    initBlock.addFunctions()
       (bind(registerRpcMethod, "next_plot", nextPlot))
       (bind(registerRpcMethod, "previous_plot", previousPlot))
+      (bind(registerRpcMethod, "prefetch_plot", prefetchPlot))
       (bind(registerRpcMethod, "remove_plot", removePlot))
       (bind(registerRpcMethod, "clear_plots", clearPlots))
       (bind(registerRpcMethod, "refresh_plot", refreshPlot))
@@ -19,6 +19,7 @@
 #include <string>
 #include <map>
 
+#include <boost/algorithm/string/predicate.hpp>
 #include <boost/bind.hpp>
 #include <boost/foreach.hpp>
 #include <boost/utility.hpp>
@@ -31,6 +32,7 @@
 #include <core/FilePath.hpp>
 #include <core/FileInfo.hpp>
 #include <core/FileSerializer.hpp>
+#include <core/Hash.hpp>
 #include <core/StringUtils.hpp>
 #include <core/text/TemplateFilter.hpp>
 #include <core/r_util/RPackageInfo.hpp>
@@ -492,6 +494,113 @@ Error saveDocumentDiff(const json::JsonRpcRequest& request,
    return Success();
 }
 
+Error saveDocumentHunks(const json::JsonRpcRequest& request,
+                        json::JsonRpcResponse* pResponse)
+{
+   using namespace rstudio::core::string_utils;
+
+   // unique id and jsonPath (can be null for auto-save)
+   std::string id;
+   json::Value jsonPath, jsonType, jsonEncoding, jsonFoldSpec, jsonChunkOutput;
+
+   // The edits to apply to the current document, in increasing order of
+   // offset. Each hunk replaces the subrange [offset, offset+length) of the
+   // current document (offsets are not adjusted for earlier hunks).
+   json::Array jsonHunks;
+
+   // This is the expected hash of the current document (as for
+   // save_document_diff) and the CRC32 of the document once the hunks have
+   // been applied; if either doesn't match, the request is discarded.
+   std::string hash, checksum;
+
+   // read params
+   Error error = json::readParams(request.params,
+                                  &id,
+                                  &jsonPath,
+                                  &jsonType,
+                                  &jsonEncoding,
+                                  &jsonFoldSpec,
+                                  &jsonChunkOutput,
+                                  &jsonHunks,
+                                  &hash,
+                                  &checksum);
+   if (error)
+      return error ;
+
+   // if this has no path then it is an autosave, in this case
+   // suppress change detection
+   bool hasPath = json::isType<std::string>(jsonPath);
+   if (!hasPath)
+       pResponse->setSuppressDetectChanges(true);
+
+   // get the doc
+   boost::shared_ptr<SourceDocument> pDoc(new SourceDocument());
+   error = source_database::get(id, pDoc);
+   if (error)
+      return error ;
+
+   // Don't even attempt anything if we're not working off the same original
+   if (pDoc->hash() != hash)
+      return Success();
+
+   const std::string& original = pDoc->contents();
+   std::string contents;
+   contents.reserve(original.size());
+
+   // copy the original contents into the new contents, substituting each
+   // hunk's replacement for the range it covers. Offsets and lengths are
+   // specified in characters, but contents is in UTF8 bytes.
+   std::string::const_iterator it = original.begin();
+   int position = 0;
+   BOOST_FOREACH(const json::Value& jsonHunk, jsonHunks)
+   {
+      if (!json::isType<json::Object>(jsonHunk))
+         return Success(); // Malformed hunk. Abort differential save.
+
+      int offset, length;
+      std::string replacement;
+      error = json::readObject(jsonHunk.get_obj(),
+                               "offset", &offset,
+                               "length", &length,
+                               "replacement", &replacement);
+      if (error || offset < position || length < 0)
+         return Success(); // Malformed hunk. Abort differential save.
+
+      std::string::const_iterator rangeBegin;
+      error = utf8Advance(it, offset - position, original.end(), &rangeBegin);
+      if (error)
+         return Success(); // UTF8 decoding failed. Abort differential save.
+
+      std::string::const_iterator rangeEnd;
+      error = utf8Advance(rangeBegin, length, original.end(), &rangeEnd);
+      if (error)
+         return Success(); // UTF8 decoding failed. Abort differential save.
+
+      contents.append(it, rangeBegin);
+      contents.append(replacement);
+      it = rangeEnd;
+      position = offset + length;
+   }
+   contents.append(it, original.end());
+
+   // make sure we ended up with the same document as the client
+   if (!boost::algorithm::iequals(core::hash::crc32HexHash(contents), checksum))
+      return Success();
+
+   error = saveDocumentCore(contents, jsonPath, jsonType, jsonEncoding,
+                            jsonFoldSpec, jsonChunkOutput, pDoc);
+   if (error)
+      return error;
+
+   // write to the source_database
+   error = sourceDatabasePutWithUpdatedContents(pDoc);
+   if (error)
+      return error;
+
+   pResponse->setResult(pDoc->hash());
+   return Success();
+}
+
 Error checkForExternalEdit(const json::JsonRpcRequest& request,
                            json::JsonRpcResponse* pResponse)
 {
@@ -1230,6 +1339,7 @@ Error initialize()
       (bind(registerRpcMethod, "open_document", openDocument))
       (bind(registerRpcMethod, "save_document", saveDocument))
       (bind(registerRpcMethod, "save_document_diff", saveDocumentDiff))
+      (bind(registerRpcMethod, "save_document_hunks", saveDocumentHunks))
       (bind(registerRpcMethod, "check_for_external_edit", checkForExternalEdit))
       (bind(registerRpcMethod, "ignore_external_edit", ignoreExternalEdit))
       (bind(registerRpcMethod, "set_source_document_on_save", setSourceDocumentOnSave))
@@ -33,6 +33,10 @@ namespace source_control {
 // requesting might slow down the app and are they sure they want to proceed?
 const size_t WARN_SIZE = 200 * 1024;
 
+// The threshold for the diffs shown in the review pane, which renders them
+// incrementally and so can cope with much larger ones
+const size_t DIFF_WARN_SIZE = 16 * 1024 * 1024;
+
 class VCSStatus
 {
 public:
@@ -0,0 +1,348 @@
+/*
+ * Corpus.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the inputs the benchmarks run on: R source, unified diffs,
+ * console output and CSV data shaped like what the client sees in practice.
+ * The generators are seeded, so a given size always yields the same corpus
+ * and results from different runs can be compared.
+ */
+public class Corpus
+{
+   public Corpus(long seed)
+   {
+      random_ = new Random(seed);
+   }
+
+   /**
+    * @return An R source file with (about) the given number of lines: a
+    *    series of documented functions with the usual mix of assignments,
+    *    calls, strings, numbers, conditionals and pipes.
+    */
+   public String rSource(int lines)
+   {
+      StringBuilder sb = new StringBuilder();
+      int count = 0;
+      while (count < lines)
+      {
+         String name = pick(VERBS) + "_" + pick(NOUNS);
+         sb.append("#' ").append(capitalize(pick(VERBS))).append(" the ")
+           .append(pick(NOUNS)).append(" of a data set.\n");
+         sb.append("#'\n");
+         sb.append("#' @param x A data frame.\n");
+         sb.append("#' @param n The number of rows to use.\n");
+         sb.append(name).append(" <- function(x, n = ")
+           .append(random_.nextInt(100)).append("L, ...) {\n");
+         count += 5;
+
+         int statements = 4 + random_.nextInt(12);
+         for (int i = 0; i < statements; i++)
+         {
+            sb.append(rStatement("  "));
+            count++;
+         }
+
+         sb.append("  invisible(x)\n");
+         sb.append("}\n\n");
+         count += 3;
+      }
+      return sb.toString();
+   }
+
+   private String rStatement(String indent)
+   {
+      String var = pick(NOUNS);
+      switch (random_.nextInt(6))
+      {
+         case 0:
+            return indent + var + " <- " + pick(CALLS) + "(x$" + pick(NOUNS) +
+                   ", na.rm = TRUE)\n";
+         case 1:
+            return indent + "if (is.null(" + var + ") || length(" + var +
+                   ") == 0) stop(\"no " + var + " found in '\", " +
+                   "deparse(substitute(x)), \"'\")\n";
+         case 2:
+            return indent + "x <- x %>% dplyr::filter(" + pick(NOUNS) +
+                   " > " + random_.nextInt(1000) + "." +
+                   random_.nextInt(100) + ") %>% head(n)\n";
+         case 3:
+            return indent + var + "[[\"" + pick(NOUNS) + "\"]] <- " +
+                   "vapply(seq_len(n), function(i) i ^ 2 / " +
+                   (1 + random_.nextInt(9)) + ", numeric(1))\n";
+         case 4:
+            return indent + "# " + pick(VERBS) + " " + pick(NOUNS) +
+                   " before returning\n";
+         default:
+            return indent + "message(sprintf(\"%s: %d " + pick(NOUNS) +
+                   "\", \"" + pick(VERBS) + "\", nrow(x)))\n";
+      }
+   }
+
+   /**
+    * @return A unified diff (as produced by git diff) of the given number of
+    *    files, each an R file of the given length with some of its lines
+    *    changed.
+    */
+   public String unifiedDiff(int files, int linesPerFile)
+   {
+      StringBuilder sb = new StringBuilder();
+      for (int f = 0; f < files; f++)
+      {
+         String path = "R/" + pick(VERBS) + "_" + f + ".R";
+         sb.append("diff --git a/").append(path).append(" b/").append(path)
+           .append('\n');
+         sb.append("index 3b18e51..a9f4c21 100644\n");
+         sb.append("--- a/").append(path).append('\n');
+         sb.append("+++ b/").append(path).append('\n');
+
+         List<String> before = splitLines(rSource(linesPerFile));
+         appendChunks(sb, before);
+      }
+      return sb.toString();
+   }
+
+   // emits the chunks of a diff in which scattered lines of the file have
+   // been replaced, inserted or deleted, with three lines of context
+   private void appendChunks(StringBuilder sb, List<String> lines)
+   {
+      final int context = 3;
+      int delta = 0;   // lines added less lines deleted so far
+      int i = 0;
+      while (i < lines.size())
+      {
+         // skip ahead to the next change
+         int gap = 10 + random_.nextInt(60);
+         if (i + gap + context >= lines.size())
+            break;
+         i += gap;
+
+         int start = i - context;
+         ArrayList<String> body = new ArrayList<String>();
+         int oldCount = 0;
+         int newCount = 0;
+         for (int j = start; j < i; j++)
+         {
+            body.add(" " + lines.get(j));
+            oldCount++;
+            newCount++;
+         }
+
+         int changed = 1 + random_.nextInt(6);
+         for (int j = 0; j < changed && i < lines.size(); j++, i++)
+         {
+            body.add("-" + lines.get(i));
+            oldCount++;
+         }
+         int added = random_.nextInt(8);
+         for (int j = 0; j < added; j++)
+         {
+            body.add("+" + rStatement("  ").replace("\n", ""));
+            newCount++;
+         }
+
+         for (int j = i; j < Math.min(i + context, lines.size()); j++)
+         {
+            body.add(" " + lines.get(j));
+            oldCount++;
+            newCount++;
+         }
+         i = Math.min(i + context, lines.size());
+
+         int oldStart = start + 1;
+         int newStart = oldStart + delta;
+         sb.append("@@ -").append(oldStart).append(',').append(oldCount)
+           .append(" +").append(newStart).append(',').append(newCount)
+           .append(" @@\n");
+         for (String line : body)
+            sb.append(line).append('\n');
+
+         delta += newCount - oldCount;
+      }
+   }
+
+   /**
+    * @return The successive states of a console line showing a text
+    *    progress bar (as printed by txtProgressBar, or by a package
+    *    download), one for each update.
+    */
+   public List<String> progressBar(int updates, int width)
+   {
+      ArrayList<String> states = new ArrayList<String>();
+      String prefix = "trying URL 'https://cran.rstudio.com/src/contrib/" +
+                      pick(NOUNS) + "_1.0.tar.gz'\n" +
+                      "Content type 'application/x-gzip' length 1048576 " +
+                      "bytes (1.0 MB)\n";
+      for (int i = 0; i <= updates; i++)
+      {
+         int done = (int) ((long) i * width / updates);
+         StringBuilder sb = new StringBuilder(prefix);
+         sb.append("  |");
+         for (int j = 0; j < width; j++)
+            sb.append(j < done ? '=' : ' ');
+         sb.append("| ").append(i * 100 / updates).append('%');
+         states.add(sb.toString());
+      }
+      return states;
+   }
+
+   /**
+    * @return CSV data with a header row and the given number of rows and
+    *    columns, mixing numbers, bare strings and quoted strings (some with
+    *    embedded commas, quotes and newlines).
+    */
+   public String csv(int rows, int columns)
+   {
+      StringBuilder sb = new StringBuilder();
+      for (int c = 0; c < columns; c++)
+      {
+         if (c > 0)
+            sb.append(',');
+         sb.append(pick(NOUNS)).append('_').append(c);
+      }
+      sb.append('\n');
+
+      for (int r = 0; r < rows; r++)
+      {
+         for (int c = 0; c < columns; c++)
+         {
+            if (c > 0)
+               sb.append(',');
+            switch (c % 4)
+            {
+               case 0:
+                  sb.append(r);
+                  break;
+               case 1:
+                  sb.append(random_.nextInt(100000) / 100.0);
+                  break;
+               case 2:
+                  sb.append(pick(NOUNS));
+                  break;
+               default:
+                  sb.append('"').append(pick(VERBS)).append(", ")
+                    .append(pick(NOUNS));
+                  if (random_.nextInt(10) == 0)
+                     sb.append(" \"\"quoted\"\"\nand continued");
+                  sb.append('"');
+                  break;
+            }
+         }
+         sb.append('\n');
+      }
+      return sb.toString();
+   }
+
+   /**
+    * @return Paths (split into their components) of the given number of
+    *    files in a project tree of the given depth.
+    */
+   public List<List<String>> paths(int count, int depth)
+   {
+      ArrayList<List<String>> paths = new ArrayList<List<String>>();
+      for (int i = 0; i < count; i++)
+      {
+         ArrayList<String> path = new ArrayList<String>();
+         int components = 1 + random_.nextInt(depth);
+         for (int j = 0; j < components - 1; j++)
+            path.add(pick(NOUNS));
+         path.add(pick(VERBS) + "_" + i + ".R");
+         paths.add(path);
+      }
+      return paths;
+   }
+
+   /**
+    * @return Names of the given number of symbols, in the styles seen in R
+    *    packages: snake_case, dotted.names and camelCase, some of them with
+    *    numbers or a leading dot.
+    */
+   public List<String> symbols(int count)
+   {
+      ArrayList<String> symbols = new ArrayList<String>();
+      for (int i = 0; i < count; i++)
+      {
+         String verb = pick(VERBS);
+         String noun = pick(NOUNS);
+         String name;
+         switch (random_.nextInt(4))
+         {
+            case 0:
+               name = verb + "_" + noun;
+               break;
+            case 1:
+               name = verb + "." + noun;
+               break;
+            case 2:
+               name = verb + capitalize(noun);
+               break;
+            default:
+               name = "." + verb + capitalize(noun) + random_.nextInt(10);
+               break;
+         }
+         if (random_.nextInt(3) == 0)
+            name = name + "_" + pick(CALLS);
+         symbols.add(name);
+      }
+      return symbols;
+   }
+
+   public static List<String> splitLines(String text)
+   {
+      ArrayList<String> lines = new ArrayList<String>();
+      int start = 0;
+      for (int i = 0; i < text.length(); i++)
+      {
+         if (text.charAt(i) == '\n')
+         {
+            lines.add(text.substring(start, i));
+            start = i + 1;
+         }
+      }
+      if (start < text.length())
+         lines.add(text.substring(start));
+      return lines;
+   }
+
+   private String pick(String[] words)
+   {
+      return words[random_.nextInt(words.length)];
+   }
+
+   private static String capitalize(String word)
+   {
+      return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+   }
+
+   private final Random random_;
+
+   private static final String[] VERBS = {
+      "summarize", "compute", "filter", "plot", "fit", "load", "clean",
+      "transform", "validate", "merge", "reshape", "scale", "sample"
+   };
+
+   private static final String[] NOUNS = {
+      "means", "counts", "weights", "groups", "labels", "values", "scores",
+      "model", "residuals", "dates", "levels", "index", "totals", "result"
+   };
+
+   private static final String[] CALLS = {
+      "mean", "sum", "median", "max", "min", "sd", "var", "range", "quantile"
+   };
+}
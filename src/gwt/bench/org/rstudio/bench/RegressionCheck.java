@@ -0,0 +1,157 @@
+/*
+ * RegressionCheck.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.rstudio.core.client.CsvReader;
+
+/**
+ * Compares two sets of JMH results (as written with -rf csv) and reports
+ * the benchmarks whose scores got worse by more than a given percentage.
+ *
+ * Usage: RegressionCheck baseline.csv results.csv [threshold-percent]
+ *
+ * Exits with a status of 1 if there were any regressions.
+ */
+public class RegressionCheck
+{
+   public static void main(String[] args) throws IOException
+   {
+      if (args.length < 2)
+      {
+         System.err.println(
+               "usage: RegressionCheck baseline.csv results.csv [threshold]");
+         System.exit(2);
+      }
+
+      double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+      Map<String, Result> baseline = read(new File(args[0]));
+      Map<String, Result> results = read(new File(args[1]));
+
+      int regressions = 0;
+      for (Map.Entry<String, Result> entry : results.entrySet())
+      {
+         Result result = entry.getValue();
+         Result base = baseline.get(entry.getKey());
+         if (base == null || !base.unit.equals(result.unit))
+         {
+            System.out.println(String.format("  new   %s: %.3f %s",
+                  entry.getKey(), result.score, result.unit));
+            continue;
+         }
+
+         // in throughput mode bigger is better; in the others (times per
+         // operation) smaller is
+         double change = (result.score - base.score) / base.score * 100;
+         if (result.isThroughput())
+            change = -change;
+
+         boolean regressed = change > threshold;
+         if (regressed)
+            regressions++;
+         System.out.println(String.format("%s %s: %.3f -> %.3f %s (%+.1f%%)",
+               regressed ? "! SLOWER" : "  ok    ",
+               entry.getKey(), base.score, result.score, result.unit,
+               change));
+      }
+
+      if (regressions > 0)
+      {
+         System.out.println(regressions + " benchmark(s) slowed down by " +
+                            "more than " + threshold + "%");
+         System.exit(1);
+      }
+   }
+
+   private static Map<String, Result> read(File file) throws IOException
+   {
+      LinkedHashMap<String, Result> results =
+            new LinkedHashMap<String, Result>();
+
+      String[] header = null;
+      for (String[] row : new CsvReader(readFile(file)))
+      {
+         if (header == null)
+         {
+            header = row;
+            continue;
+         }
+         if (row.length < header.length)
+            continue;
+
+         // a benchmark is identified by its name, mode and parameters
+         StringBuilder key = new StringBuilder(row[0]);
+         key.append(" [").append(row[1]).append(']');
+         for (int i = 7; i < header.length; i++)
+         {
+            if (row[i].length() == 0)
+               continue;
+            key.append(' ')
+               .append(header[i].replace("Param: ", ""))
+               .append('=')
+               .append(row[i]);
+         }
+
+         results.put(key.toString(), new Result(row[1],
+                                                Double.parseDouble(row[4]),
+                                                row[6]));
+      }
+      return results;
+   }
+
+   private static String readFile(File file) throws IOException
+   {
+      Reader reader = new InputStreamReader(new FileInputStream(file),
+                                            "UTF-8");
+      try
+      {
+         StringBuilder sb = new StringBuilder();
+         char[] buffer = new char[8192];
+         for (int n; -1 != (n = reader.read(buffer)); )
+            sb.append(buffer, 0, n);
+         return sb.toString().replace("\r\n", "\n");
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   private static class Result
+   {
+      public Result(String mode, double score, String unit)
+      {
+         this.mode = mode;
+         this.score = score;
+         this.unit = unit;
+      }
+
+      public boolean isThroughput()
+      {
+         return mode.equals("thrpt");
+      }
+
+      public final String mode;
+      public final double score;
+      public final String unit;
+   }
+}
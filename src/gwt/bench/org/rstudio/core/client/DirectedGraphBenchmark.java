@@ -0,0 +1,78 @@
+/*
+ * DirectedGraphBenchmark.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rstudio.bench.Corpus;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DirectedGraphBenchmark
+{
+   @Param({"1000", "50000"})
+   public int paths;
+
+   @Setup
+   public void setup()
+   {
+      paths_ = new Corpus(SEED).paths(paths, 6);
+      graph_ = build();
+   }
+
+   private DirectedGraph<String, Integer> build()
+   {
+      DirectedGraph<String, Integer> graph =
+            new DirectedGraph<String, Integer>();
+      for (int i = 0; i < paths_.size(); i++)
+         graph.ensureNode(paths_.get(i)).setValue(i);
+      return graph;
+   }
+
+   @Benchmark
+   public DirectedGraph<String, Integer> ensureNodes()
+   {
+      return build();
+   }
+
+   @Benchmark
+   public void findNodes(Blackhole bh)
+   {
+      for (List<String> path : paths_)
+         bh.consume(graph_.findNode(path));
+   }
+
+   @Benchmark
+   public Object flatten()
+   {
+      return graph_.flatten();
+   }
+
+   private List<List<String>> paths_;
+   private DirectedGraph<String, Integer> graph_;
+
+   private static final long SEED = 20170101L;
+}
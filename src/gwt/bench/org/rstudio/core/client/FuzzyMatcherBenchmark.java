@@ -0,0 +1,90 @@
+/*
+ * FuzzyMatcherBenchmark.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rstudio.bench.Corpus;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FuzzyMatcherBenchmark
+{
+   @Param({"1000", "50000"})
+   public int symbols;
+
+   @Setup
+   public void setup()
+   {
+      for (String symbol : new Corpus(SEED).symbols(symbols))
+         candidates_.add(new FuzzyMatcher.Candidate(symbol));
+   }
+
+   // typing a query one character at a time, filtering the matches of the
+   // previous query each time
+   @Benchmark
+   public void refine(Blackhole bh)
+   {
+      List<FuzzyMatcher.Candidate> matches = candidates_;
+      for (int i = 1; i <= QUERY.length(); i++)
+      {
+         FuzzyMatcher matcher = new FuzzyMatcher(QUERY.substring(0, i));
+         matches = matcher.filter(matches, INDEXER);
+         bh.consume(matches);
+      }
+   }
+
+   // filtering everything for a query no symbol matches, which the
+   // character masks should mostly reject
+   @Benchmark
+   public List<FuzzyMatcher.Candidate> reject()
+   {
+      return new FuzzyMatcher("xyz").filter(candidates_, INDEXER);
+   }
+
+   @Benchmark
+   public List<FuzzyMatcher.Candidate> sort()
+   {
+      return new FuzzyMatcher("sc").sort(candidates_, INDEXER, null);
+   }
+
+   private final ArrayList<FuzzyMatcher.Candidate> candidates_ =
+         new ArrayList<FuzzyMatcher.Candidate>();
+
+   private static final FuzzyMatcher.Indexer<FuzzyMatcher.Candidate> INDEXER =
+         new FuzzyMatcher.Indexer<FuzzyMatcher.Candidate>()
+   {
+      @Override
+      public FuzzyMatcher.Candidate getCandidate(FuzzyMatcher.Candidate item)
+      {
+         return item;
+      }
+   };
+
+   private static final String QUERY = "summean";
+   private static final long SEED = 20170101L;
+}
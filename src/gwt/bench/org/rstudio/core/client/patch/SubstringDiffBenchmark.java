@@ -0,0 +1,79 @@
+/*
+ * SubstringDiffBenchmark.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rstudio.bench.Corpus;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubstringDiffBenchmark
+{
+   @Param({"1000", "20000"})
+   public int lines;
+
+   @Setup
+   public void setup()
+   {
+      Corpus corpus = new Corpus(SEED);
+
+      // a keystroke in the middle of a large file, as when the editor's
+      // contents are diffed against the last saved version
+      original_ = corpus.rSource(lines);
+      int middle = original_.length() / 2;
+      edited_ = original_.substring(0, middle) + "x" +
+                original_.substring(middle);
+
+      // a text progress bar being redrawn in the console
+      progress_ = corpus.progressBar(100, 70);
+   }
+
+   @Benchmark
+   public SubstringDiff singleEdit()
+   {
+      return new SubstringDiff(original_, edited_);
+   }
+
+   @Benchmark
+   public SubstringDiff identical()
+   {
+      return new SubstringDiff(original_, original_);
+   }
+
+   @Benchmark
+   public void progressBar(Blackhole bh)
+   {
+      for (int i = 1; i < progress_.size(); i++)
+         bh.consume(new SubstringDiff(progress_.get(i - 1), progress_.get(i)));
+   }
+
+   private String original_;
+   private String edited_;
+   private List<String> progress_;
+
+   private static final long SEED = 20170101L;
+}
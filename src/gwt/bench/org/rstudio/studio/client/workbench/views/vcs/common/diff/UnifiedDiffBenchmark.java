@@ -0,0 +1,95 @@
+/*
+ * UnifiedDiffBenchmark.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.vcs.common.diff;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rstudio.bench.Corpus;
+import org.rstudio.studio.client.workbench.views.vcs.common.diff.Line.Type;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UnifiedDiffBenchmark
+{
+   // lines per file; the diff is of 20 such files
+   @Param({"500", "5000"})
+   public int lines;
+
+   @Setup
+   public void setup()
+   {
+      diff_ = new Corpus(SEED).unifiedDiff(20, lines);
+
+      // stage every other changed line of the first file, as when lines are
+      // selected in the review pane
+      UnifiedParser parser = new UnifiedParser(diff_);
+      parser.nextFilePair();
+      DiffChunk chunk;
+      boolean select = true;
+      while (null != (chunk = parser.nextChunk()))
+      {
+         chunks_.add(chunk);
+         for (Line line : chunk.getLines())
+         {
+            if (line.getType() == Type.Same)
+               continue;
+            if (select)
+               selected_.add(line);
+            select = !select;
+         }
+      }
+   }
+
+   @Benchmark
+   public void parse(Blackhole bh)
+   {
+      UnifiedParser parser = new UnifiedParser(diff_);
+      DiffFileHeader header;
+      while (null != (header = parser.nextFilePair()))
+      {
+         bh.consume(header);
+         DiffChunk chunk;
+         while (null != (chunk = parser.nextChunk()))
+            bh.consume(chunk);
+      }
+   }
+
+   @Benchmark
+   public String emitPatch()
+   {
+      UnifiedEmitter emitter = new UnifiedEmitter("R/file.R");
+      for (DiffChunk chunk : chunks_)
+         emitter.addContext(chunk);
+      emitter.addDiffs(selected_);
+      return emitter.createPatch(true);
+   }
+
+   private String diff_;
+   private final ArrayList<DiffChunk> chunks_ = new ArrayList<DiffChunk>();
+   private final ArrayList<Line> selected_ = new ArrayList<Line>();
+
+   private static final long SEED = 20170101L;
+}
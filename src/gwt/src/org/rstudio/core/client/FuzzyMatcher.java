@@ -0,0 +1,353 @@
+/*
+ * FuzzyMatcher.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Matches a query against candidate strings, the way completions and code
+ * search results are filtered: the query matches if its characters appear
+ * in the candidate in order (ignoring case), and matches are scored so that
+ * those at word boundaries and in contiguous runs are listed first.
+ *
+ * Whatever can be worked out about a candidate ahead of time is kept in a
+ * Candidate, which should be created once and reused for every query; in
+ * particular each has a mask of the characters it contains, so most
+ * candidates that can't match are rejected without looking at them further.
+ *
+ * If a query is a refinement of another (see isRefinementOf) then only the
+ * candidates that matched the other query need to be considered.
+ */
+public class FuzzyMatcher
+{
+   /**
+    * A string to be matched, along with what the matcher needs to know
+    * about it.
+    */
+   public static class Candidate
+   {
+      public Candidate(String text)
+      {
+         this(text, 0);
+      }
+
+      /**
+       * @param penalty Added to the score of every match (negative values
+       *    make the candidate rank higher).
+       */
+      public Candidate(String text, int penalty)
+      {
+         text_ = text;
+         lower_ = text.toLowerCase();
+         mask_ = maskOf(lower_);
+         penalty_ = penalty;
+
+         // positions in the lower case text are used to look up the
+         // original, so in the rare case that lowering changes the length
+         // we make do without the original
+         cased_ = text.length() == lower_.length() ? text : lower_;
+         wordStarts_ = new boolean[cased_.length()];
+         for (int i = 0; i < cased_.length(); i++)
+            wordStarts_[i] = isWordStart(cased_, i);
+      }
+
+      public String getText()
+      {
+         return text_;
+      }
+
+      private final String text_;
+      private final String lower_;
+      private final String cased_;
+      private final int mask_;
+      private final int penalty_;
+      private final boolean[] wordStarts_;
+   }
+
+   public interface Indexer<T>
+   {
+      Candidate getCandidate(T item);
+   }
+
+   public interface Scorer<T>
+   {
+      int score(T item);
+   }
+
+   public FuzzyMatcher(String query)
+   {
+      query_ = query;
+      lower_ = query.toLowerCase();
+      cased_ = query.length() == lower_.length() ? query : lower_;
+      mask_ = maskOf(lower_);
+      positions_ = new int[query.length()];
+   }
+
+   public String getQuery()
+   {
+      return query_;
+   }
+
+   /**
+    * @return True if everything this matcher matches was also matched by
+    *    the other one (that is, if this query extends the other).
+    */
+   public boolean isRefinementOf(FuzzyMatcher other)
+   {
+      return lower_.startsWith(other.lower_);
+   }
+
+   public boolean matches(Candidate candidate)
+   {
+      if ((mask_ & ~candidate.mask_) != 0)
+         return false;
+
+      String text = candidate.lower_;
+      int n = text.length();
+      int m = lower_.length();
+      if (m > n)
+         return false;
+
+      int j = 0;
+      for (int i = 0; i < n && j < m; i++)
+      {
+         if (text.charAt(i) == lower_.charAt(j))
+            j++;
+      }
+      return j == m;
+   }
+
+   /**
+    * @return A penalty for the match (lower is better), or NO_MATCH if the
+    *    query doesn't match the candidate.
+    */
+   public int score(Candidate candidate)
+   {
+      if ((mask_ & ~candidate.mask_) != 0)
+         return NO_MATCH;
+
+      String text = candidate.lower_;
+      int n = text.length();
+      int m = lower_.length();
+      if (m > n)
+         return NO_MATCH;
+      if (m == 0)
+         return candidate.penalty_;
+
+      // find the last position each character of the query could be
+      // matched at and still leave room to match the rest
+      int[] latest = positions_;
+      int pos = n;
+      for (int j = m - 1; j >= 0; j--)
+      {
+         pos = text.lastIndexOf(lower_.charAt(j), pos - 1);
+         if (pos == -1)
+            return NO_MATCH;
+         latest[j] = pos;
+      }
+
+      // match each character of the query in turn: preferably right after
+      // the previous one, then at the start of a word, then wherever it
+      // first appears
+      int penalty = candidate.penalty_;
+      int prev = -1;
+      for (int j = 0; j < m; j++)
+      {
+         char ch = lower_.charAt(j);
+         int match = -1;
+         if (text.charAt(prev + 1) == ch)
+         {
+            match = prev + 1;
+         }
+         else
+         {
+            for (int i = prev + 1; i <= latest[j]; i++)
+            {
+               if (text.charAt(i) != ch)
+                  continue;
+               if (match == -1)
+                  match = i;
+               if (candidate.wordStarts_[i])
+               {
+                  match = i;
+                  break;
+               }
+            }
+         }
+
+         if (match == prev + 1)
+            penalty += CONTIGUOUS;
+         else if (candidate.wordStarts_[match])
+            penalty += WORD_START;
+         else
+            penalty += SCATTERED + Math.min(match - prev - 1, MAX_GAP);
+
+         // a capital in the query counts for a little, since it was
+         // presumably typed on purpose
+         char typed = cased_.charAt(j);
+         if (typed != ch && candidate.cased_.charAt(match) != typed)
+            penalty += CASE_MISMATCH;
+
+         prev = match;
+      }
+
+      return penalty;
+   }
+
+   /**
+    * @return The items whose candidates match the query, in their original
+    *    order.
+    */
+   public <T> ArrayList<T> filter(List<T> items, Indexer<T> indexer)
+   {
+      ArrayList<T> result = new ArrayList<T>();
+      for (int i = 0, n = items.size(); i < n; i++)
+      {
+         T item = items.get(i);
+         if (matches(indexer.getCandidate(item)))
+            result.add(item);
+      }
+      return result;
+   }
+
+   /**
+    * @return A copy of the items sorted by score, best first, with those
+    *    that don't match at the end. Each item is only scored once.
+    *
+    * @param tiebreak Orders items with the same score; if null they're left
+    *    in their original order.
+    */
+   public <T> ArrayList<T> sort(List<T> items,
+                                final Indexer<T> indexer,
+                                Comparator<? super T> tiebreak)
+   {
+      return sortByScore(items, new Scorer<T>()
+      {
+         @Override
+         public int score(T item)
+         {
+            return FuzzyMatcher.this.score(indexer.getCandidate(item));
+         }
+      }, tiebreak);
+   }
+
+   /**
+    * @return A copy of the items sorted by the given scores (lower is
+    *    better). Each item is only scored once.
+    */
+   public static <T> ArrayList<T> sortByScore(
+         List<T> items,
+         Scorer<T> scorer,
+         final Comparator<? super T> tiebreak)
+   {
+      ArrayList<Scored<T>> scored = new ArrayList<Scored<T>>(items.size());
+      for (int i = 0, n = items.size(); i < n; i++)
+      {
+         T item = items.get(i);
+         scored.add(new Scored<T>(item, scorer.score(item)));
+      }
+
+      Collections.sort(scored, new Comparator<Scored<T>>()
+      {
+         @Override
+         public int compare(Scored<T> lhs, Scored<T> rhs)
+         {
+            if (lhs.score != rhs.score)
+               return lhs.score < rhs.score ? -1 : 1;
+            return tiebreak == null ? 0 : tiebreak.compare(lhs.item, rhs.item);
+         }
+      });
+
+      ArrayList<T> result = new ArrayList<T>(scored.size());
+      for (int i = 0, n = scored.size(); i < n; i++)
+         result.add(scored.get(i).item);
+      return result;
+   }
+
+   private static class Scored<T>
+   {
+      public Scored(T item, int score)
+      {
+         this.item = item;
+         this.score = score;
+      }
+
+      public final T item;
+      public final int score;
+   }
+
+   // a bit for each letter, one for all the digits, and a few for the
+   // punctuation that's common in names and paths (the rest share the last
+   // bit); an int rather than a long since longs are emulated in script
+   private static int maskOf(String lower)
+   {
+      int mask = 0;
+      for (int i = 0; i < lower.length(); i++)
+      {
+         char ch = lower.charAt(i);
+         if (ch >= 'a' && ch <= 'z')
+            mask |= 1 << (ch - 'a');
+         else if (ch >= '0' && ch <= '9')
+            mask |= 1 << 26;
+         else if (ch == '.')
+            mask |= 1 << 27;
+         else if (ch == '_')
+            mask |= 1 << 28;
+         else if (ch == '-')
+            mask |= 1 << 29;
+         else if (ch == '/')
+            mask |= 1 << 30;
+         else
+            mask |= 1 << 31;
+      }
+      return mask;
+   }
+
+   // words start at the beginning of the string, after punctuation (as in
+   // snake_case, dotted.names and paths) and at capitals following lower
+   // case letters (as in camelCase)
+   private static boolean isWordStart(String text, int i)
+   {
+      if (i == 0)
+         return true;
+
+      char ch = text.charAt(i);
+      char prev = text.charAt(i - 1);
+      if (!Character.isLetterOrDigit(ch))
+         return false;
+      if (!Character.isLetterOrDigit(prev))
+         return true;
+      return Character.isUpperCase(ch) && Character.isLowerCase(prev);
+   }
+
+   public static final int NO_MATCH = Integer.MAX_VALUE;
+
+   private static final int CONTIGUOUS = 0;
+   private static final int WORD_START = 1;
+   private static final int SCATTERED = 2;
+   private static final int MAX_GAP = 8;
+   private static final int CASE_MISMATCH = 1;
+
+   private final String query_;
+   private final String lower_;
+   private final String cased_;
+   private final int mask_;
+
+   // scratch space for score
+   private final int[] positions_;
+}
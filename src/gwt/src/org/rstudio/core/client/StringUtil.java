@@ -1124,6 +1124,32 @@ public class StringUtil
 
       return ((crc ^ (-1)) >>> 0).toString(16);
    }-*/;
+
+   /**
+    * Computes a 32-bit CRC checksum of the UTF-8 encoding of a string, which
+    * matches the checksum the server computes for the same text.
+    * 
+    * @param str The string on which to compute the checksum
+    * @return The checksum value, as a hexadecimal string, or null if the
+    *    string isn't valid UTF-16 (e.g. it contains unpaired surrogates)
+    */
+   public static final String crc32Utf8(String str)
+   {
+      String bytes = encodeUtf8(str);
+      return bytes == null ? null : crc32(bytes);
+   }
+   
+   // returns a string with one character per byte of the UTF-8 encoding 
+   private static final native String encodeUtf8(String str)/*-{
+      try
+      {
+         return unescape(encodeURIComponent(str));
+      }
+      catch (e)
+      {
+         return null;
+      }
+   }-*/;
    
    private static final NumberFormat FORMAT = NumberFormat.getFormat("0.#");
    private static final NumberFormat PRETTY_NUMBER_FORMAT = NumberFormat.getFormat("#,##0.#####");
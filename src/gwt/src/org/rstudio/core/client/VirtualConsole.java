@@ -15,6 +15,8 @@
 package org.rstudio.core.client;
 
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.rstudio.core.client.regex.Match;
 import org.rstudio.core.client.regex.Pattern;
@@ -24,6 +26,7 @@ import org.rstudio.studio.client.workbench.prefs.model.UIPrefs;
 import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.dom.client.Document;
 import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.Node;
 import com.google.gwt.dom.client.SpanElement;
 import com.google.gwt.dom.client.Text;
 import com.google.inject.Inject;
@@ -117,6 +120,8 @@ public class VirtualConsole
       if (pos_ == 0)
          return;
       o.deleteCharAt(--pos_);
+      deleteClassAt(pos_);
+      invalidate(pos_);
    }
 
    private void carriageReturn()
@@ -140,41 +145,83 @@ public class VirtualConsole
    {
       o.setLength(0);
       pos_ = 0;
-      charClass.clear();
+      classRuns_.clear();
+      invalidate(0);
    }
 
    private void text(String text, String className)
    {
       assert text.indexOf('\r') < 0 && text.indexOf('\b') < 0;
+      if (text.length() == 0)
+         return;
 
       int endPos = pos_ + text.length();
+      int oldLength = o.length();
       
       o.replace(pos_, endPos, text);
+      invalidate(pos_);
       
-      // record the class of each character emitted
-      if (className != null) 
-      {
-         padCharClass(endPos);
-         for (int i = pos_; i < endPos; i++)
-         {
-            charClass.set(i, className);
-         }
-      }
+      // record the class of the characters emitted; unclassed text leaves
+      // the class of any characters it overwrites intact
+      if (className != null)
+         setClass(pos_, endPos, className);
+      else if (endPos > oldLength)
+         setClass(Math.max(pos_, oldLength), endPos, null);
 
       pos_ = endPos;
    }
    
-   // ensures that the character class mapping buffer is at least 'len' 
-   // characters long (note that ensureCapacity just reallocs the underlying
-   // JavaScript array if necessary)
-   private void padCharClass(int len)
+   // assigns the given class to the characters in [start, end), splitting 
+   // and merging runs as necessary
+   private void setClass(int start, int end, String className)
+   {
+      // the class that must resume at the end of the range
+      boolean resume = end < o.length();
+      String endClass = classAt(end);
+      
+      classRuns_.subMap(start, true, end, true).clear();
+      
+      Map.Entry<Integer, String> prev = classRuns_.lowerEntry(start);
+      if (prev == null ? className != null : 
+                         !sameClass(prev.getValue(), className))
+      {
+         classRuns_.put(start, className);
+      }
+      
+      if (resume && !sameClass(endClass, className))
+         classRuns_.put(end, endClass);
+   }
+   
+   // removes the character at the given position from the class runs, 
+   // shifting all subsequent runs down by one
+   private void deleteClassAt(int pos)
    {
-      int curSize = charClass.size();
-      if (curSize >= len)
+      Map<Integer, String> tail = classRuns_.tailMap(pos, false);
+      if (tail.isEmpty())
          return;
-      charClass.ensureCapacity(len);
-      for (int i = 0; i < (len - curSize); i++)
-         charClass.add(null);
+      
+      // copy the runs out before clearing them (map entries aren't stable 
+      // across removals)
+      ArrayList<Integer> starts = new ArrayList<Integer>(tail.keySet());
+      ArrayList<String> classes = new ArrayList<String>(tail.values());
+      tail.clear();
+      
+      // if the run beginning here consisted of just the deleted character, 
+      // it's replaced by the run that follows it
+      if (starts.get(0) == pos + 1)
+         classRuns_.remove(pos);
+      
+      for (int i = 0; i < starts.size(); i++)
+         classRuns_.put(starts.get(i) - 1, classes.get(i));
+      
+      // merge with the preceding run if the classes now agree
+      Map.Entry<Integer, String> run = classRuns_.ceilingEntry(pos);
+      Map.Entry<Integer, String> prev = classRuns_.lowerEntry(pos);
+      if (run != null && run.getKey() == pos && prev != null &&
+          sameClass(run.getValue(), prev.getValue()))
+      {
+         classRuns_.remove(pos);
+      }
    }
    
    @Override
@@ -182,7 +229,7 @@ public class VirtualConsole
    {
       String output = o.toString();
       
-      int maxLength = prefs_.truncateLongLinesInConsoleHistory().getGlobalValue();
+      int maxLength = getMaxLineLength();
       if (maxLength == 0)
          return output;
       
@@ -192,7 +239,7 @@ public class VirtualConsole
          String string = splat.get(i);
          String trimmed = StringUtil.trimRight(string);
          if (trimmed.length() > maxLength)
-            splat.set(i, trimmed.substring(0, maxLength) + "... <truncated>");
+            splat.set(i, trimmed.substring(0, maxLength) + TRUNCATED);
          else if (string.length() > maxLength)
             splat.set(i, string.substring(0, maxLength));
       }
@@ -208,25 +255,40 @@ public class VirtualConsole
    
    public void submitAndRender(String data, String clazz, Element parent)
    {
-      if (!submit(data, clazz))
+      submit(data, clazz);
+      
+      // first render into this parent; just append our output
+      if (parent_ == null)
       {
-         // output isn't append-only; redraw the whole thing
-         // (note that even this isn't technically necessary but control 
-         // characters are relatively infrequent and additional bookkeeping
-         // would be required to determine the invalidated range when 
-         // control characters are used)
-         redraw(parent);
+         parent_ = parent;
+         renderFrom(0);
+         return;
       }
-      else
+      
+      // if we don't have an intact rendering of the buffer in this parent
+      // (e.g. it's a new parent or its content was cleared out from under us)
+      // then we need to draw everything
+      if (parent != parent_ || !isRenderIntact())
       {
-         // consolify just the data to be rendered
-         emitRange(consolify(data), clazz, parent);
+         redraw(parent);
+         return;
       }
+      
+      // nothing was written since we last rendered
+      if (dirtyStart_ == Integer.MAX_VALUE)
+         return;
+      
+      // replace just the invalidated range; progress bars and other 
+      // \r-driven output only dirty the tail of the buffer, so this is
+      // proportional to the length of the line being redrawn
+      renderFrom(Math.min(dirtyStart_, renderedLength()));
    }
    
    public void clear()
    {
       formfeed();
+      rendered_.clear();
+      parent_ = null;
    }
    
    public static String consolify(String text)
@@ -236,66 +298,254 @@ public class VirtualConsole
       return console.toString();
    }
 
-   private void emitRange(String text, String clazz, Element parent)
+   private Node emitRange(String text, String clazz, Element parent, 
+                          Node before)
    {
       if (StringUtil.isNullOrEmpty(text))
-         return;
+         return null;
       Text textNode = Document.get().createTextNode(text);
+      Node node = textNode;
       if (clazz != null)
       {
          SpanElement span = Document.get().createSpanElement();
          span.addClassName(clazz);
-         parent.appendChild(span);
-         parent = span;
+         span.appendChild(textNode);
+         node = span;
       }
-      parent.appendChild(textNode);
+      parent.insertBefore(node, before);
+      return node;
    }
    
    public void redraw(Element parent)
    {
-      // convert to a plain-text string
-      String plainText = toString();
-      int len = plainText.length();
-      String lastClass = null;
-      padCharClass(len);
-      
       // clean existing content
       parent.setInnerHTML("");
+      rendered_.clear();
+      parent_ = parent;
       
-      // for performance reasons, we don't emit one character at a time;
-      // instead, we keep track of the string indices that correspond to
-      // contiguous runs of characters to emit into the stream
-      int accumulateBegin = 0;
-      int accumulateEnd = 0;
-
-      // iterate in lockstep over the plain-text string and character class
-      // assignment list; emit the appropriate tags when switching classes
-      for (int i = 0; i < len; i++)
+      renderFrom(0);
+   }
+   
+   // re-renders the buffer beginning at the given offset, discarding any
+   // previously rendered output at or after that offset
+   private void renderFrom(int start)
+   {
+      // whether (and where) a line is truncated depends on all of it, so
+      // when lines are truncated whole lines are redrawn
+      int maxLength = getMaxLineLength();
+      if (maxLength > 0)
+         start = lineStart(Math.min(start, o.length()));
+      
+      Node before = null;
+      int idx = findRendered(start);
+      if (idx < rendered_.size())
       {
-         if (!charClass.get(i).equals(lastClass))
+         // remember where the output goes so that we don't disturb any
+         // content the host added after ours
+         before = rendered_.get(rendered_.size() - 1).node.getNextSibling();
+         
+         // if the invalidated range begins partway into a rendered node, 
+         // trim that node rather than re-emitting it (unless it holds a
+         // truncated line, in which case its text doesn't line up with the
+         // buffer)
+         RenderedRange range = rendered_.get(idx);
+         if (start > range.start && !range.isExact())
+         {
+            start = range.start;
+         }
+         else if (start > range.start)
          {
-            emitRange(
-                  plainText.substring(accumulateBegin, accumulateEnd),
-                  lastClass, parent);
-            
-            // begin accumulating from the emitted point
-            accumulateBegin = accumulateEnd;
+            range.text.deleteData(start - range.start, range.end - start);
+            range.end = start;
+            idx++;
+         }
+         
+         for (int i = rendered_.size() - 1; i >= idx; i--)
+         {
+            rendered_.get(i).node.removeFromParent();
+            rendered_.remove(i);
          }
-         lastClass = charClass.get(i);
-         accumulateEnd = i;
       }
-
-      // finishing up--emit accumulated text into stream
-      emitRange(
-            plainText.substring(accumulateBegin),
-            lastClass, parent);
-      return;
+      
+      // emit one node per class run
+      int len = o.length();
+      int runStart = start;
+      while (runStart < len)
+      {
+         String clazz = classAt(runStart);
+         Integer next = classRuns_.higherKey(runStart);
+         int runEnd = next == null ? len : Math.min(next, len);
+         
+         String text = maxLength > 0 ?
+               truncatedText(runStart, runEnd, maxLength) :
+               null;
+         boolean exact = text == null;
+         if (exact)
+            text = o.substring(runStart, runEnd);
+         
+         // (runs that are truncated away entirely have nothing to show)
+         Node node = emitRange(text, clazz, parent_, before);
+         if (node != null)
+            rendered_.add(new RenderedRange(runStart, runEnd, node, exact));
+         runStart = runEnd;
+      }
+      
+      dirtyStart_ = Integer.MAX_VALUE;
    }
+   
+   // returns the part of the buffer in [start, end) that's shown when lines
+   // longer than maxLength are truncated, as they are by toString(), or
+   // null if none of it is truncated
+   private String truncatedText(int start, int end, int maxLength)
+   {
+      StringBuilder text = new StringBuilder();
+      boolean truncated = false;
+      int pos = start;
+      while (pos < end)
+      {
+         int lineStart = lineStart(pos);
+         int newline = o.indexOf("\n", pos);
+         int lineEnd = newline == -1 ? o.length() : newline;
+         int cut = lineStart + maxLength;
+         
+         int segmentEnd = Math.min(end, lineEnd);
+         truncated |= segmentEnd > cut;
+         text.append(o.substring(pos, Math.max(pos, Math.min(segmentEnd, cut))));
+         
+         // the marker goes where the line is cut, if that's in this range
+         if (cut >= pos && cut < segmentEnd &&
+             trimmedLineEnd(lineStart, lineEnd) > cut)
+         {
+            text.append(TRUNCATED);
+         }
+         
+         if (newline == -1 || newline >= end)
+            break;
+         
+         text.append('\n');
+         pos = newline + 1;
+      }
+      return truncated ? text.toString() : null;
+   }
+   
+   // returns the offset at which the line containing pos begins
+   private int lineStart(int pos)
+   {
+      return pos == 0 ? 0 : o.lastIndexOf("\n", pos - 1) + 1;
+   }
+   
+   // returns the end of the line in [lineStart, lineEnd) once any trailing
+   // whitespace is dropped
+   private int trimmedLineEnd(int lineStart, int lineEnd)
+   {
+      int end = lineEnd;
+      while (end > lineStart && isWhitespace(o.charAt(end - 1)))
+         end--;
+      return end;
+   }
+   
+   private static boolean isWhitespace(char c)
+   {
+      return c == ' ' || c == '\t' || c == '\f' || c == '\u000B';
+   }
+   
+   private int getMaxLineLength()
+   {
+      return prefs_.truncateLongLinesInConsoleHistory().getGlobalValue();
+   }
+   
+   // returns the index of the first rendered range ending after the given 
+   // offset
+   private int findRendered(int offset)
+   {
+      int lo = 0;
+      int hi = rendered_.size();
+      while (lo < hi)
+      {
+         int mid = (lo + hi) >>> 1;
+         if (rendered_.get(mid).end <= offset)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      return lo;
+   }
+   
+   private int renderedLength()
+   {
+      return rendered_.isEmpty() ? 0 : rendered_.get(rendered_.size() - 1).end;
+   }
+   
+   private boolean isRenderIntact()
+   {
+      if (parent_ == null)
+         return false;
+      if (rendered_.isEmpty())
+         return true;
+      return rendered_.get(rendered_.size() - 1).node.getParentNode() == parent_;
+   }
+   
+   private String classAt(int pos)
+   {
+      Map.Entry<Integer, String> run = classRuns_.floorEntry(pos);
+      return run == null ? null : run.getValue();
+   }
+   
+   private static boolean sameClass(String a, String b)
+   {
+      return a == null ? b == null : a.equals(b);
+   }
+   
+   private void invalidate(int pos)
+   {
+      if (pos < dirtyStart_)
+         dirtyStart_ = pos;
+   }
+   
+   private static class RenderedRange
+   {
+      public RenderedRange(int start, int end, Node node, boolean exact)
+      {
+         this.start = start;
+         this.end = end;
+         this.node = node;
+         this.exact = exact;
+         this.text = node.getNodeType() == Node.TEXT_NODE ? 
+               (Text) node : (Text) node.getFirstChild();
+      }
+      
+      // true if the node shows exactly the buffer's text in [start, end),
+      // i.e. no line in it was truncated
+      public boolean isExact()
+      {
+         return exact;
+      }
+      
+      public final int start;
+      public int end;
+      public final Node node;
+      public final Text text;
+      private final boolean exact;
+   }
+   
    private final StringBuilder o = new StringBuilder();
-   private final ArrayList<String> charClass = new ArrayList<String>();
+   
+   // the class of each run of characters in the buffer, keyed by the offset 
+   // at which the run begins; each run extends to the start of the next
+   private final TreeMap<Integer, String> classRuns_ = 
+         new TreeMap<Integer, String>();
    private int pos_ = 0;
+   
+   // the portion of the buffer which has changed since it was last rendered
+   private int dirtyStart_ = Integer.MAX_VALUE;
+   
+   // the DOM nodes we've rendered, in buffer order
+   private final ArrayList<RenderedRange> rendered_ = 
+         new ArrayList<RenderedRange>();
+   private Element parent_;
    private static final Pattern CONTROL = Pattern.create("[\r\b\f\n]");
    private static final Pattern CONTROL_SPECIAL = Pattern.create("[\r\b\f]");
+   private static final String TRUNCATED = "... <truncated>";
    
    // Injected ----
    private UIPrefs prefs_;
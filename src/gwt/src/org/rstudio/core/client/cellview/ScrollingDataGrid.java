@@ -30,6 +30,13 @@ public class ScrollingDataGrid<T> extends DataGrid<T>
       super(pageSize, keyProvider);
    }
 
+   public ScrollingDataGrid(int pageSize,
+                            Resources resources,
+                            ProvidesKey<T> keyProvider)
+   {
+      super(pageSize, resources, keyProvider);
+   }
+
    public ScrollPanel getScrollPanel() {
       HeaderPanel header = (HeaderPanel) getWidget();
       return (ScrollPanel) header.getContentWidget();
@@ -21,12 +21,15 @@ import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONString;
 import com.google.gwt.user.client.Random;
 import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.metrics.Metrics;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
 
-// NOTE: RpcRequest is an immutable object (all fields are marked final).
-// this means that it is safe to re-submit an RpcRequest since the 
-// re-submission will always be identical to the initial submission (useful
-// for retries after network or authentication errors)
+// NOTE: the contents of an RpcRequest are immutable (the fields describing
+// the call are all marked final; only the state of the submission in flight,
+// including any batch it was queued in, changes). this means that it is safe
+// to re-submit an RpcRequest since the re-submission will always be identical
+// to the initial submission (useful for retries after network or
+// authentication errors)
 public class RpcRequest 
 {
    public static final boolean TRACE = false ;
@@ -63,23 +66,7 @@ public class RpcRequest
       final RpcRequestCallback requestCallback = callback ;
       
       // build json request object
-      JSONObject request = new JSONObject() ;
-      request.put("method", new JSONString(method_)) ;
-      if ( params_ != null )
-         request.put("params", params_);  
-      if ( kwparams_ != null)
-         request.put("kwparams", kwparams_);
-      
-      // add src window if we have it
-      if (sourceWindow_ != null)
-         request.put("sourceWnd", sourceWindow_);
-      
-      // add client id if we have it
-      if (clientId_ != null)
-         request.put("clientId", clientId_);
-      
-      // add client version
-      request.put("clientVersion", clientVersion_);
+      JSONObject request = toJSONObject();
       
       // configure request builder
       RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, url_);
@@ -98,6 +85,7 @@ public class RpcRequest
          requestLogEntry_ = RequestLog.log(requestId,
                                            redactLog_ ? "[REDACTED]"
                                                       : requestString);
+         startTime_ = Metrics.now();
 
          request_ = builder.sendRequest(requestString, new RequestCallback() {
             
@@ -119,6 +107,8 @@ public class RpcRequest
                int status = response.getStatusCode();
                if ( status == 200 )
                {
+                  Metrics.record(Metrics.RPC, method_, startTime_);
+                  
                   // attempt to parse the response
                   RpcResponse rpcResponse = null ;
                   try
@@ -184,8 +174,45 @@ public class RpcRequest
       }
    }
    
+   public String getMethod()
+   {
+      return method_;
+   }
+   
+   // the json-rpc representation of this request
+   public JSONObject toJSONObject()
+   {
+      JSONObject request = new JSONObject() ;
+      request.put("method", new JSONString(method_)) ;
+      if ( params_ != null )
+         request.put("params", params_);  
+      if ( kwparams_ != null)
+         request.put("kwparams", kwparams_);
+      
+      // add src window if we have it
+      if (sourceWindow_ != null)
+         request.put("sourceWnd", sourceWindow_);
+      
+      // add client id if we have it
+      if (clientId_ != null)
+         request.put("clientId", clientId_);
+      
+      // add client version
+      request.put("clientVersion", clientVersion_);
+      
+      return request;
+   }
+   
    public void cancel()
    {
+      // a batched request is dropped from its batch (or if the batch has
+      // already been sent, its response is ignored)
+      if (batch_ != null)
+      {
+         batch_.cancel(this);
+         batch_ = null;
+      }
+      
       if (request_ != null)
       {
          request_.cancel();
@@ -198,6 +225,12 @@ public class RpcRequest
          requestLogEntry_ = null;
       }
    }
+   
+   // the batch this request is to be (or was) sent with, if any
+   void setBatch(RpcRequestBatch batch)
+   {
+      batch_ = batch;
+   }
      
    final private String url_ ;
    final private String method_ ;
@@ -209,6 +242,8 @@ public class RpcRequest
    final private JSONString clientVersion_;
    private Request request_ = null;
    private RequestLogEntry requestLogEntry_ = null;
+   private double startTime_;
+   private RpcRequestBatch batch_ = null;
    
      
 }
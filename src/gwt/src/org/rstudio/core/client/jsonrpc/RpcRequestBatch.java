@@ -0,0 +1,248 @@
+/*
+ * RpcRequestBatch.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
+import org.rstudio.core.client.metrics.Metrics;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.user.client.Random;
+
+// Collects the requests enqueued during a single turn of the event loop and
+// sends them to the server as a single HTTP request. The server replies with
+// an array holding the response to each request, in order, and each
+// request's callback is invoked just as if it had been sent on its own.
+public class RpcRequestBatch
+{
+   public RpcRequestBatch(String url)
+   {
+      url_ = url;
+   }
+
+   public void enqueue(RpcRequest request, RpcRequestCallback callback)
+   {
+      request.setBatch(this);
+      pending_.add(new PendingRequest(request, callback));
+      if (pending_.size() == 1)
+      {
+         Scheduler.get().scheduleFinally(new ScheduledCommand()
+         {
+            @Override
+            public void execute()
+            {
+               flush();
+            }
+         });
+      }
+   }
+
+   // called by RpcRequest.cancel
+   void cancel(RpcRequest request)
+   {
+      for (int i = 0; i < pending_.size(); i++)
+      {
+         if (pending_.get(i).request == request)
+         {
+            pending_.remove(i);
+            return;
+         }
+      }
+      
+      for (PendingRequest sent : sent_)
+      {
+         if (sent.request == request)
+            sent.cancelled = true;
+      }
+   }
+
+   private void flush()
+   {
+      final ArrayList<PendingRequest> requests = pending_;
+      pending_ = new ArrayList<PendingRequest>();
+
+      // everything may have been cancelled in the meantime
+      if (requests.isEmpty())
+         return;
+
+      // nothing to be gained by wrapping a lone request
+      if (requests.size() == 1)
+      {
+         requests.get(0).request.setBatch(null);
+         requests.get(0).send();
+         return;
+      }
+      sent_.addAll(requests);
+
+      JSONArray batch = new JSONArray();
+      for (int i = 0; i < requests.size(); i++)
+         batch.set(i, requests.get(i).request.toJSONObject());
+      JSONObject body = new JSONObject();
+      body.put("requests", batch);
+
+      RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, url_);
+      builder.setHeader("Content-Type", "application/json") ;
+      builder.setHeader("Accept", "application/json");
+      String requestId = Integer.toString(Random.nextInt());
+      builder.setHeader("X-RS-RID", requestId);
+
+      final RequestLogEntry logEntry = RequestLog.log(requestId,
+            "[batch of " + requests.size() + " requests]");
+      final double startTime = Metrics.now();
+
+      try
+      {
+         builder.sendRequest(body.toString(), new RequestCallback()
+         {
+            public void onError(Request request, Throwable exception)
+            {
+               logEntry.logResponse(ResponseType.Error,
+                                    exception.getLocalizedMessage());
+               fail(requests, exception.getLocalizedMessage());
+            }
+
+            public void onResponseReceived(Request request,
+                                           Response response)
+            {
+               int status = response.getStatusCode();
+               if (status != 200)
+               {
+                  String message = status == 0 ?
+                        "Unable to establish connection with R session" :
+                        "Status code " + Integer.toString(status) +
+                        " returned";
+                  logEntry.logResponse(ResponseType.Unknown, message);
+                  fail(requests, message);
+                  return;
+               }
+
+               // each request took as long as the batch it went out in
+               for (PendingRequest pending : requests)
+               {
+                  if (!pending.cancelled)
+                     Metrics.record(Metrics.RPC,
+                                    pending.request.getMethod(),
+                                    startTime);
+               }
+
+               String responseText = response.getText();
+               logEntry.logResponse(ResponseType.Normal, responseText);
+
+               JsArray<RpcResponse> responses = parseResponses(responseText);
+               if (responses == null || responses.length() != requests.size())
+               {
+                  fail(requests, "Invalid batch response");
+                  return;
+               }
+
+               sent_.removeAll(requests);
+               for (int i = 0; i < requests.size(); i++)
+               {
+                  PendingRequest pending = requests.get(i);
+                  if (pending.cancelled)
+                     continue;
+                  pending.request.setBatch(null);
+                  
+                  // an exception in one callback shouldn't stop the rest of
+                  // the batch from being delivered
+                  try
+                  {
+                     pending.callback.onResponseReceived(pending.request,
+                                                         responses.get(i));
+                  }
+                  catch (Exception e)
+                  {
+                     Debug.logException(e);
+                  }
+               }
+            }
+         });
+      }
+      catch (RequestException e)
+      {
+         logEntry.logResponse(ResponseType.Unknown, e.getLocalizedMessage());
+         fail(requests, e.getLocalizedMessage());
+      }
+   }
+
+   private void fail(ArrayList<PendingRequest> requests, String message)
+   {
+      sent_.removeAll(requests);
+      RpcError error = RpcError.create(RpcError.TRANSMISSION_ERROR, message);
+      for (PendingRequest pending : requests)
+      {
+         if (pending.cancelled)
+            continue;
+         pending.request.setBatch(null);
+         try
+         {
+            pending.callback.onError(pending.request, error);
+         }
+         catch (Exception e)
+         {
+            Debug.logException(e);
+         }
+      }
+   }
+
+   private static native JsArray<RpcResponse> parseResponses(String json) /*-{
+      try
+      {
+         var responses = JSON.parse(json);
+         return (responses instanceof Array) ? responses : null;
+      }
+      catch (e)
+      {
+         return null;
+      }
+   }-*/;
+
+   private static class PendingRequest
+   {
+      public PendingRequest(RpcRequest request, RpcRequestCallback callback)
+      {
+         this.request = request;
+         this.callback = callback;
+      }
+
+      public void send()
+      {
+         request.send(callback);
+      }
+
+      public final RpcRequest request;
+      public final RpcRequestCallback callback;
+      public boolean cancelled = false;
+   }
+
+   private final String url_;
+   private ArrayList<PendingRequest> pending_ =
+         new ArrayList<PendingRequest>();
+   
+   // requests in batches that have been sent but not yet answered
+   private final ArrayList<PendingRequest> sent_ =
+         new ArrayList<PendingRequest>();
+}
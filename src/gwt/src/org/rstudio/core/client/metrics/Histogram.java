@@ -0,0 +1,145 @@
+/*
+ * Histogram.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.metrics;
+
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+
+/**
+ * A histogram of durations (in milliseconds). Rather than keeping every
+ * sample, each is counted in one of a fixed set of buckets whose bounds grow
+ * geometrically (four to each doubling), so recording a sample is cheap and
+ * the percentiles reported are accurate to within about 20%.
+ */
+public class Histogram
+{
+   public Histogram(String category, String name)
+   {
+      category_ = category;
+      name_ = name;
+   }
+
+   public String getCategory()
+   {
+      return category_;
+   }
+
+   public String getName()
+   {
+      return name_;
+   }
+
+   public void record(double millis)
+   {
+      if (count_ == 0 || millis < min_)
+         min_ = millis;
+      if (count_ == 0 || millis > max_)
+         max_ = millis;
+      count_++;
+      total_ += millis;
+      buckets_[getBucket(millis)]++;
+   }
+
+   public int getCount()
+   {
+      return count_;
+   }
+
+   public double getTotal()
+   {
+      return total_;
+   }
+
+   public double getMean()
+   {
+      return count_ == 0 ? 0 : total_ / count_;
+   }
+
+   public double getMin()
+   {
+      return min_;
+   }
+
+   public double getMax()
+   {
+      return max_;
+   }
+
+   /**
+    * @return An estimate of the given percentile (from 0 to 100) of the
+    *    samples: the upper bound of the bucket it falls in, but no more
+    *    than the largest sample.
+    */
+   public double getPercentile(double percentile)
+   {
+      if (count_ == 0)
+         return 0;
+
+      long rank = (long) Math.ceil(count_ * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < buckets_.length; i++)
+      {
+         seen += buckets_[i];
+         if (seen >= rank && seen > 0)
+            return Math.min(getUpperBound(i), max_);
+      }
+      return max_;
+   }
+
+   public JSONObject toJSONObject()
+   {
+      JSONObject object = new JSONObject();
+      object.put("category", new JSONString(category_));
+      object.put("name", new JSONString(name_));
+      object.put("count", new JSONNumber(count_));
+      object.put("total", new JSONNumber(total_));
+      object.put("mean", new JSONNumber(getMean()));
+      object.put("min", new JSONNumber(min_));
+      object.put("max", new JSONNumber(max_));
+      object.put("p50", new JSONNumber(getPercentile(50)));
+      object.put("p90", new JSONNumber(getPercentile(90)));
+      object.put("p99", new JSONNumber(getPercentile(99)));
+      return object;
+   }
+
+   private static int getBucket(double millis)
+   {
+      if (millis <= 1)
+         return 0;
+      int bucket = (int) Math.ceil(Math.log(millis) / LOG_2 * 
+                                   BUCKETS_PER_DOUBLING);
+      return Math.min(bucket, BUCKET_COUNT - 1);
+   }
+
+   private static double getUpperBound(int bucket)
+   {
+      return Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING);
+   }
+
+   private final String category_;
+   private final String name_;
+   private int count_ = 0;
+   private double total_ = 0;
+   private double min_ = 0;
+   private double max_ = 0;
+   private final int[] buckets_ = new int[BUCKET_COUNT];
+
+   // bucket 0 holds samples up to 1ms; the last holds anything over about
+   // 17 minutes
+   private static final int BUCKETS_PER_DOUBLING = 4;
+   private static final int BUCKET_COUNT = 20 * BUCKETS_PER_DOUBLING + 1;
+   private static final double LOG_2 = Math.log(2);
+}
@@ -0,0 +1,135 @@
+/*
+ * Metrics.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+
+/**
+ * Collects histograms of how long things take on the client: RPC round
+ * trips (by method), client event dispatch (by event type), and pane
+ * rendering (by pane). Timing something is just a matter of calling now()
+ * when it starts and record() when it's done; times are kept as doubles so
+ * that none of this goes through GWT's (slow) emulation of long.
+ */
+public class Metrics
+{
+   public static final String RPC = "rpc";
+   public static final String CLIENT_EVENT = "client_event";
+   public static final String RENDER = "render";
+
+   /**
+    * @return The current time, in milliseconds, to be passed to record()
+    *    later.
+    */
+   public static double now()
+   {
+      return Duration.currentTimeMillis();
+   }
+
+   /**
+    * Records the time elapsed since the given start time (as returned by
+    * now()).
+    */
+   public static void record(String category, String name, double startTime)
+   {
+      getHistogram(category, name).record(now() - startTime);
+   }
+
+   /**
+    * Records the time elapsed between the given start time and the end of
+    * the current event loop, by which time the browser has been handed any
+    * DOM changes (e.g. cell tables redraw as the event loop finishes).
+    */
+   public static void recordRender(final String name, final double startTime)
+   {
+      Scheduler.get().scheduleDeferred(new ScheduledCommand()
+      {
+         @Override
+         public void execute()
+         {
+            record(RENDER, name, startTime);
+         }
+      });
+   }
+
+   /**
+    * @return The histograms, sorted by category and then by name.
+    */
+   public static ArrayList<Histogram> getHistograms()
+   {
+      ArrayList<Histogram> histograms = 
+            new ArrayList<Histogram>(histograms_.values());
+      Collections.sort(histograms, new Comparator<Histogram>()
+      {
+         @Override
+         public int compare(Histogram lhs, Histogram rhs)
+         {
+            int result = lhs.getCategory().compareTo(rhs.getCategory());
+            return result != 0 ? result :
+                                 lhs.getName().compareTo(rhs.getName());
+         }
+      });
+      return histograms;
+   }
+
+   public static void reset()
+   {
+      histograms_.clear();
+      startTime_ = now();
+   }
+
+   /**
+    * @return All of the histograms, as JSON, along with the time at which
+    *    they started collecting.
+    */
+   public static String toJson()
+   {
+      JSONArray histograms = new JSONArray();
+      for (Histogram histogram : getHistograms())
+         histograms.set(histograms.size(), histogram.toJSONObject());
+
+      JSONObject metrics = new JSONObject();
+      metrics.put("start_time", new JSONNumber(startTime_));
+      metrics.put("end_time", new JSONNumber(now()));
+      metrics.put("histograms", histograms);
+      return metrics.toString();
+   }
+
+   private static Histogram getHistogram(String category, String name)
+   {
+      String key = category + "/" + name;
+      Histogram histogram = histograms_.get(key);
+      if (histogram == null)
+      {
+         histogram = new Histogram(category, name);
+         histograms_.put(key, histogram);
+      }
+      return histogram;
+   }
+
+   private static double startTime_ = now();
+   private static final HashMap<String, Histogram> histograms_ =
+         new HashMap<String, Histogram>();
+}
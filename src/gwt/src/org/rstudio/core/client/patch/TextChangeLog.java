@@ -0,0 +1,189 @@
+/*
+ * TextChangeLog.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import java.util.ArrayList;
+
+/**
+ * Accumulates the edits made to a document since some base version as a
+ * list of non-overlapping hunks, each of which replaces a range of the base
+ * document. Edits that touch or overlap an existing hunk are folded into it,
+ * so the size of the log is proportional to the size of the edits rather
+ * than the size of the document.
+ *
+ * The log doesn't know the base document's contents, so it can't tell when
+ * an edit restores the original text; it may therefore describe a change
+ * where there is none (but never the other way around).
+ */
+public class TextChangeLog
+{
+   public static class Hunk
+   {
+      private Hunk(int offset, int length, String replacement)
+      {
+         offset_ = offset;
+         length_ = length;
+         replacement_ = replacement;
+      }
+
+      // the offset of the replaced range within the base document
+      public int getOffset()
+      {
+         return offset_;
+      }
+
+      // the length of the replaced range within the base document
+      public int getLength()
+      {
+         return length_;
+      }
+
+      public String getReplacement()
+      {
+         return replacement_;
+      }
+
+      private final int offset_;
+      private final int length_;
+      private final String replacement_;
+   }
+
+   public TextChangeLog()
+   {
+   }
+
+   /**
+    * @return True iff the log describes all edits made since the base
+    *    version was established with reset().
+    */
+   public boolean isValid()
+   {
+      return valid_;
+   }
+
+   /**
+    * Makes the current version of the document the base version.
+    */
+   public void reset()
+   {
+      hunks_.clear();
+      valid_ = true;
+   }
+
+   /**
+    * Discards the log; it stays invalid until the next call to reset().
+    */
+   public void invalidate()
+   {
+      hunks_.clear();
+      valid_ = false;
+   }
+
+   public boolean isEmpty()
+   {
+      return hunks_.isEmpty();
+   }
+
+   /**
+    * @return The hunks that transform the base version into the current
+    *    version, in increasing order of offset.
+    */
+   public ArrayList<Hunk> getHunks()
+   {
+      return new ArrayList<Hunk>(hunks_);
+   }
+
+   /**
+    * Records the replacement of the given range of the current version of
+    * the document with new text.
+    */
+   public void record(int offset, int length, String text)
+   {
+      if (!valid_ || (length == 0 && text.length() == 0))
+         return;
+
+      int end = offset + length;
+
+      // find the run of hunks that overlap or touch the edited range,
+      // tracking the shift between base and current offsets as we go
+      int delta = 0;
+      int first = 0;
+      while (first < hunks_.size())
+      {
+         Hunk hunk = hunks_.get(first);
+         if (hunk.offset_ + delta + hunk.replacement_.length() >= offset)
+            break;
+         delta += hunk.replacement_.length() - hunk.length_;
+         first++;
+      }
+      int deltaBefore = delta;
+
+      int last = first;
+      while (last < hunks_.size())
+      {
+         Hunk hunk = hunks_.get(last);
+         if (hunk.offset_ + delta > end)
+            break;
+         delta += hunk.replacement_.length() - hunk.length_;
+         last++;
+      }
+
+      if (first == last)
+      {
+         // the edit doesn't touch any existing hunk
+         hunks_.add(first, new Hunk(offset - deltaBefore, length, text));
+      }
+      else
+      {
+         // fold the edit and the hunks it touches into a single hunk; any
+         // unchanged text between those hunks lies within the edited range
+         Hunk head = hunks_.get(first);
+         Hunk tail = hunks_.get(last - 1);
+         int headStart = head.offset_ + deltaBefore;
+         int tailStart = tail.offset_ + delta - tail.replacement_.length() +
+                         tail.length_;
+         int tailEnd = tailStart + tail.replacement_.length();
+
+         int mergedStart = Math.min(offset, headStart);
+         int mergedEnd = Math.max(end, tailEnd);
+
+         String replacement = text;
+         if (headStart < offset)
+            replacement = head.replacement_.substring(0, offset - headStart) +
+                          replacement;
+         if (tailEnd > end)
+            replacement = replacement +
+                          tail.replacement_.substring(end - tailStart);
+
+         int mergedOffset = mergedStart - deltaBefore;
+         Hunk merged = new Hunk(mergedOffset,
+                                mergedEnd - delta - mergedOffset,
+                                replacement);
+
+         hunks_.subList(first, last).clear();
+         if (merged.length_ > 0 || merged.replacement_.length() > 0)
+            hunks_.add(first, merged);
+      }
+
+      // past a certain point a single diff is cheaper to compute and send
+      if (hunks_.size() > MAX_HUNKS)
+         invalidate();
+   }
+
+   private final ArrayList<Hunk> hunks_ = new ArrayList<Hunk>();
+   private boolean valid_ = false;
+
+   private static final int MAX_HUNKS = 500;
+}
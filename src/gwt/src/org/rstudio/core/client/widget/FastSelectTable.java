@@ -19,12 +19,15 @@ import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.*;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.Style.Cursor;
+import com.google.gwt.dom.client.Style.Display;
+import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.Event;
 import com.google.gwt.user.client.ui.ScrollPanel;
 import com.google.gwt.user.client.ui.Widget;
+import org.rstudio.core.client.CommandWith2Args;
 import org.rstudio.core.client.Rectangle;
 import org.rstudio.core.client.command.KeyboardShortcut;
 import org.rstudio.core.client.dom.DomUtils;
@@ -35,6 +38,8 @@ import org.rstudio.core.client.widget.events.SelectionChangedHandler;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
 
 public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widget
    implements HasAllMouseHandlers, HasClickHandlers, HasAllKeyHandlers
@@ -122,10 +127,45 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
    public void setOwningScrollPanel(ScrollPanel scrollPanel)
    {
       scrollPanel_ = scrollPanel;
+      scrollPanel_.addScrollHandler(new ScrollHandler()
+      {
+         @Override
+         public void onScroll(ScrollEvent event)
+         {
+            if (virtual_)
+               scheduleVirtualRender();
+         }
+      });
+   }
+
+   /**
+    * In virtual mode, rows are only created for the items that are visible
+    * in the owning scroll panel (which must be set), so the size of the DOM
+    * stays constant however many items are added. Rows may have different
+    * heights; each row is measured the first time it's shown. Must be called
+    * before any items are added.
+    */
+   public void setVirtualized(boolean virtualized)
+   {
+      assert items_.isEmpty() && table_.getRows().getLength() == 0 :
+         "Virtual mode must be set before items are added";
+      virtual_ = virtualized;
+   }
+
+   @Override
+   protected void onLoad()
+   {
+      super.onLoad();
+      if (virtual_)
+         invalidateVirtualRows();
    }
 
    private void handleRowClick(MouseDownEvent event, TableRowElement row)
    {
+      int target = getRowPosition(row);
+      if (target < 0)
+         return;
+
       int modifiers = KeyboardShortcut.getModifierValue(event.getNativeEvent());
       modifiers &= ~KeyboardShortcut.ALT; // ALT has no effect
 
@@ -141,25 +181,24 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
       {
          // Select only the target row
          clearSelection();
-         setSelected(row, true);
+         setPositionSelected(target, true);
       }
       else if (modifiers == KeyboardShortcut.CTRL)
       {
          // Toggle the target row
-         setSelected(row, !isSelected(row));
+         setPositionSelected(target, !isPositionSelected(target));
       }
       else
       {
          // SHIFT or CTRL+SHIFT
 
-         int target = row.getRowIndex();
+         ArrayList<Integer> selected = getSelectedPositions();
          Integer min = null;
          Integer max = null;
-         for (TableRowElement selectedRow : selectedRows_)
+         if (selected.size() > 0)
          {
-            if (min == null)
-               min = selectedRow.getRowIndex();
-            max = selectedRow.getRowIndex();
+            min = selected.get(0);
+            max = selected.get(selected.size() - 1);
          }
 
          int offset; // selection offset
@@ -200,7 +239,7 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
          clearSelection();
          if (length > 0)
          {
-            setSelectedPhysical(offset, length, true);
+            setPositionsSelected(offset, length, true);
          }
       }
    }
@@ -232,13 +271,13 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
             return;
       }
 
-      sortSelectedRows();
-      int min = table_.getRows().getLength();
+      ArrayList<Integer> selected = getSelectedPositions();
+      int min = getPositionCount();
       int max = -1;
-      if (selectedRows_.size() > 0)
+      if (selected.size() > 0)
       {
-         min = selectedRows_.get(0).getRowIndex();
-         max = selectedRows_.get(selectedRows_.size() - 1).getRowIndex();
+         min = selected.get(0);
+         max = selected.get(selected.size() - 1);
       }
 
       switch (event.getNativeKeyCode())
@@ -250,7 +289,7 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
             {
                if (modifiers != KeyboardShortcut.SHIFT)
                   clearSelection();
-               setSelectedPhysical(row, 1, true);
+               setPositionSelected(row, true);
                ensureRowVisible(row);
             }
             break;
@@ -262,7 +301,7 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
             {
                if (modifiers != KeyboardShortcut.SHIFT)
                   clearSelection();
-               setSelectedPhysical(row, 1, true);
+               setPositionSelected(row, true);
                ensureRowVisible(row);
             }
             break;
@@ -272,17 +311,53 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    private void ensureRowVisible(final int row)
    {
-      if (scrollPanel_ != null)
-         DomUtils.ensureVisibleVert(scrollPanel_.getElement(), getRow(row), 0);
+      ensureRowVisible(row, 0);
+   }
+
+   private void ensureRowVisible(int row, int padding)
+   {
+      if (scrollPanel_ == null)
+         return;
+
+      if (!virtual_)
+      {
+         DomUtils.ensureVisibleVert(scrollPanel_.getElement(),
+                                    getRow(row),
+                                    padding);
+         return;
+      }
+
+      int scrollTop = scrollPanel_.getVerticalScrollPosition();
+      int height = scrollPanel_.getElement().getClientHeight();
+      int rowTop = scrollTop + table_.getAbsoluteTop() -
+                   scrollPanel_.getElement().getAbsoluteTop() +
+                   rowHeights_.getTop(row);
+      int rowBottom = rowTop + rowHeights_.getHeight(row);
+
+      if (rowTop - padding < scrollTop)
+         scrollPanel_.setVerticalScrollPosition(rowTop - padding);
+      else if (rowBottom + padding > scrollTop + height)
+         scrollPanel_.setVerticalScrollPosition(rowBottom + padding - height);
+   }
+
+   /**
+    * Scrolls the owning scroll panel (if any) so that the first selected
+    * row is visible.
+    */
+   public void ensureSelectionVisible(int padding)
+   {
+      ArrayList<Integer> selected = getSelectedPositions();
+      if (selected.size() > 0)
+         ensureRowVisible(selected.get(0), padding);
    }
 
-   private Integer findNextValueRow(int physicalRowIndex, boolean up)
+   private Integer findNextValueRow(int position, boolean up)
    {
-      int limit = up ? -1 : table_.getRows().getLength();
+      int limit = up ? -1 : getPositionCount();
       int increment = up ? -1 : 1;
-      for (int i = physicalRowIndex + increment; i != limit; i += increment)
+      for (int i = position + increment; i != limit; i += increment)
       {
-         if (codec_.isValueRow(getRow(i)))
+         if (isValuePosition(i))
             return i;
       }
       return null;
@@ -290,12 +365,38 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public void clearSelection()
    {
+      if (virtual_)
+      {
+         for (Integer index : selectedIndexes_)
+         {
+            TableRowElement row = getRenderedRow(index);
+            if (row != null)
+               setStyleName(row, selectedClassName_, false);
+         }
+         selectedIndexes_.clear();
+         return;
+      }
+
       while (selectedRows_.size() > 0)
          setSelected(selectedRows_.get(0), false);
    }
 
    public void addItems(Iterable<TItemInput> items, boolean top)
    {
+      if (virtual_)
+      {
+         ArrayList<TItemInput> added = new ArrayList<TItemInput>();
+         for (TItemInput item : items)
+            added.add(item);
+         int index = top ? 0 : items_.size();
+         items_.addAll(index, added);
+         rowHeights_.insert(index, added.size());
+         if (top)
+            shiftSelectedIndexes(0, added.size());
+         invalidateVirtualRows();
+         return;
+      }
+
       TableSectionElement tbody = Document.get().createTBodyElement();
       for (TItemInput item : items)
          tbody.appendChild(codec_.getRowForItem(item));
@@ -312,10 +413,53 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
       getElement().insertFirst(tbody);
    }
 
+   /**
+    * Replaces count items, starting at the given index, with the given
+    * items. Only supported in virtual mode. Replaced items lose their
+    * selection.
+    */
+   public void replaceItems(int index, int count, List<TItemInput> items)
+   {
+      assert virtual_ : "replaceItems is only supported in virtual mode";
+
+      count = Math.min(count, items_.size() - index);
+      items_.subList(index, index + count).clear();
+      items_.addAll(index, items);
+      rowHeights_.remove(index, count);
+      rowHeights_.insert(index, items.size());
+      for (int i = index; i < index + count; i++)
+         selectedIndexes_.remove(i);
+      shiftSelectedIndexes(index + count, items.size() - count);
+      invalidateVirtualRows();
+   }
+
+   /**
+    * In virtual mode, the given command is invoked with the range of items
+    * (first inclusive, last exclusive) each time a different set of rows is
+    * rendered.
+    */
+   public void setRenderedRangeCallback(
+                           CommandWith2Args<Integer, Integer> callback)
+   {
+      renderedRangeCallback_ = callback;
+   }
+
    public void clear()
    {
       table_.setInnerText("");
       selectedRows_.clear();
+
+      items_.clear();
+      selectedIndexes_.clear();
+      rowHeights_.clear();
+      renderedRows_.clear();
+      renderedFirst_ = 0;
+      topSpacer_ = null;
+      contextBody_ = null;
+      windowBody_ = null;
+      bottomSpacer_ = null;
+      if (virtual_)
+         invalidateVirtualRows();
    }
    
    public void focus()
@@ -326,14 +470,63 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
    
    public int getRowCount()
    {
+      if (virtual_)
+         return items_.size();
       return codec_.getLogicalRowCount(table_);
    }
    
+   /**
+    * Returns the offset of the given (logical) row from the top of the
+    * table.
+    */
+   public int getRowOffsetTop(int row)
+   {
+      if (virtual_)
+         return rowHeights_.getTop(Math.min(row, items_.size()));
+
+      Integer physical = codec_.logicalOffsetToPhysicalOffset(table_, row);
+      if (physical == null || physical >= table_.getRows().getLength())
+         return table_.getOffsetHeight();
+      return getRow(physical).getOffsetTop();
+   }
+   
+   /**
+    * Returns the (logical) row at the given offset from the top of the
+    * table, clamped to the range of rows.
+    */
+   public int getRowAtOffset(int offset)
+   {
+      if (virtual_)
+         return rowHeights_.indexAt(offset);
+
+      int low = 0;
+      int high = getRowCount() - 1;
+      while (low < high)
+      {
+         int mid = (low + high + 1) >>> 1;
+         if (getRowOffsetTop(mid) <= offset)
+            low = mid;
+         else
+            high = mid - 1;
+      }
+      return Math.max(low, 0);
+   }
+
    public void removeTopRows(int rowCount)
    {
       if (rowCount <= 0)
          return;
 
+      if (virtual_)
+      {
+         rowCount = Math.min(rowCount, items_.size());
+         items_.subList(0, rowCount).clear();
+         rowHeights_.remove(0, rowCount);
+         shiftSelectedIndexes(0, -rowCount);
+         invalidateVirtualRows();
+         return;
+      }
+
       NodeList<TableSectionElement> tBodies = table_.getTBodies();
       for (int i = 0; i < tBodies.getLength(); i++)
       {
@@ -364,6 +557,9 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public ArrayList<Integer> getSelectedRowIndexes()
    {
+      if (virtual_)
+         return new ArrayList<Integer>(selectedIndexes_);
+
       sortSelectedRows();
 
       ArrayList<Integer> results = new ArrayList<Integer>();
@@ -386,6 +582,12 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public void setSelected(int offset, int length, boolean selected)
    {
+      if (virtual_)
+      {
+         setPositionsSelected(offset, length, selected);
+         return;
+      }
+
       if (codec_.hasNonValueRows())
       {
          // If the codec might have stuck in some non-value rows, we need
@@ -416,6 +618,14 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public void setSelected(TableRowElement row, boolean selected)
    {
+      if (virtual_)
+      {
+         int index = getRowPosition(row);
+         if (index >= 0)
+            setVirtualSelected(index, selected);
+         return;
+      }
+
       try
       {
          if (row.getParentElement().getParentElement() != table_)
@@ -440,19 +650,30 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
          selectedRows_.remove(row);
 
       if (selected && !allowMultiSelect_)
+         fireSelectionChanged();
+   }
+
+   private void fireSelectionChanged()
+   {
+      Scheduler.get().scheduleDeferred(new ScheduledCommand()
       {
-         Scheduler.get().scheduleDeferred(new ScheduledCommand()
+         public void execute()
          {
-            public void execute()
-            {
-               fireEvent(new SelectionChangedEvent());
-            }
-         });
-      }
+            fireEvent(new SelectionChangedEvent());
+         }
+      });
    }
 
    public ArrayList<TItemOutput> getSelectedValues()
    {
+      if (virtual_)
+      {
+         ArrayList<TItemOutput> results = new ArrayList<TItemOutput>();
+         for (Integer index : selectedIndexes_)
+            results.add(codec_.getOutputForRow(getVirtualRow(index)));
+         return results;
+      }
+
       sortSelectedRows();
 
       ArrayList<TItemOutput> results = new ArrayList<TItemOutput>();
@@ -474,6 +695,14 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public ArrayList<TItemOutput2> getSelectedValues2()
    {
+      if (virtual_)
+      {
+         ArrayList<TItemOutput2> results = new ArrayList<TItemOutput2>();
+         for (Integer index : selectedIndexes_)
+            results.add(codec_.getOutputForRow2(getVirtualRow(index)));
+         return results;
+      }
+
       sortSelectedRows();
 
       ArrayList<TItemOutput2> results = new ArrayList<TItemOutput2>();
@@ -484,55 +713,32 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public boolean moveSelectionUp()
    {
-      if (selectedRows_.size() == 0)
+      ArrayList<Integer> selected = getSelectedPositions();
+      if (selected.size() == 0)
          return false;
 
-      sortSelectedRows();
-      int top = selectedRows_.get(0).getRowIndex();
-
-      NodeList<TableRowElement> rows = table_.getRows();
-      TableRowElement rowToSelect = null;
-      while (--top >= 0)
-      {
-         TableRowElement row = rows.getItem(top);
-         if (codec_.isValueRow(row))
-         {
-            rowToSelect = row;
-            break;
-         }
-      }
+      Integer rowToSelect = findNextValueRow(selected.get(0), true);
       if (rowToSelect == null)
          return false;
 
       clearSelection();
-      setSelected(rowToSelect, true);
+      setPositionSelected(rowToSelect, true);
       return true;
    }
 
    public boolean moveSelectionDown()
    {
-      if (selectedRows_.size() == 0)
+      ArrayList<Integer> selected = getSelectedPositions();
+      if (selected.size() == 0)
          return false;
 
-      sortSelectedRows();
-      int bottom = selectedRows_.get(selectedRows_.size() - 1).getRowIndex();
-
-      NodeList<TableRowElement> rows = table_.getRows();
-      TableRowElement rowToSelect = null;
-      while (++bottom < rows.getLength())
-      {
-         TableRowElement row = rows.getItem(bottom);
-         if (codec_.isValueRow(row))
-         {
-            rowToSelect = row;
-            break;
-         }
-      }
+      Integer rowToSelect = findNextValueRow(selected.get(selected.size() - 1),
+                                             false);
       if (rowToSelect == null)
          return false;
 
       clearSelection();
-      setSelected(rowToSelect, true);
+      setPositionSelected(rowToSelect, true);
       return true;
    }
 
@@ -543,6 +749,9 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public TableRowElement getTopRow()
    {
+      if (virtual_)
+         return getRenderedRow(0);
+
       if (table_.getRows().getLength() > 0)
          return getRow(0);
       else
@@ -551,11 +760,34 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
 
    public ArrayList<TableRowElement> getSelectedRows()
    {
+      if (virtual_)
+      {
+         // only rows that are currently rendered are available
+         ArrayList<TableRowElement> rows = new ArrayList<TableRowElement>();
+         for (Integer index : selectedIndexes_)
+         {
+            TableRowElement row = getRenderedRow(index);
+            if (row != null)
+               rows.add(row);
+         }
+         return rows;
+      }
+
       return new ArrayList<TableRowElement>(selectedRows_);
    }
 
    public Rectangle getSelectionRect()
    {
+      if (virtual_)
+      {
+         if (selectedIndexes_.isEmpty())
+            return null;
+
+         int top = rowHeights_.getTop(selectedIndexes_.first());
+         int bottom = rowHeights_.getTop(selectedIndexes_.last() + 1);
+         return new Rectangle(0, top, table_.getOffsetWidth(), bottom - top);
+      }
+
       if (selectedRows_.size() == 0)
          return null;
 
@@ -570,6 +802,287 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
       return new Rectangle(left, top, width, bottom - top);
    }
 
+   // Selection and keyboard navigation work with row "positions": physical
+   // row indexes normally, or item indexes in virtual mode (where rows
+   // exist only for the visible items).
+
+   private int getPositionCount()
+   {
+      return virtual_ ? items_.size() : table_.getRows().getLength();
+   }
+
+   private int getRowPosition(TableRowElement row)
+   {
+      if (!virtual_)
+         return row.getRowIndex();
+
+      int index = renderedRows_.indexOf(row);
+      return index < 0 ? -1 : renderedFirst_ + index;
+   }
+
+   private boolean isValuePosition(int position)
+   {
+      return codec_.isValueRow(virtual_ ? getVirtualRow(position)
+                                        : getRow(position));
+   }
+
+   private boolean isPositionSelected(int position)
+   {
+      return virtual_ ? selectedIndexes_.contains(position)
+                      : isSelected(getRow(position));
+   }
+
+   private void setPositionSelected(int position, boolean selected)
+   {
+      if (virtual_)
+         setVirtualSelected(position, selected);
+      else
+         setSelected(getRow(position), selected);
+   }
+
+   private void setPositionsSelected(int offset, int length, boolean selected)
+   {
+      if (virtual_)
+      {
+         for (int i = 0; i < length; i++)
+            setVirtualSelected(offset + i, selected);
+      }
+      else
+      {
+         setSelectedPhysical(offset, length, selected);
+      }
+   }
+
+   private ArrayList<Integer> getSelectedPositions()
+   {
+      if (virtual_)
+         return new ArrayList<Integer>(selectedIndexes_);
+
+      sortSelectedRows();
+      ArrayList<Integer> positions = new ArrayList<Integer>();
+      for (TableRowElement row : selectedRows_)
+         positions.add(row.getRowIndex());
+      return positions;
+   }
+
+   private void setVirtualSelected(int index, boolean selected)
+   {
+      if (index < 0 || index >= items_.size())
+         return;
+
+      if (selectedIndexes_.contains(index) == selected)
+         return;
+
+      if (selected && !codec_.isValueRow(getVirtualRow(index)))
+         return;
+
+      if (selected)
+         selectedIndexes_.add(index);
+      else
+         selectedIndexes_.remove(index);
+
+      TableRowElement row = getRenderedRow(index);
+      if (row != null)
+         setStyleName(row, selectedClassName_, selected);
+
+      if (selected && !allowMultiSelect_)
+         fireSelectionChanged();
+   }
+
+   // shifts the selected indexes at or after the given index by delta,
+   // dropping any that would become negative
+   private void shiftSelectedIndexes(int from, int delta)
+   {
+      ArrayList<Integer> selected = new ArrayList<Integer>(selectedIndexes_);
+      selectedIndexes_.clear();
+      for (Integer index : selected)
+      {
+         if (index < from)
+            selectedIndexes_.add(index);
+         else if (index + delta >= 0)
+            selectedIndexes_.add(index + delta);
+      }
+   }
+
+   private TableRowElement getRenderedRow(int index)
+   {
+      int offset = index - renderedFirst_;
+      if (offset < 0 || offset >= renderedRows_.size())
+         return null;
+      return renderedRows_.get(offset);
+   }
+
+   // returns the rendered row for the given item, or a new (detached) row
+   // if the item isn't currently visible
+   private TableRowElement getVirtualRow(int index)
+   {
+      TableRowElement row = getRenderedRow(index);
+      if (row != null)
+         return row;
+      return codec_.getRowForItem(items_.get(index));
+   }
+
+   private void invalidateVirtualRows()
+   {
+      virtualRowsDirty_ = true;
+      scheduleVirtualRender();
+   }
+
+   private void scheduleVirtualRender()
+   {
+      if (renderPending_)
+         return;
+
+      renderPending_ = true;
+      Scheduler.get().scheduleFinally(new ScheduledCommand()
+      {
+         @Override
+         public void execute()
+         {
+            renderPending_ = false;
+            renderVirtualRows();
+         }
+      });
+   }
+
+   private void renderVirtualRows()
+   {
+      if (!isAttached() || scrollPanel_ == null)
+         return;
+
+      if (windowBody_ == null)
+      {
+         // the visible rows live in their own tbody, sandwiched between
+         // spacers standing in for the rows above and below
+         topSpacer_ = createSpacer();
+         contextBody_ = Document.get().createTBodyElement();
+         windowBody_ = Document.get().createTBodyElement();
+         bottomSpacer_ = createSpacer();
+         table_.appendChild(topSpacer_);
+         table_.appendChild(contextBody_);
+         table_.appendChild(windowBody_);
+         table_.appendChild(bottomSpacer_);
+      }
+
+      // find the items that intersect the visible region
+      Element scroller = scrollPanel_.getElement();
+      int visibleTop = scroller.getAbsoluteTop() - table_.getAbsoluteTop();
+      int visibleBottom = visibleTop + scroller.getClientHeight();
+      int count = items_.size();
+      int first = Math.max(0, rowHeights_.indexAt(visibleTop) - OVERSCAN);
+      int last = count == 0 ? 0 : Math.min(
+            count, rowHeights_.indexAt(visibleBottom) + 1 + OVERSCAN);
+      first = Math.min(first, last);
+
+      if (!virtualRowsDirty_ && first == renderedFirst_ &&
+          last == renderedFirst_ + renderedRows_.size())
+      {
+         return;
+      }
+      virtualRowsDirty_ = false;
+
+      // remember where the first visible item is, so we can keep it in
+      // place if measuring the new rows changes the height of those above
+      int anchor = rowHeights_.indexAt(visibleTop);
+      int anchorTop = count == 0 ? 0 : rowHeights_.getTop(anchor);
+
+      // the codec decides whether a row needs a header by comparing it with
+      // the row before it, so include the preceding item (hidden) as well
+      TableSectionElement contextBody = Document.get().createTBodyElement();
+      if (first > 0)
+      {
+         TableRowElement contextRow =
+               codec_.getRowForItem(items_.get(first - 1));
+         contextRow.getStyle().setDisplay(Display.NONE);
+         contextBody.appendChild(contextRow);
+      }
+      table_.replaceChild(contextBody, contextBody_);
+      contextBody_ = contextBody;
+
+      TableSectionElement windowBody = Document.get().createTBodyElement();
+      renderedRows_.clear();
+      for (int i = first; i < last; i++)
+      {
+         TableRowElement row = codec_.getRowForItem(items_.get(i));
+         if (selectedIndexes_.contains(i))
+            setStyleName(row, selectedClassName_, true);
+         windowBody.appendChild(row);
+         renderedRows_.add(row);
+      }
+      table_.replaceChild(windowBody, windowBody_);
+      windowBody_ = windowBody;
+      renderedFirst_ = first;
+      codec_.onRowsChanged(windowBody_);
+
+      // measure the rows; any header rows the codec inserted count towards
+      // the height of the item that follows them
+      boolean heightsChanged = false;
+      int headerHeight = 0;
+      int index = first;
+      NodeList<TableRowElement> rows = windowBody_.getRows();
+      for (int i = 0; i < rows.getLength(); i++)
+      {
+         TableRowElement row = rows.getItem(i);
+         if (index < last && row == renderedRows_.get(index - first))
+         {
+            heightsChanged |= rowHeights_.setHeight(
+                  index, headerHeight + row.getOffsetHeight());
+            headerHeight = 0;
+            index++;
+         }
+         else
+         {
+            headerHeight += row.getOffsetHeight();
+         }
+      }
+
+      setSpacerHeight(topSpacer_, rowHeights_.getTop(first));
+      setSpacerHeight(bottomSpacer_,
+                      rowHeights_.getTotalHeight() - rowHeights_.getTop(last));
+
+      if (heightsChanged)
+      {
+         int shift = count == 0 ? 0 : rowHeights_.getTop(anchor) - anchorTop;
+         if (shift != 0 && visibleTop > 0)
+         {
+            scrollPanel_.setVerticalScrollPosition(
+                  scrollPanel_.getVerticalScrollPosition() + shift);
+         }
+
+         // now that we know how big these rows really are, a different set
+         // of items may be visible
+         scheduleVirtualRender();
+      }
+
+      if (renderedRangeCallback_ != null)
+         renderedRangeCallback_.execute(first, last);
+   }
+
+   private TableSectionElement createSpacer()
+   {
+      TableCellElement td = Document.get().createTDElement();
+      td.getStyle().setPadding(0, Unit.PX);
+      TableRowElement tr = Document.get().createTRElement();
+      tr.appendChild(td);
+      TableSectionElement tbody = Document.get().createTBodyElement();
+      tbody.appendChild(tr);
+      return tbody;
+   }
+
+   private void setSpacerHeight(TableSectionElement spacer, int height)
+   {
+      TableRowElement tr = spacer.getRows().getItem(0);
+      if (height <= 0)
+      {
+         tr.getStyle().setDisplay(Display.NONE);
+      }
+      else
+      {
+         tr.getStyle().clearDisplay();
+         tr.getCells().getItem(0).getStyle().setHeight(height, Unit.PX);
+      }
+   }
+
    protected Element getEventTargetCell(Event event) {
      Element td = DOM.eventGetTarget(event);
      for (; td != null; td = DOM.getParent(td)) {
@@ -658,4 +1171,24 @@ public class FastSelectTable<TItemInput, TItemOutput, TItemOutput2> extends Widg
    private final boolean allowMultiSelect_;
    private ScrollPanel scrollPanel_;
    private final boolean focusable_;
+
+   // virtual mode state: all items, the selected item indexes, the heights
+   // of the items' rows and the rows currently rendered
+   private boolean virtual_ = false;
+   private final ArrayList<TItemInput> items_ = new ArrayList<TItemInput>();
+   private final TreeSet<Integer> selectedIndexes_ = new TreeSet<Integer>();
+   private final VirtualRowHeights rowHeights_ = new VirtualRowHeights();
+   private final ArrayList<TableRowElement> renderedRows_ =
+         new ArrayList<TableRowElement>();
+   private int renderedFirst_ = 0;
+   private TableSectionElement topSpacer_;
+   private TableSectionElement contextBody_;
+   private TableSectionElement windowBody_;
+   private TableSectionElement bottomSpacer_;
+   private boolean virtualRowsDirty_ = false;
+   private boolean renderPending_ = false;
+   private CommandWith2Args<Integer, Integer> renderedRangeCallback_;
+
+   // number of rows rendered above and below the visible region
+   private static final int OVERSCAN = 50;
 }
\ No newline at end of file
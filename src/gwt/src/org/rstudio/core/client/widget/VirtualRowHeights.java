@@ -0,0 +1,174 @@
+/*
+ * VirtualRowHeights.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.widget;
+
+/**
+ * Tracks the heights of the rows of a virtualized list. Rows that have been
+ * rendered have their measured height; the rest are assumed to have the
+ * average height of the measured rows. Offsets are computed from a prefix
+ * sum that is rebuilt lazily after heights change.
+ */
+class VirtualRowHeights
+{
+   public int getCount()
+   {
+      return count_;
+   }
+
+   public void clear()
+   {
+      count_ = 0;
+      measuredCount_ = 0;
+      measuredTotal_ = 0;
+      dirty_ = true;
+   }
+
+   /**
+    * Inserts the given number of unmeasured rows before the given index.
+    */
+   public void insert(int index, int count)
+   {
+      ensureCapacity(count_ + count);
+      System.arraycopy(heights_, index, heights_, index + count, count_ - index);
+      for (int i = 0; i < count; i++)
+         heights_[index + i] = UNMEASURED;
+      count_ += count;
+      dirty_ = true;
+   }
+
+   /**
+    * Removes the given number of rows, starting at the given index.
+    */
+   public void remove(int index, int count)
+   {
+      count = Math.min(count, count_ - index);
+      for (int i = index; i < index + count; i++)
+      {
+         if (heights_[i] != UNMEASURED)
+         {
+            measuredCount_--;
+            measuredTotal_ -= heights_[i];
+         }
+      }
+      System.arraycopy(heights_, index + count, heights_, index,
+                       count_ - index - count);
+      count_ -= count;
+      dirty_ = true;
+   }
+
+   /**
+    * Records the measured height of a row, returning true if that changes
+    * the layout.
+    */
+   public boolean setHeight(int index, int height)
+   {
+      int previous = heights_[index];
+      if (previous == height)
+         return false;
+
+      if (previous == UNMEASURED)
+         measuredCount_++;
+      else
+         measuredTotal_ -= previous;
+      measuredTotal_ += height;
+
+      heights_[index] = height;
+      dirty_ = true;
+      return true;
+   }
+
+   /**
+    * Returns the offset of the top of the given row; passing getCount()
+    * returns the total height.
+    */
+   public int getTop(int index)
+   {
+      update();
+      return tops_[index];
+   }
+
+   public int getHeight(int index)
+   {
+      update();
+      return tops_[index + 1] - tops_[index];
+   }
+
+   public int getTotalHeight()
+   {
+      return getTop(count_);
+   }
+
+   /**
+    * Returns the index of the row containing the given offset, clamped to
+    * the range of valid rows (or 0 if there are none).
+    */
+   public int indexAt(int offset)
+   {
+      update();
+      int low = 0;
+      int high = count_ - 1;
+      while (low < high)
+      {
+         int mid = (low + high + 1) >>> 1;
+         if (tops_[mid] <= offset)
+            low = mid;
+         else
+            high = mid - 1;
+      }
+      return Math.max(low, 0);
+   }
+
+   private void update()
+   {
+      if (!dirty_)
+         return;
+
+      if (tops_.length < count_ + 1)
+         tops_ = new int[heights_.length + 1];
+
+      int estimate = measuredCount_ == 0 ?
+            DEFAULT_HEIGHT :
+            Math.round(measuredTotal_ / (float) measuredCount_);
+
+      int top = 0;
+      for (int i = 0; i < count_; i++)
+      {
+         tops_[i] = top;
+         top += heights_[i] == UNMEASURED ? estimate : heights_[i];
+      }
+      tops_[count_] = top;
+      dirty_ = false;
+   }
+
+   private void ensureCapacity(int capacity)
+   {
+      if (heights_.length >= capacity)
+         return;
+
+      int[] heights = new int[Math.max(capacity, heights_.length * 2)];
+      System.arraycopy(heights_, 0, heights, 0, count_);
+      heights_ = heights;
+   }
+
+   private int[] heights_ = new int[64];
+   private int[] tops_ = new int[65];
+   private int count_ = 0;
+   private int measuredCount_ = 0;
+   private int measuredTotal_ = 0;
+   private boolean dirty_ = true;
+
+   private static final int UNMEASURED = -1;
+   private static final int DEFAULT_HEIGHT = 20;
+}
@@ -173,9 +173,7 @@ public class RStudio implements EntryPoint
                   String view = Window.Location.getParameter("view");
                   if (VCSApplication.NAME.equals(view))
                   {
-                     RStudioGinjector.INSTANCE.getVCSApplication().go(
-                           RootLayoutPanel.get(),
-                           dismissProgressAnimation);
+                     loadVCSApplication(dismissProgressAnimation);
                   }
                   else if (HTMLPreviewApplication.NAME.equals(view))
                   {
@@ -221,6 +219,27 @@ public class RStudio implements EntryPoint
       });
    }
    
+   // the review changes and history screens are only shown in their own
+   // window, so their code is downloaded separately from the workbench's
+   private void loadVCSApplication(final Command dismissProgressAnimation)
+   {
+      GWT.runAsync(new RunAsyncCallback()
+      {
+         public void onFailure(Throwable reason)
+         {
+            dismissProgressAnimation.execute();
+            Window.alert("Error: " + reason.getMessage());
+         }
+
+         public void onSuccess()
+         {
+            RStudioGinjector.INSTANCE.getVCSApplication().go(
+                  RootLayoutPanel.get(),
+                  dismissProgressAnimation);
+         }
+      });
+   }
+   
    private void ensureStylesInjected()
    {
       ThemeResources.INSTANCE.themeStyles().ensureInjected();
@@ -57,6 +57,7 @@ import org.rstudio.studio.client.application.model.InvalidSessionInfo;
 import org.rstudio.studio.client.application.model.ProductInfo;
 import org.rstudio.studio.client.application.model.SessionSerializationAction;
 import org.rstudio.studio.client.application.ui.AboutDialog;
+import org.rstudio.studio.client.application.ui.MetricsVisualization;
 import org.rstudio.studio.client.application.ui.RequestLogVisualization;
 import org.rstudio.studio.client.common.GlobalDisplay;
 import org.rstudio.studio.client.common.SimpleRequestCallback;
@@ -346,6 +347,34 @@ public class Application implements ApplicationEventHandlers
       });
    }
 
+   @Handler
+   public void onShowMetrics()
+   {
+      GWT.runAsync(new RunAsyncCallback()
+      {
+         public void onFailure(Throwable reason)
+         {
+            Window.alert(reason.toString());
+         }
+
+         public void onSuccess()
+         {
+            final MetricsVisualization viz = new MetricsVisualization();
+            final RootLayoutPanel root = RootLayoutPanel.get();
+            root.add(viz);
+            root.setWidgetTopBottom(viz, 10, Unit.PX, 10, Unit.PX);
+            root.setWidgetLeftRight(viz, 10, Unit.PX, 10, Unit.PX);
+            viz.addCloseHandler(new CloseHandler<MetricsVisualization>()
+            {
+               public void onClose(CloseEvent<MetricsVisualization> event)
+               {
+                  root.remove(viz);
+               }
+            });
+         }
+      });
+   }
+
    @Handler
    public void onLogFocusedElement()
    {
@@ -0,0 +1,164 @@
+/*
+ * MetricsVisualization.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.application.ui;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.command.KeyboardShortcut;
+import org.rstudio.core.client.dom.DomUtils;
+import org.rstudio.core.client.metrics.Histogram;
+import org.rstudio.core.client.metrics.Metrics;
+
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.Style.FontWeight;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.KeyCodes;
+import com.google.gwt.event.logical.shared.CloseEvent;
+import com.google.gwt.event.logical.shared.CloseHandler;
+import com.google.gwt.event.logical.shared.HasCloseHandlers;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.i18n.client.NumberFormat;
+import com.google.gwt.user.client.Event;
+import com.google.gwt.user.client.Event.NativePreviewEvent;
+import com.google.gwt.user.client.Event.NativePreviewHandler;
+import com.google.gwt.user.client.ui.*;
+
+/**
+ * Shows the latency histograms collected by Metrics: one row per RPC
+ * method, client event type, and pane, with the number of samples and the
+ * distribution of their durations.
+ */
+public class MetricsVisualization extends Composite
+   implements HasCloseHandlers<MetricsVisualization>, NativePreviewHandler
+{
+   public MetricsVisualization()
+   {
+      table_ = new FlexTable();
+      table_.setCellPadding(3);
+      ScrollPanel scrollPanel = new ScrollPanel(table_);
+      scrollPanel.setSize("100%", "100%");
+
+      HTML instructions = new HTML();
+      instructions.setHTML("<p>Durations are in milliseconds. " +
+                           "Esc: Close, R: Refresh, C: Clear, " +
+                           "E: Export (as JSON)</p>");
+
+      DockLayoutPanel outerPanel = new DockLayoutPanel(Unit.PX);
+      outerPanel.getElement().getStyle().setBackgroundColor("white");
+      outerPanel.getElement().getStyle().setZIndex(500);
+      outerPanel.getElement().getStyle().setOpacity(0.9);
+      instructions.getElement().getStyle().setBackgroundColor("#FFE");
+      outerPanel.addNorth(instructions, 40);
+      outerPanel.add(scrollPanel);
+
+      // focusable, so that keys are only handled while it has focus (and
+      // not e.g. while typing in the export dialog)
+      outerPanel.getElement().setTabIndex(-1);
+
+      initWidget(outerPanel);
+
+      handlerRegistration_ = Event.addNativePreviewHandler(this);
+
+      refresh();
+   }
+
+   @Override
+   protected void onLoad()
+   {
+      super.onLoad();
+      getElement().focus();
+   }
+
+   private void refresh()
+   {
+      table_.removeAllRows();
+
+      String[] headers = new String[] {
+         "Category", "Name", "Count", "Mean", "Median", "90%", "99%", "Max",
+         "Total"
+      };
+      for (int i = 0; i < headers.length; i++)
+      {
+         table_.setText(0, i, headers[i]);
+         table_.getCellFormatter().getElement(0, i).getStyle().setFontWeight(
+               FontWeight.BOLD);
+      }
+
+      ArrayList<Histogram> histograms = Metrics.getHistograms();
+      for (int i = 0; i < histograms.size(); i++)
+      {
+         Histogram histogram = histograms.get(i);
+         int row = i + 1;
+         table_.setText(row, 0, histogram.getCategory());
+         table_.setText(row, 1, histogram.getName());
+         table_.setText(row, 2, histogram.getCount() + "");
+         table_.setText(row, 3, format(histogram.getMean()));
+         table_.setText(row, 4, format(histogram.getPercentile(50)));
+         table_.setText(row, 5, format(histogram.getPercentile(90)));
+         table_.setText(row, 6, format(histogram.getPercentile(99)));
+         table_.setText(row, 7, format(histogram.getMax()));
+         table_.setText(row, 8, format(histogram.getTotal()));
+      }
+   }
+
+   private static String format(double millis)
+   {
+      return NumberFormat.getFormat("0.0").format(millis);
+   }
+
+   public HandlerRegistration addCloseHandler(
+                                 CloseHandler<MetricsVisualization> handler)
+   {
+      return addHandler(handler, CloseEvent.getType());
+   }
+
+   public void onPreviewNativeEvent(NativePreviewEvent event)
+   {
+      if (event.getTypeInt() != Event.ONKEYDOWN)
+         return;
+
+      Element active = DomUtils.getActiveElement();
+      if (active == null || !getElement().isOrHasChild(active))
+         return;
+
+      int keyCode = event.getNativeEvent().getKeyCode();
+      int modifiers = KeyboardShortcut.getModifierValue(event.getNativeEvent());
+      if (keyCode == KeyCodes.KEY_ESCAPE)
+      {
+         CloseEvent.fire(MetricsVisualization.this,
+                         MetricsVisualization.this);
+         handlerRegistration_.removeHandler();
+      }
+      else if (keyCode == 'R' && modifiers == 0)
+      {
+         refresh();
+      }
+      else if (keyCode == 'C' && modifiers == 0)
+      {
+         Metrics.reset();
+         refresh();
+      }
+      else if (keyCode == 'E' && modifiers == 0)
+      {
+         TextBoxDialog dialog = new TextBoxDialog("Export",
+                                                  Metrics.toJson(),
+                                                  null);
+         dialog.showModal();
+      }
+   }
+
+   private final FlexTable table_;
+   private final HandlerRegistration handlerRegistration_;
+}
@@ -38,7 +38,6 @@ import org.rstudio.core.client.command.KeyboardShortcut;
 import org.rstudio.core.client.jsonrpc.RequestLog;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
-import org.rstudio.core.client.widget.ModalDialog;
 import org.rstudio.core.client.widget.OperationWithInput;
 import org.rstudio.core.client.widget.ScrollPanelWithClick;
 
@@ -48,39 +47,6 @@ import java.util.Iterator;
 public class RequestLogVisualization extends Composite
    implements HasCloseHandlers<RequestLogVisualization>, NativePreviewHandler
 {
-   private class TextBoxDialog extends ModalDialog<String>
-   {
-      private TextBoxDialog(String caption,
-                            String initialValue,
-                            OperationWithInput<String> operation)
-      {
-         super(caption, operation);
-         textArea_ = new TextArea();
-         textArea_.setSize("400px", "300px");
-         textArea_.setText(initialValue);
-      }
-
-      @Override
-      protected String collectInput()
-      {
-         return textArea_.getText(); 
-      }
-
-      @Override
-      protected boolean validate(String input)
-      {
-         return true;
-      }
-
-      @Override
-      protected Widget createMainWidget()
-      {
-         return textArea_;
-      }
-
-      private final TextArea textArea_;
-   }
-
    public RequestLogVisualization()
    {
       overviewPanel_ = new LayoutPanel();
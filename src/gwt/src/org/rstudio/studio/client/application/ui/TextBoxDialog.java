@@ -0,0 +1,55 @@
+/*
+ * TextBoxDialog.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.application.ui;
+
+import org.rstudio.core.client.widget.ModalDialog;
+import org.rstudio.core.client.widget.OperationWithInput;
+
+import com.google.gwt.user.client.ui.TextArea;
+import com.google.gwt.user.client.ui.Widget;
+
+// a dialog used by the diagnostic views to export and import their data
+class TextBoxDialog extends ModalDialog<String>
+{
+   TextBoxDialog(String caption,
+                 String initialValue,
+                 OperationWithInput<String> operation)
+   {
+      super(caption, operation);
+      textArea_ = new TextArea();
+      textArea_.setSize("400px", "300px");
+      textArea_.setText(initialValue);
+   }
+
+   @Override
+   protected String collectInput()
+   {
+      return textArea_.getText(); 
+   }
+
+   @Override
+   protected boolean validate(String input)
+   {
+      return true;
+   }
+
+   @Override
+   protected Widget createMainWidget()
+   {
+      return textArea_;
+   }
+
+   private final TextArea textArea_;
+}
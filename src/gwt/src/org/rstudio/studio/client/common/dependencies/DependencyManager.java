@@ -16,6 +16,7 @@
 package org.rstudio.studio.client.common.dependencies;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -26,6 +27,7 @@ import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.widget.MessageDialog;
 import org.rstudio.core.client.widget.Operation;
 import org.rstudio.core.client.widget.ProgressIndicator;
+import org.rstudio.studio.client.application.events.DeferredInitCompletedEvent;
 import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.common.GlobalDisplay;
 import org.rstudio.studio.client.common.GlobalProgressDelayer;
@@ -47,7 +49,8 @@ import com.google.inject.Singleton;
 
 @Singleton
 public class DependencyManager implements InstallShinyEvent.Handler,
-                                          PackageStateChangedHandler
+                                          PackageStateChangedHandler,
+                                          DeferredInitCompletedEvent.Handler
 {
    class DependencyRequest
    {
@@ -81,11 +84,12 @@ public class DependencyManager implements InstallShinyEvent.Handler,
    {
       globalDisplay_ = globalDisplay;
       server_ = server;
-      satisfied_ = new ArrayList<Dependency>();
+      satisfied_ = new HashSet<String>();
       requestQueue_ = new LinkedList<DependencyRequest>();
       
       eventBus.addHandler(InstallShinyEvent.TYPE, this);
       eventBus.addHandler(PackageStateChangedEvent.TYPE, this);
+      eventBus.addHandler(DeferredInitCompletedEvent.TYPE, this);
    }
    
    public void withDependencies(String progressCaption,
@@ -332,6 +336,71 @@ public class DependencyManager implements InstallShinyEvent.Handler,
       // packages have been invalidated, but it's safe to do so since it'll
       // just cause us to hit the server once more to verify
       satisfied_.clear();
+      cacheGeneration_++;
+   }
+   
+   @Override
+   public void onDeferredInitCompleted(DeferredInitCompletedEvent event)
+   {
+      // check the dependencies of the most commonly used features up front,
+      // in a single request, so that using them doesn't have to wait on
+      // the server
+      ArrayList<Dependency> deps = new ArrayList<Dependency>();
+      deps.addAll(rmarkdownDependencies());
+      deps.addAll(shinyDependencies());
+      deps.add(Dependency.cranPackage("packrat", "0.4.8-1", true));
+      prefetchDependencies(deps);
+   }
+   
+   // Determines which of the given dependencies are satisfied and caches the
+   // result, without prompting or installing anything. Any requests made 
+   // while the check is in progress wait for it, so that they can be 
+   // answered from the cache.
+   private void prefetchDependencies(List<Dependency> dependencies)
+   {
+      if (prefetching_)
+         return;
+      
+      final JsArray<Dependency> deps = JsArray.createArray().cast();
+      HashSet<String> keys = new HashSet<String>();
+      for (Dependency dep: dependencies)
+      {
+         String key = getKey(dep);
+         if (!satisfied_.contains(key) && keys.add(key))
+            deps.push(dep);
+      }
+      if (deps.length() == 0)
+         return;
+      
+      prefetching_ = true;
+      final int generation = cacheGeneration_;
+      server_.unsatisfiedDependencies(
+            deps,
+            false,
+            false, // don't look for available versions; we won't install
+            new ServerRequestCallback<JsArray<Dependency>>()
+            {
+               @Override
+               public void onResponseReceived(JsArray<Dependency> unsatisfied)
+               {
+                  if (generation == cacheGeneration_)
+                     updateSatisfied(deps, unsatisfied);
+                  onPrefetchCompleted();
+               }
+
+               @Override
+               public void onError(ServerError error)
+               {
+                  Debug.logError(error);
+                  onPrefetchCompleted();
+               }
+            });
+   }
+   
+   private void onPrefetchCompleted()
+   {
+      prefetching_ = false;
+      processRequestQueue();
    }
 
    public void withDataImportCSV(String userAction, final Command command)
@@ -654,7 +723,7 @@ public class DependencyManager implements InstallShinyEvent.Handler,
    
    private void processRequestQueue()
    {
-      if (processingQueue_ == true || requestQueue_.isEmpty())
+      if (processingQueue_ == true || prefetching_ || requestQueue_.isEmpty())
          return;
       processingQueue_ = true;
       processDependencyRequest(requestQueue_.pop());
@@ -666,16 +735,7 @@ public class DependencyManager implements InstallShinyEvent.Handler,
       final JsArray<Dependency> deps = JsArray.createArray().cast();
       for (int i = 0; i < req.dependencies.length; i++)
       {
-         boolean satisfied = false;
-         for (Dependency d: satisfied_)
-         {
-            if (req.dependencies[i].isEqualTo(d))
-            {
-               satisfied = true;
-               break;
-            }
-         }
-         if (!satisfied)
+         if (!satisfied_.contains(getKey(req.dependencies[i])))
             deps.push(req.dependencies[i]);
       }
       
@@ -693,6 +753,7 @@ public class DependencyManager implements InstallShinyEvent.Handler,
             req.progressCaption + "...").getIndicator();
       
       // query for unsatisfied dependencies
+      final int generation = cacheGeneration_;
       server_.unsatisfiedDependencies(
             deps, req.silentEmbeddedUpdate, 
             new ServerRequestCallback<JsArray<Dependency>>() {
@@ -702,7 +763,8 @@ public class DependencyManager implements InstallShinyEvent.Handler,
                               final JsArray<Dependency> unsatisfiedDeps)
          {
             progress.onCompleted();
-            updateSatisfied(deps, unsatisfiedDeps);
+            if (generation == cacheGeneration_)
+               updateSatisfied(deps, unsatisfiedDeps);
             
             // if we've satisfied all dependencies then execute the command
             if (unsatisfiedDeps.length() == 0)
@@ -939,14 +1001,11 @@ public class DependencyManager implements InstallShinyEvent.Handler,
                                            final ServerRequestCallback<JsArray<Dependency>> requestCallback)
    {
       // determine if already satisfied
-      for (Dependency d: satisfied_)
+      if (satisfied_.contains(getKey(dependency)))
       {
-         if (d.isEqualTo(dependency))
-         {
-            JsArray<Dependency> empty = JsArray.createArray().cast();
-            requestCallback.onResponseReceived(empty);
-            return;
-         }
+         JsArray<Dependency> empty = JsArray.createArray().cast();
+         requestCallback.onResponseReceived(empty);
+         return;
       }
 
       List<Dependency> dependencies = new ArrayList<Dependency>();
@@ -962,6 +1021,7 @@ public class DependencyManager implements InstallShinyEvent.Handler,
       for (int i = 0; i < dependencies.size(); i++)
          jsDependencies.set(i, dependencies.get(i));
       
+      final int generation = cacheGeneration_;
       server_.unsatisfiedDependencies(
             jsDependencies,
             false,
@@ -970,7 +1030,8 @@ public class DependencyManager implements InstallShinyEvent.Handler,
                @Override
                public void onResponseReceived(JsArray<Dependency> unsatisfied)
                {
-                  updateSatisfied(jsDependencies, unsatisfied);
+                  if (generation == cacheGeneration_)
+                     updateSatisfied(jsDependencies, unsatisfied);
                   requestCallback.onResponseReceived(unsatisfied);
                }
 
@@ -1004,14 +1065,29 @@ public class DependencyManager implements InstallShinyEvent.Handler,
          }
          if (satisfied)
          {
-            satisfied_.add(all.get(i));
+            satisfied_.add(getKey(all.get(i)));
          }
       }
    }
    
+   private static String getKey(Dependency dependency)
+   {
+      return dependency.getType() + ":" + 
+             dependency.getName() + ":" +
+             dependency.getVersion() + ":" +
+             dependency.getSource();
+   }
+   
    private boolean processingQueue_ = false;
+   private boolean prefetching_ = false;
+   
+   // incremented whenever the cache is cleared, so that results for requests
+   // made before then aren't added to it
+   private int cacheGeneration_ = 0;
    private final LinkedList<DependencyRequest> requestQueue_;
    private final GlobalDisplay globalDisplay_;
    private final DependencyServerOperations server_;
-   private final ArrayList<Dependency> satisfied_;
+   
+   // the keys of the dependencies known to be satisfied
+   private final HashSet<String> satisfied_;
 }
@@ -28,6 +28,14 @@ public interface DependencyServerOperations extends CryptoServerOperations
        boolean silentUpdate,
        ServerRequestCallback<JsArray<Dependency>> requestCallback);
    
+   // checkAvailable: whether to look up the versions available from CRAN
+   // for the unsatisfied dependencies (which may require network access)
+   void unsatisfiedDependencies(
+       JsArray<Dependency> dependencies,
+       boolean silentUpdate,
+       boolean checkAvailable,
+       ServerRequestCallback<JsArray<Dependency>> requestCallback);
+   
    void installDependencies(
        JsArray<Dependency> dependencies,
        ServerRequestCallback<ConsoleProcess> requestCallback);
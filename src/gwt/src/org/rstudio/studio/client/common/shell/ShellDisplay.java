@@ -45,6 +45,7 @@ public interface ShellDisplay extends ShellOutputWriter,
 
    int getMaxOutputLines();
    void setMaxOutputLines(int maxLines);
+   void setVirtualizedOutput(boolean virtualized);
 
    HandlerRegistration addCapturingKeyDownHandler(KeyDownHandler handler);
    
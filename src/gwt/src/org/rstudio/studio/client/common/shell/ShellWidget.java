@@ -166,6 +166,15 @@ public class ShellWidget extends Composite implements ShellDisplay,
       scrollPanel_.addStyleName("ace_scroller");
       scrollPanel_.addClickHandler(secondaryInputHandler);
       scrollPanel_.addKeyDownHandler(secondaryInputHandler);
+      scrollPanel_.addScrollHandler(new ScrollHandler()
+      {
+         @Override
+         public void onScroll(ScrollEvent event)
+         {
+            if (virtualOutput_ != null)
+               virtualOutput_.onScroll();
+         }
+      });
 
       secondaryInputHandler.setInput(editor);
 
@@ -242,6 +251,11 @@ public class ShellWidget extends Composite implements ShellDisplay,
    {
       clearPendingInput();
       output(error, getErrorClass(), false);
+      
+      // Extended error information can't be swapped into virtualized output
+      // (there's no persistent element for the error)
+      if (virtualOutputLines_ != null)
+         return;
 
       // Pick up the last element emitted to the console. If we get extended
       // information for this error, we'll need to swap out the simple error
@@ -350,6 +364,9 @@ public class ShellWidget extends Composite implements ShellDisplay,
    {
       if (text.indexOf('\f') >= 0)
          clearOutput();
+      
+      if (virtualOutputLines_ != null)
+         return virtualOutput(text, className, addToTop);
 
       Node node;
       boolean isOutput = StringUtil.isNullOrEmpty(className)
@@ -435,6 +452,43 @@ public class ShellWidget extends Composite implements ShellDisplay,
       return result;
    }
 
+   private boolean virtualOutput(String text, 
+                                 String className, 
+                                 boolean addToTop)
+   {
+      boolean isOutput = StringUtil.isNullOrEmpty(className)
+                         || className.equals(styles_.output());
+      
+      // as with the DOM-based output, make sure that output which doesn't end
+      // with a newline is separated from anything that isn't more output
+      if (addToTop)
+      {
+         text = VirtualConsole.consolify(text);
+         if (isOutput && !topIsOutput_)
+            text = ensureNewLine(text);
+         virtualOutputLines_.prepend(text, className);
+         topIsOutput_ = isOutput;
+      }
+      else
+      {
+         if (!isOutput && bottomIsOutput_ && 
+             virtualOutputLines_.hasPartialLine())
+         {
+            virtualOutputLines_.append("\n", null);
+         }
+         virtualOutputLines_.setMaxLineLength(
+               RStudioGinjector.INSTANCE.getUIPrefs()
+                  .truncateLongLinesInConsoleHistory().getGlobalValue());
+         virtualOutputLines_.append(text.replace("\f", ""), className);
+         bottomIsOutput_ = isOutput;
+      }
+      
+      virtualOutput_.invalidate();
+      boolean result = !trimExcess();
+      resizeCommand_.nudge();
+      return result;
+   }
+
    private String ensureNewLine(String s)
    {
       if (s.length() == 0 || s.charAt(s.length() - 1) == '\n')
@@ -448,6 +502,19 @@ public class ShellWidget extends Composite implements ShellDisplay,
       if (maxLines_ <= 0)
          return false;  // No limit in effect
 
+      if (virtualOutputLines_ != null)
+      {
+         // virtualized output is cheap to keep around, so it's held to a
+         // much larger limit than the DOM
+         int maxLines = Math.max(maxLines_, VIRTUAL_MAX_OUTPUT_LINES);
+         int linesToTrim = virtualOutputLines_.getLineCount() - maxLines;
+         if (linesToTrim <= 0)
+            return false;
+         virtualOutputLines_.trimLines(linesToTrim);
+         virtualOutput_.invalidate();
+         return true;
+      }
+
       int linesToTrim = lines_ - maxLines_;
       if (linesToTrim > 0)
       {
@@ -624,6 +691,13 @@ public class ShellWidget extends Composite implements ShellDisplay,
       cleared_ = true;
       trailingOutput_ = null;
       trailingOutputConsole_ = null;
+      if (virtualOutputLines_ != null)
+      {
+         virtualOutputLines_.clear();
+         virtualOutput_.invalidate();
+         topIsOutput_ = false;
+         bottomIsOutput_ = false;
+      }
    }
    
    public InputEditorDisplay getInputEditorDisplay()
@@ -705,6 +779,43 @@ public class ShellWidget extends Composite implements ShellDisplay,
       trimExcess();
    }
    
+   public void setVirtualizedOutput(boolean virtualized)
+   {
+      if (virtualized == (virtualOutputLines_ != null))
+         return;
+      
+      // switching modes discards existing output
+      clearOutput();
+      int index = verticalPanel_.getWidgetIndex(
+            virtualized ? output_ : virtualOutput_);
+      verticalPanel_.remove(index);
+      if (virtualized)
+      {
+         virtualOutputLines_ = new VirtualOutputLines();
+         virtualOutput_ = new VirtualOutputWidget(virtualOutputLines_, 
+                                                  scrollPanel_.getElement());
+         virtualOutput_.setStylePrimaryName(styles_.output());
+         SelectInputClickHandler handler = new SelectInputClickHandler();
+         handler.setInput(input_);
+         virtualOutput_.addClickHandler(handler);
+         virtualOutput_.addPasteHandler(handler);
+         
+         // the output element id moves to whichever element is showing
+         output_.getElement().setId("");
+         ElementIds.assignElementId(virtualOutput_.getElement(), 
+                                    ElementIds.CONSOLE_OUTPUT);
+         verticalPanel_.insert(virtualOutput_, index);
+      }
+      else
+      {
+         virtualOutputLines_ = null;
+         virtualOutput_ = null;
+         ElementIds.assignElementId(output_.getElement(), 
+                                    ElementIds.CONSOLE_OUTPUT);
+         verticalPanel_.insert(output_, index);
+      }
+   }
+   
    @Override
    public Widget getShellWidget()
    {
@@ -732,6 +843,13 @@ public class ShellWidget extends Composite implements ShellDisplay,
    // next bit of output contains \b or \r control characters
    private Text trailingOutput_ ;
    private VirtualConsole trailingOutputConsole_ ;
+   // When output is virtualized, lines live in a compact model and only those
+   // near the viewport are materialized
+   private VirtualOutputLines virtualOutputLines_;
+   private VirtualOutputWidget virtualOutput_;
+   private static final int VIRTUAL_MAX_OUTPUT_LINES = 1000000;
+   private boolean topIsOutput_ = false;
+   private boolean bottomIsOutput_ = false;
    private final HTML prompt_ ;
    protected final AceEditor input_ ;
    private final DockPanel inputLine_ ;
@@ -0,0 +1,275 @@
+/*
+ * VirtualOutputLines.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.StringUtil;
+
+import com.google.gwt.safehtml.shared.SafeHtmlUtils;
+
+/**
+ * Compact line store backing the virtualized console output. Completed lines
+ * are kept as pre-rendered HTML strings; only the last (partial) line is kept
+ * in an editable form, so that \r and \b can pound over it.
+ *
+ * Lines can be appended at the bottom, prepended at the top (for playback of
+ * console actions) and trimmed from the top in amortized constant time.
+ *
+ * Appended lines longer than the maximum line length are truncated when
+ * they're rendered, in the same way as VirtualConsole.toString() truncates
+ * them (prepended text is expected to have been through the VirtualConsole
+ * already).
+ */
+public class VirtualOutputLines
+{
+   public VirtualOutputLines()
+   {
+   }
+
+   /**
+    * Sets the length beyond which lines are truncated (0 for no limit).
+    * Lines already rendered are unaffected.
+    */
+   public void setMaxLineLength(int maxLineLength)
+   {
+      maxLineLength_ = maxLineLength;
+   }
+
+   /**
+    * Returns the number of lines to display, including the trailing partial
+    * line if it has any content.
+    */
+   public int getLineCount()
+   {
+      return getCommittedCount() + (hasPartialLine() ? 1 : 0);
+   }
+
+   public boolean hasPartialLine()
+   {
+      return current_.length() > 0;
+   }
+
+   public String getLineHtml(int index)
+   {
+      if (index < getCommittedCount())
+         return getCommitted(index);
+      return toHtml(current_.toString(), currentClasses_);
+   }
+
+   /**
+    * Appends text to the bottom of the output, applying \r and \b to the
+    * partial line.
+    */
+   public void append(String text, String className)
+   {
+      for (int i = 0; i < text.length(); i++)
+      {
+         char c = text.charAt(i);
+         switch (c)
+         {
+            case '\n':
+               back_.add(toHtml(current_.toString(), currentClasses_));
+               current_.setLength(0);
+               currentClasses_.clear();
+               cursor_ = 0;
+               break;
+            case '\r':
+               cursor_ = 0;
+               break;
+            case '\b':
+               if (cursor_ > 0)
+               {
+                  cursor_--;
+                  current_.deleteCharAt(cursor_);
+                  currentClasses_.remove(cursor_);
+               }
+               break;
+            default:
+               if (cursor_ < current_.length())
+               {
+                  current_.setCharAt(cursor_, c);
+                  currentClasses_.set(cursor_, className);
+               }
+               else
+               {
+                  current_.append(c);
+                  currentClasses_.add(className);
+               }
+               cursor_++;
+               break;
+         }
+      }
+   }
+
+   /**
+    * Prepends text to the top of the output. Any text following the last
+    * newline is joined to the beginning of the first line.
+    */
+   public void prepend(String text, String className)
+   {
+      String[] lines = text.split("\n", -1);
+
+      // the trailing piece joins the line that's currently first
+      String tail = lines[lines.length - 1];
+      if (tail.length() > 0)
+      {
+         if (getCommittedCount() > 0)
+         {
+            setFirstCommitted(toHtml(tail, className) + getCommitted(0));
+         }
+         else
+         {
+            current_.insert(0, tail);
+            for (int i = 0; i < tail.length(); i++)
+               currentClasses_.add(0, className);
+            cursor_ += tail.length();
+         }
+      }
+
+      for (int i = lines.length - 2; i >= 0; i--)
+         front_.add(toHtml(lines[i], className));
+   }
+
+   /**
+    * Removes up to the given number of lines from the top of the output,
+    * returning the number of lines removed. The partial line is never
+    * removed.
+    */
+   public int trimLines(int count)
+   {
+      int trimmed = Math.min(count, getCommittedCount());
+      int remaining = trimmed;
+      while (remaining > 0 && !front_.isEmpty())
+      {
+         front_.remove(front_.size() - 1);
+         remaining--;
+      }
+
+      backStart_ += remaining;
+
+      // reclaim the space used by trimmed lines once it dominates the list
+      if (backStart_ > 0 && backStart_ >= back_.size() / 2)
+      {
+         back_ = new ArrayList<String>(back_.subList(backStart_, back_.size()));
+         backStart_ = 0;
+      }
+
+      return trimmed;
+   }
+
+   public void clear()
+   {
+      front_.clear();
+      back_.clear();
+      backStart_ = 0;
+      current_.setLength(0);
+      currentClasses_.clear();
+      cursor_ = 0;
+   }
+
+   private int getCommittedCount()
+   {
+      return front_.size() + back_.size() - backStart_;
+   }
+
+   private String getCommitted(int index)
+   {
+      int frontSize = front_.size();
+      if (index < frontSize)
+         return front_.get(frontSize - 1 - index);
+      return back_.get(backStart_ + index - frontSize);
+   }
+
+   private void setFirstCommitted(String html)
+   {
+      if (!front_.isEmpty())
+         front_.set(front_.size() - 1, html);
+      else
+         back_.set(backStart_, html);
+   }
+
+   private static String toHtml(String text, String className)
+   {
+      if (text.length() == 0)
+         return "";
+      String escaped = SafeHtmlUtils.htmlEscape(text);
+      if (className == null)
+         return escaped;
+      return "<span class=\"" + SafeHtmlUtils.htmlEscape(className) + "\">" +
+             escaped + "</span>";
+   }
+
+   private String toHtml(String text, ArrayList<String> classes)
+   {
+      // the marker (if any) takes the class of the last character shown
+      String truncated = truncate(text);
+      int length = text.length();
+      if (maxLineLength_ > 0 && length > maxLineLength_)
+         length = maxLineLength_;
+      
+      StringBuilder html = new StringBuilder();
+      int runStart = 0;
+      while (runStart < length)
+      {
+         String className = classes.get(runStart);
+         int runEnd = runStart + 1;
+         while (runEnd < length &&
+                sameClass(classes.get(runEnd), className))
+         {
+            runEnd++;
+         }
+         if (runEnd == length)
+            runEnd = truncated.length();
+         html.append(toHtml(truncated.substring(runStart, runEnd), className));
+         runStart = runEnd;
+      }
+      return html.toString();
+   }
+
+   // truncates the line as VirtualConsole.toString() does
+   private String truncate(String line)
+   {
+      if (maxLineLength_ <= 0 || line.length() <= maxLineLength_)
+         return line;
+
+      String trimmed = StringUtil.trimRight(line);
+      if (trimmed.length() > maxLineLength_)
+         return trimmed.substring(0, maxLineLength_) + "... <truncated>";
+      else
+         return line.substring(0, maxLineLength_);
+   }
+
+   private static boolean sameClass(String a, String b)
+   {
+      return a == null ? b == null : a.equals(b);
+   }
+
+   // lines prepended to the top of the output, most recently prepended last
+   private final ArrayList<String> front_ = new ArrayList<String>();
+
+   // lines appended to the bottom of the output; entries before backStart_
+   // have been trimmed
+   private ArrayList<String> back_ = new ArrayList<String>();
+   private int backStart_ = 0;
+
+   // the trailing partial line, the class of each of its characters, and
+   // the position at which the next character will be written
+   private final StringBuilder current_ = new StringBuilder();
+   private final ArrayList<String> currentClasses_ = new ArrayList<String>();
+   private int cursor_ = 0;
+
+   private int maxLineLength_ = 0;
+}
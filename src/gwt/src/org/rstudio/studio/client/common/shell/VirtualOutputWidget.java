@@ -0,0 +1,201 @@
+/*
+ * VirtualOutputWidget.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import java.util.ArrayList;
+
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.PasteEvent;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.Style.Overflow;
+import com.google.gwt.dom.client.Style.Position;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.HasClickHandlers;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.user.client.Event;
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * Renders the lines of a VirtualOutputLines model, materializing only the
+ * lines that are visible in the enclosing scroll container (plus some
+ * overscan). Lines are not wrapped, so every line has the same height.
+ */
+public class VirtualOutputWidget extends Widget implements HasClickHandlers
+{
+   public VirtualOutputWidget(VirtualOutputLines lines, Element scroller)
+   {
+      lines_ = lines;
+      scroller_ = scroller;
+
+      setElement(Document.get().createDivElement());
+      getElement().getStyle().setPosition(Position.RELATIVE);
+      getElement().getStyle().setOverflow(Overflow.HIDDEN);
+      getElement().setTabIndex(0);
+
+      viewport_ = Document.get().createPreElement();
+      viewport_.getStyle().setPosition(Position.ABSOLUTE);
+      viewport_.getStyle().setLeft(0, Unit.PX);
+      viewport_.getStyle().setRight(0, Unit.PX);
+      viewport_.getStyle().setMargin(0, Unit.PX);
+      viewport_.getStyle().setProperty("whiteSpace", "pre");
+      getElement().appendChild(viewport_);
+   }
+
+   public HandlerRegistration addClickHandler(ClickHandler handler)
+   {
+      return addDomHandler(handler, ClickEvent.getType());
+   }
+
+   public HandlerRegistration addPasteHandler(final PasteEvent.Handler handler)
+   {
+      // as in PreWidget, paste events have to be sunk and dispatched by hand
+      sinkEvents(Event.ONPASTE);
+      pasteHandlers_.add(handler);
+      return new HandlerRegistration()
+      {
+         @Override
+         public void removeHandler()
+         {
+            pasteHandlers_.remove(handler);
+         }
+      };
+   }
+
+   @Override
+   public void onBrowserEvent(Event event)
+   {
+      super.onBrowserEvent(event);
+      if (event.getTypeInt() == Event.ONPASTE)
+      {
+         for (PasteEvent.Handler handler: pasteHandlers_)
+            handler.onPaste(new PasteEvent(getClipboardText(event)));
+      }
+   }
+
+   private final native String getClipboardText(Event event) /*-{
+      return event.clipboardData.getData('text/plain');
+   }-*/;
+
+   /**
+    * Indicates that the model has changed; the visible lines will be
+    * re-rendered at the end of the current event loop.
+    */
+   public void invalidate()
+   {
+      dirty_ = true;
+      scheduleRender();
+   }
+
+   /**
+    * Indicates that the scroll position or size of the scroll container has
+    * changed; the visible lines will be re-rendered if necessary.
+    */
+   public void onScroll()
+   {
+      scheduleRender();
+   }
+
+   @Override
+   protected void onLoad()
+   {
+      super.onLoad();
+      invalidate();
+   }
+
+   private void scheduleRender()
+   {
+      if (renderPending_)
+         return;
+      renderPending_ = true;
+      Scheduler.get().scheduleFinally(new ScheduledCommand()
+      {
+         @Override
+         public void execute()
+         {
+            renderPending_ = false;
+            render();
+         }
+      });
+   }
+
+   private void render()
+   {
+      if (!isAttached())
+         return;
+
+      int count = lines_.getLineCount();
+      getElement().getStyle().setHeight(Math.round(count * lineHeight_), 
+                                        Unit.PX);
+
+      // compute the range of lines that intersects the scroll container's
+      // visible region
+      int top = scroller_.getAbsoluteTop() - getElement().getAbsoluteTop();
+      int height = scroller_.getClientHeight();
+      int first = Math.max(0, (int)(top / lineHeight_) - OVERSCAN);
+      int last = Math.min(count, 
+            (int)((top + height) / lineHeight_) + 1 + OVERSCAN);
+      if (first > last)
+         first = last;
+
+      if (!dirty_ && first == renderedFirst_ && last == renderedLast_)
+         return;
+
+      StringBuilder html = new StringBuilder();
+      for (int i = first; i < last; i++)
+      {
+         html.append(lines_.getLineHtml(i));
+         html.append('\n');
+      }
+      viewport_.setInnerHTML(html.toString());
+      viewport_.getStyle().setTop(Math.round(first * lineHeight_), Unit.PX);
+
+      renderedFirst_ = first;
+      renderedLast_ = last;
+      dirty_ = false;
+
+      // now that we have some lines on screen, measure how tall they really
+      // are; if our estimate was off, render again with the measured height
+      if (last > first)
+      {
+         double measured = 
+               viewport_.getOffsetHeight() / (double) (last - first);
+         if (measured > 0 && Math.abs(measured - lineHeight_) > 0.5)
+         {
+            lineHeight_ = measured;
+            invalidate();
+         }
+      }
+   }
+
+   private final VirtualOutputLines lines_;
+   private final Element scroller_;
+   private final Element viewport_;
+   private final ArrayList<PasteEvent.Handler> pasteHandlers_ =
+         new ArrayList<PasteEvent.Handler>();
+
+   private double lineHeight_ = 15;
+   private int renderedFirst_ = -1;
+   private int renderedLast_ = -1;
+   private boolean dirty_ = false;
+   private boolean renderPending_ = false;
+
+   // number of lines materialized above and below the visible region
+   private static final int OVERSCAN = 50;
+}
@@ -0,0 +1,214 @@
+/*
+ * SpellingCache.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.spelling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.rstudio.core.client.StringUtil;
+import org.rstudio.core.client.js.JsUtil;
+
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.user.client.Timer;
+
+/**
+ * Remembers which words the spelling dictionaries accept, for a given
+ * dictionary language and set of custom dictionaries. The results are kept
+ * in the browser's local storage (when it's available) so that they outlive
+ * the session; each dictionary configuration gets its own entry, and only
+ * the few most recently used configurations are kept.
+ */
+class SpellingCache
+{
+   /**
+    * Switches to the results for the given dictionaries, loading them from
+    * storage if they were saved previously.
+    */
+   public void setDictionaries(String language,
+                               JsArrayString customDictionaries)
+   {
+      String key = getKey(language, customDictionaries);
+      if (key.equals(key_))
+         return;
+
+      save();
+      key_ = key;
+      words_.clear();
+      load();
+   }
+
+   /**
+    * Discards any saved results for the given dictionaries (e.g. because the
+    * contents of one of the custom dictionaries may have changed).
+    */
+   public void discard(String language, JsArrayString customDictionaries)
+   {
+      String key = getKey(language, customDictionaries);
+      if (key.equals(key_))
+      {
+         words_.clear();
+         dirty_ = false;
+      }
+      removeItem(key);
+      updateIndex(key, false);
+   }
+
+   /**
+    * @return True if the word is correct, false if it is misspelled, or
+    *    null if it hasn't been checked.
+    */
+   public Boolean get(String word)
+   {
+      return words_.get(word);
+   }
+
+   public void put(String word, boolean isCorrect)
+   {
+      words_.put(word, isCorrect);
+      dirty_ = true;
+      if (!saveTimer_.isRunning())
+         saveTimer_.schedule(SAVE_DELAY_MS);
+   }
+
+   private void load()
+   {
+      String value = getItem(key_);
+      if (value != null)
+      {
+         for (String entry : value.split("\n"))
+         {
+            if (entry.length() < 2)
+               continue;
+            words_.put(entry.substring(1), entry.charAt(0) == '+');
+         }
+      }
+      dirty_ = false;
+      updateIndex(key_, true);
+   }
+
+   private void save()
+   {
+      saveTimer_.cancel();
+      if (key_ == null || !dirty_)
+         return;
+
+      StringBuilder value = new StringBuilder();
+      for (Map.Entry<String, Boolean> entry : words_.entrySet())
+      {
+         if (value.length() > 0)
+            value.append('\n');
+         value.append(entry.getValue() ? '+' : '-');
+         value.append(entry.getKey());
+      }
+
+      setItem(key_, value.toString());
+      dirty_ = false;
+   }
+
+   // Records the use of the given entry (or its removal) in the index of
+   // saved entries, removing the least recently used entries if there are
+   // too many.
+   private void updateIndex(String key, boolean used)
+   {
+      ArrayList<String> keys = new ArrayList<String>();
+      String index = getItem(INDEX_KEY);
+      if (!StringUtil.isNullOrEmpty(index))
+         keys.addAll(Arrays.asList(index.split("\n")));
+
+      keys.remove(key);
+      if (used)
+         keys.add(0, key);
+      while (keys.size() > MAX_DICTIONARIES)
+         removeItem(keys.remove(keys.size() - 1));
+
+      setItem(INDEX_KEY, StringUtil.join(keys, "\n"));
+   }
+
+   private static String getKey(String language,
+                                JsArrayString customDictionaries)
+   {
+      String[] custom = customDictionaries == null ?
+            new String[0] :
+            JsUtil.toStringArray(customDictionaries);
+      Arrays.sort(custom);
+      return KEY_PREFIX + language + ":" + StringUtil.join(custom, ",");
+   }
+
+   private static final native String getItem(String key) /*-{
+      try
+      {
+         return $wnd.localStorage ? $wnd.localStorage.getItem(key) : null;
+      }
+      catch (e)
+      {
+         return null;
+      }
+   }-*/;
+
+   private static final native void setItem(String key, String value) /*-{
+      try
+      {
+         if ($wnd.localStorage)
+            $wnd.localStorage.setItem(key, value);
+      }
+      catch (e)
+      {
+         // storage is full or unavailable; the cache just won't persist
+      }
+   }-*/;
+
+   private static final native void removeItem(String key) /*-{
+      try
+      {
+         if ($wnd.localStorage)
+            $wnd.localStorage.removeItem(key);
+      }
+      catch (e)
+      {
+      }
+   }-*/;
+
+   private String key_;
+   private boolean dirty_ = false;
+
+   // the results for the current dictionaries, least recently used first
+   @SuppressWarnings("serial")
+   private final LinkedHashMap<String, Boolean> words_ =
+         new LinkedHashMap<String, Boolean>(16, 0.75f, true)
+   {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+      {
+         return size() > MAX_WORDS;
+      }
+   };
+
+   private final Timer saveTimer_ = new Timer()
+   {
+      @Override
+      public void run()
+      {
+         save();
+      }
+   };
+
+   private static final String KEY_PREFIX = "rstudio.spelling:";
+   private static final String INDEX_KEY = KEY_PREFIX + "index";
+   private static final int MAX_WORDS = 20000;
+   private static final int MAX_DICTIONARIES = 3;
+   private static final int SAVE_DELAY_MS = 5000;
+}
@@ -16,7 +16,7 @@
 package org.rstudio.studio.client.common.spelling;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
 import org.rstudio.core.client.js.JsUtil;
@@ -52,12 +52,16 @@ public class SpellingService implements HasChangeHandlers
       server_ = server;
       uiPrefs_ = uiPrefs;
       
+      cache_.setDictionaries(
+            uiPrefs.spellingDictionaryLanguage().getValue(),
+            uiPrefs.spellingCustomDictionaries().getValue());
+      
       uiPrefs.spellingDictionaryLanguage().addValueChangeHandler(
                                            new ValueChangeHandler<String>(){
          @Override
          public void onValueChange(ValueChangeEvent<String> event)
          {
-            invalidateCache();
+            onDictionariesChanged();
          }
       });
       
@@ -66,7 +70,7 @@ public class SpellingService implements HasChangeHandlers
          @Override
          public void onValueChange(ValueChangeEvent<JsArrayString> event)
          {
-            invalidateCache();
+            onDictionariesChanged();
          }
       });
    }
@@ -78,12 +82,14 @@ public class SpellingService implements HasChangeHandlers
       // results to return
       final SpellCheckerResult spellCheckerResult = new SpellCheckerResult();
       
-      // only send words to the server that aren't in the cache
+      // only send words to the server that aren't in the cache (and only
+      // send each of those once)
       final ArrayList<String> wordsToCheck = new ArrayList<String>();
+      HashSet<String> uncheckedWords = new HashSet<String>();
       for (int i = 0; i<words.size(); i++)
       {
          String word = words.get(i);
-         Boolean isCorrect = previousResults_.get(word);
+         Boolean isCorrect = cache_.get(word);
          if (isCorrect != null)
          {
             if (isCorrect)
@@ -91,7 +97,7 @@ public class SpellingService implements HasChangeHandlers
             else
                spellCheckerResult.getIncorrect().add(word);
          }
-         else
+         else if (uncheckedWords.add(word))
          {
             wordsToCheck.add(word);
          }
@@ -112,7 +118,7 @@ public class SpellingService implements HasChangeHandlers
          public void onResponseReceived(JsArrayInteger result)
          {
             // get misspelled indexes
-            ArrayList<Integer> misspelledIndexes = new ArrayList<Integer>();
+            HashSet<Integer> misspelledIndexes = new HashSet<Integer>();
             for (int i=0; i<result.length(); i++)
                misspelledIndexes.add(result.get(i));
             
@@ -123,12 +129,12 @@ public class SpellingService implements HasChangeHandlers
                if (misspelledIndexes.contains(i))
                {
                   spellCheckerResult.getIncorrect().add(word);
-                  previousResults_.put(word, false);
+                  cache_.put(word, false);
                }
                else
                {
                   spellCheckerResult.getCorrect().add(word);
-                  previousResults_.put(word,  true);
+                  cache_.put(word, true);
                }
             }
             
@@ -170,9 +176,11 @@ public class SpellingService implements HasChangeHandlers
       server_.installAllDictionaries(requestCallback);
    }
    
-   public void invalidateCache()
+   private void onDictionariesChanged()
    {
-      previousResults_.clear();
+      cache_.setDictionaries(
+            uiPrefs_.spellingDictionaryLanguage().getValue(),
+            uiPrefs_.spellingCustomDictionaries().getValue());
       DomEvent.fireNativeEvent(Document.get().createChangeEvent(),
                                handlerManager_);
    }
@@ -200,12 +208,16 @@ public class SpellingService implements HasChangeHandlers
       public void onResponseReceived(JsArrayString customDicts)
       {
          // the underlying spelling dictionaries have changed so we need
-         // to update the ui-pref -- this will result in an invalidation
-         // of our results cache. note that if for some reason the user
+         // to update the ui-pref -- this will result in a switch of our
+         // results cache. any results saved for the new set of dictionaries
+         // may predate the current contents of one of them, so discard
+         // those first. note that if for some reason the user
          // does not press the OK or Apply button in the dialog then cross
          // process notification of the new custom dictionary state won't 
          // occur and other IDE instances will have invalid dictionary
          // results caches until they are restarted.
+         cache_.discard(uiPrefs_.spellingDictionaryLanguage().getValue(),
+                        customDicts);
          uiPrefs_.spellingCustomDictionaries().setGlobalValue(customDicts);
          
          // pass through to the caller
@@ -225,8 +237,7 @@ public class SpellingService implements HasChangeHandlers
    private final SpellingServerOperations server_;
    private final UIPrefs uiPrefs_;
    
-   private HashMap<String,Boolean> previousResults_ = 
-                                             new HashMap<String,Boolean>();
+   private final SpellingCache cache_ = new SpellingCache();
    
    HandlerManager handlerManager_ = new HandlerManager(this);
    
@@ -57,8 +57,7 @@ import org.rstudio.studio.client.rsconnect.model.RSConnectPublishSource;
 import org.rstudio.studio.client.rsconnect.model.RSConnectServerOperations;
 import org.rstudio.studio.client.rsconnect.model.RmdPublishDetails;
 import org.rstudio.studio.client.rsconnect.ui.RSAccountConnector;
-import org.rstudio.studio.client.rsconnect.ui.RSConnectDeployDialog;
-import org.rstudio.studio.client.rsconnect.ui.RSConnectPublishWizard;
+import org.rstudio.studio.client.rsconnect.ui.RSConnectPublishLoader;
 import org.rstudio.studio.client.server.ServerError;
 import org.rstudio.studio.client.server.ServerRequestCallback;
 import org.rstudio.studio.client.workbench.commands.Commands;
@@ -107,7 +106,8 @@ public class RSConnect implements SessionInitHandler,
                     RPubsServerOperations rpubsServer,
                     RSAccountConnector connector,
                     Provider<UIPrefs> pUiPrefs,
-                    PlotPublishMRUList plotMru)
+                    PlotPublishMRUList plotMru,
+                    RSConnectPublishLoader.Shim publishLoader)
    {
       commands_ = commands;
       display_ = display;
@@ -120,6 +120,7 @@ public class RSConnect implements SessionInitHandler,
       connector_ = connector;
       pUiPrefs_ = pUiPrefs;
       plotMru_ = plotMru;
+      publishLoader_ = publishLoader;
 
       binder.bind(commands, this);
 
@@ -424,19 +425,16 @@ public class RSConnect implements SessionInitHandler,
    private void publishAsFiles(RSConnectActionEvent event,
          RSConnectPublishSource source)
    {
-      RSConnectDeployDialog dialog = 
-            new RSConnectDeployDialog(
+      publishLoader_.showDeployDialog(
                       event.getContentType(),
                       server_, this, display_, 
                       source,
                       event.getFromPrevious());
-      dialog.showModal();
    }
    
    private void publishWithWizard(final RSConnectPublishInput input)
    {
-      RSConnectPublishWizard wizard = 
-            new RSConnectPublishWizard(input, 
+      publishLoader_.showPublishWizard(input, 
                   new ProgressOperationWithInput<RSConnectPublishResult>()
             {
                @Override
@@ -459,7 +457,6 @@ public class RSConnect implements SessionInitHandler,
                   }
                }
             });
-      wizard.showModal();
    }
    
    @Override
@@ -1067,6 +1064,7 @@ public class RSConnect implements SessionInitHandler,
    private final RSAccountConnector connector_;
    private final Provider<UIPrefs> pUiPrefs_;
    private final PlotPublishMRUList plotMru_;
+   private final RSConnectPublishLoader.Shim publishLoader_;
    
    private boolean launchBrowser_ = false;
    private boolean sessionInited_ = false;
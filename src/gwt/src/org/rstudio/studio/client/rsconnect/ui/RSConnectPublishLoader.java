@@ -0,0 +1,75 @@
+/*
+ * RSConnectPublishLoader.java
+ *
+ * Copyright (C) 2009-15 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.rsconnect.ui;
+
+import com.google.inject.Inject;
+
+import org.rstudio.core.client.AsyncShim;
+import org.rstudio.core.client.widget.ProgressOperationWithInput;
+import org.rstudio.studio.client.common.GlobalDisplay;
+import org.rstudio.studio.client.rsconnect.RSConnect;
+import org.rstudio.studio.client.rsconnect.model.RSConnectDeploymentRecord;
+import org.rstudio.studio.client.rsconnect.model.RSConnectPublishInput;
+import org.rstudio.studio.client.rsconnect.model.RSConnectPublishResult;
+import org.rstudio.studio.client.rsconnect.model.RSConnectPublishSource;
+import org.rstudio.studio.client.rsconnect.model.RSConnectServerOperations;
+
+/**
+ * Shows the publishing wizard and the deploy dialog; they're only
+ * downloaded when one of them is first needed.
+ */
+public class RSConnectPublishLoader
+{
+   public abstract static class Shim extends AsyncShim<RSConnectPublishLoader>
+   {
+      public abstract void showPublishWizard(
+            RSConnectPublishInput input,
+            ProgressOperationWithInput<RSConnectPublishResult> operation);
+
+      public abstract void showDeployDialog(
+            int contentType,
+            RSConnectServerOperations server,
+            RSConnect connect,
+            GlobalDisplay display,
+            RSConnectPublishSource source,
+            RSConnectDeploymentRecord fromPrevious);
+   }
+
+   @Inject
+   public RSConnectPublishLoader()
+   {
+   }
+
+   public void showPublishWizard(
+         RSConnectPublishInput input,
+         ProgressOperationWithInput<RSConnectPublishResult> operation)
+   {
+      RSConnectPublishWizard wizard =
+            new RSConnectPublishWizard(input, operation);
+      wizard.showModal();
+   }
+
+   public void showDeployDialog(int contentType,
+                                RSConnectServerOperations server,
+                                RSConnect connect,
+                                GlobalDisplay display,
+                                RSConnectPublishSource source,
+                                RSConnectDeploymentRecord fromPrevious)
+   {
+      RSConnectDeployDialog dialog = new RSConnectDeployDialog(
+            contentType, server, connect, display, source, fromPrevious);
+      dialog.showModal();
+   }
+}
@@ -157,6 +157,16 @@ class ClientEvent extends JavaScriptObject
    {
    }
    
+   public static final native ClientEvent create(int id, 
+                                                 String type, 
+                                                 JavaScriptObject data) /*-{
+      return {
+         "id"  : id,
+         "type": type,
+         "data": data
+      };
+   }-*/;
+   
    public final native int getId() /*-{
       return this.id;
    }-*/;
@@ -21,9 +21,11 @@ import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 
+import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.files.FileSystemItem;
 import org.rstudio.core.client.js.JsObject;
 import org.rstudio.core.client.jsonrpc.RpcObjectList;
+import org.rstudio.core.client.metrics.Metrics;
 import org.rstudio.studio.client.application.events.*;
 import org.rstudio.studio.client.application.model.RVersionsInfo;
 import org.rstudio.studio.client.application.model.SaveAction;
@@ -163,6 +165,7 @@ import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEve
 import org.rstudio.studio.client.workbench.views.viewer.events.ViewerNavigateEvent;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 public class ClientEventDispatcher 
 {
@@ -179,27 +182,126 @@ public class ClientEventDispatcher
 
    public void enqueEvent(ClientEvent event)
    {
+      if (coalesce(event))
+         return;
+      
       pendingEvents_.add(event);
-      if (pendingEvents_.size() == 1)
+      if (pendingEvents_.size() - nextPendingEvent_ == 1)
       {
          Scheduler.get().scheduleIncremental(new RepeatingCommand()
          {
             public boolean execute()
             {
-               final int MAX_EVENTS_AT_ONCE = 200;
-               for (int i = 0;
-                    i < MAX_EVENTS_AT_ONCE && pendingEvents_.size() > 0;
-                    i++)
+               // dispatch events until we've used up our time budget, then 
+               // yield to the browser so that it can render and respond to
+               // input before we continue
+               double start = Metrics.now();
+               while (nextPendingEvent_ < pendingEvents_.size())
                {
-                  ClientEvent currentEvent = pendingEvents_.remove(0);
-                  dispatchEvent(currentEvent);
+                  ClientEvent currentEvent = 
+                        pendingEvents_.get(nextPendingEvent_);
+                  pendingEvents_.set(nextPendingEvent_++, null);
+                  
+                  // events superseded by a later event are left in the
+                  // queue as nulls
+                  if (currentEvent != null)
+                  {
+                     double eventStart = Metrics.now();
+                     dispatchEvent(currentEvent);
+                     Metrics.record(Metrics.CLIENT_EVENT, 
+                                    currentEvent.getType(), 
+                                    eventStart);
+                  }
+                  
+                  if (Metrics.now() - start >= DISPATCH_BUDGET_MS)
+                     break;
                }
-               return pendingEvents_.size() > 0;
+               
+               if (nextPendingEvent_ < pendingEvents_.size())
+                  return true;
+               
+               pendingEvents_.clear();
+               nextPendingEvent_ = 0;
+               pendingAssignments_.clear();
+               pendingFileChanges_.clear();
+               return false;
             }
          });
       }
    }
    
+   // Attempts to merge the given event with a compatible event that's still
+   // waiting to be dispatched. Returns true if the event was merged (and 
+   // should not be queued).
+   private boolean coalesce(ClientEvent event)
+   {
+      String type = event.getType();
+      int index = pendingEvents_.size();
+      
+      if (type.equals(ClientEvent.ConsoleOutput) ||
+          type.equals(ClientEvent.ConsoleError))
+      {
+         // consecutive output to the same console can be written at once
+         ClientEvent last = index > nextPendingEvent_ ? 
+                                    pendingEvents_.get(index - 1) : null;
+         if (last == null || !last.getType().equals(type))
+            return false;
+         ConsoleText lastText = last.getData();
+         ConsoleText text = event.getData();
+         if (!StringUtil.notNull(lastText.getConsole()).equals(
+               StringUtil.notNull(text.getConsole())))
+         {
+            return false;
+         }
+         pendingEvents_.set(index - 1, ClientEvent.create(
+               event.getId(), 
+               type, 
+               ConsoleText.create(lastText.getText() + text.getText(), 
+                                  text.getConsole())));
+         return true;
+      }
+      else if (type.equals(ClientEvent.EnvironmentAssigned))
+      {
+         // a later assignment to the same object supersedes earlier ones
+         String name = event.<RObject>getData().getName();
+         Integer previous = pendingAssignments_.get(name);
+         if (previous != null)
+            pendingEvents_.set(previous, null);
+         pendingAssignments_.put(name, index);
+      }
+      else if (type.equals(ClientEvent.EnvironmentRemoved))
+      {
+         pendingAssignments_.remove(event.<String>getData());
+      }
+      else if (type.equals(ClientEvent.FileChanged))
+      {
+         // repeated modifications of the same file need only be reported 
+         // once
+         FileChange change = event.getData();
+         String path = change.getFile().getPath();
+         if (change.getType() == FileChange.MODIFIED)
+         {
+            Integer previous = pendingFileChanges_.get(path);
+            if (previous != null)
+               pendingEvents_.set(previous, null);
+            pendingFileChanges_.put(path, index);
+         }
+         else
+         {
+            pendingFileChanges_.remove(path);
+         }
+      }
+      else
+      {
+         // other events may depend on the order of the events before them,
+         // so don't coalesce across them
+         pendingAssignments_.clear();
+         pendingFileChanges_.clear();
+      }
+      
+      return false;
+   }
+   
    private void dispatchEvent(ClientEvent event) 
    { 
       String type = event.getType();
@@ -422,7 +524,7 @@ public class ClientEventDispatcher
          {
             FindResultEvent.Data data = event.getData();
             eventBus_.fireEvent(new FindResultEvent(
-                  data.getHandle(), data.getResults().toArrayList()));
+                  data.getHandle(), data.getGroups()));
          }
          else if (type.equals(ClientEvent.FindOperationEnded))
          {
@@ -861,6 +963,15 @@ public class ClientEventDispatcher
    private final EventBus eventBus_;
 
    private final ArrayList<ClientEvent> pendingEvents_ = new ArrayList<ClientEvent>();
+   private int nextPendingEvent_ = 0;
+   
+   // indices of queued events which may be superseded by later events
+   private final HashMap<String, Integer> pendingAssignments_ = 
+         new HashMap<String, Integer>();
+   private final HashMap<String, Integer> pendingFileChanges_ = 
+         new HashMap<String, Integer>();
+   
+   private static final int DISPATCH_BUDGET_MS = 15;
    
 
 }
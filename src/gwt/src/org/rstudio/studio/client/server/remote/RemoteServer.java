@@ -16,9 +16,12 @@
 package org.rstudio.studio.client.server.remote;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.StringUtil;
@@ -30,9 +33,11 @@ import org.rstudio.core.client.js.JsUtil;
 import org.rstudio.core.client.jsonrpc.RpcError;
 import org.rstudio.core.client.jsonrpc.RpcObjectList;
 import org.rstudio.core.client.jsonrpc.RpcRequest;
+import org.rstudio.core.client.jsonrpc.RpcRequestBatch;
 import org.rstudio.core.client.jsonrpc.RpcRequestCallback;
 import org.rstudio.core.client.jsonrpc.RpcResponse;
 import org.rstudio.core.client.jsonrpc.RpcResponseHandler;
+import org.rstudio.core.client.patch.TextChangeLog;
 import org.rstudio.studio.client.application.Desktop;
 import org.rstudio.studio.client.application.events.ClientDisconnectedEvent;
 import org.rstudio.studio.client.application.events.EventBus;
@@ -130,6 +135,7 @@ import org.rstudio.studio.client.shiny.model.ShinyRunCmd;
 import org.rstudio.studio.client.shiny.model.ShinyViewerType;
 import org.rstudio.studio.client.workbench.addins.Addins.RAddins;
 import org.rstudio.studio.client.workbench.codesearch.model.CodeSearchResults;
+import org.rstudio.studio.client.workbench.codesearch.model.ProjectSymbols;
 import org.rstudio.studio.client.workbench.codesearch.model.FunctionDefinition;
 import org.rstudio.studio.client.workbench.codesearch.model.SearchPathFunctionDefinition;
 import org.rstudio.studio.client.workbench.exportplot.model.SavePlotAsImageContext;
@@ -161,10 +167,12 @@ import org.rstudio.studio.client.workbench.views.files.model.DirectoryListing;
 import org.rstudio.studio.client.workbench.views.files.model.FileUploadToken;
 import org.rstudio.studio.client.workbench.views.help.model.HelpInfo;
 import org.rstudio.studio.client.workbench.views.history.model.HistoryEntry;
+import org.rstudio.studio.client.workbench.views.output.find.model.FindResult;
 import org.rstudio.studio.client.workbench.views.output.lint.model.LintItem;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallContext;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageState;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageUpdate;
+import org.rstudio.studio.client.workbench.views.plots.model.PlotsState;
 import org.rstudio.studio.client.workbench.views.plots.model.Point;
 import org.rstudio.studio.client.workbench.views.presentation.model.PresentationRPubsSource;
 import org.rstudio.studio.client.workbench.views.source.editors.profiler.model.ProfileOperationRequest;
@@ -498,13 +506,32 @@ public class RemoteServer implements Server
          String term, 
          int maxResults,
          ServerRequestCallback<CodeSearchResults> requestCallback)
+   {
+      searchCode(term, maxResults, false, requestCallback);
+   }
+   
+   public void searchCode(
+         String term, 
+         int maxResults,
+         boolean excludeProject,
+         ServerRequestCallback<CodeSearchResults> requestCallback)
    {
       JSONArray params = new JSONArray();
       params.set(0, new JSONString(term));
       params.set(1, new JSONNumber(maxResults));
+      params.set(2, JSONBoolean.getInstance(excludeProject));
       sendRequest(RPC_SCOPE, SEARCH_CODE, params, requestCallback);
    }
    
+   public void getProjectSymbols(
+         ArrayList<String> paths,
+         ServerRequestCallback<ProjectSymbols> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, JSONUtils.toJSONStringArray(paths));
+      sendRequest(RPC_SCOPE, GET_PROJECT_SYMBOLS, params, requestCallback);
+   }
+   
    public void getFunctionDefinition(
          String line, 
          int pos,
@@ -1107,6 +1134,39 @@ public class RemoteServer implements Server
                   paramArray, 
                   requestCallback);    
    }
+   
+   @Override
+   public void listFiles(
+                  FileSystemItem directory,
+                  boolean monitor,
+                  int pageSize,
+                  ServerRequestCallback<DirectoryListing> requestCallback)
+   {
+      JSONArray paramArray = new JSONArray();
+      paramArray.set(0, new JSONString(directory.getPath()));
+      paramArray.set(1, JSONBoolean.getInstance(monitor));
+      paramArray.set(2, new JSONNumber(pageSize));
+      
+      sendRequest(RPC_SCOPE, 
+                  LIST_FILES, 
+                  paramArray, 
+                  requestCallback);    
+   }
+   
+   @Override
+   public void listFilesPage(
+                  FileSystemItem directory,
+                  int offset,
+                  int count,
+                  ServerRequestCallback<JsArray<FileSystemItem>> requestCallback)
+   {
+      JSONArray paramArray = new JSONArray();
+      paramArray.set(0, new JSONString(directory.getPath()));
+      paramArray.set(1, new JSONNumber(offset));
+      paramArray.set(2, new JSONNumber(count));
+      
+      sendRequest(RPC_SCOPE, LIST_FILES_PAGE, paramArray, requestCallback);
+   }
 
    public void listAllFiles(String path,
                             String pattern,
@@ -1309,6 +1369,14 @@ public class RemoteServer implements Server
       sendRequest(RPC_SCOPE, PREVIOUS_PLOT, requestCallback);
    }
    
+   public void prefetchPlot(int index,
+                            ServerRequestCallback<PlotsState> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONNumber(index));
+      sendRequest(RPC_SCOPE, PREFETCH_PLOT, params, requestCallback);
+   }
+
    public void removePlot(ServerRequestCallback<Void> requestCallback)
    {
       sendRequest(RPC_SCOPE, REMOVE_PLOT, requestCallback);
@@ -1639,6 +1707,41 @@ public class RemoteServer implements Server
       sendRequest(RPC_SCOPE, SAVE_DOCUMENT_DIFF, params, requestCallback);
    }
 
+   public void saveDocumentHunks(String id,
+                                 String path,
+                                 String fileType,
+                                 String encoding,
+                                 String foldSpec,
+                                 JsArray<ChunkDefinition> chunkDefs,
+                                 List<TextChangeLog.Hunk> hunks,
+                                 String hash,
+                                 String checksum,
+                                 ServerRequestCallback<String> requestCallback)
+   {
+      JSONArray jsonHunks = new JSONArray();
+      for (int i = 0; i < hunks.size(); i++)
+      {
+         TextChangeLog.Hunk hunk = hunks.get(i);
+         JSONObject jsonHunk = new JSONObject();
+         jsonHunk.put("offset", new JSONNumber(hunk.getOffset()));
+         jsonHunk.put("length", new JSONNumber(hunk.getLength()));
+         jsonHunk.put("replacement", new JSONString(hunk.getReplacement()));
+         jsonHunks.set(i, jsonHunk);
+      }
+
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString(id));
+      params.set(1, path == null ? JSONNull.getInstance() : new JSONString(path));
+      params.set(2, fileType == null ? JSONNull.getInstance() : new JSONString(fileType));
+      params.set(3, encoding == null ? JSONNull.getInstance() : new JSONString(encoding));
+      params.set(4, new JSONString(StringUtil.notNull(foldSpec)));
+      params.set(5, chunkDefs == null ? JSONNull.getInstance() : new JSONObject(chunkDefs));
+      params.set(6, jsonHunks);
+      params.set(7, new JSONString(hash));
+      params.set(8, new JSONString(checksum));
+      sendRequest(RPC_SCOPE, SAVE_DOCUMENT_HUNKS, params, requestCallback);
+   }
+
    public void checkForExternalEdit(
          String id,
          ServerRequestCallback<CheckForExternalEditResult> requestCallback)
@@ -1933,6 +2036,13 @@ public class RemoteServer implements Server
       params.set(1, new JSONNumber(endIndex));
       sendRequest(RPC_SCOPE, GET_HISTORY_ARCHIVE_ITEMS, params, requestCallback);
    }
+
+   public void getRecentHistoryArchive(
+         long maxItems,
+         ServerRequestCallback<RpcObjectList<HistoryEntry>> requestCallback)
+   {
+      sendRequest(RPC_SCOPE, GET_RECENT_HISTORY_ARCHIVE, maxItems, requestCallback);
+   }
    
   
    public void searchHistoryArchive(
@@ -1945,6 +2055,19 @@ public class RemoteServer implements Server
       params.set(1, new JSONNumber(maxEntries));
       sendRequest(RPC_SCOPE, SEARCH_HISTORY_ARCHIVE, params, requestCallback);
    }
+
+   public void searchHistoryArchive(
+         String query,
+         long maxEntries,
+         long beforeIndex,
+         ServerRequestCallback<RpcObjectList<HistoryEntry>> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString(query));
+      params.set(1, new JSONNumber(maxEntries));
+      params.set(2, new JSONNumber(beforeIndex));
+      sendRequest(RPC_SCOPE, SEARCH_HISTORY_ARCHIVE, params, requestCallback);
+   }
    
    public void searchHistoryArchiveByPrefix(
          String prefix,
@@ -2606,7 +2729,7 @@ public class RemoteServer implements Server
          return rpcRequest;
 
       // send the request
-      rpcRequest.send(new RpcRequestCallback() {
+      RpcRequestCallback rpcCallback = new RpcRequestCallback() {
          public void onError(RpcRequest request, RpcError error)
          {
             // ignore errors if we are disconnected
@@ -2670,12 +2793,40 @@ public class RemoteServer implements Server
                   serverEventListener_.ensureEvents();
             }
          }
-      });
+      };
+      
+      // batch requests made in the same event loop turn when the server
+      // supports it (latency-critical requests always go out immediately,
+      // as do the *_completed methods the server may be waiting on)
+      RpcRequestBatch batch = getRequestBatch();
+      if (batch != null && 
+          scope.equals(RPC_SCOPE) && 
+          !UNBATCHED_METHODS.contains(method) &&
+          !method.endsWith("_completed"))
+      {
+         batch.enqueue(rpcRequest, rpcCallback);
+      }
+      else
+      {
+         rpcRequest.send(rpcCallback);
+      }
 
       // return the request
       return rpcRequest;
    }
    
+   private RpcRequestBatch getRequestBatch()
+   {
+      if (requestBatch_ == null && 
+          session_.getSessionInfo() != null &&
+          session_.getSessionInfo().getRpcBatchSupported())
+      {
+         requestBatch_ = new RpcRequestBatch(
+               GWT.getHostPageBaseURL() + RPC_SCOPE + "/" + BATCH_REQUESTS);
+      }
+      return requestBatch_;
+   }
+   
    private void ensureListeningForEvents()
    {
       // don't do this if we are disconnected
@@ -3548,6 +3699,20 @@ public class RemoteServer implements Server
       sendRequest(RPC_SCOPE, STOP_FIND, findOperationHandle, requestCallback);
    }
 
+   @Override
+   public void getFindResults(
+         String findOperationHandle,
+         int offset,
+         int count,
+         ServerRequestCallback<RpcObjectList<FindResult>> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString(findOperationHandle));
+      params.set(1, new JSONNumber(offset));
+      params.set(2, new JSONNumber(count));
+      sendRequest(RPC_SCOPE, GET_FIND_RESULTS, params, requestCallback);
+   }
+
    @Override
    public void clearFindResults(ServerRequestCallback<Void> requestCallback)
    {
@@ -4406,6 +4571,23 @@ public class RemoteServer implements Server
                   params, 
                   requestCallback);
    }
+   
+   @Override
+   public void unsatisfiedDependencies(
+      JsArray<Dependency> dependencies,
+      boolean silentUpdate,
+      boolean checkAvailable,
+      ServerRequestCallback<JsArray<Dependency>> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONArray(dependencies));
+      params.set(1, JSONBoolean.getInstance(silentUpdate));
+      params.set(2, JSONBoolean.getInstance(checkAvailable));
+      sendRequest(RPC_SCOPE, 
+                  "unsatisfied_dependencies", 
+                  params, 
+                  requestCallback);
+   }
      
    @Override
    public void installDependencies(
@@ -4506,6 +4688,7 @@ public class RemoteServer implements Server
                                    String documentPath,
                                    boolean showMarkersPane,
                                    boolean explicit,
+                                   JsArray<JsArrayInteger> rows,
                                    ServerRequestCallback<JsArray<LintItem>> requestCallback)
    {
       JSONArray params = new JSONArray();
@@ -4513,6 +4696,7 @@ public class RemoteServer implements Server
       params.set(1, new JSONString(documentPath));
       params.set(2, JSONBoolean.getInstance(showMarkersPane));
       params.set(3, JSONBoolean.getInstance(explicit));
+      params.set(4, rows == null ? JSONNull.getInstance() : new JSONArray(rows));
       sendRequest(RPC_SCOPE, LINT_R_SOURCE_DOCUMENT, params, requestCallback);
    }
    
@@ -4848,6 +5032,7 @@ public class RemoteServer implements Server
 
    private final Session session_;
    private final EventBus eventBus_;
+   private RpcRequestBatch requestBatch_;
 
    // url scopes
    private static final String RPC_SCOPE = "rpc";
@@ -4863,6 +5048,7 @@ public class RemoteServer implements Server
 
    // session methods
    private static final String CLIENT_INIT = "client_init";
+   private static final String BATCH_REQUESTS = "batch_requests";
    private static final String ACCEPT_AGREEMENT = "accept_agreement";
    private static final String SUSPEND_SESSION = "suspend_session";
    private static final String HANDLE_UNSAVED_CHANGES_COMPLETED = "handle_unsaved_changes_completed";
@@ -4879,6 +5065,7 @@ public class RemoteServer implements Server
    private static final String GET_TERMINAL_OPTIONS = "get_terminal_options";
    private static final String START_SHELL_DIALOG = "start_shell_dialog";
    private static final String SEARCH_CODE = "search_code";
+   private static final String GET_PROJECT_SYMBOLS = "get_project_symbols";
    private static final String GET_SEARCH_PATH_FUNCTION_DEFINITION = "get_search_path_function_definition";
    private static final String GET_METHOD_DEFINITION = "get_method_definition";
    private static final String GET_FUNCTION_DEFINITION = "get_function_definition";
@@ -4934,6 +5121,7 @@ public class RemoteServer implements Server
    private static final String STAT = "stat";
    private static final String IS_TEXT_FILE = "is_text_file";
    private static final String LIST_FILES = "list_files";
+   private static final String LIST_FILES_PAGE = "list_files_page";
    private static final String LIST_ALL_FILES = "list_all_files";
    private static final String CREATE_FOLDER = "create_folder";
    private static final String DELETE_FILES = "delete_files";
@@ -4944,6 +5132,7 @@ public class RemoteServer implements Server
 
    private static final String NEXT_PLOT = "next_plot";
    private static final String PREVIOUS_PLOT = "previous_plot";
+   private static final String PREFETCH_PLOT = "prefetch_plot";
    private static final String REMOVE_PLOT = "remove_plot";
    private static final String CLEAR_PLOTS = "clear_plots";
    private static final String REFRESH_PLOT = "refresh_plot";
@@ -4972,6 +5161,7 @@ public class RemoteServer implements Server
    private static final String OPEN_DOCUMENT = "open_document";
    private static final String SAVE_DOCUMENT = "save_document";
    private static final String SAVE_DOCUMENT_DIFF = "save_document_diff";
+   private static final String SAVE_DOCUMENT_HUNKS = "save_document_hunks";
    private static final String CHECK_FOR_EXTERNAL_EDIT = "check_for_external_edit";
    private static final String IGNORE_EXTERNAL_EDIT = "ignore_external_edit";
    private static final String CLOSE_DOCUMENT = "close_document";
@@ -5001,6 +5191,7 @@ public class RemoteServer implements Server
    private static final String REMOVE_HISTORY_ITEMS = "remove_history_items";
    private static final String CLEAR_HISTORY = "clear_history";
    private static final String GET_HISTORY_ARCHIVE_ITEMS = "get_history_archive_items";
+   private static final String GET_RECENT_HISTORY_ARCHIVE = "get_recent_history_archive";
    private static final String SEARCH_HISTORY_ARCHIVE = "search_history_archive";
    private static final String SEARCH_HISTORY_ARCHIVE_BY_PREFIX = "search_history_archive_by_prefix";
 
@@ -5102,6 +5293,7 @@ public class RemoteServer implements Server
 
    private static final String BEGIN_FIND = "begin_find";
    private static final String STOP_FIND = "stop_find";
+   private static final String GET_FIND_RESULTS = "get_find_results";
    
    private static final String GET_CPP_COMPLETIONS = "get_cpp_completions";
    private static final String GET_CPP_DIAGNOSTICS = "get_cpp_diagnostics";
@@ -5213,4 +5405,19 @@ public class RemoteServer implements Server
    private static final String INSTALL_SPARK = "install_spark";
 
    private static final String SQL_CHUNK_DEFAULT_CONNECTION = "default_sql_connection_name";
+   
+   // methods which are never batched with other requests, either because
+   // they're latency-critical or because the server handles them specially
+   private static final Set<String> UNBATCHED_METHODS = new HashSet<String>(
+         Arrays.asList(new String[] {
+               CLIENT_INIT,
+               CONSOLE_INPUT,
+               INTERRUPT,
+               ABORT,
+               PROCESS_INTERRUPT,
+               QUIT_SESSION,
+               SUSPEND_SESSION,
+               SUSPEND_FOR_RESTART,
+               PING
+         }));
 }
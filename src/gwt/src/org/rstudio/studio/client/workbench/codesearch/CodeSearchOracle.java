@@ -16,13 +16,13 @@ package org.rstudio.studio.client.workbench.codesearch;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
+import java.util.HashSet;
 
 import org.rstudio.core.client.CodeNavigationTarget;
 import org.rstudio.core.client.DuplicateHelper;
 import org.rstudio.core.client.FilePosition;
+import org.rstudio.core.client.FuzzyMatcher;
 import org.rstudio.core.client.Invalidation;
-import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.TimeBufferedCommand;
 import org.rstudio.core.client.files.FileSystemItem;
 import org.rstudio.core.client.regex.Match;
@@ -43,78 +43,12 @@ public class CodeSearchOracle extends SuggestOracle
 {
    @Inject
    public CodeSearchOracle(CodeSearchServerOperations server,
-                           WorkbenchContext workbenchContext)
+                           WorkbenchContext workbenchContext,
+                           ProjectSymbolIndex projectIndex)
    {
       server_ = server;
       workbenchContext_ = workbenchContext;
-   }
-   
-   private static int scoreMatch(CodeSearchSuggestion suggestion, String query)
-   {
-      return scoreMatch(suggestion.getMatchedString(), query, suggestion.isFileTarget());
-   }
-   
-   // NOTE: When modifying this function, you should ensure that the associated
-   // code on the server side is modified to include the same logic as well!
-   // (see: SessionCodeSearch.cpp)
-   public static int scoreMatch(String suggestion, String query, boolean isFile)
-   {
-      String suggestionLower = suggestion.toLowerCase();
-      String queryLower = query.toLowerCase();
-      
-      // No penalty for identical results
-      if (suggestion == query)
-         return 0;
-      
-      int totalPenalty = 0;
-      
-      // Get query matches in string (ordered)
-      List<Integer> matches = StringUtil.subsequenceIndices(suggestionLower, queryLower);
-      
-      // Loop over the matches and assign a score
-      for (int j = 0, n = matches.size(); j < n; j++)
-      {
-         int matchPos = matches.get(j);
-         
-         // The initial penalty is equal to the match position
-         int penalty = matchPos;
-         
-         // Less penalty if character follows special delim
-         if (matchPos >= 1)
-         {
-            char prevChar = suggestionLower.charAt(matchPos - 1);
-            if (prevChar == '_' || prevChar == '-' ||
-                  (!isFile && prevChar == '.'))
-            {
-               penalty = j + 1;
-            }
-         }
-         
-         // Less penalty for case-sensitive matches
-         if (suggestion.charAt(matchPos) == query.charAt(j))
-            penalty--;
-         
-         // More penalty for 'uninteresting' files
-         if (suggestion.equals("RcppExports.R") ||
-             suggestion.equals("RcppExports.cpp"))
-            penalty += 6;
-         
-         // More penalty for 'uninteresting' extensions (e.g. .Rd)
-         String extension = StringUtil.getExtension(suggestionLower);
-         if (extension.toLowerCase() == "rd")
-            penalty += 6;
-         
-         totalPenalty += penalty;
-      }
-      
-      // Penalize file targets
-      if (isFile)
-         totalPenalty++;
-      
-      // Penalize unmatched characters
-      totalPenalty += (query.length() - matches.size()) * query.length();
-      
-      return totalPenalty;
+      projectIndex_ = projectIndex;
    }
    
    @Override
@@ -144,11 +78,21 @@ public class CodeSearchOracle extends SuggestOracle
              request.getQuery().startsWith(res.getQuery()))
          {
             Pattern pattern = null;
+            FuzzyMatcher matcher = null;
             String query = request.getQuery();
             String queryLower = query.toLowerCase();
             
             if (queryLower.indexOf('*') != -1)
+            {
                pattern = patternForTerm(queryLower);
+            }
+            else
+            {
+               int colonIndex = query.indexOf(":");
+               if (colonIndex == -1)
+                  colonIndex = query.length();
+               matcher = new FuzzyMatcher(query.substring(0, colonIndex));
+            }
             
             ArrayList<CodeSearchSuggestion> suggestions =
                                        new ArrayList<CodeSearchSuggestion>();
@@ -156,28 +100,23 @@ public class CodeSearchOracle extends SuggestOracle
             {
                CodeSearchSuggestion sugg = res.getSuggestions().get(s);
                
-               String name = sugg.getMatchedString().toLowerCase();
                if (pattern != null)
                {
+                  String name = sugg.getMatchedString().toLowerCase();
                   Match match = pattern.match(name, 0);
                   if (match != null && match.getIndex() == 0)
                      suggestions.add(sugg);
                }
-               else
+               else if (matcher.matches(sugg.getCandidate()))
                {
-                  int colonIndex = query.indexOf(":");
-                  if (colonIndex == -1)
-                     colonIndex = query.length();
-                  
-                  if (StringUtil.isSubsequence(name, query.substring(0, colonIndex), true))
-                     suggestions.add(sugg);
+                  suggestions.add(sugg);
                }
             }
             
             // process and cache suggestions. note that this adds an item to
             // the end of the resultCache_ (which we are currently iterating
             // over) no biggie because we are about to return from the loop
-            suggestions = processSuggestions(request, suggestions, false);
+            suggestions = processSuggestions(request, suggestions, false, true);
             
             // sort suggestions
             sortSuggestions(suggestions, query);
@@ -189,8 +128,32 @@ public class CodeSearchOracle extends SuggestOracle
          } 
       }
       
+      // next see if the project index can answer it (it can't do wildcards)
+      String query = request.getQuery();
+      int colonIndex = query.indexOf(":");
+      String localQuery = colonIndex != -1 ?
+            query.substring(0, colonIndex) :
+            query;
+      if (projectIndex_.isReady() &&
+          localQuery.length() > 0 &&
+          query.indexOf('*') == -1)
+      {
+         ProjectSymbolIndex.Matches matches =
+               projectIndex_.search(localQuery, request.getLimit());
+         // (these aren't cached: they lack what only the server can find,
+         // so refinements of the query mustn't be answered from them)
+         ArrayList<CodeSearchSuggestion> suggestions = processSuggestions(
+               request, matches.suggestions, matches.moreAvailable, false);
+         sortSuggestions(suggestions, query);
+         callback.onSuggestionsReady(request, new Response(suggestions));
+         
+         // the server still needs to search open documents and C/C++
+         codeSearch_.enqueRequest(request, callback, matches);
+         return;
+      }
+      
       // failed to short-circuit via the cache, hit the server
-      codeSearch_.enqueRequest(request, callback); 
+      codeSearch_.enqueRequest(request, callback, null); 
    }
      
    public CodeNavigationTarget navigationTarget(String query,
@@ -283,13 +246,22 @@ public class CodeSearchOracle extends SuggestOracle
          super(300);
       }
       
-      public void enqueRequest(Request request, Callback callback)
+      // localMatches are those already provided by the project index (if
+      // any), in which case the server only searches outside the project
+      public void enqueRequest(Request request, 
+                               Callback callback,
+                               ProjectSymbolIndex.Matches localMatches)
       {
          request_ = request;
          callback_ = callback;
+         localMatches_ = localMatches;
          invalidationToken_ = searchInvalidation_.getInvalidationToken();
          
-         if (!executing_)
+         // if a search is already in flight then run this one once it
+         // completes
+         if (executing_)
+            pending_ = true;
+         else
             nudge();
       }
 
@@ -297,11 +269,20 @@ public class CodeSearchOracle extends SuggestOracle
       protected void performAction(boolean shouldSchedulePassive)
       {
          executing_ = true;
+         pending_ = false;
+         
+         // capture this request's state, since a request typed while this
+         // one is in flight replaces the fields
+         final Request request = request_;
+         final Callback callback = callback_;
+         final ProjectSymbolIndex.Matches localMatches = localMatches_;
+         final Invalidation.Token invalidationToken = invalidationToken_;
          
          // failed to short-circuit via the cache, hit the server
          server_.searchCode(
-               request_.getQuery(),
-               request_.getLimit(),
+               request.getQuery(),
+               request.getLimit(),
+               localMatches != null,
                new ServerRequestCallback<CodeSearchResults>() {
             
             @Override
@@ -326,23 +307,37 @@ public class CodeSearchOracle extends SuggestOracle
                   suggestions.add(
                      new CodeSearchSuggestion(srcResults.get(i), context));    
                }
+               
+               // combine with what the project index already provided (if
+               // nothing was added then what's showing is already right)
+               boolean moreAvailable = response.getMoreAvailable();
+               boolean changed = true;
+               if (localMatches != null)
+               {
+                  changed = !suggestions.isEmpty();
+                  suggestions = mergeSuggestions(localMatches.suggestions,
+                                                 suggestions);
+                  moreAvailable |= localMatches.moreAvailable;
+               }
                   
                // process suggestions (disambiguate paths & cache)
-              suggestions = processSuggestions(request_, 
+              suggestions = processSuggestions(request, 
                                                suggestions,
-                                               response.getMoreAvailable());
+                                               moreAvailable,
+                                               true);
               
               // sort suggestions
-              sortSuggestions(suggestions, request_.getQuery());
+              sortSuggestions(suggestions, request.getQuery());
                
-               // return suggestions
-               if (!invalidationToken_.isInvalid())
+               // return suggestions (unless a newer request has superseded
+               // this one, in which case they're only cached)
+               if (changed && !pending_ && !invalidationToken.isInvalid())
                {
-                  callback_.onSuggestionsReady(request_, 
-                                               new Response(suggestions));
+                  callback.onSuggestionsReady(request, 
+                                              new Response(suggestions));
                }
                
-               executing_ = false;
+               onCompleted();
             }
 
             @Override
@@ -354,57 +349,117 @@ public class CodeSearchOracle extends SuggestOracle
                         "Code Search Error", error.getUserMessage());
                }
                
+               onCompleted();
             }
          });
          
       }
       
+      private void onCompleted()
+      {
+         executing_ = false;
+         
+         // run the latest request made while we were executing
+         if (pending_)
+            nudge();
+      }
+      
       private Request request_;
       private Callback callback_;
+      private ProjectSymbolIndex.Matches localMatches_;
       private Invalidation.Token invalidationToken_;
       private boolean executing_;
+      private boolean pending_;
    };
    
+   // NOTE: the server ranks its results too (see: SessionCodeSearch.cpp),
+   // though that only decides which of them make the cut when there are
+   // more than were asked for
    private void sortSuggestions(ArrayList<CodeSearchSuggestion> suggestions,
                                 String query)
    {
-      // sort the suggestions -- we want suggestions for which
-      // the query matches the start to come first
+      // sort the suggestions -- we want suggestions that match at the start
+      // or at word boundaries to come first. only the part of the query
+      // before any line number is matched, and wildcards are dropped since
+      // what they matched is scored as a gap anyway
       int colonIndex = query.indexOf(":");
-      final String localQuery = colonIndex > 0 ?
+      String localQuery = colonIndex > 0 ?
             query.substring(0, colonIndex) :
             query;
+      FuzzyMatcher matcher = new FuzzyMatcher(localQuery.replace("*", ""));
       
-      java.util.Collections.sort(suggestions,
+      // (in place, since the list may be cached)
+      ArrayList<CodeSearchSuggestion> sorted = matcher.sort(
+            suggestions,
+            CodeSearchSuggestion.INDEXER,
             new Comparator<CodeSearchSuggestion>() {
-
-         @Override
-         public int compare(CodeSearchSuggestion lhs,
-                            CodeSearchSuggestion rhs)
+               @Override
+               public int compare(CodeSearchSuggestion lhs,
+                                  CodeSearchSuggestion rhs)
+               {
+                  return lhs.getMatchedString().length() -
+                         rhs.getMatchedString().length();
+               }
+            });
+      
+      suggestions.clear();
+      suggestions.addAll(sorted);
+   }
+   
+   // combines suggestions from the project index with those from the
+   // server (file targets first). the server's source items come from open
+   // documents, which may have changed since they were last saved, so they
+   // take the place of any the index has for the same function
+   private ArrayList<CodeSearchSuggestion> mergeSuggestions(
+                                 ArrayList<CodeSearchSuggestion> local,
+                                 ArrayList<CodeSearchSuggestion> remote)
+   {
+      HashSet<String> remoteItems = new HashSet<String>();
+      for (CodeSearchSuggestion suggestion : remote)
+      {
+         if (!suggestion.isFileTarget())
+            remoteItems.add(keyOf(suggestion));
+      }
+      
+      ArrayList<CodeSearchSuggestion> merged =
+                                       new ArrayList<CodeSearchSuggestion>();
+      for (CodeSearchSuggestion suggestion : local)
+      {
+         if (suggestion.isFileTarget())
+            merged.add(suggestion);
+      }
+      for (CodeSearchSuggestion suggestion : remote)
+      {
+         if (suggestion.isFileTarget())
+            merged.add(suggestion);
+      }
+      for (CodeSearchSuggestion suggestion : local)
+      {
+         if (!suggestion.isFileTarget() &&
+             !remoteItems.contains(keyOf(suggestion)))
          {
-            int lhsScore = scoreMatch(lhs, localQuery);
-            int rhsScore = scoreMatch(rhs, localQuery);
-
-            if (lhsScore == rhsScore)
-            {
-               return lhs.getMatchedString().length() -
-                      rhs.getMatchedString().length();
-            }
-            else
-            {
-               return lhsScore < rhsScore ? -1 : 1;
-            }
+            merged.add(suggestion);
          }
-
-      });
-      
+      }
+      for (CodeSearchSuggestion suggestion : remote)
+      {
+         if (!suggestion.isFileTarget())
+            merged.add(suggestion);
+      }
+      return merged;
    }
    
+   private static String keyOf(CodeSearchSuggestion suggestion)
+   {
+      return suggestion.getNavigationTarget().getFile() + ":" +
+             suggestion.getMatchedString();
+   }
    
    private ArrayList<CodeSearchSuggestion> processSuggestions(
                                    Request request, 
                                    ArrayList<CodeSearchSuggestion> suggestions,
-                                   boolean moreAvailable)
+                                   boolean moreAvailable,
+                                   boolean cache)
    {
       // get file paths for file targets (which are always at the beginning)
       ArrayList<String> filePaths = new ArrayList<String>();
@@ -429,11 +484,14 @@ public class CodeSearchOracle extends SuggestOracle
       // cache the suggestions (up to 15 active result sets cached)
       // NOTE: the cache is cleared on gain focus, lost focus, and 
       // the search term reverting back to empty)
-      if (resultCache_.size() > 15)
-         resultCache_.remove(0);
-      resultCache_.add(new SearchResult(request.getQuery(), 
-                                        newSuggestions, 
-                                        moreAvailable));
+      if (cache)
+      {
+         if (resultCache_.size() > 15)
+            resultCache_.remove(0);
+         resultCache_.add(new SearchResult(request.getQuery(), 
+                                           newSuggestions, 
+                                           moreAvailable));
+      }
       
       return newSuggestions;
    }
@@ -442,6 +500,7 @@ public class CodeSearchOracle extends SuggestOracle
    
    private final CodeSearchServerOperations server_ ;
    private final WorkbenchContext workbenchContext_;
+   private final ProjectSymbolIndex projectIndex_;
    private final CodeSearchCommand codeSearch_ = new CodeSearchCommand();
    
    private final ArrayList<SearchResult> resultCache_ = 
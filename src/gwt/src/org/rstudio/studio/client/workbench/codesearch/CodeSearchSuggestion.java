@@ -15,6 +15,7 @@
 package org.rstudio.studio.client.workbench.codesearch;
 
 import org.rstudio.core.client.CodeNavigationTarget;
+import org.rstudio.core.client.FuzzyMatcher;
 import org.rstudio.core.client.SafeHtmlUtil;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.files.FileSystemItem;
@@ -77,6 +78,9 @@ class CodeSearchSuggestion implements Suggestion
       case SourceItem.NAMESPACE:
          image = CodeIcons.INSTANCE.namespace();
          break;
+      case SourceItem.CHUNK:
+         image = CodeIcons.INSTANCE.keyword();
+         break;
       case SourceItem.NONE:
       default:
          image = CodeIcons.INSTANCE.keyword();
@@ -115,6 +119,32 @@ class CodeSearchSuggestion implements Suggestion
    {
       return matchedString_;
    }
+   
+   public FuzzyMatcher.Candidate getCandidate()
+   {
+      if (candidate_ == null)
+         candidate_ = createCandidate(matchedString_, isFileTarget_);
+      return candidate_;
+   }
+   
+   static FuzzyMatcher.Candidate createCandidate(String matchedString,
+                                                 boolean isFileTarget)
+   {
+      // files rank a little below source items, and uninteresting files
+      // (generated ones, and Rd files) well below
+      int penalty = 0;
+      if (isFileTarget)
+      {
+         penalty++;
+         if (matchedString.equals("RcppExports.R") ||
+             matchedString.equals("RcppExports.cpp") ||
+             StringUtil.getExtension(matchedString).equalsIgnoreCase("rd"))
+         {
+            penalty += 10;
+         }
+      }
+      return new FuzzyMatcher.Candidate(matchedString, penalty);
+   }
 
    @Override
    public String getDisplayString()
@@ -183,6 +213,17 @@ class CodeSearchSuggestion implements Suggestion
    private final CodeNavigationTarget navigationTarget_ ;
    private final String matchedString_;
    private String displayString_;
+   private FuzzyMatcher.Candidate candidate_;
+   
+   static final FuzzyMatcher.Indexer<CodeSearchSuggestion> INDEXER =
+         new FuzzyMatcher.Indexer<CodeSearchSuggestion>() {
+      @Override
+      public FuzzyMatcher.Candidate getCandidate(CodeSearchSuggestion sugg)
+      {
+         return sugg.getCandidate();
+      }
+   };
+   
    private static final FileTypeRegistry fileTypeRegistry_ =
                               RStudioGinjector.INSTANCE.getFileTypeRegistry();
    private static final CodeSearchResources RES = CodeSearchResources.INSTANCE;
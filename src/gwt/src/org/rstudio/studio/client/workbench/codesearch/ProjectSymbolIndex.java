@@ -0,0 +1,411 @@
+/*
+ * ProjectSymbolIndex.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.codesearch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.FuzzyMatcher;
+import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.workbench.WorkbenchContext;
+import org.rstudio.studio.client.workbench.codesearch.model.CodeSearchServerOperations;
+import org.rstudio.studio.client.workbench.codesearch.model.FileItem;
+import org.rstudio.studio.client.workbench.codesearch.model.ProjectSymbols;
+import org.rstudio.studio.client.workbench.codesearch.model.SourceItem;
+import org.rstudio.studio.client.workbench.events.SessionInitEvent;
+import org.rstudio.studio.client.workbench.events.SessionInitHandler;
+import org.rstudio.studio.client.workbench.model.Session;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
+import org.rstudio.studio.client.workbench.views.files.model.FileChange;
+
+import com.google.gwt.user.client.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The files of the current project along with the functions, methods,
+ * classes and R Markdown chunks defined in them, kept on the client so that
+ * "Go to file/function" can answer queries as they are typed rather than
+ * waiting on the server for each keystroke.
+ *
+ * The index is seeded from the server's project index once the session
+ * starts, and kept current from file change events: deleted files are
+ * dropped right away, while added and modified ones are (in batches) sent
+ * back to the server to be indexed afresh. Unsaved changes to open
+ * documents and C/C++ definitions aren't included; those are still
+ * searched on the server (see CodeSearchOracle).
+ */
+@Singleton
+public class ProjectSymbolIndex implements SessionInitHandler,
+                                           FileChangeHandler
+{
+   public static class Matches
+   {
+      private Matches(ArrayList<CodeSearchSuggestion> suggestions,
+                      boolean moreAvailable)
+      {
+         this.suggestions = suggestions;
+         this.moreAvailable = moreAvailable;
+      }
+
+      // file targets first, as CodeSearchOracle expects
+      public final ArrayList<CodeSearchSuggestion> suggestions;
+      public final boolean moreAvailable;
+   }
+
+   @Inject
+   public ProjectSymbolIndex(CodeSearchServerOperations server,
+                             WorkbenchContext workbenchContext,
+                             Session session,
+                             EventBus events)
+   {
+      server_ = server;
+      workbenchContext_ = workbenchContext;
+
+      events.addHandler(SessionInitEvent.TYPE, this);
+      events.addHandler(FileChangeEvent.TYPE, this);
+
+      // we may have been created after the session started
+      if (session.getSessionInfo() != null)
+         seedTimer_.schedule(SEED_DELAY_MS);
+   }
+
+   @Override
+   public void onSessionInit(SessionInitEvent event)
+   {
+      seedTimer_.schedule(SEED_DELAY_MS);
+   }
+
+   /**
+    * @return True if the index has been seeded, and so can be searched.
+    */
+   public boolean isReady()
+   {
+      return ready_;
+   }
+
+   /**
+    * @return The best matches for the query (no more than maxResults of
+    *    them).
+    */
+   public Matches search(String query, int maxResults)
+   {
+      // if the query extends the last one (and nothing has changed since)
+      // then only the last one's matches need to be considered
+      FuzzyMatcher matcher = new FuzzyMatcher(query);
+      List<Symbol> candidates = getAll();
+      if (lastMatcher_ != null &&
+          lastGeneration_ == generation_ &&
+          matcher.isRefinementOf(lastMatcher_))
+      {
+         candidates = lastMatches_;
+      }
+
+      ArrayList<Symbol> matches = matcher.filter(candidates, INDEXER);
+      lastMatcher_ = matcher;
+      lastMatches_ = matches;
+      lastGeneration_ = generation_;
+
+      List<Symbol> best = matches;
+      boolean moreAvailable = matches.size() > maxResults;
+      if (moreAvailable)
+         best = matcher.sort(matches, INDEXER, null).subList(0, maxResults);
+
+      // suggestions are only created for the symbols that make the cut
+      FileSystemItem projectDir = workbenchContext_.getActiveProjectDir();
+      ArrayList<CodeSearchSuggestion> suggestions =
+            new ArrayList<CodeSearchSuggestion>(best.size());
+      for (Symbol symbol : best)
+      {
+         if (symbol.file != null)
+            suggestions.add(new CodeSearchSuggestion(symbol.file));
+      }
+      for (Symbol symbol : best)
+      {
+         if (symbol.item != null)
+            suggestions.add(new CodeSearchSuggestion(symbol.item, projectDir));
+      }
+
+      return new Matches(suggestions, moreAvailable);
+   }
+
+   @Override
+   public void onFileChange(FileChangeEvent event)
+   {
+      FileSystemItem projectDir = workbenchContext_.getActiveProjectDir();
+      if (projectDir == null)
+         return;
+
+      FileChange change = event.getFileChange();
+      String path = change.getFile().getPath();
+      if (!path.startsWith(projectDir.getPath() + "/"))
+         return;
+
+      if (change.getType() == FileChange.DELETE)
+      {
+         // this may have been a directory, so drop anything beneath it too
+         pendingPaths_.remove(path);
+         boolean removed = byPath_.remove(path) != null;
+         Iterator<String> it = byPath_.keySet().iterator();
+         while (it.hasNext())
+         {
+            if (it.next().startsWith(path + "/"))
+            {
+               it.remove();
+               removed = true;
+            }
+         }
+         if (removed)
+            onChanged();
+      }
+      else if (!change.getFile().isDirectory())
+      {
+         // there's no point keeping track of changes the server can't index
+         if (unavailable_)
+            return;
+
+         pendingPaths_.add(path);
+         if (ready_)
+            updateTimer_.schedule(UPDATE_DELAY_MS);
+      }
+   }
+
+   private void seed()
+   {
+      if (!workbenchContext_.isProjectActive())
+         return;
+
+      server_.getProjectSymbols(
+            new ArrayList<String>(),
+            new ServerRequestCallback<ProjectSymbols>() {
+
+         @Override
+         public void onResponseReceived(ProjectSymbols symbols)
+         {
+            if (!symbols.isAvailable())
+            {
+               onUnavailable();
+               return;
+            }
+
+            // the server indexes the project in the background after it
+            // opens; wait for it to finish rather than seed with part of it
+            if (symbols.isIndexing())
+            {
+               seedTimer_.schedule(SEED_RETRY_MS);
+               return;
+            }
+
+            byPath_.clear();
+            add(symbols);
+            ready_ = true;
+            unavailable_ = false;
+            onChanged();
+
+            // pick up any changes made while we were waiting
+            if (!pendingPaths_.isEmpty())
+               updateTimer_.schedule(UPDATE_DELAY_MS);
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            Debug.logError(error);
+         }
+      });
+   }
+
+   private void update()
+   {
+      if (pendingPaths_.isEmpty())
+         return;
+
+      // lots of changes at once (e.g. checking out a branch) are better
+      // served by starting again
+      if (pendingPaths_.size() > MAX_UPDATE_PATHS)
+      {
+         pendingPaths_.clear();
+         seed();
+         return;
+      }
+
+      final ArrayList<String> paths = new ArrayList<String>(pendingPaths_);
+      pendingPaths_.clear();
+      server_.getProjectSymbols(
+            paths,
+            new ServerRequestCallback<ProjectSymbols>() {
+
+         @Override
+         public void onResponseReceived(ProjectSymbols symbols)
+         {
+            if (!symbols.isAvailable())
+            {
+               onUnavailable();
+               return;
+            }
+
+            for (String path : paths)
+               byPath_.remove(path);
+            add(symbols);
+            onChanged();
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            Debug.logError(error);
+         }
+      });
+   }
+
+   // the server has no index of the project (it isn't monitoring the
+   // project's files), so searches go to the server until the index is
+   // next seeded
+   private void onUnavailable()
+   {
+      unavailable_ = true;
+      pendingPaths_.clear();
+      if (ready_)
+      {
+         ready_ = false;
+         byPath_.clear();
+         onChanged();
+      }
+   }
+
+   private void add(ProjectSymbols symbols)
+   {
+      ArrayList<FileItem> files = symbols.getFileItems().toArrayList();
+      for (FileItem file : files)
+         getSymbols(file.getPath()).add(new Symbol(file));
+
+      ArrayList<SourceItem> items = symbols.getSourceItems().toArrayList();
+      for (SourceItem item : items)
+         getSymbols(item.getContext()).add(new Symbol(item));
+   }
+
+   private ArrayList<Symbol> getSymbols(String path)
+   {
+      ArrayList<Symbol> symbols = byPath_.get(path);
+      if (symbols == null)
+      {
+         symbols = new ArrayList<Symbol>();
+         byPath_.put(path, symbols);
+      }
+      return symbols;
+   }
+
+   private ArrayList<Symbol> getAll()
+   {
+      if (all_ == null)
+      {
+         all_ = new ArrayList<Symbol>();
+         for (ArrayList<Symbol> symbols : byPath_.values())
+            all_.addAll(symbols);
+      }
+      return all_;
+   }
+
+   // a file or source item, along with the candidate it's matched as
+   private static class Symbol
+   {
+      public Symbol(FileItem file)
+      {
+         this.file = file;
+         this.item = null;
+         this.candidate = CodeSearchSuggestion.createCandidate(
+                                                file.getFilename(), true);
+      }
+
+      public Symbol(SourceItem item)
+      {
+         this.file = null;
+         this.item = item;
+         this.candidate = CodeSearchSuggestion.createCandidate(
+                                                item.getName(), false);
+      }
+
+      public final FileItem file;
+      public final SourceItem item;
+      public final FuzzyMatcher.Candidate candidate;
+   }
+
+   private static final FuzzyMatcher.Indexer<Symbol> INDEXER =
+         new FuzzyMatcher.Indexer<Symbol>() {
+      @Override
+      public FuzzyMatcher.Candidate getCandidate(Symbol symbol)
+      {
+         return symbol.candidate;
+      }
+   };
+
+   private void onChanged()
+   {
+      all_ = null;
+      generation_++;
+      lastMatcher_ = null;
+      lastMatches_ = null;
+   }
+
+   private final Timer seedTimer_ = new Timer() {
+      @Override
+      public void run()
+      {
+         seed();
+      }
+   };
+
+   private final Timer updateTimer_ = new Timer() {
+      @Override
+      public void run()
+      {
+         update();
+      }
+   };
+
+   private final CodeSearchServerOperations server_;
+   private final WorkbenchContext workbenchContext_;
+
+   // the symbols of each file (the file itself and what's defined in it),
+   // keyed by aliased path
+   private final HashMap<String, ArrayList<Symbol>> byPath_ =
+         new HashMap<String, ArrayList<Symbol>>();
+   private ArrayList<Symbol> all_;
+   private boolean ready_;
+   private boolean unavailable_;
+   private int generation_;
+
+   // files added or modified since they were last indexed
+   private final LinkedHashSet<String> pendingPaths_ =
+         new LinkedHashSet<String>();
+
+   private FuzzyMatcher lastMatcher_;
+   private ArrayList<Symbol> lastMatches_;
+   private int lastGeneration_;
+
+   // give the session a moment to settle before seeding
+   private static final int SEED_DELAY_MS = 2000;
+   private static final int SEED_RETRY_MS = 5000;
+   private static final int UPDATE_DELAY_MS = 1000;
+   private static final int MAX_UPDATE_PATHS = 200;
+}
@@ -14,6 +14,8 @@
  */
 package org.rstudio.studio.client.workbench.codesearch.model;
 
+import java.util.ArrayList;
+
 import org.rstudio.studio.client.server.ServerRequestCallback;
 
 public interface CodeSearchServerOperations 
@@ -27,6 +29,25 @@ public interface CodeSearchServerOperations
          int maxResults,
          ServerRequestCallback<CodeSearchResults> requestCallback);
    
+   /*
+    * As above, but leaving out the files and R source of the project (for
+    * use along with the ProjectSymbolIndex)
+    */
+   void searchCode(
+         String term, 
+         int maxResults,
+         boolean excludeProject,
+         ServerRequestCallback<CodeSearchResults> requestCallback);
+   
+   /*
+    * List the files of the project along with the functions, methods,
+    * classes and R Markdown chunks defined in them -- or, if paths are
+    * passed, just those files (which are indexed afresh)
+    */
+   void getProjectSymbols(
+         ArrayList<String> paths,
+         ServerRequestCallback<ProjectSymbols> requestCallback);
+   
    /*
     * Get the definition of the specified function (if known).
     * We pass a line and pos rather than a function name because that is
@@ -0,0 +1,46 @@
+/*
+ * ProjectSymbols.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.codesearch.model;
+
+import org.rstudio.core.client.jsonrpc.RpcObjectList;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+public class ProjectSymbols extends JavaScriptObject
+{
+   protected ProjectSymbols()
+   {
+      
+   }
+
+   // false if there is no project index (e.g. the project has too many
+   // files to monitor), in which case there are no items either
+   public final native boolean isAvailable() /*-{
+      return this.available;
+   }-*/;
+
+   // true if the server hasn't finished indexing the project yet
+   public final native boolean isIndexing() /*-{
+      return !!this.indexing;
+   }-*/;
+
+   public final native RpcObjectList<FileItem> getFileItems() /*-{
+      return this.file_items;
+   }-*/;
+   
+   public final native RpcObjectList<SourceItem> getSourceItems() /*-{
+      return this.source_items;
+   }-*/;
+}
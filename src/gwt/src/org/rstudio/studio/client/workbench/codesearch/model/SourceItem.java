@@ -32,6 +32,7 @@ public class SourceItem extends JavaScriptObject
    public static final int ENUM = 4;
    public static final int ENUM_VALUE = 5;
    public static final int NAMESPACE = 6;   
+   public static final int CHUNK = 7;
 
    public final native int getType() /*-{
       return this.type;
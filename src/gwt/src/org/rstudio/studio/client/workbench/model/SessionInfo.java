@@ -113,6 +113,11 @@ public class SessionInfo extends JavaScriptObject
       return this.resumed;
    }-*/;
    
+   // whether the server accepts batches of rpc requests in a single call
+   public final native boolean getRpcBatchSupported() /*-{
+      return !!this.rpc_batch_supported;
+   }-*/;
+   
    public final native String getDefaultPrompt() /*-{
       return this.prompt;
    }-*/;
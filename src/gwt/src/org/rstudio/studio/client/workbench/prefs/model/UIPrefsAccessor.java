@@ -305,6 +305,11 @@ public class UIPrefsAccessor extends Prefs
       return integer("truncate_long_lines_in_console", 1000);
    }
    
+   public PrefValue<Boolean> virtualizeConsoleOutput()
+   {
+      return bool("virtualize_console_output", false);
+   }
+   
    public PrefValue<Boolean> showInlineToolbarForRCodeChunks()
    {
       return bool("show_inline_toolbar_for_r_code_chunks", true);
@@ -197,6 +197,9 @@ public class EditingPreferencesPane extends PreferencesPane
             numericPref("Limit length of lines displayed in console to:", prefs_.truncateLongLinesInConsoleHistory());
       limitLengthPref.setWidth("36px");
       displayPanel.add(limitLengthPref);
+      displayPanel.add(checkboxPref(
+            "Only render visible console output (requires restart)",
+            prefs_.virtualizeConsoleOutput()));
       
       VerticalPanel savePanel = new VerticalPanel();
       
@@ -0,0 +1,84 @@
+/*
+ * SplitPointPrefetcher.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.ui;
+
+import java.util.ArrayList;
+
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import org.rstudio.core.client.AsyncShim;
+import org.rstudio.core.client.SerializedCommand;
+import org.rstudio.core.client.SerializedCommandQueue;
+import org.rstudio.studio.client.rsconnect.ui.RSConnectPublishLoader;
+import org.rstudio.studio.client.workbench.views.edit.Edit;
+import org.rstudio.studio.client.workbench.views.environment.dataimport.DataImportLoader;
+
+/**
+ * The subsystems that are sequestered behind an AsyncShim (rather than
+ * being loaded with a tab), whose code isn't part of the initial download.
+ * Once the workbench is up their code is downloaded in the background, one
+ * fragment at a time with a pause in between, so that it's usually on hand
+ * by the time it's needed without competing with startup.
+ *
+ * New split points should be added here so that they're prefetched.
+ */
+@Singleton
+public class SplitPointPrefetcher
+{
+   @Inject
+   public SplitPointPrefetcher(Edit.Shim edit,
+                               OptionsLoader.Shim optionsLoader,
+                               DataImportLoader.Shim dataImportLoader,
+                               RSConnectPublishLoader.Shim publishLoader)
+   {
+      shims_.add(edit);
+      shims_.add(optionsLoader);
+      shims_.add(dataImportLoader);
+      shims_.add(publishLoader);
+   }
+
+   /**
+    * Adds commands to the queue to download the code of each of the split
+    * points.
+    */
+   public void prefetch(SerializedCommandQueue queue)
+   {
+      for (final AsyncShim<?> shim : shims_)
+      {
+         queue.addCommand(new SerializedCommand()
+         {
+            public void onExecute(final Command continuation)
+            {
+               new Timer()
+               {
+                  @Override
+                  public void run()
+                  {
+                     shim.forceLoad(true, continuation);
+                  }
+               }.schedule(IDLE_DELAY_MS);
+            }
+         });
+      }
+   }
+
+   private final ArrayList<AsyncShim<?>> shims_ = new ArrayList<AsyncShim<?>>();
+
+   // how long to leave the browser to its own devices between fragments
+   private static final int IDLE_DELAY_MS = 500;
+}
@@ -56,7 +56,6 @@ import org.rstudio.studio.client.workbench.model.Session;
 import org.rstudio.studio.client.workbench.model.WorkbenchMetrics;
 import org.rstudio.studio.client.workbench.ui.PaneManager.Tab;
 import org.rstudio.studio.client.workbench.views.edit.Edit;
-import org.rstudio.studio.client.workbench.views.edit.Edit.Shim;
 import org.rstudio.studio.client.workbench.views.edit.events.ShowEditorEvent;
 import org.rstudio.studio.client.workbench.views.help.events.ActivateHelpEvent;
 import org.rstudio.studio.client.workbench.views.plots.PlotsTab;
@@ -81,15 +80,16 @@ public class WorkbenchScreen extends Composite
                           Commands commands,
                           final Provider<FileMRUList> mruList,
                           FontSizeManager fontSizeManager,
-                          OptionsLoader.Shim optionsLoader)
+                          OptionsLoader.Shim optionsLoader,
+                          SplitPointPrefetcher splitPointPrefetcher)
    {
      
       
       globalDisplay_ = globalDisplay;
       eventBus_ = eventBus;
       session_ = session;
-      edit_ = edit;
       optionsLoader_ = optionsLoader;
+      splitPointPrefetcher_ = splitPointPrefetcher;
       
       if (!BrowseCap.isMacintoshDesktop() || BrowseCap.isCocoaDesktop())
          commands.macPreferences().remove();
@@ -209,20 +209,7 @@ public class WorkbenchScreen extends Composite
                   ApplicationEndedPopupPanel.prefetch(continuation);
                }
             });
-            prefetchQueue.addCommand(new SerializedCommand()
-            {
-               public void onExecute(Command continuation)
-               {
-                  edit_.forceLoad(true, continuation);
-               }
-            });
-            prefetchQueue.addCommand(new SerializedCommand()
-            {
-               public void onExecute(Command continuation)
-               {
-                  optionsLoader_.forceLoad(true, continuation);
-               }
-            });
+            splitPointPrefetcher_.prefetch(prefetchQueue);
          }
       });
    }
@@ -393,8 +380,8 @@ public class WorkbenchScreen extends Composite
    private final GlobalDisplay globalDisplay_;
    private final EventBus eventBus_;
    private final Session session_;
-   private final Shim edit_;
    private final org.rstudio.studio.client.workbench.ui.OptionsLoader.Shim optionsLoader_;
+   private final SplitPointPrefetcher splitPointPrefetcher_;
 
    private final MainSplitPanel tabsPanel_ ;
    private PaneManager paneManager_;
@@ -132,6 +132,7 @@ public class Shell implements ConsoleHistoryAddedEvent.Handler,
       inputAnimator_ = new ShellInputAnimator(view_.getInputEditorDisplay());
       
       view_.setMaxOutputLines(session.getSessionInfo().getConsoleActionsLimit());
+      view_.setVirtualizedOutput(prefs_.virtualizeConsoleOutput().getValue());
 
       keyDownPreviewHandlers_ = new ArrayList<KeyDownPreviewHandler>() ;
       keyPressPreviewHandlers_ = new ArrayList<KeyPressPreviewHandler>() ;
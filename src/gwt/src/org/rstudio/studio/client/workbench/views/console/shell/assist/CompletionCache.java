@@ -0,0 +1,393 @@
+/*
+ * CompletionCache.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.console.shell.assist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.rstudio.core.client.FuzzyMatcher;
+import org.rstudio.core.client.RegexUtil;
+import org.rstudio.core.client.regex.Pattern;
+import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.common.codetools.RCompletionType;
+import org.rstudio.studio.client.workbench.views.console.events.ConsolePromptEvent;
+import org.rstudio.studio.client.workbench.views.console.events.ConsolePromptHandler;
+import org.rstudio.studio.client.workbench.views.console.events.WorkingDirChangedEvent;
+import org.rstudio.studio.client.workbench.views.console.events.WorkingDirChangedHandler;
+import org.rstudio.studio.client.workbench.views.console.shell.assist.CompletionRequester.CompletionResult;
+import org.rstudio.studio.client.workbench.views.console.shell.assist.CompletionRequester.QualifiedName;
+import org.rstudio.studio.client.workbench.views.environment.events.ContextDepthChangedEvent;
+import org.rstudio.studio.client.workbench.views.environment.events.EnvironmentObjectAssignedEvent;
+import org.rstudio.studio.client.workbench.views.environment.events.EnvironmentObjectRemovedEvent;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Caches the completions returned by the server, shared by all of the
+ * completion managers. Responses are grouped by the context they were
+ * requested in (everything about the request other than the token) and
+ * stored in a prefix trie keyed by the token, so that a request for any
+ * extension of a cached token can be answered by narrowing the cached
+ * completions, however the cursor got there. Narrowed lists are kept in
+ * the trie as well, so each keystroke only has to narrow the list for the
+ * previous one.
+ *
+ * The least recently used responses are evicted once there are more than
+ * MAX_ENTRIES of them, and the whole cache is discarded whenever something
+ * happens that may change the completions R would offer.
+ */
+@Singleton
+public class CompletionCache
+      implements ConsolePromptHandler,
+                 WorkingDirChangedHandler,
+                 ContextDepthChangedEvent.Handler,
+                 EnvironmentObjectAssignedEvent.Handler,
+                 EnvironmentObjectRemovedEvent.Handler
+{
+   public static class Hit
+   {
+      private Hit(Entry entry, ArrayList<QualifiedName> completions)
+      {
+         this.base = entry.result;
+         this.prefixLength = entry.token.length();
+         this.excludeOtherCompletions = entry.excludeOtherCompletions;
+         this.completions = completions;
+      }
+
+      public boolean isNarrowed()
+      {
+         return completions != base.completions;
+      }
+
+      // the cached response, and the length of the token it was for
+      public final CompletionResult base;
+      public final int prefixLength;
+      public final boolean excludeOtherCompletions;
+
+      // the cached completions that match the requested token; these must
+      // not be modified
+      public final ArrayList<QualifiedName> completions;
+   }
+
+   @Inject
+   public CompletionCache(EventBus events)
+   {
+      events.addHandler(ConsolePromptEvent.TYPE, this);
+      events.addHandler(WorkingDirChangedEvent.TYPE, this);
+      events.addHandler(ContextDepthChangedEvent.TYPE, this);
+      events.addHandler(EnvironmentObjectAssignedEvent.TYPE, this);
+      events.addHandler(EnvironmentObjectRemovedEvent.TYPE, this);
+   }
+
+   /**
+    * Returns the cached completions for the given token, narrowing those of
+    * the longest cached prefix of the token if necessary, or null if there
+    * are none.
+    *
+    * @param context Identifies everything about the request besides the
+    *    token.
+    * @param token The token being completed.
+    * @param filterToken The part of the token the completions are matched
+    *    against.
+    */
+   public Hit get(String context, String token, String filterToken)
+   {
+      Node node = roots_.get(context);
+      if (node == null)
+         return null;
+
+      // find the deepest cached response along the token's path, and the
+      // deepest list narrowed from it
+      String key = token.toLowerCase();
+      Entry entry = null;
+      Node narrowedNode = null;
+      int narrowedDepth = 0;
+      for (int i = 0; node != null; i++)
+      {
+         if (node.entry != null)
+         {
+            entry = node.entry;
+            narrowedNode = null;
+         }
+         else if (entry != null && node.narrowedFrom == entry)
+         {
+            narrowedNode = node;
+            narrowedDepth = i;
+         }
+
+         if (i == key.length())
+            break;
+         node = node.children.get(key.charAt(i));
+      }
+
+      if (entry == null)
+         return null;
+
+      // mark the response as recently used
+      entries_.get(entry.key);
+
+      if (entry.token.length() == key.length())
+         return new Hit(entry, entry.result.completions);
+
+      if (narrowedNode != null && narrowedDepth == key.length())
+         return new Hit(entry, narrowedNode.narrowed);
+
+      // we can only narrow if the rest of the token is part of the same
+      // identifier; e.g. the completions for "stats::" can't be narrowed
+      // to those for "stats::me" (nor those for "dir" to "dir/fi")
+      String diff = key.substring(entry.token.length());
+      if (!RE_IDENTIFIER.test(diff))
+         return null;
+
+      ArrayList<QualifiedName> source = narrowedNode != null ?
+            narrowedNode.narrowed : entry.result.completions;
+      ArrayList<QualifiedName> narrowed = narrow(source, token, filterToken);
+
+      Node target = getNode(context, key);
+      target.narrowed = narrowed;
+      target.narrowedFrom = entry;
+
+      return new Hit(entry, narrowed);
+   }
+
+   public void put(String context,
+                   String token,
+                   CompletionResult result,
+                   boolean excludeOtherCompletions)
+   {
+      String key = token.toLowerCase();
+      Node node = getNode(context, key);
+      if (node.entry != null)
+         entries_.remove(node.entry.key);
+
+      Entry entry = new Entry(context + "\n" + key, context, key, result,
+                              excludeOtherCompletions);
+      node.entry = entry;
+      node.narrowed = null;
+      node.narrowedFrom = null;
+      entries_.put(entry.key, entry);
+
+      if (entries_.size() > MAX_ENTRIES)
+      {
+         Iterator<Entry> it = entries_.values().iterator();
+         Entry eldest = it.next();
+         it.remove();
+         evict(eldest);
+      }
+   }
+
+   public void clear()
+   {
+      roots_.clear();
+      entries_.clear();
+   }
+
+   @Override
+   public void onConsolePrompt(ConsolePromptEvent event)
+   {
+      clear();
+   }
+
+   @Override
+   public void onWorkingDirChanged(WorkingDirChangedEvent event)
+   {
+      clear();
+   }
+
+   @Override
+   public void onContextDepthChanged(ContextDepthChangedEvent event)
+   {
+      clear();
+   }
+
+   @Override
+   public void onEnvironmentObjectAssigned(EnvironmentObjectAssignedEvent event)
+   {
+      clear();
+   }
+
+   @Override
+   public void onEnvironmentObjectRemoved(EnvironmentObjectRemovedEvent event)
+   {
+      clear();
+   }
+
+   private static ArrayList<QualifiedName> narrow(
+         ArrayList<QualifiedName> completions,
+         String token,
+         String filterToken)
+   {
+      ArrayList<QualifiedName> result = new ArrayList<QualifiedName>();
+
+      // For completions that are files or directories, we need to
+      // post-process the token to strip out just the basename (filename),
+      // which is what their candidates are made of.
+      String tokenSub = filterToken.substring(filterToken.lastIndexOf('/') + 1);
+      FuzzyMatcher matcher = new FuzzyMatcher(fuzzy(tokenSub));
+      boolean hidden = token.startsWith(".");
+
+      for (int i = 0, n = completions.size(); i < n; i++)
+      {
+         QualifiedName qname = completions.get(i);
+         if (!matcher.matches(qname.getFuzzyCandidate()))
+            continue;
+
+         if (hidden ||
+             RCompletionType.isFileType(qname.type) ||
+             !qname.name.startsWith("."))
+         {
+            result.add(qname);
+         }
+      }
+      return result;
+   }
+
+   // drops the separators from a token, so that e.g. "read_csv" matches
+   // "read.csv"
+   static final native String fuzzy(String string) /*-{
+      return string.replace(/(?!^)[._]/g, "");
+   }-*/;
+
+   private Node getNode(String context, String key)
+   {
+      Node node = roots_.get(context);
+      if (node == null)
+      {
+         node = new Node(null, '\0');
+         roots_.put(context, node);
+      }
+
+      for (int i = 0; i < key.length(); i++)
+      {
+         char ch = key.charAt(i);
+         Node child = node.children.get(ch);
+         if (child == null)
+         {
+            child = new Node(node, ch);
+            node.children.put(ch, child);
+         }
+         node = child;
+      }
+      return node;
+   }
+
+   private void evict(Entry entry)
+   {
+      Node root = roots_.get(entry.context);
+      Node node = root;
+      for (int i = 0; node != null && i < entry.token.length(); i++)
+         node = node.children.get(entry.token.charAt(i));
+      if (node == null || node.entry != entry)
+         return;
+
+      node.entry = null;
+      discardNarrowed(node, entry);
+
+      // prune the branch if nothing is left on it
+      while (node.parent != null &&
+             node.entry == null &&
+             node.narrowed == null &&
+             node.children.isEmpty())
+      {
+         node.parent.children.remove(node.ch);
+         node = node.parent;
+      }
+      if (root.entry == null && root.children.isEmpty())
+         roots_.remove(entry.context);
+   }
+
+   // discards the lists narrowed from the given entry, along with any
+   // branches that no longer lead to anything
+   private boolean discardNarrowed(Node node, Entry entry)
+   {
+      if (node.narrowedFrom == entry)
+      {
+         node.narrowed = null;
+         node.narrowedFrom = null;
+      }
+
+      Iterator<Map.Entry<Character, Node>> it =
+            node.children.entrySet().iterator();
+      while (it.hasNext())
+      {
+         if (discardNarrowed(it.next().getValue(), entry))
+            it.remove();
+      }
+
+      return node.entry == null &&
+             node.narrowed == null &&
+             node.children.isEmpty();
+   }
+
+   private static class Entry
+   {
+      public Entry(String key,
+                   String context,
+                   String token,
+                   CompletionResult result,
+                   boolean excludeOtherCompletions)
+      {
+         this.key = key;
+         this.context = context;
+         this.token = token;
+         this.result = result;
+         this.excludeOtherCompletions = excludeOtherCompletions;
+      }
+
+      public final String key;
+      public final String context;
+      public final String token;
+      public final CompletionResult result;
+      public final boolean excludeOtherCompletions;
+   }
+
+   private static class Node
+   {
+      public Node(Node parent, char ch)
+      {
+         this.parent = parent;
+         this.ch = ch;
+      }
+
+      public final Node parent;
+      public final char ch;
+      public final HashMap<Character, Node> children =
+            new HashMap<Character, Node>();
+
+      // the server's response for the token ending at this node, if any
+      public Entry entry;
+
+      // the completions of the closest entry above this node, narrowed to
+      // the token ending here
+      public ArrayList<QualifiedName> narrowed;
+      public Entry narrowedFrom;
+   }
+
+   // one root per context
+   private final HashMap<String, Node> roots_ = new HashMap<String, Node>();
+
+   // the cached responses, least recently used first
+   private final LinkedHashMap<String, Entry> entries_ =
+         new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+   private static final int MAX_ENTRIES = 50;
+
+   private static final Pattern RE_IDENTIFIER =
+         Pattern.create("^[" + RegexUtil.wordCharacter() + "._]*$", "");
+}
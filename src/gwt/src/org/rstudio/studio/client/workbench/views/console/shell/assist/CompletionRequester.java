@@ -22,6 +22,7 @@ import com.google.gwt.resources.client.ImageResource;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.inject.Inject;
 
+import org.rstudio.core.client.FuzzyMatcher;
 import org.rstudio.core.client.SafeHtmlUtil;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.js.JsUtil;
@@ -34,7 +35,6 @@ import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
 import org.rstudio.studio.client.common.icons.code.CodeIcons;
 import org.rstudio.studio.client.server.ServerError;
 import org.rstudio.studio.client.server.ServerRequestCallback;
-import org.rstudio.studio.client.workbench.codesearch.CodeSearchOracle;
 import org.rstudio.studio.client.workbench.prefs.model.UIPrefs;
 import org.rstudio.studio.client.workbench.snippets.SnippetHelper;
 import org.rstudio.studio.client.workbench.views.console.shell.assist.RCompletionManager.AutocompletionContext;
@@ -55,7 +55,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -68,9 +67,7 @@ public class CompletionRequester
    private final NavigableSourceEditor editor_ ;
    private final SnippetHelper snippets_ ;
 
-   private String cachedLinePrefix_ ;
-   private HashMap<String, CompletionResult> cachedCompletions_ =
-         new HashMap<String, CompletionResult>();
+   private CompletionCache cache_ ;
    private RnwCompletionContext rnwContext_ ;
    
    public CompletionRequester(RnwCompletionContext rnwContext,
@@ -84,139 +81,76 @@ public class CompletionRequester
    }
    
    @Inject
-   void initialize(CodeToolsServerOperations server, UIPrefs uiPrefs)
+   void initialize(CodeToolsServerOperations server,
+                   UIPrefs uiPrefs,
+                   CompletionCache cache)
    {
       server_ = server;
       uiPrefs_ = uiPrefs;
+      cache_ = cache;
    }
    
-   private boolean usingCache(
-         String token,
-         final ServerRequestCallback<CompletionResult> callback)
+   // Returns the cached completions for the token in the given context,
+   // narrowed and sorted if need be, or null if there are none
+   private CompletionResult getCachedResult(String context, String token)
    {
-      return usingCache(token, false, callback);
+      CompletionCache.Hit hit = cache_.get(context, token, token);
+      if (hit == null)
+         return null;
+
+      if (!hit.isNarrowed())
+         return hit.base;
+
+      return new CompletionResult(
+            token,
+            sortCompletions(token, hit.completions),
+            hit.base.guessedFunctionName,
+            hit.base.suggestOnAccept,
+            hit.base.dontInsertParens);
    }
-   
-   private boolean usingCache(
+
+   // Returns a copy of the given (narrowed) completions, sorted by how well
+   // they match the token
+   private ArrayList<QualifiedName> sortCompletions(
          String token,
-         boolean isHelpCompletion,
-         final ServerRequestCallback<CompletionResult> callback)
+         List<QualifiedName> completions)
    {
-      if (isHelpCompletion)
-         token = token.substring(token.lastIndexOf(':') + 1);
-      
-      if (cachedLinePrefix_ == null)
-         return false;
-      
-      CompletionResult cachedResult = cachedCompletions_.get("");
-      if (cachedResult == null)
-         return false;
-      
-      if (token.toLowerCase().startsWith(cachedLinePrefix_.toLowerCase()))
-      {
-         String diff = token.substring(cachedLinePrefix_.length(), token.length());
+      String tokenSub = token.substring(token.lastIndexOf('/') + 1);
+      final FuzzyMatcher matcher = new FuzzyMatcher(tokenSub);
 
-         // if we already have a cached result for this diff, use it
-         CompletionResult cached = cachedCompletions_.get(diff);
-         if (cached != null)
-         {
-            callback.onResponseReceived(cached);
-            return true;
-         }
+      // the completions were narrowed ignoring any separators in the token,
+      // so those that only match that way are scored that way (and ranked
+      // a little lower)
+      final FuzzyMatcher fuzzyMatcher =
+            new FuzzyMatcher(CompletionCache.fuzzy(tokenSub));
 
-         // otherwise, produce a new completion list
-         if (diff.length() > 0 && !diff.endsWith("::"))
-         {
-            callback.onResponseReceived(narrow(token, diff, cachedResult)) ;
-            return true;
-         }
-      }
-      
-      return false;
-      
-   }
-   
-   private String basename(String absolutePath)
-   {
-      return absolutePath.substring(absolutePath.lastIndexOf('/') + 1);
-   }
-   
-   private boolean filterStartsWithDot(String item,
-                                       String token)
-   {
-      return !(!token.startsWith(".") && item.startsWith("."));
-   }
-   
-   private static final native String fuzzy(String string) /*-{
-      return string.replace(/(?!^)[._]/g, "");
-   }-*/;
-   
-   private CompletionResult narrow(final String token,
-                                   final String diff,
-                                   CompletionResult cachedResult)
-   {
-      ArrayList<QualifiedName> newCompletions = new ArrayList<QualifiedName>();
-      newCompletions.ensureCapacity(cachedResult.completions.size());
-      
-      // For completions that are files or directories, we need to post-process
-      // the token and the qualified name to strip out just the basename (filename).
-      // Note that we normalize the paths such that files will have no trailing slash,
-      // while directories will have one trailing slash (but we defend against multiple
-      // trailing slashes)
-      
-      // Transform the token once beforehand for completions.
-      final String tokenSub   = token.substring(token.lastIndexOf('/') + 1);
-      final String tokenFuzzy = fuzzy(tokenSub);
-      
-      for (QualifiedName qname : cachedResult.completions)
-      {
-         // File types are narrowed only by the file name
-         if (RCompletionType.isFileType(qname.type))
-         {
-            if (StringUtil.isSubsequence(basename(qname.name), tokenFuzzy, true))
-               newCompletions.add(qname);
-         }
-         else
-         {
-            if (StringUtil.isSubsequence(qname.name, tokenFuzzy, true) &&
-                filterStartsWithDot(qname.name, token))
-               newCompletions.add(qname) ;
-         }
-      }
-      
-      java.util.Collections.sort(newCompletions, new Comparator<QualifiedName>() {
-         
-         @Override
-         public int compare(QualifiedName lhs, QualifiedName rhs)
-         {
-            int lhsScore = RCompletionType.isFileType(lhs.type)
-                  ? CodeSearchOracle.scoreMatch(basename(lhs.name), tokenSub, true)
-                  : CodeSearchOracle.scoreMatch(lhs.name, token, false);
-            
-            int rhsScore = RCompletionType.isFileType(rhs.type)
-               ? CodeSearchOracle.scoreMatch(basename(rhs.name), tokenSub, true)
-               : CodeSearchOracle.scoreMatch(rhs.name, token, false);
-            
-            // Place arguments higher (give less penalty)
-            if (lhs.type == RCompletionType.ARGUMENT) lhsScore -= 3;
-            if (rhs.type == RCompletionType.ARGUMENT) rhsScore -= 3;
-            
-            if (lhsScore == rhsScore)
-               return lhs.compareTo(rhs);
-            
-            return lhsScore < rhsScore ? -1 : 1;
-         }
-      });
-      
-      CompletionResult result = new CompletionResult(
-            token,
-            newCompletions,
-            cachedResult.guessedFunctionName,
-            cachedResult.suggestOnAccept,
-            cachedResult.dontInsertParens) ;
-      
-      cachedCompletions_.put(diff, result);
-      return result;
+      return FuzzyMatcher.sortByScore(
+            completions,
+            new FuzzyMatcher.Scorer<QualifiedName>()
+            {
+               @Override
+               public int score(QualifiedName qname)
+               {
+                  FuzzyMatcher.Candidate candidate = qname.getFuzzyCandidate();
+                  int score = matcher.score(candidate);
+                  if (score != FuzzyMatcher.NO_MATCH)
+                     return score;
+
+                  score = fuzzyMatcher.score(candidate);
+                  if (score != FuzzyMatcher.NO_MATCH)
+                     return score + 2;
+
+                  return score;
+               }
+            },
+            new Comparator<QualifiedName>()
+            {
+               @Override
+               public int compare(QualifiedName lhs, QualifiedName rhs)
+               {
+                  return lhs.compareTo(rhs);
+               }
+            });
    }
    
    public void getDplyrJoinCompletionsString(
@@ -226,8 +160,13 @@ public class CompletionRequester
          final boolean implicit,
          final ServerRequestCallback<CompletionResult> callback)
    {
-      if (usingCache(token, callback))
+      final String context = "dplyr-join-string\n" + string + "\n" + cursorPos;
+      CompletionResult cached = getCachedResult(context, token);
+      if (cached != null)
+      {
+         callback.onResponseReceived(cached);
          return;
+      }
       
       server_.getDplyrJoinCompletionsString(
             token,
@@ -238,8 +177,8 @@ public class CompletionRequester
                @Override
                public void onResponseReceived(Completions response)
                {
-                  cachedLinePrefix_ = token;
-                  fillCompletionResult(response, implicit, callback);
+                  fillCompletionResult(context, token, response, implicit,
+                                       callback);
                }
 
                @Override
@@ -259,8 +198,17 @@ public class CompletionRequester
          final ServerRequestCallback<CompletionResult> callback)
    {
       final String token = joinContext.getToken();
-      if (usingCache(token, callback))
+      final String context = "dplyr-join\n" +
+                             joinContext.getLeftData() + "\n" +
+                             joinContext.getRightData() + "\n" +
+                             joinContext.getVerb() + "\n" +
+                             joinContext.getCursorPos();
+      CompletionResult cached = getCachedResult(context, token);
+      if (cached != null)
+      {
+         callback.onResponseReceived(cached);
          return;
+      }
       
       server_.getDplyrJoinCompletions(
             joinContext.getToken(),
@@ -279,14 +227,16 @@ public class CompletionRequester
                @Override
                public void onResponseReceived(Completions response)
                {
-                  cachedLinePrefix_ = token;
-                  fillCompletionResult(response, implicit, callback);
+                  fillCompletionResult(context, token, response, implicit,
+                                       callback);
                }
                
             });
    }
    
    private void fillCompletionResult(
+         String context,
+         String token,
          Completions response,
          boolean implicit,
          ServerRequestCallback<CompletionResult> callback)
@@ -309,9 +259,7 @@ public class CompletionRequester
             response.getOverrideInsertParens());
 
       if (response.isCacheable())
-      {
-         cachedCompletions_.put("", result);
-      }
+         cache_.put(context, token, result, false);
 
       if (!implicit || result.completions.size() != 0)
          callback.onResponseReceived(result);
@@ -347,8 +295,56 @@ public class CompletionRequester
       boolean isHelp = dataType.size() > 0 &&
             dataType.get(0) == AutocompletionContext.TYPE_HELP;
       
-      if (usingCache(token, isHelp, callback))
+      final String context = getCompletionContext(
+            assocData,
+            dataType,
+            numCommas,
+            functionCallString,
+            chainDataName,
+            chainAdditionalArgs,
+            chainExcludeArgs,
+            chainExcludeArgsFromObject,
+            filePath,
+            documentId);
+      
+      // help topics are matched without their package qualifier
+      String filterToken = isHelp ?
+            token.substring(token.lastIndexOf(':') + 1) :
+            token;
+      
+      CompletionCache.Hit hit = cache_.get(context, token, filterToken);
+      if (hit != null)
+      {
+         if (!hit.isNarrowed())
+         {
+            callback.onResponseReceived(createCompletionResult(
+                  hit.base.token,
+                  hit.base,
+                  hit.excludeOtherCompletions));
+            return;
+         }
+         
+         // the completions from the document are gathered afresh, since
+         // the document may have changed since the server was asked
+         CompletionResult narrowed = new CompletionResult(
+               hit.base.token + token.substring(hit.prefixLength),
+               hit.completions,
+               hit.base.guessedFunctionName,
+               hit.base.suggestOnAccept,
+               hit.base.dontInsertParens);
+         CompletionResult result = createCompletionResult(
+               narrowed.token,
+               narrowed,
+               hit.excludeOtherCompletions);
+         
+         callback.onResponseReceived(new CompletionResult(
+               token,
+               sortCompletions(filterToken, result.completions),
+               result.guessedFunctionName,
+               result.suggestOnAccept,
+               result.dontInsertParens));
          return;
+      }
       
       doGetCompletions(
             token,
@@ -373,65 +369,117 @@ public class CompletionRequester
          @Override
          public void onResponseReceived(Completions response)
          {
-            cachedLinePrefix_ = token;
-            String token = response.getToken();
-
             JsArrayString comp = response.getCompletions();
             JsArrayString pkgs = response.getPackages();
             JsArrayBoolean quote = response.getQuote();
             JsArrayInteger type = response.getType();
-            ArrayList<QualifiedName> newComp = new ArrayList<QualifiedName>();
-            
-            // Get function completions from the server
-            for (int i = 0; i < comp.length(); i++)
-               if (comp.get(i).endsWith(" = "))
-                  newComp.add(new QualifiedName(comp.get(i), pkgs.get(i), quote.get(i), type.get(i), response.getHelpHandler()));
-            
-            // Try getting our own function argument completions
-            if (!response.getExcludeOtherCompletions())
-            {
-               addFunctionArgumentCompletions(token, newComp);
-               addScopedArgumentCompletions(token, newComp);
-            }
-            
-            // Get variable completions from the current scope
-            if (!response.getExcludeOtherCompletions())
-            {
-               addScopedCompletions(token, newComp, "variable");
-               addScopedCompletions(token, newComp, "function");
-            }
-            
-            // Get other server completions
+            ArrayList<QualifiedName> serverComp = new ArrayList<QualifiedName>();
             for (int i = 0; i < comp.length(); i++)
-               if (!comp.get(i).endsWith(" = "))
-                  newComp.add(new QualifiedName(comp.get(i), pkgs.get(i), quote.get(i), type.get(i), response.getHelpHandler()));
+               serverComp.add(new QualifiedName(comp.get(i), pkgs.get(i), quote.get(i), type.get(i), response.getHelpHandler()));
             
-            // Get snippet completions. Bail if this isn't a top-level
-            // completion -- TODO is to add some more context that allows us
-            // to properly ascertain this.
-            if (isTopLevelCompletionRequest())
-               addSnippetCompletions(token, newComp);
-            
-            // Remove duplicates
-            newComp = resolveDuplicates(newComp);
-            
-            CompletionResult result = new CompletionResult(
+            CompletionResult serverResult = new CompletionResult(
                   response.getToken(),
-                  newComp,
+                  serverComp,
                   response.getGuessedFunctionName(),
                   response.getSuggestOnAccept(),
                   response.getOverrideInsertParens());
-
+            
+            // only the server's completions are cached; the rest depend
+            // on the document
             if (response.isCacheable())
             {
-               cachedCompletions_.put("", result);
+               cache_.put(context,
+                          token,
+                          serverResult,
+                          response.getExcludeOtherCompletions());
             }
 
-            callback.onResponseReceived(result);
+            callback.onResponseReceived(createCompletionResult(
+                  response.getToken(),
+                  serverResult,
+                  response.getExcludeOtherCompletions()));
          }
       }) ;
    }
    
+   // Identifies everything about a completion request other than the token,
+   // so that cached completions are only reused for similar requests
+   private String getCompletionContext(
+         List<String> assocData,
+         List<Integer> dataType,
+         List<Integer> numCommas,
+         String functionCallString,
+         String chainDataName,
+         JsArrayString chainAdditionalArgs,
+         JsArrayString chainExcludeArgs,
+         boolean chainExcludeArgsFromObject,
+         String filePath,
+         String documentId)
+   {
+      StringBuilder builder = new StringBuilder();
+      builder.append(assocData).append('\n')
+             .append(dataType).append('\n')
+             .append(numCommas).append('\n')
+             .append(functionCallString).append('\n')
+             .append(chainDataName).append('\n')
+             .append(chainAdditionalArgs == null ? "" : chainAdditionalArgs.join(",")).append('\n')
+             .append(chainExcludeArgs == null ? "" : chainExcludeArgs.join(",")).append('\n')
+             .append(chainExcludeArgsFromObject).append('\n')
+             .append(filePath).append('\n')
+             .append(documentId);
+      return builder.toString();
+   }
+   
+   // Combines the completions from the server with those drawn from the
+   // document and snippets
+   private CompletionResult createCompletionResult(
+         String token,
+         CompletionResult serverResult,
+         boolean excludeOtherCompletions)
+   {
+      ArrayList<QualifiedName> newComp = new ArrayList<QualifiedName>();
+      
+      // Get function completions from the server
+      for (QualifiedName qname : serverResult.completions)
+         if (qname.name.endsWith(" = "))
+            newComp.add(qname);
+      
+      // Try getting our own function argument completions
+      if (!excludeOtherCompletions)
+      {
+         addFunctionArgumentCompletions(token, newComp);
+         addScopedArgumentCompletions(token, newComp);
+      }
+      
+      // Get variable completions from the current scope
+      if (!excludeOtherCompletions)
+      {
+         addScopedCompletions(token, newComp, "variable");
+         addScopedCompletions(token, newComp, "function");
+      }
+      
+      // Get other server completions
+      for (QualifiedName qname : serverResult.completions)
+         if (!qname.name.endsWith(" = "))
+            newComp.add(qname);
+      
+      // Get snippet completions. Bail if this isn't a top-level
+      // completion -- TODO is to add some more context that allows us
+      // to properly ascertain this.
+      if (isTopLevelCompletionRequest())
+         addSnippetCompletions(token, newComp);
+      
+      // Remove duplicates
+      newComp = resolveDuplicates(newComp);
+      
+      return new CompletionResult(
+            serverResult.token,
+            newComp,
+            serverResult.guessedFunctionName,
+            serverResult.suggestOnAccept,
+            serverResult.dontInsertParens);
+   }
+   
    private ArrayList<QualifiedName>
    resolveDuplicates(ArrayList<QualifiedName> completions)
    {
@@ -706,8 +754,7 @@ public class CompletionRequester
 
    public void flushCache()
    {
-      cachedLinePrefix_ = null ;
-      cachedCompletions_.clear();
+      cache_.clear();
    }
    
    public static class CompletionResult
@@ -971,11 +1018,33 @@ public class CompletionRequester
          return hash;
       }
 
+      // The string the completion is matched against: just the file name
+      // for files, which also rank a little below everything else, while
+      // arguments rank a little above
+      public FuzzyMatcher.Candidate getFuzzyCandidate()
+      {
+         if (fuzzyCandidate_ == null)
+         {
+            if (RCompletionType.isFileType(type))
+            {
+               fuzzyCandidate_ = new FuzzyMatcher.Candidate(
+                     name.substring(name.lastIndexOf('/') + 1), 1);
+            }
+            else
+            {
+               fuzzyCandidate_ = new FuzzyMatcher.Candidate(
+                     name, type == RCompletionType.ARGUMENT ? -3 : 0);
+            }
+         }
+         return fuzzyCandidate_;
+      }
+
       public final String name ;
       public final String source ;
       public final boolean shouldQuote ;
       public final int type ;
       public final String helpHandler;
+      private FuzzyMatcher.Candidate fuzzyCandidate_;
       private static final FileTypeRegistry FILE_TYPE_REGISTRY =
             RStudioGinjector.INSTANCE.getFileTypeRegistry();
    }
@@ -624,11 +624,7 @@ public class RCompletionManager implements CompletionManager
                   InputEditorPosition end = selection.getStart();
 
                   if (currentLine.charAt(cursorColumn) == ')' && currentLine.charAt(cursorColumn - 1) == '(')
-                  {
-                     // flush cache as old completions no longer relevant
-                     requester_.flushCache();
                      end = selection.getStart().movePosition(1, true);
-                  }
 
                   input_.setSelection(new InputEditorSelection(start, end));
                   input_.replaceSelection("", false);
@@ -817,7 +813,7 @@ public class RCompletionManager implements CompletionManager
                @Override
                public void execute()
                {
-                  beginSuggest(true, true, false);
+                  beginSuggest(false, true, false);
                }
             });
             return false;
@@ -847,7 +843,7 @@ public class RCompletionManager implements CompletionManager
                isSweaveCompletion(c))
          {
             // Delay suggestion to avoid auto-popup while the user is typing
-            suggestTimer_.schedule(true, true, false);
+            suggestTimer_.schedule(false, true, false);
          }
       }
       return false ;
@@ -921,7 +917,7 @@ public class RCompletionManager implements CompletionManager
 
    private void invalidatePendingRequests()
    {
-      invalidatePendingRequests(true, true);
+      invalidatePendingRequests(false, true);
    }
 
    private void invalidatePendingRequests(boolean flushCache,
@@ -1863,7 +1859,6 @@ public class RCompletionManager implements CompletionManager
          if (invalidationToken_.isInvalid())
             return;
          
-         requester_.flushCache() ;
          helpStrategy_.clearCache();
          
          if (value == null)
@@ -1884,7 +1879,7 @@ public class RCompletionManager implements CompletionManager
                @Override
                public void execute()
                {
-                  beginSuggest(true, true, false);
+                  beginSuggest(false, true, false);
                }
             });
          }
@@ -0,0 +1,65 @@
+/*
+ * DataImportLoader.java
+ *
+ * Copyright (C) 2009-16 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+
+package org.rstudio.studio.client.workbench.views.environment.dataimport;
+
+import com.google.inject.Inject;
+
+import org.rstudio.core.client.AsyncShim;
+import org.rstudio.core.client.widget.OperationWithInput;
+import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.workbench.views.console.events.SendToConsoleEvent;
+
+/**
+ * Shows the data import dialogs; the dialogs (and the previews and options
+ * behind them) are only downloaded when one is first needed.
+ */
+public class DataImportLoader
+{
+   public abstract static class Shim extends AsyncShim<DataImportLoader>
+   {
+      public abstract void showImportDialog(DataImportModes dataImportMode,
+                                            String dialogTitle,
+                                            String path);
+   }
+
+   @Inject
+   public DataImportLoader(EventBus eventBus)
+   {
+      eventBus_ = eventBus;
+   }
+
+   public void showImportDialog(DataImportModes dataImportMode,
+                                String dialogTitle,
+                                String path)
+   {
+      DataImportDialog dataImportDialog = new DataImportDialog(
+            dataImportMode,
+            dialogTitle,
+            path,
+            new OperationWithInput<String>()
+      {
+         @Override
+         public void execute(final String importCode)
+         {
+            eventBus_.fireEvent(new SendToConsoleEvent(importCode, true, true));
+         }
+      });
+
+      dataImportDialog.showModal();
+   }
+
+   private final EventBus eventBus_;
+}
@@ -19,21 +19,17 @@ import com.google.gwt.user.client.Command;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
-import org.rstudio.core.client.widget.OperationWithInput;
-import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.common.dependencies.DependencyManager;
-import org.rstudio.studio.client.workbench.views.console.events.SendToConsoleEvent;
-import org.rstudio.studio.client.workbench.views.environment.dataimport.DataImportDialog;
 import org.rstudio.studio.client.workbench.views.environment.dataimport.DataImportModes;
 
 @Singleton
 public class DataImportPresenter
 {
    @Inject
-   public DataImportPresenter(EventBus eventBus,
+   public DataImportPresenter(DataImportLoader.Shim dataImportLoader,
                               DependencyManager dependencyManager)
    {
-      eventBus_ = eventBus;
+      dataImportLoader_ = dataImportLoader;
       dependencyManager_ = dependencyManager;
    }
    
@@ -47,20 +43,9 @@ public class DataImportPresenter
              @Override
              public void execute()
              {
-                DataImportDialog dataImportDialog = new DataImportDialog(
-                      dataImportMode,
-                      dialogTitle,
-                      path,
-                      new OperationWithInput<String>()
-                {
-                   @Override
-                   public void execute(final String importCode)
-                   {
-                      eventBus_.fireEvent(new SendToConsoleEvent(importCode, true, true)); 
-                   }
-                });
-                
-                dataImportDialog.showModal();
+                dataImportLoader_.showImportDialog(dataImportMode,
+                                                   dialogTitle,
+                                                   path);
              }
           };
    }
@@ -175,7 +160,7 @@ public class DataImportPresenter
       );
    }
    
-   private EventBus eventBus_;
+   private DataImportLoader.Shim dataImportLoader_;
    private DependencyManager dependencyManager_;
    
    final String dataImportDependecyUserAction_ = "Preparing data import";
@@ -22,6 +22,7 @@ import com.google.gwt.user.client.Command;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
+import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.cellview.ColumnSortInfo;
 import org.rstudio.core.client.command.CommandBinder;
 import org.rstudio.core.client.command.Handler;
@@ -89,6 +90,9 @@ public class Files
       
       void updateDirectoryListing(FileChange action);
       
+      void appendDirectoryListing(FileSystemItem directory,
+                                  JsArray<FileSystemItem> files);
+      
       void renameFile(FileSystemItem from, FileSystemItem to);
       
       void selectAll();
@@ -659,16 +663,79 @@ public class Files
       }
    }
    
+   // fetches the rest of a listing whose first page has been displayed, a
+   // page at a time, until it's complete or superseded by another listing
+   private void listRemainingFiles(final FileSystemItem directory,
+                                   final int listingId,
+                                   final int offset,
+                                   final int totalFiles)
+   {
+      if (listingId != listingId_ || offset >= totalFiles)
+         return;
+      
+      server_.listFilesPage(
+            directory,
+            offset,
+            LISTING_PAGE_SIZE,
+            new ServerRequestCallback<JsArray<FileSystemItem>>()
+            {
+               @Override
+               public void onResponseReceived(JsArray<FileSystemItem> files)
+               {
+                  if (files == null || listingId != listingId_)
+                     return;
+                  
+                  view_.appendDirectoryListing(directory, files);
+                  listRemainingFiles(directory,
+                                     listingId,
+                                     offset + files.length(),
+                                     files.length() > 0 ? totalFiles : offset);
+               }
+               
+               @Override
+               public void onError(ServerError error)
+               {
+                  Debug.logError(error);
+               }
+            });
+   }
+   
    // data source for listing files on the current path which can 
    // be passed to the files view
    ServerDataSource<DirectoryListing> currentPathFilesDS_ = 
       new ServerDataSource<DirectoryListing>()
       {
          public void requestData(
-               ServerRequestCallback<DirectoryListing> requestCallback)
+               final ServerRequestCallback<DirectoryListing> requestCallback)
          {
+            // large directories are listed a page at a time; the first page
+            // is displayed as soon as it arrives
+            final FileSystemItem directory = currentPath_;
+            final int listingId = ++listingId_;
+            
             // pass true to enable monitoring for all calls to list_files
-            server_.listFiles(currentPath_, true, requestCallback);
+            server_.listFiles(
+                  directory,
+                  true,
+                  LISTING_PAGE_SIZE,
+                  new ServerRequestCallback<DirectoryListing>()
+                  {
+                     @Override
+                     public void onResponseReceived(DirectoryListing listing)
+                     {
+                        requestCallback.onResponseReceived(listing);
+                        listRemainingFiles(directory,
+                                           listingId,
+                                           listing.getFiles().length(),
+                                           listing.getTotalFiles());
+                     }
+                     
+                     @Override
+                     public void onError(ServerError error)
+                     {
+                        requestCallback.onError(error);
+                     }
+                  });
          }
       };
 
@@ -690,5 +757,9 @@ public class Files
    private static final String KEY_PATH = "path";
    private static final String KEY_SORT_ORDER = "sortOrder";
    private JsArray<ColumnSortInfo> columnSortOrder_ = null;
+   
+   // identifies the most recent listing of the current path
+   private int listingId_ = 0;
+   private static final int LISTING_PAGE_SIZE = 2000;
    private DataImportPresenter dataImportPresenter_;
 }
@@ -166,6 +166,12 @@ public class FilesPane extends WorkbenchPane implements Files.Display
       }
    }
    
+   public void appendDirectoryListing(FileSystemItem directory,
+                                      JsArray<FileSystemItem> files)
+   {
+      filesList_.appendFiles(directory, files);
+   }
+   
    public void renameFile(FileSystemItem from, FileSystemItem to)
    {
       filesList_.renameFile(from, to);
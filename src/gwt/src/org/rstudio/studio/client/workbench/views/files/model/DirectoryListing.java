@@ -32,4 +32,10 @@ public class DirectoryListing extends JavaScriptObject
    public final native JsArray<FileSystemItem> getFiles() /*-{
       return this.files;
    }-*/;
+   
+   // the number of files in the directory (which may be more than are in
+   // the listing, if it was requested a page at a time)
+   public final native int getTotalFiles() /*-{
+      return this.total_files || this.files.length;
+   }-*/;
 }
@@ -15,6 +15,7 @@
 package org.rstudio.studio.client.workbench.views.files.model;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
 
 import org.rstudio.core.client.files.FileSystemItem;
@@ -39,6 +40,18 @@ public interface FilesServerOperations
    void listFiles(FileSystemItem directory,
                   boolean monitor,
                   ServerRequestCallback<DirectoryListing> requestCallback);
+   
+   // get the first page of a file listing; the rest of it can then be 
+   // fetched with listFilesPage (until the next listing is requested)
+   void listFiles(FileSystemItem directory,
+                  boolean monitor,
+                  int pageSize,
+                  ServerRequestCallback<DirectoryListing> requestCallback);
+   
+   void listFilesPage(FileSystemItem directory,
+                      int offset,
+                      int count,
+                      ServerRequestCallback<JsArray<FileSystemItem>> requestCallback);
 
    void listAllFiles(String path,
                      String pattern,
@@ -16,14 +16,18 @@ package org.rstudio.studio.client.workbench.views.files.ui;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Set;
 
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.cellview.ColumnSortInfo;
 import org.rstudio.core.client.cellview.LinkColumn;
+import org.rstudio.core.client.cellview.ScrollingDataGrid;
 import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.core.client.metrics.Metrics;
 import org.rstudio.core.client.widget.OperationWithInput;
 import org.rstudio.studio.client.common.filetypes.FileIconResources;
 import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
@@ -37,12 +41,13 @@ import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.dom.client.Style.WhiteSpace;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
 import com.google.gwt.event.logical.shared.ResizeEvent;
 import com.google.gwt.event.logical.shared.ResizeHandler;
 import com.google.gwt.resources.client.ImageResource;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.safehtml.shared.SafeHtmlUtils;
-import com.google.gwt.user.cellview.client.DataGrid;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.user.cellview.client.ColumnSortEvent;
 import com.google.gwt.user.cellview.client.ColumnSortList;
@@ -51,6 +56,7 @@ import com.google.gwt.user.cellview.client.ColumnSortEvent.Handler;
 import com.google.gwt.user.client.ui.Composite;
 import com.google.gwt.user.client.ui.HasVerticalAlignment;
 import com.google.gwt.user.client.ui.ResizeLayoutPanel;
+import com.google.gwt.user.client.ui.ScrollPanel;
 import com.google.gwt.view.client.DefaultSelectionEventManager;
 import com.google.gwt.view.client.ListDataProvider;
 import com.google.gwt.view.client.MultiSelectionModel;
@@ -63,14 +69,12 @@ public class FilesList extends Composite
    {
       observer_ = observer;
       
-      // create data provider and sort handler
+      // create data provider
       dataProvider_ = new ListDataProvider<FileSystemItem>();
-      sortHandler_ = new ColumnSortEvent.ListHandler<FileSystemItem>(
-                                                      dataProvider_.getList());
       
       // create cell table
-      filesDataGrid_ = new DataGrid<FileSystemItem>(
-                                          15,
+      filesDataGrid_ = new ScrollingDataGrid<FileSystemItem>(
+                                          RENDER_INCREMENT,
                                           FilesListDataGridResources.INSTANCE,
                                           KEY_PROVIDER);
       selectionModel_ = new MultiSelectionModel<FileSystemItem>(KEY_PROVIDER);
@@ -91,8 +95,29 @@ public class FilesList extends Composite
       sizeColumn_ = addSizeColumn();
       modifiedColumn_ = addModifiedColumn();
       
-      // initialize sorting
+      // initialize sorting (by name until told otherwise)
       addColumnSortHandler();
+      index_ = new FilesListIndex(dataProvider_.getList(),
+                                  comparators_.get(nameColumn_));
+      
+      // render more rows as the user scrolls towards the end of those
+      // rendered so far
+      filesDataGrid_.getScrollPanel().addScrollHandler(new ScrollHandler()
+      {
+         @Override
+         public void onScroll(ScrollEvent event)
+         {
+            ScrollPanel scrollPanel = filesDataGrid_.getScrollPanel();
+            int remaining = scrollPanel.getMaximumVerticalScrollPosition() -
+                            scrollPanel.getVerticalScrollPosition();
+            if (remaining < scrollPanel.getOffsetHeight() &&
+                filesDataGrid_.getPageSize() < index_.size())
+            {
+               filesDataGrid_.setPageSize(
+                     filesDataGrid_.getPageSize() + RENDER_INCREMENT);
+            }
+         }
+      });
       
       // enclose in scroll panel
       layoutPanel_ = new ResizeLayoutPanel();
@@ -158,7 +183,7 @@ public class FilesList extends Composite
                                 SafeHtmlUtils.fromSafeConstant("<br/>"));
       filesDataGrid_.setColumnWidth(iconColumn, ICON_COLUMN_WIDTH_PIXELS, Unit.PX);
     
-      sortHandler_.setComparator(iconColumn, new FilesListComparator() {
+      comparators_.put(iconColumn, new FilesListComparator() {
          @Override
          public int doCompare(FileSystemItem arg0, FileSystemItem arg1)
          {
@@ -198,7 +223,7 @@ public class FilesList extends Composite
       nameColumn.setSortable(true);
       filesDataGrid_.addColumn(nameColumn, "Name");
       
-      sortHandler_.setComparator(nameColumn, new FilesListComparator() {
+      comparators_.put(nameColumn, new FilesListComparator() {
          @Override
          public int doCompare(FileSystemItem arg0, FileSystemItem arg1)
          {
@@ -225,7 +250,7 @@ public class FilesList extends Composite
       filesDataGrid_.addColumn(sizeColumn, "Size");
       filesDataGrid_.setColumnWidth(sizeColumn, SIZE_COLUMN_WIDTH_PIXELS, Unit.PX);
       
-      sortHandler_.setComparator(sizeColumn, new FoldersOnBottomComparator() {
+      comparators_.put(sizeColumn, new FoldersOnBottomComparator() {
          @Override
          public int doItemCompare(FileSystemItem arg0, FileSystemItem arg1)
          {
@@ -253,7 +278,7 @@ public class FilesList extends Composite
       filesDataGrid_.addColumn(modColumn, "Modified");
       filesDataGrid_.setColumnWidth(modColumn, MODIFIED_COLUMN_WIDTH_PIXELS, Unit.PX); 
       
-      sortHandler_.setComparator(modColumn, new FoldersOnBottomComparator() {
+      comparators_.put(modColumn, new FoldersOnBottomComparator() {
          @Override
          public int doItemCompare(FileSystemItem arg0, FileSystemItem arg1)
          {
@@ -321,8 +346,15 @@ public class FilesList extends Composite
             // record active sort column ascending state
             activeSortColumnAscending_ = event.isSortAscending();
             
-            // delegate the sort
-            sortHandler_.onColumnSort(event);
+            // re-sort the rows
+            Comparator<FileSystemItem> comparator =
+                                    comparators_.get(event.getColumn());
+            if (comparator != null)
+            {
+               if (!event.isSortAscending())
+                  comparator = reverse(comparator);
+               index_.setComparator(comparator);
+            }
          }
          
          private native final JsArray<ColumnSortInfo> newSortOrderArray()
@@ -354,6 +386,8 @@ public class FilesList extends Composite
    public void displayFiles(FileSystemItem containingPath, 
                             JsArray<FileSystemItem> files)
    {
+      double startTime = Metrics.now();
+      
       // clear the selection
       selectNone();
       
@@ -361,26 +395,54 @@ public class FilesList extends Composite
       containingPath_ = containingPath;
       parentPath_ = containingPath_.getParentPath();
       
-      // set page size (+1 for parent path)
-      filesDataGrid_.setPageSize(files.length() + 1);
+      // only render the first rows until the user scrolls to them
+      filesDataGrid_.setPageSize(RENDER_INCREMENT);
+      filesDataGrid_.getScrollPanel().scrollToTop();
+      
+      // discard any changes that apply to the previous listing
+      pendingChanges_.clear();
+      removedPaths_.clear();
       
-      // get underlying list
-      List<FileSystemItem> fileList = dataProvider_.getList();
-      fileList.clear();
-            
       // add entry for parent path if we have one
+      ArrayList<FileSystemItem> fileList = new ArrayList<FileSystemItem>();
       if (parentPath_ != null)
          fileList.add(parentPath_);
       
       // add files to table
       for (int i=0; i<files.length(); i++)
          fileList.add(files.get(i));
+      index_.reset(fileList);
            
       // apply sort list
       applyColumnSortList();
       
       // fire selection changed
       observer_.onFileSelectionChanged();
+      
+      Metrics.recordRender("files", startTime);
+   }
+   
+   /**
+    * Adds files that are part of the listing most recently displayed but
+    * which were fetched separately (the server sends large listings a page
+    * at a time).
+    */
+   public void appendFiles(FileSystemItem containingPath,
+                           JsArray<FileSystemItem> files)
+   {
+      if (containingPath_ == null || !containingPath_.equalTo(containingPath))
+         return;
+      
+      // the files were listed before any changes we've been told about
+      // since, so we skip those that have been removed
+      ArrayList<FileSystemItem> fileList = new ArrayList<FileSystemItem>();
+      for (int i=0; i<files.length(); i++)
+      {
+         FileSystemItem file = files.get(i);
+         if (!removedPaths_.contains(file.getPath()) && !index_.contains(file))
+            fileList.add(file);
+      }
+      index_.putAll(fileList);
    }
    
    public void selectAll()
@@ -401,94 +463,112 @@ public class FilesList extends Composite
    public ArrayList<FileSystemItem> getSelectedFiles()
    {    
       // first make sure there are no leftover items in the selected set
+      ArrayList<FileSystemItem> selectedFiles = new ArrayList<FileSystemItem>();
       Set<FileSystemItem> selectedSet = selectionModel_.getSelectedSet();
-      selectedSet.retainAll(dataProvider_.getList());
+      for (FileSystemItem file : selectedSet)
+      {
+         if (index_.contains(file))
+            selectedFiles.add(file);
+      }
    
-      return new ArrayList<FileSystemItem>(selectedSet);
+      return selectedFiles;
    }
    
    public void updateWithAction(FileChange viewAction)
    {        
-      final FileSystemItem file = viewAction.getFile();
-      final List<FileSystemItem> files = getFiles();
-      switch(viewAction.getType())
+      // changes tend to arrive in bursts (e.g. when a job writes many
+      // files), so we apply them together once the burst is over
+      pendingChanges_.add(viewAction);
+      if (pendingChanges_.size() == 1)
       {
-      case FileChange.ADD:
-         if (file.getParentPath().equalTo(containingPath_))
+         Scheduler.get().scheduleDeferred(new ScheduledCommand()
          {
-            int row = rowForFile(file);
-            if (row == -1)
+            @Override
+            public void execute()
             {
-               files.add(file);
-               filesDataGrid_.setPageSize(files.size() + 1);
+               applyPendingChanges();
             }
-            else
+         });
+      }
+   }
+   
+   private void applyPendingChanges()
+   {
+      ArrayList<FileChange> changes = new ArrayList<FileChange>(pendingChanges_);
+      pendingChanges_.clear();
+      
+      // work out where each changed file ends up (null if it's gone), so
+      // that the index can apply them all at once
+      LinkedHashMap<String, FileSystemItem> updates =
+            new LinkedHashMap<String, FileSystemItem>();
+      for (FileChange change : changes)
+      {
+         final FileSystemItem file = change.getFile();
+         String path = file.getPath();
+         switch(change.getType())
+         {
+         case FileChange.ADD:
+            if (file.getParentPath().equalTo(containingPath_))
             {
                // since we eagerly perform renames at the client UI
                // layer then sometimes an "added" file is really just
                // a rename. in this case the file already exists due
                // to the eager rename in the client but still needs its
-               // metadata updated
-               files.set(row, file);
+               // metadata updated (which the update takes care of)
+               updates.put(path, file);
+               removedPaths_.remove(path);
             }
-         }
-         break;
-         
-      case FileChange.MODIFIED:
-         {
-            int row = rowForFile(file);
-            if (row != -1)
-               files.set(row, file);
-         }
-         break;
- 
-      case FileChange.DELETE:
-         {
-            int row = rowForFile(file);
-            if (row != -1)
+            break;
+            
+         case FileChange.MODIFIED:
+            if (updates.containsKey(path) ?
+                  updates.get(path) != null : index_.contains(file))
             {
-               files.remove(row);
-               
-               // if a file is deleted and then re-added within the same
-               // event loop (as occurs when gedit saves a text file) the
-               // table doesn't always update correctly (it has a duplicate
-               // of the item deleted / re-added). the call to flush overcomes
-               // this issue
-               dataProvider_.flush();
+               updates.put(path, file);
             }
-         }
-         break;
-      
-      default:
-         Debug.log("Unexpected file change type: " + viewAction.getType());
+            break;
+    
+         case FileChange.DELETE:
+            updates.put(path, null);
+            removedPaths_.add(path);
+            break;
          
-         break;
+         default:
+            Debug.log("Unexpected file change type: " + change.getType());
+            
+            break;
+         }
       }
+      index_.update(updates);
+      
+      // if a file is deleted and then re-added within the same event loop
+      // (as occurs when gedit saves a text file) the table doesn't always
+      // update correctly (it has a duplicate of the item deleted /
+      // re-added). the call to flush overcomes this issue
+      dataProvider_.flush();
    }
    
    public void renameFile(FileSystemItem from, FileSystemItem to)
    {
-      int index = getFiles().indexOf(from);
-      if (index != -1)
+      if (index_.contains(from))
       {
          selectNone();
-         getFiles().set(index, to);
+         index_.remove(from);
+         index_.put(to);
       }
    }
    
-   private List<FileSystemItem> getFiles()
-   {
-      return dataProvider_.getList();
-   }
-   
-   private int rowForFile(FileSystemItem file)
+   private static Comparator<FileSystemItem> reverse(
+                              final Comparator<FileSystemItem> comparator)
    {
-      List<FileSystemItem> files = getFiles();
-      for (int i=0; i<files.size(); i++)
-         if (files.get(i).equalTo(file))
-            return i ;
-      
-      return -1;
+      return new Comparator<FileSystemItem>()
+      {
+         @Override
+         public int compare(FileSystemItem lhs, FileSystemItem rhs)
+         {
+            return comparator.compare(rhs, lhs);
+         }
+      };
    }
    
    private void applyColumnSortList()
@@ -647,7 +727,7 @@ public class FilesList extends Composite
    private FileSystemItem containingPath_ = null;
    private FileSystemItem parentPath_ = null;
   
-   private final DataGrid<FileSystemItem> filesDataGrid_; 
+   private final ScrollingDataGrid<FileSystemItem> filesDataGrid_; 
    private final LinkColumn<FileSystemItem> nameColumn_;
    private final TextColumn<FileSystemItem> sizeColumn_;
    private final TextColumn<FileSystemItem> modifiedColumn_;
@@ -657,11 +737,23 @@ public class FilesList extends Composite
    
    private final MultiSelectionModel<FileSystemItem> selectionModel_;
    private final ListDataProvider<FileSystemItem> dataProvider_;
-   private final ColumnSortEvent.ListHandler<FileSystemItem> sortHandler_;
+   private final FilesListIndex index_;
+   private final HashMap<Column<FileSystemItem, ?>, Comparator<FileSystemItem>>
+         comparators_ =
+            new HashMap<Column<FileSystemItem, ?>, Comparator<FileSystemItem>>();
+   
+   // changes waiting to be applied, and the files removed since the
+   // listing was displayed
+   private final ArrayList<FileChange> pendingChanges_ =
+                                             new ArrayList<FileChange>();
+   private final HashSet<String> removedPaths_ = new HashSet<String>();
 
    private final Files.Display.Observer observer_ ;
    private final ResizeLayoutPanel layoutPanel_ ;  
    
+   // the number of rows rendered at a time
+   private static final int RENDER_INCREMENT = 200;
+   
    private static final int CHECK_COLUMN_WIDTH_PIXELS = 30;
    private static final int ICON_COLUMN_WIDTH_PIXELS = 26;
    private static final int SIZE_COLUMN_WIDTH_PIXELS = 80;
@@ -0,0 +1,222 @@
+/*
+ * FilesListIndex.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.files.ui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rstudio.core.client.files.FileSystemItem;
+
+/**
+ * Keeps the rows of the files list sorted, and indexed by path, so that
+ * individual files can be found with a binary search rather than a scan of
+ * the whole listing. Adding or removing a single row still shifts the rows
+ * after it, so changes to many files should be made together with update,
+ * which rebuilds the rows once.
+ *
+ * Ties in the sort order are broken by name and then by path, so that
+ * every file has exactly one place in the list; the rows must only be
+ * modified through the index.
+ */
+class FilesListIndex
+{
+   public FilesListIndex(List<FileSystemItem> rows,
+                         Comparator<FileSystemItem> comparator)
+   {
+      rows_ = rows;
+      setComparator(comparator);
+   }
+
+   /**
+    * Sorts the rows by the given comparator (and keeps them sorted by it
+    * from now on).
+    */
+   public void setComparator(final Comparator<FileSystemItem> comparator)
+   {
+      comparator_ = new Comparator<FileSystemItem>()
+      {
+         @Override
+         public int compare(FileSystemItem lhs, FileSystemItem rhs)
+         {
+            int result = comparator.compare(lhs, rhs);
+            if (result == 0)
+               result = lhs.getName().compareToIgnoreCase(rhs.getName());
+            if (result == 0)
+               result = lhs.getPath().compareTo(rhs.getPath());
+            return result;
+         }
+      };
+      sort();
+   }
+
+   /**
+    * Replaces the rows with the given files.
+    */
+   public void reset(List<FileSystemItem> files)
+   {
+      byPath_.clear();
+      for (FileSystemItem file : files)
+         byPath_.put(file.getPath(), file);
+
+      rows_.clear();
+      rows_.addAll(byPath_.values());
+      sort();
+   }
+
+   public int size()
+   {
+      return rows_.size();
+   }
+
+   public boolean contains(FileSystemItem file)
+   {
+      return byPath_.containsKey(file.getPath());
+   }
+
+   /**
+    * @return The row of the file with the same path as the given one, or -1
+    *    if there is none.
+    */
+   public int indexOf(FileSystemItem file)
+   {
+      FileSystemItem current = byPath_.get(file.getPath());
+      if (current == null)
+         return -1;
+
+      int row = Collections.binarySearch(rows_, current, comparator_);
+      return row >= 0 ? row : -1;
+   }
+
+   /**
+    * Adds the given file, replacing the file with the same path if there
+    * is one (in which case it is moved to wherever the new version sorts).
+    */
+   public void put(FileSystemItem file)
+   {
+      remove(file);
+
+      int row = Collections.binarySearch(rows_, file, comparator_);
+      rows_.add(row >= 0 ? row : -(row + 1), file);
+      byPath_.put(file.getPath(), file);
+   }
+
+   /**
+    * Adds all of the given files (see update).
+    */
+   public void putAll(List<FileSystemItem> files)
+   {
+      HashMap<String, FileSystemItem> changes =
+            new HashMap<String, FileSystemItem>();
+      for (FileSystemItem file : files)
+         changes.put(file.getPath(), file);
+      update(changes);
+   }
+
+   /**
+    * Applies a batch of changes, keyed by path: each file replaces the one
+    * with the same path (if any), and paths mapped to null are removed.
+    *
+    * Small batches are applied a file at a time. Otherwise the changed
+    * files are sorted and merged with the unchanged rows in a single pass,
+    * so the batch costs O(n + k log k) rather than a shift of the rows for
+    * each of the k files.
+    */
+   public void update(Map<String, FileSystemItem> changes)
+   {
+      if (changes.size() < BULK_THRESHOLD)
+      {
+         for (Map.Entry<String, FileSystemItem> change : changes.entrySet())
+         {
+            if (change.getValue() != null)
+               put(change.getValue());
+            else
+               remove(change.getKey());
+         }
+         return;
+      }
+
+      ArrayList<FileSystemItem> added = new ArrayList<FileSystemItem>();
+      for (Map.Entry<String, FileSystemItem> change : changes.entrySet())
+      {
+         byPath_.remove(change.getKey());
+         if (change.getValue() != null)
+         {
+            byPath_.put(change.getKey(), change.getValue());
+            added.add(change.getValue());
+         }
+      }
+      Collections.sort(added, comparator_);
+
+      ArrayList<FileSystemItem> merged =
+            new ArrayList<FileSystemItem>(byPath_.size());
+      int next = 0;
+      for (FileSystemItem row : rows_)
+      {
+         if (changes.containsKey(row.getPath()))
+            continue;
+         while (next < added.size() &&
+                comparator_.compare(added.get(next), row) < 0)
+         {
+            merged.add(added.get(next++));
+         }
+         merged.add(row);
+      }
+      while (next < added.size())
+         merged.add(added.get(next++));
+
+      rows_.clear();
+      rows_.addAll(merged);
+   }
+
+   /**
+    * Removes the file with the same path as the given one (if any).
+    */
+   public void remove(FileSystemItem file)
+   {
+      remove(file.getPath());
+   }
+
+   private void remove(String path)
+   {
+      FileSystemItem current = byPath_.remove(path);
+      if (current == null)
+         return;
+
+      int row = Collections.binarySearch(rows_, current, comparator_);
+      if (row >= 0)
+         rows_.remove(row);
+   }
+
+   // sorts a copy of the rows, so the display sees a single change
+   private void sort()
+   {
+      ArrayList<FileSystemItem> sorted = new ArrayList<FileSystemItem>(rows_);
+      Collections.sort(sorted, comparator_);
+      rows_.clear();
+      rows_.addAll(sorted);
+   }
+
+   private final List<FileSystemItem> rows_;
+   private final HashMap<String, FileSystemItem> byPath_ =
+         new HashMap<String, FileSystemItem>();
+   private Comparator<FileSystemItem> comparator_;
+
+   // below this many files, changing them one at a time is cheaper
+   private static final int BULK_THRESHOLD = 64;
+}
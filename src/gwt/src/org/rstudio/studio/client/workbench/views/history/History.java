@@ -28,6 +28,7 @@ import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.Command;
 import com.google.inject.Inject;
 
+import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.TimeBufferedCommand;
 import org.rstudio.core.client.command.CommandBinder;
@@ -120,6 +121,7 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
       void dismissSearchResults();
       void showSearchResults(String query,
                              ArrayList<HistoryEntry> entries);
+      void addSearchResults(ArrayList<HistoryEntry> entries);
       void showContext(String command,
                        ArrayList<HistoryEntry> entries,
                        long highlightOffset,
@@ -150,7 +152,32 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
       protected void performAction(boolean shouldSchedulePassive)
       {
          final String query = searchQuery_;
-         if (searchQuery_ != null && searchQuery_.length() > 0)
+         if (searchQuery_ != null && searchQuery_.length() > 0 &&
+             searchIndex_.isLoaded())
+         {
+            // the indexed entries were searched as the query was typed;
+            // only the server can search the older ones
+            long firstIndex = searchIndex_.getFirstIndex();
+            if (firstIndex == 0 || indexedResults_ >= COMMAND_CHUNK_SIZE)
+               return;
+
+            server_.searchHistoryArchive(
+                  searchQuery_, COMMAND_CHUNK_SIZE - indexedResults_,
+                  firstIndex,
+                  new SimpleRequestCallback<RpcObjectList<HistoryEntry>>()
+                  {
+                     @Override
+                     public void onResponseReceived(
+                           RpcObjectList<HistoryEntry> response)
+                     {
+                        if (!query.equals(searchQuery_))
+                           return;
+
+                        view_.addSearchResults(toList(response));
+                     }
+                  });
+         }
+         else if (searchQuery_ != null && searchQuery_.length() > 0)
          {
             server_.searchHistoryArchive(
                   searchQuery_, COMMAND_CHUNK_SIZE,
@@ -180,6 +207,13 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
          }
          else
          {
+            if (searchIndex_.isLoaded())
+            {
+               ArrayList<HistoryEntry> entries =
+                     searchIndex_.search(query, COMMAND_CHUNK_SIZE);
+               indexedResults_ = entries.size();
+               view_.showSearchResults(query, entries);
+            }
             nudge();
          }
       }
@@ -191,6 +225,7 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
       }
 
       private String searchQuery_;
+      private int indexedResults_;
    }
 
    @Inject
@@ -267,9 +302,19 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
       {
          public void onHistoryEntriesAdded(HistoryEntriesAddedEvent event)
          {
-            view_.addRecentCommands(toList(event.getEntries()), false);
+            ArrayList<HistoryEntry> entries = toList(event.getEntries());
+            view_.addRecentCommands(entries, false);
             view_.truncateRecentCommands(
                         session_.getSessionInfo().getConsoleHistoryCapacity());
+
+            for (HistoryEntry entry : entries)
+            {
+               if (entry.getArchiveIndex() >= 0)
+               {
+                  searchIndex_.add(HistoryEntry.create(
+                        (int) entry.getArchiveIndex(), entry.getCommand()));
+               }
+            }
          }
       });
 
@@ -328,6 +373,24 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
                                            error.getUserMessage());
          }
       });
+
+      server_.getRecentHistoryArchive(
+            SEARCH_INDEX_SIZE,
+            new ServerRequestCallback<RpcObjectList<HistoryEntry>>()
+      {
+         @Override
+         public void onResponseReceived(RpcObjectList<HistoryEntry> response)
+         {
+            searchIndex_.load(toList(response));
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            // searches will just go to the server
+            Debug.logError(error);
+         }
+      });
    }
 
    
@@ -672,11 +735,14 @@ public class History extends BasePresenter implements SelectionCommitHandler<Voi
 
    private static final int COMMAND_CHUNK_SIZE = 300;
    private static final int CONTEXT_LINES = 50;
+   // the number of recent archive entries searched on the client
+   private static final int SEARCH_INDEX_SIZE = 10000;
    private boolean fetchingMoreCommands_ = false;
    private final Display view_;
    private final EventBus events_;
    private final GlobalDisplay globalDisplay_;
    private final SearchCommand searchCommand_;
+   private final HistorySearchIndex searchIndex_ = new HistorySearchIndex();
    private HistoryServerOperations server_;
    private final Session session_;
    private final ConsoleDispatcher consoleDispatcher_;
@@ -0,0 +1,220 @@
+/*
+ * HistorySearchIndex.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.history;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.rstudio.studio.client.workbench.views.history.model.HistoryEntry;
+
+/**
+ * An index of the most recent entries in the history archive, so that they
+ * can be searched without a round trip to the server. Each entry is indexed
+ * by the three character sequences it contains; a search looks up the
+ * entries containing all of the sequences in each of its terms, and then
+ * checks just those entries for the terms themselves.
+ *
+ * Searches match the same entries the server's would: those that contain
+ * every term of the query, where the terms are separated by whitespace and
+ * each punctuation character is a term of its own.
+ */
+class HistorySearchIndex
+{
+   /**
+    * @return True once the index has been loaded with the recent entries
+    *    in the archive.
+    */
+   public boolean isLoaded()
+   {
+      return loaded_;
+   }
+
+   /**
+    * @return The archive index of the oldest entry in the index; the
+    *    entries before it can only be searched by the server.
+    */
+   public long getFirstIndex()
+   {
+      return entries_.isEmpty() ? lastIndex_ + 1 : entries_.get(0).getIndex();
+   }
+
+   /**
+    * Loads the index with the most recent entries in the archive, in order,
+    * along with any entries added while they were being fetched.
+    */
+   public void load(ArrayList<HistoryEntry> entries)
+   {
+      ArrayList<HistoryEntry> pending = pending_;
+      pending_ = new ArrayList<HistoryEntry>();
+      loaded_ = true;
+
+      for (HistoryEntry entry : entries)
+         add(entry);
+      for (HistoryEntry entry : pending)
+         add(entry);
+   }
+
+   /**
+    * Adds an entry that was just added to the archive.
+    */
+   public void add(HistoryEntry entry)
+   {
+      if (!loaded_)
+      {
+         pending_.add(entry);
+         return;
+      }
+
+      // we may have been told about the entry more than once
+      if (entry.getIndex() <= lastIndex_)
+         return;
+      lastIndex_ = entry.getIndex();
+
+      int id = entries_.size();
+      entries_.add(entry);
+      for (String trigram : getTrigrams(entry.getCommand()))
+      {
+         ArrayList<Integer> ids = postings_.get(trigram);
+         if (ids == null)
+         {
+            ids = new ArrayList<Integer>();
+            postings_.put(trigram, ids);
+         }
+         ids.add(id);
+      }
+   }
+
+   /**
+    * @return The (up to maxEntries) entries matching the query, newest
+    *    first.
+    */
+   public ArrayList<HistoryEntry> search(String query, int maxEntries)
+   {
+      ArrayList<String> terms = getSearchTerms(query);
+
+      // narrow down the candidates using the terms long enough to index
+      ArrayList<Integer> candidates = null;
+      for (String term : terms)
+      {
+         for (String trigram : getTrigrams(term))
+         {
+            ArrayList<Integer> ids = postings_.get(trigram);
+            if (ids == null)
+               return new ArrayList<HistoryEntry>();
+
+            candidates = candidates == null ? ids : intersect(candidates, ids);
+         }
+      }
+
+      ArrayList<HistoryEntry> results = new ArrayList<HistoryEntry>();
+      int count = candidates == null ? entries_.size() : candidates.size();
+      for (int i = count - 1; i >= 0 && results.size() < maxEntries; i--)
+      {
+         HistoryEntry entry =
+               entries_.get(candidates == null ? i : candidates.get(i));
+         if (matches(entry.getCommand(), terms))
+            results.add(entry);
+      }
+      return results;
+   }
+
+   private static boolean matches(String command, ArrayList<String> terms)
+   {
+      for (String term : terms)
+      {
+         if (!command.contains(term))
+            return false;
+      }
+      return true;
+   }
+
+   // splits the query into terms in the same way as the server does
+   private static ArrayList<String> getSearchTerms(String query)
+   {
+      ArrayList<String> terms = new ArrayList<String>();
+      StringBuilder term = new StringBuilder();
+      for (int i = 0; i < query.length(); i++)
+      {
+         char c = query.charAt(i);
+         boolean space = Character.isSpace(c);
+         boolean punct = isPunctuation(c);
+         if (space || punct)
+         {
+            if (term.length() > 0)
+               terms.add(term.toString());
+            term.setLength(0);
+            if (punct)
+               terms.add(String.valueOf(c));
+         }
+         else
+         {
+            term.append(c);
+         }
+      }
+      if (term.length() > 0)
+         terms.add(term.toString());
+      return terms;
+   }
+
+   private static boolean isPunctuation(char c)
+   {
+      return c > ' ' && c < 127 && !Character.isLetterOrDigit(c);
+   }
+
+   private static HashSet<String> getTrigrams(String text)
+   {
+      HashSet<String> trigrams = new HashSet<String>();
+      for (int i = 0; i + 3 <= text.length(); i++)
+         trigrams.add(text.substring(i, i + 3));
+      return trigrams;
+   }
+
+   // intersects two ascending lists of ids
+   private static ArrayList<Integer> intersect(ArrayList<Integer> a,
+                                               ArrayList<Integer> b)
+   {
+      ArrayList<Integer> result = new ArrayList<Integer>();
+      int i = 0, j = 0;
+      while (i < a.size() && j < b.size())
+      {
+         int lhs = a.get(i);
+         int rhs = b.get(j);
+         if (lhs == rhs)
+         {
+            result.add(lhs);
+            i++;
+            j++;
+         }
+         else if (lhs < rhs)
+            i++;
+         else
+            j++;
+      }
+      return result;
+   }
+
+   private boolean loaded_ = false;
+   private long lastIndex_ = -1;
+   private ArrayList<HistoryEntry> pending_ = new ArrayList<HistoryEntry>();
+
+   // the entries, oldest first; ids are positions in this list
+   private final ArrayList<HistoryEntry> entries_ =
+         new ArrayList<HistoryEntry>();
+
+   // the (ascending) ids of the entries containing each trigram
+   private final HashMap<String, ArrayList<Integer>> postings_ =
+         new HashMap<String, ArrayList<Integer>>();
+}
@@ -37,6 +37,15 @@ public class HistoryEntry extends JavaScriptObject
       return new Double(getIndexNative()).longValue();
    }
    
+   /**
+    * @return The entry's index in the history archive, or -1 if unknown
+    *    (only entries that have just been added carry it).
+    */
+   public final long getArchiveIndex()
+   {
+      return new Double(getArchiveIndexNative()).longValue();
+   }
+   
    public final Date getTimestamp() 
    { 
       Double lastModified = new Double(getTimestampNative());
@@ -58,6 +67,10 @@ public class HistoryEntry extends JavaScriptObject
       return this.index;
    }-*/;
    
+   private final native double getArchiveIndexNative() /*-{
+      return this.archive_index === undefined ? -1 : this.archive_index;
+   }-*/;
+   
    private final native double getTimestampNative() /*-{
       return this.timestamp;
    }-*/;   
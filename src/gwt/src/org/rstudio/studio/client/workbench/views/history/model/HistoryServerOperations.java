@@ -58,6 +58,14 @@ public interface HistoryServerOperations
          long startIndex, // inclusive
          long endIndex,   // exclusive
          ServerRequestCallback<RpcObjectList<HistoryEntry>> requestCallback);
+
+   /*
+    *  getRecentHistoryArchive -- return the most recent history archive
+    *  items (up to max)
+    */
+   void getRecentHistoryArchive(
+         long maxItems,
+         ServerRequestCallback<RpcObjectList<HistoryEntry>> requestCallback);
    
   
    /*
@@ -70,6 +78,16 @@ public interface HistoryServerOperations
          String query,  
          long maxEntries,
          ServerRequestCallback<RpcObjectList<HistoryEntry>> requestCallback);
+
+   /*
+    *  searchHistoryArchive - as above, but only searching the items before
+    *  beforeIndex (exclusive)
+    */
+   void searchHistoryArchive(
+         String query,
+         long maxEntries,
+         long beforeIndex,
+         ServerRequestCallback<RpcObjectList<HistoryEntry>> requestCallback);
    
    /*
     *  searchHistoryArchiveByPrefix - search the history for items with the 
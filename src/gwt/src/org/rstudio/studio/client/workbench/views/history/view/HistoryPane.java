@@ -19,7 +19,6 @@ import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.Style.Unit;
-import com.google.gwt.dom.client.TableRowElement;
 import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.logical.shared.ValueChangeHandler;
 import com.google.gwt.event.shared.GwtEvent;
@@ -35,6 +34,7 @@ import org.rstudio.core.client.dom.DomUtils;
 import org.rstudio.core.client.events.HasSelectionCommitHandlers;
 import org.rstudio.core.client.events.SelectionCommitEvent;
 import org.rstudio.core.client.events.SelectionCommitHandler;
+import org.rstudio.core.client.metrics.Metrics;
 import org.rstudio.core.client.widget.*;
 import org.rstudio.studio.client.workbench.commands.Commands;
 import org.rstudio.studio.client.workbench.ui.WorkbenchPane;
@@ -155,6 +155,7 @@ public class HistoryPane extends WorkbenchPane
       recentScrollPanel_.getElement().getStyle().setProperty("overflowX", "hidden");
       recentScrollPanel_.setWidget(vpanel);
       commandList_.setOwningScrollPanel(recentScrollPanel_);
+      commandList_.setVirtualized(true);
 
       mainPanel_.add(recentScrollPanel_);
       mainPanel_.setWidgetTopBottom(recentScrollPanel_, 0, Unit.PX, 0, Unit.PX);
@@ -366,8 +367,10 @@ public class HistoryPane extends WorkbenchPane
    public void setRecentCommands(ArrayList<HistoryEntry> entries,
                                  boolean scrollToBottom)
    {
+      double startTime = Metrics.now();
       commandList_.clear();
       commandList_.addItems(entries, true);
+      Metrics.recordRender("history", startTime);
       if (scrollToBottom)
       {
          Scheduler.get().scheduleDeferred(new ScheduledCommand()
@@ -409,18 +412,18 @@ public class HistoryPane extends WorkbenchPane
 
    public void addRecentCommands(ArrayList<HistoryEntry> entries, boolean top)
    {
-      TableRowElement topRow = null;
-      if (top)
-         topRow = commandList_.getTopRow();
+      boolean wasEmpty = commandList_.getRowCount() == 0;
 
       commandList_.addItems(entries, top);
 
       if (top)
       {
-         if (topRow == null)
+         // keep the previously topmost entry in place
+         if (wasEmpty)
             recentScrollPanel_.scrollToBottom();
          else
-            recentScrollPanel_.setVerticalScrollPosition(topRow.getOffsetTop());
+            recentScrollPanel_.setVerticalScrollPosition(
+                  commandList_.getRowOffsetTop(entries.size()));
       }
       else
          recentScrollPanel_.onContentSizeChanged();
@@ -509,6 +512,14 @@ public class HistoryPane extends WorkbenchPane
          searchResults_.highlightRows(0, 1);
    }
 
+   public void addSearchResults(ArrayList<HistoryEntry> entries)
+   {
+      boolean wasEmpty = searchResults_.getRowCount() == 0;
+      searchResults_.addItems(entries, false);
+      if (wasEmpty && entries.size() > 0)
+         searchResults_.highlightRows(0, 1);
+   }
+
    public void dismissContext()
    {
       setMode(Mode.SearchResults);
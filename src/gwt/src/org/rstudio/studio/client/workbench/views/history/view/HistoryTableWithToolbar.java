@@ -66,6 +66,7 @@ public class HistoryTableWithToolbar extends Composite
       panel.add(scrollPanel_);
 
       historyTable_.setOwningScrollPanel(scrollPanel_);
+      historyTable_.setVirtualized(true);
 
       initWidget(panel);
    }
@@ -80,6 +81,11 @@ public class HistoryTableWithToolbar extends Composite
       historyTable_.addItems(entries, top);
    }
 
+   public int getRowCount()
+   {
+      return historyTable_.getRowCount();
+   }
+
    public ArrayList<String> getSelectedValues()
    {
       return historyTable_.getSelectedValues();
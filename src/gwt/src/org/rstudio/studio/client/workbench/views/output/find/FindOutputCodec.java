@@ -15,10 +15,13 @@
 package org.rstudio.studio.client.workbench.views.output.find;
 
 import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.TableCellElement;
 import com.google.gwt.dom.client.TableRowElement;
 import org.rstudio.core.client.CodeNavigationTarget;
 import org.rstudio.core.client.FilePosition;
+import org.rstudio.core.client.dom.DomUtils;
+import org.rstudio.core.client.dom.DomUtils.ElementPredicate;
 import org.rstudio.core.client.widget.HeaderBreaksItemCodec;
 import org.rstudio.studio.client.workbench.views.output.find.FindOutputResources.Styles;
 import org.rstudio.studio.client.workbench.views.output.find.model.FindResult;
@@ -41,14 +44,41 @@ public class FindOutputCodec
          TableCellElement td = Document.get().createTDElement();
          td.setClassName(styles_.overflowWarning());
          td.setColSpan(2);
-         td.setInnerText("More than 1000 matching lines were found. " +
-                         "Only the first 1000 lines are shown.");
+         td.setInnerText("More than 50,000 matching lines were found. " +
+                         "Only the first 50,000 lines are shown.");
          tr.appendChild(td);
          return tr;
       }
 
       TableRowElement tr = Document.get().createTRElement();
       tr.setAttribute(DATA_FILE, entry.getFile());
+
+      if (entry.isCollapsed())
+      {
+         // Stands in for all of the file's results; only the header that
+         // precedes it is visible
+         tr.setClassName(styles_.collapsedRow());
+         tr.setAttribute(DATA_COLLAPSED, entry.getCollapsedCount() + "");
+         TableCellElement td = Document.get().createTDElement();
+         td.setColSpan(2);
+         tr.appendChild(td);
+         return tr;
+      }
+
+      if (entry.isPending())
+      {
+         // The result hasn't been fetched yet
+         tr.setClassName(styles_.pendingRow());
+         TableCellElement td1 = Document.get().createTDElement();
+         td1.setClassName(styles_.line());
+         tr.appendChild(td1);
+         TableCellElement td2 = Document.get().createTDElement();
+         td2.setClassName(styles_.lineValue());
+         td2.setInnerText("...");
+         tr.appendChild(td2);
+         return tr;
+      }
+
       tr.setAttribute(DATA_LINE, entry.getLine() + "");
 
       TableCellElement td1 = Document.get().createTDElement();
@@ -77,12 +107,22 @@ public class FindOutputCodec
    @Override
    protected int addBreak(TableRowElement row)
    {
+      String file = row.getAttribute(DATA_FILE);
       TableRowElement tr = Document.get().createTRElement();
       tr.setClassName(styles_.headerRow());
+      tr.setAttribute(DATA_HEADER, file);
 
       TableCellElement td = Document.get().createTDElement();
       td.setColSpan(2);
-      td.setInnerText(row.getAttribute(DATA_FILE));
+      if (row.hasAttribute(DATA_COLLAPSED))
+      {
+         tr.addClassName(styles_.collapsedHeader());
+         td.setInnerText(file + " (" + row.getAttribute(DATA_COLLAPSED) + ")");
+      }
+      else
+      {
+         td.setInnerText(file);
+      }
       tr.appendChild(td);
 
       row.getParentElement().insertBefore(tr, row);
@@ -107,7 +147,24 @@ public class FindOutputCodec
    @Override
    public boolean isValueRow(TableRowElement row)
    {
-      return row.hasAttribute(DATA_FILE);
+      return row.hasAttribute(DATA_LINE);
+   }
+
+   /**
+    * Returns the file whose header contains the given element, or null if
+    * the element isn't part of a file header.
+    */
+   public String getHeaderFile(Element element)
+   {
+      Element row = DomUtils.findParentElement(element, new ElementPredicate()
+      {
+         @Override
+         public boolean test(Element el)
+         {
+            return el.hasAttribute(DATA_HEADER);
+         }
+      });
+      return row == null ? null : row.getAttribute(DATA_HEADER);
    }
 
    @Override
@@ -120,4 +177,6 @@ public class FindOutputCodec
 
    private static final String DATA_FILE = "data-file";
    private static final String DATA_LINE = "data-line";
+   private static final String DATA_COLLAPSED = "data-collapsed";
+   private static final String DATA_HEADER = "data-header";
 }
@@ -15,8 +15,10 @@
 package org.rstudio.studio.client.workbench.views.output.find;
 
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.NativeEvent;
-import com.google.gwt.dom.client.TableRowElement;
 import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
@@ -26,7 +28,7 @@ import com.google.gwt.user.client.ui.SimplePanel;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.inject.Inject;
 import org.rstudio.core.client.CodeNavigationTarget;
-import org.rstudio.core.client.dom.DomUtils;
+import org.rstudio.core.client.CommandWith2Args;
 import org.rstudio.core.client.events.EnsureVisibleEvent;
 import org.rstudio.core.client.events.HasSelectionCommitHandlers;
 import org.rstudio.core.client.events.SelectionCommitEvent;
@@ -36,6 +38,7 @@ import org.rstudio.core.client.widget.events.SelectionChangedHandler;
 import org.rstudio.studio.client.workbench.commands.Commands;
 import org.rstudio.studio.client.workbench.ui.WorkbenchPane;
 import org.rstudio.studio.client.workbench.views.output.find.model.FindResult;
+import org.rstudio.studio.client.workbench.views.output.find.model.FindResultGroups;
 
 import java.util.ArrayList;
 
@@ -79,8 +82,9 @@ public class FindOutputPane extends WorkbenchPane
       FindOutputResources resources = GWT.create(FindOutputResources.class);
       resources.styles().ensureInjected();
 
+      codec_ = new FindOutputCodec(resources);
       table_ = new FastSelectTable<FindResult, CodeNavigationTarget, Object>(
-            new FindOutputCodec(resources),
+            codec_,
             resources.styles().selectedRow(),
             true,
             false);
@@ -94,6 +98,14 @@ public class FindOutputPane extends WorkbenchPane
             if (event.getNativeButton() != NativeEvent.BUTTON_LEFT)
                return;
 
+            String file = codec_.getHeaderFile(
+                  Element.as(event.getNativeEvent().getEventTarget()));
+            if (file != null)
+            {
+               toggleCollapsed(file);
+               return;
+            }
+
             if (dblClick_.checkForDoubleClick(event.getNativeEvent()))
                fireSelectionCommitted();
          }
@@ -119,6 +131,16 @@ public class FindOutputPane extends WorkbenchPane
       statusPanel_.setSize("100%", "100%");
       scrollPanel_ = new ScrollPanel(table_);
       scrollPanel_.setSize("100%", "100%");
+      table_.setOwningScrollPanel(scrollPanel_);
+      table_.setVirtualized(true);
+      table_.setRenderedRangeCallback(new CommandWith2Args<Integer, Integer>()
+      {
+         @Override
+         public void execute(Integer first, Integer last)
+         {
+            requestPendingMatches(first, last);
+         }
+      });
       container_.setWidget(scrollPanel_);
       return container_;
    }
@@ -131,22 +153,86 @@ public class FindOutputPane extends WorkbenchPane
    }
 
    @Override
-   public void addMatches(ArrayList<FindResult> findResults)
+   public void addMatches(FindResultGroups groups)
    {
-      int matchesToAdd = Math.min(findResults.size(), MAX_COUNT - matchCount_);
+      for (int i = 0; i < groups.length(); i++)
+      {
+         int count = groups.getCount(i);
+         int matchesToAdd = Math.min(count, MAX_COUNT - matchCount_);
+
+         if (matchesToAdd > 0)
+            addGroupMatches(groups.getFile(i), matchesToAdd);
+
+         if (matchesToAdd != count)
+            showOverflow();
+      }
 
-      if (matchesToAdd > 0)
+      if (matchCount_ > 0 && container_.getWidget() != scrollPanel_)
+         container_.setWidget(scrollPanel_);
+
+      if (pendingCursor_ >= 0 && pendingCursor_ < matchCount_)
       {
-         matchCount_ += matchesToAdd;
-         
-         if (matchCount_ > 0 && container_.getWidget() != scrollPanel_)
-            container_.setWidget(scrollPanel_);
-            
-         table_.addItems(findResults.subList(0, matchesToAdd), false);
+         setCursor(pendingCursor_);
+         pendingCursor_ = -1;
+      }
+   }
+
+   private void addGroupMatches(String file, int count)
+   {
+      FileGroup group = groups_.isEmpty() ?
+                        null : groups_.get(groups_.size() - 1);
+      if (group == null || !group.file.equals(file))
+      {
+         group = new FileGroup(file, matchCount_);
+         groups_.add(group);
+      }
+
+      group.count += count;
+      matchCount_ += count;
+      for (int i = 0; i < count; i++)
+         matches_.add(null);
+
+      if (group.collapsed)
+      {
+         // the last row stands in for the group; update its count
+         table_.replaceItems(table_.getRowCount() - 1, 1,
+                             getGroupItems(group));
+      }
+      else
+      {
+         FindResult pending = FindResult.createPending(file);
+         ArrayList<FindResult> items = new ArrayList<FindResult>();
+         for (int i = 0; i < count; i++)
+            items.add(pending);
+         table_.addItems(items, false);
+      }
+   }
+
+   @Override
+   public void showMatches(int offset, ArrayList<FindResult> results)
+   {
+      int end = Math.min(offset + results.size(), matchCount_);
+      for (int i = offset; i < end; i++)
+         matches_.set(i, results.get(i - offset));
+
+      // replace the placeholders of the visible (not collapsed) matches
+      int row = 0;
+      for (FileGroup group : groups_)
+      {
+         if (group.first >= end)
+            break;
+
+         int groupEnd = group.first + group.count;
+         if (!group.collapsed && groupEnd > offset)
+         {
+            int from = Math.max(offset, group.first);
+            int to = Math.min(end, groupEnd);
+            table_.replaceItems(row + from - group.first,
+                                to - from,
+                                matches_.subList(from, to));
+         }
+         row += group.getRowCount();
       }
-      
-      if (matchesToAdd != findResults.size())
-         showOverflow();
    }
 
    @Override
@@ -154,12 +240,146 @@ public class FindOutputPane extends WorkbenchPane
    {
       context_.reset();
       table_.clear();
+      groups_.clear();
+      matches_.clear();
       overflow_ = false;
       matchCount_ = 0;
+      pendingCursor_ = -1;
       statusPanel_.setStatusText("");
       container_.setWidget(statusPanel_);
    }
-   
+
+   @Override
+   public void setMatchRequestHandler(
+                              CommandWith2Args<Integer, Integer> handler)
+   {
+      matchRequestHandler_ = handler;
+   }
+
+   @Override
+   public int getCursor()
+   {
+      if (matchCount_ == 0)
+         return 0;
+
+      int row = table_.getRowAtOffset(
+            scrollPanel_.getVerticalScrollPosition());
+      for (FileGroup group : groups_)
+      {
+         int rows = group.getRowCount();
+         if (row < rows)
+            return group.first + (group.collapsed ? 0 : row);
+         row -= rows;
+      }
+      return matchCount_ - 1;
+   }
+
+   @Override
+   public void setCursor(int index)
+   {
+      if (index >= matchCount_)
+      {
+         // wait for the match to arrive
+         pendingCursor_ = index;
+         return;
+      }
+
+      int row = 0;
+      for (FileGroup group : groups_)
+      {
+         if (index < group.first + group.count)
+         {
+            if (!group.collapsed)
+               row += index - group.first;
+            break;
+         }
+         row += group.getRowCount();
+      }
+
+      // scroll once the rows above have been laid out
+      final int targetRow = row;
+      Scheduler.get().scheduleDeferred(new ScheduledCommand()
+      {
+         @Override
+         public void execute()
+         {
+            scrollPanel_.setVerticalScrollPosition(
+                  table_.getRowOffsetTop(targetRow));
+         }
+      });
+   }
+
+   // asks for any rendered matches that haven't been fetched yet
+   private void requestPendingMatches(int firstRow, int lastRow)
+   {
+      if (matchRequestHandler_ == null)
+         return;
+
+      int first = -1;
+      int last = -1;
+      int row = 0;
+      for (FileGroup group : groups_)
+      {
+         if (row >= lastRow)
+            break;
+
+         int rows = group.getRowCount();
+         if (!group.collapsed && row + rows > firstRow)
+         {
+            int from = group.first + Math.max(0, firstRow - row);
+            int to = group.first + Math.min(rows, lastRow - row);
+            for (int i = from; i < to; i++)
+            {
+               if (matches_.get(i) == null)
+               {
+                  if (first < 0)
+                     first = i;
+                  last = i + 1;
+               }
+            }
+         }
+         row += rows;
+      }
+
+      if (first >= 0)
+         matchRequestHandler_.execute(first, last);
+   }
+
+   private void toggleCollapsed(String file)
+   {
+      int row = 0;
+      for (FileGroup group : groups_)
+      {
+         if (group.file.equals(file))
+         {
+            int rows = group.getRowCount();
+            group.collapsed = !group.collapsed;
+            table_.replaceItems(row, rows, getGroupItems(group));
+            return;
+         }
+         row += group.getRowCount();
+      }
+   }
+
+   // the table items that represent the given group
+   private ArrayList<FindResult> getGroupItems(FileGroup group)
+   {
+      ArrayList<FindResult> items = new ArrayList<FindResult>();
+      if (group.collapsed)
+      {
+         items.add(FindResult.createCollapsed(group.file, group.count));
+         return items;
+      }
+
+      FindResult pending = FindResult.createPending(group.file);
+      for (int i = group.first; i < group.first + group.count; i++)
+      {
+         FindResult match = matches_.get(i);
+         items.add(match == null ? pending : match);
+      }
+      return items;
+   }
+
    @Override
    public void showSearchCompleted()
    {
@@ -188,13 +408,7 @@ public class FindOutputPane extends WorkbenchPane
    @Override
    public void ensureSelectedRowIsVisible()
    {
-      ArrayList<TableRowElement> rows = table_.getSelectedRows();
-      if (rows.size() > 0)
-      {
-         DomUtils.ensureVisibleVert(scrollPanel_.getElement(),
-                                    rows.get(0),
-                                    20);
-      }
+      table_.ensureSelectionVisible(20);
    }
 
    @Override
@@ -239,6 +453,26 @@ public class FindOutputPane extends WorkbenchPane
       return addHandler(handler, SelectionCommitEvent.getType());
    }
 
+   // A run of consecutive matches from the same file
+   private static class FileGroup
+   {
+      public FileGroup(String file, int first)
+      {
+         this.file = file;
+         this.first = first;
+      }
+
+      public int getRowCount()
+      {
+         return collapsed ? 1 : count;
+      }
+
+      public final String file;
+      public final int first;
+      public int count;
+      public boolean collapsed;
+   }
+
    private class StatusPanel extends HorizontalCenterPanel
    {
       public StatusPanel()
@@ -259,6 +493,7 @@ public class FindOutputPane extends WorkbenchPane
    }
    
    private FastSelectTable<FindResult, CodeNavigationTarget, Object> table_;
+   private FindOutputCodec codec_;
    private FindResultContext context_;
    private final Commands commands_;
    private Label searchLabel_;
@@ -269,6 +504,13 @@ public class FindOutputPane extends WorkbenchPane
    private boolean overflow_ = false;
    private int matchCount_;
 
+   // the matches that have been fetched so far, indexed by their position
+   // in the results (null if not yet fetched)
+   private final ArrayList<FindResult> matches_ = new ArrayList<FindResult>();
+   private final ArrayList<FileGroup> groups_ = new ArrayList<FileGroup>();
+   private CommandWith2Args<Integer, Integer> matchRequestHandler_;
+   private int pendingCursor_ = -1;
+
    // This must be the same as MAX_COUNT in SessionFind.cpp
-   private static final int MAX_COUNT = 1000;
+   private static final int MAX_COUNT = 50000;
 }
@@ -21,6 +21,8 @@ import com.google.gwt.event.dom.client.HasClickHandlers;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.inject.Inject;
 import org.rstudio.core.client.CodeNavigationTarget;
+import org.rstudio.core.client.CommandWith2Args;
+import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.events.HasEnsureHiddenHandlers;
 import org.rstudio.core.client.events.HasSelectionCommitHandlers;
@@ -28,17 +30,21 @@ import org.rstudio.core.client.events.SelectionCommitEvent;
 import org.rstudio.core.client.events.SelectionCommitHandler;
 import org.rstudio.core.client.files.FileSystemItem;
 import org.rstudio.core.client.js.JsObject;
+import org.rstudio.core.client.jsonrpc.RpcObjectList;
 import org.rstudio.core.client.widget.OperationWithInput;
 import org.rstudio.core.client.widget.events.SelectionChangedEvent;
 import org.rstudio.core.client.widget.events.SelectionChangedHandler;
 import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.common.SimpleRequestCallback;
 import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
 import org.rstudio.studio.client.server.VoidServerRequestCallback;
 import org.rstudio.studio.client.workbench.WorkbenchContext;
 import org.rstudio.studio.client.workbench.WorkbenchView;
 import org.rstudio.studio.client.workbench.model.ClientState;
 import org.rstudio.studio.client.workbench.model.Session;
+import org.rstudio.studio.client.workbench.model.helper.IntStateValue;
 import org.rstudio.studio.client.workbench.model.helper.JSObjectStateValue;
 import org.rstudio.studio.client.workbench.views.BasePresenter;
 import org.rstudio.studio.client.workbench.views.output.find.events.FindInFilesEvent;
@@ -47,8 +53,10 @@ import org.rstudio.studio.client.workbench.views.output.find.events.FindResultEv
 import org.rstudio.studio.client.workbench.views.output.find.model.FindInFilesServerOperations;
 import org.rstudio.studio.client.workbench.views.output.find.model.FindInFilesState;
 import org.rstudio.studio.client.workbench.views.output.find.model.FindResult;
+import org.rstudio.studio.client.workbench.views.output.find.model.FindResultGroups;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 public class FindOutputPresenter extends BasePresenter
 {
@@ -56,8 +64,18 @@ public class FindOutputPresenter extends BasePresenter
                                     HasSelectionCommitHandlers<CodeNavigationTarget>,
                                     HasEnsureHiddenHandlers
    {
-      void addMatches(ArrayList<FindResult> findResults);
+      void addMatches(FindResultGroups groups);
+      void showMatches(int offset, ArrayList<FindResult> results);
       void clearMatches();
+
+      // The handler is invoked with a range [first, last) of matches that
+      // are being displayed but haven't been fetched
+      void setMatchRequestHandler(CommandWith2Args<Integer, Integer> handler);
+
+      // The index of the first visible match
+      int getCursor();
+      void setCursor(int index);
+
       void ensureVisible(boolean activate);
 
       HasClickHandlers getStopSearchButton();
@@ -113,6 +131,15 @@ public class FindOutputPresenter extends BasePresenter
          }
       });
 
+      view_.setMatchRequestHandler(new CommandWith2Args<Integer, Integer>()
+      {
+         @Override
+         public void execute(Integer first, Integer last)
+         {
+            fetchMatches(first, last);
+         }
+      });
+
       view_.getStopSearchButton().addClickHandler(new ClickHandler()
       {
          @Override
@@ -129,7 +156,7 @@ public class FindOutputPresenter extends BasePresenter
          {
             if (!event.getHandle().equals(currentFindHandle_))
                return;
-            view_.addMatches(event.getResults());
+            addMatches(event.getGroups());
             
             view_.ensureVisible(true);
          }
@@ -169,14 +196,45 @@ public class FindOutputPresenter extends BasePresenter
             return dialogState_.cast();
          }
       };
+
+      new IntStateValue(GROUP_FIND_IN_FILES, KEY_CURSOR,
+                        ClientState.TEMPORARY,
+                        session.getSessionInfo().getClientState())
+      {
+         @Override
+         protected void onInit(Integer value)
+         {
+            savedCursor_ = value == null ? 0 : value;
+         }
+
+         @Override
+         protected Integer getValue()
+         {
+            return view_.getCursor();
+         }
+      };
    }
 
    public void initialize(FindInFilesState state)
    {
       view_.ensureVisible(false);
 
+      if (state.isRestored())
+      {
+         // only the query survived the suspend; run it again
+         view_.setCursor(savedCursor_);
+         beginFind(state.getInput(),
+                   state.isRegex(),
+                   state.isIgnoreCase(),
+                   state.getPath(),
+                   state.getFilePatterns());
+         return;
+      }
+
       currentFindHandle_ = state.getHandle();
-      view_.addMatches(state.getResults().toArrayList());
+      resultsHandle_ = state.getHandle();
+      addMatches(state.getGroups());
+      view_.setCursor(savedCursor_);
       updateSearchLabel(state.getInput(), state.getPath(), state.isRegex());
 
       if (state.isRunning())
@@ -196,34 +254,15 @@ public class FindOutputPresenter extends BasePresenter
 
             stopAndClear();
 
-            FileSystemItem searchPath =
-                                      FileSystemItem.createDir(input.getPath());
-
             JsArrayString filePatterns = JsArrayString.createArray().cast();
             for (String pattern : input.getFilePatterns())
                filePatterns.push(pattern);
 
-            server_.beginFind(input.getQuery(),
-                              input.isRegex(),
-                              !input.isCaseSensitive(),
-                              searchPath,
-                              filePatterns,
-                              new SimpleRequestCallback<String>()
-                              {
-                                 @Override
-                                 public void onResponseReceived(String handle)
-                                 {
-                                    currentFindHandle_ = handle;
-                                    updateSearchLabel(input.getQuery(),
-                                                      input.getPath(),
-                                                      input.isRegex());
-                                    view_.setStopSearchButtonVisible(true);
-
-                                    super.onResponseReceived(handle);
-
-                                    view_.ensureVisible(true);
-                                 }
-                              });
+            beginFind(input.getQuery(),
+                      input.isRegex(),
+                      !input.isCaseSensitive(),
+                      input.getPath(),
+                      filePatterns);
          }
       });
 
@@ -251,6 +290,88 @@ public class FindOutputPresenter extends BasePresenter
       server_.clearFindResults(new VoidServerRequestCallback());
    }
 
+   private void beginFind(final String query,
+                          final boolean regex,
+                          boolean ignoreCase,
+                          final String path,
+                          JsArrayString filePatterns)
+   {
+      server_.beginFind(query,
+                        regex,
+                        ignoreCase,
+                        FileSystemItem.createDir(path),
+                        filePatterns,
+                        new SimpleRequestCallback<String>()
+                        {
+                           @Override
+                           public void onResponseReceived(String handle)
+                           {
+                              currentFindHandle_ = handle;
+                              resultsHandle_ = handle;
+                              updateSearchLabel(query, path, regex);
+                              view_.setStopSearchButtonVisible(true);
+
+                              super.onResponseReceived(handle);
+
+                              view_.ensureVisible(true);
+                           }
+                        });
+   }
+
+   private void addMatches(FindResultGroups groups)
+   {
+      for (int i = 0; i < groups.length(); i++)
+         matchCount_ += groups.getCount(i);
+      view_.addMatches(groups);
+   }
+
+   // fetches the pages of results that cover the range [first, last),
+   // skipping any parts that have already been requested
+   private void fetchMatches(int first, int last)
+   {
+      if (resultsHandle_ == null)
+         return;
+
+      for (int page = first / PAGE_SIZE; page * PAGE_SIZE < last; page++)
+      {
+         final int pageStart = page * PAGE_SIZE;
+         int pageEnd = Math.min(pageStart + PAGE_SIZE, matchCount_);
+         Integer requested = requestedPages_.get(page);
+         if (requested != null && requested >= pageEnd)
+            continue;
+
+         final int offset = requested == null ? pageStart : requested;
+         final int requestedPage = page;
+         final String handle = resultsHandle_;
+         requestedPages_.put(page, pageEnd);
+         server_.getFindResults(
+               handle,
+               offset,
+               pageEnd - offset,
+               new ServerRequestCallback<RpcObjectList<FindResult>>()
+               {
+                  @Override
+                  public void onResponseReceived(
+                                       RpcObjectList<FindResult> results)
+                  {
+                     if (results == null || !handle.equals(resultsHandle_))
+                        return;
+                     view_.showMatches(offset, results.toArrayList());
+                  }
+
+                  @Override
+                  public void onError(ServerError error)
+                  {
+                     // let the page be requested again the next time it's
+                     // displayed
+                     if (handle.equals(resultsHandle_))
+                        requestedPages_.remove(requestedPage);
+                     Debug.logError(error);
+                  }
+               });
+      }
+   }
+
    private void updateSearchLabel(String query, String path, boolean regex)
    {
       if (regex)
@@ -264,6 +385,9 @@ public class FindOutputPresenter extends BasePresenter
    private void stopAndClear()
    {
       stop();
+      resultsHandle_ = null;
+      matchCount_ = 0;
+      requestedPages_.clear();
       view_.clearMatches();
       view_.clearSearchLabel();
    }
@@ -281,6 +405,17 @@ public class FindOutputPresenter extends BasePresenter
 
    private String currentFindHandle_;
 
+   // the search whose results are displayed; unlike currentFindHandle_,
+   // this remains set after the search completes
+   private String resultsHandle_;
+   private int matchCount_;
+
+   // for each page of results that has been requested, the end of the
+   // range requested (a page may be requested again as it fills up)
+   private final HashMap<Integer, Integer> requestedPages_ =
+         new HashMap<Integer, Integer>();
+   private int savedCursor_;
+
    private FindInFilesDialog.State dialogState_;
 
    private final Display view_;
@@ -291,4 +426,7 @@ public class FindOutputPresenter extends BasePresenter
 
    private static final String GROUP_FIND_IN_FILES = "find-in-files";
    private static final String KEY_DIALOG_STATE = "dialog-state";
+   private static final String KEY_CURSOR = "cursor";
+
+   private static final int PAGE_SIZE = 100;
 }
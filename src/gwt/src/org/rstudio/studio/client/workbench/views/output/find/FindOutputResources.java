@@ -23,6 +23,9 @@ public interface FindOutputResources extends ClientBundle
    {
       String findOutput();
       String headerRow();
+      String collapsedHeader();
+      String collapsedRow();
+      String pendingRow();
       String line();
       String lineValue();
       String selectedRow();
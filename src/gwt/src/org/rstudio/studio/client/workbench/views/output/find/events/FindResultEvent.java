@@ -17,9 +17,7 @@ package org.rstudio.studio.client.workbench.views.output.find.events;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.event.shared.EventHandler;
 import com.google.gwt.event.shared.GwtEvent;
-import org.rstudio.core.client.jsonrpc.RpcObjectList;
-import org.rstudio.studio.client.workbench.views.output.find.model.FindResult;
-import java.util.ArrayList;
+import org.rstudio.studio.client.workbench.views.output.find.model.FindResultGroups;
 
 public class FindResultEvent extends GwtEvent<FindResultEvent.Handler>
 {
@@ -39,15 +37,15 @@ public class FindResultEvent extends GwtEvent<FindResultEvent.Handler>
          return this.handle;
       }-*/;
 
-      public native final RpcObjectList<FindResult> getResults() /*-{
-         return this.results;
+      public native final FindResultGroups getGroups() /*-{
+         return this.groups;
       }-*/;
    }
 
-   public FindResultEvent(String handle, ArrayList<FindResult> results)
+   public FindResultEvent(String handle, FindResultGroups groups)
    {
       handle_ = handle;
-      results_ = results;
+      groups_ = groups;
    }
 
    public String getHandle()
@@ -55,9 +53,9 @@ public class FindResultEvent extends GwtEvent<FindResultEvent.Handler>
       return handle_;
    }
 
-   public ArrayList<FindResult> getResults()
+   public FindResultGroups getGroups()
    {
-      return results_;
+      return groups_;
    }
 
    @Override
@@ -73,7 +71,7 @@ public class FindResultEvent extends GwtEvent<FindResultEvent.Handler>
    }
 
    private final String handle_;
-   private final ArrayList<FindResult> results_;
+   private final FindResultGroups groups_;
 
    public static final Type<Handler> TYPE = new Type<Handler>();
 }
@@ -16,6 +16,7 @@ package org.rstudio.studio.client.workbench.views.output.find.model;
 
 import com.google.gwt.core.client.JsArrayString;
 import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.core.client.jsonrpc.RpcObjectList;
 import org.rstudio.studio.client.server.*;
 import org.rstudio.studio.client.server.Void;
 
@@ -31,5 +32,12 @@ public interface FindInFilesServerOperations
    void stopFind(String findOperationHandle,
                  ServerRequestCallback<Void> requestCallback);
 
+   // Fetches the results in the range [offset, offset + count) of the
+   // given search; the response is null if the search is no longer current
+   void getFindResults(String findOperationHandle,
+                       int offset,
+                       int count,
+                       ServerRequestCallback<RpcObjectList<FindResult>> requestCallback);
+
    void clearFindResults(ServerRequestCallback<Void> requestCallback);
 }
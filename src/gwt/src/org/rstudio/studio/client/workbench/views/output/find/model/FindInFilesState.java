@@ -15,8 +15,8 @@
 package org.rstudio.studio.client.workbench.views.output.find.model;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
 import org.rstudio.core.client.StringUtil;
-import org.rstudio.core.client.jsonrpc.RpcObjectList;
 
 public class FindInFilesState extends JavaScriptObject
 {
@@ -34,14 +34,20 @@ public class FindInFilesState extends JavaScriptObject
    }-*/;
 
 
-   public native final RpcObjectList<FindResult> getResults() /*-{
-      return this.results;
+   public native final FindResultGroups getGroups() /*-{
+      return this.groups;
    }-*/;
 
    public native final boolean isRunning() /*-{
       return this.running;
    }-*/;
 
+   // True if the session was resumed since the search was run; only the
+   // query survives, so the search must be run again
+   public native final boolean isRestored() /*-{
+      return !!this.restored;
+   }-*/;
+
    public native final String getInput() /*-{
       return this.input;
    }-*/;
@@ -53,4 +59,12 @@ public class FindInFilesState extends JavaScriptObject
    public native final boolean isRegex() /*-{
       return this.regex;
    }-*/;
+
+   public native final boolean isIgnoreCase() /*-{
+      return !!this.ignoreCase;
+   }-*/;
+
+   public native final JsArrayString getFilePatterns() /*-{
+      return this.filePatterns || [];
+   }-*/;
 }
@@ -34,8 +34,37 @@ public class FindResult extends JavaScriptObject
       });
    }-*/;
 
+   // Stands in for a result that hasn't been fetched from the server yet
+   public static native FindResult createPending(String file) /*-{
+      return ({
+         file: file,
+         pending: true
+      });
+   }-*/;
+
+   // Stands in for all of a file's results while they are collapsed
+   public static native FindResult createCollapsed(String file,
+                                                   int count) /*-{
+      return ({
+         file: file,
+         collapsedCount: count
+      });
+   }-*/;
+
    protected FindResult() {}
 
+   public native final boolean isPending() /*-{
+      return !!this.pending;
+   }-*/;
+
+   public native final boolean isCollapsed() /*-{
+      return this.collapsedCount != null;
+   }-*/;
+
+   public native final int getCollapsedCount() /*-{
+      return this.collapsedCount || 0;
+   }-*/;
+
    public native final String getFile() /*-{
       return this.file;
    }-*/;
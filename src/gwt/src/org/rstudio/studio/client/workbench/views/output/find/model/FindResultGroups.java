@@ -0,0 +1,41 @@
+/*
+ * FindResultGroups.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.output.find.model;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * A compact index of a sequence of find results: each group is a run of
+ * consecutive results from the same file, described by the file and the
+ * number of results in the run.
+ */
+public class FindResultGroups extends JavaScriptObject
+{
+   protected FindResultGroups()
+   {
+   }
+
+   public native final int length() /*-{
+      return this.file.length;
+   }-*/;
+
+   public native final String getFile(int index) /*-{
+      return this.file[index];
+   }-*/;
+
+   public native final int getCount(int index) /*-{
+      return this.count[index];
+   }-*/;
+}
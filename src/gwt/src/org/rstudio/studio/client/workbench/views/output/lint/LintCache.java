@@ -0,0 +1,252 @@
+/*
+ * LintCache.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.output.lint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+
+import org.rstudio.studio.client.workbench.views.output.lint.model.LintItem;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Range;
+
+import com.google.gwt.core.client.JsArray;
+
+/**
+ * The lint most recently reported for a document, kept in step with the
+ * document as it is edited: items move along with the rows they were
+ * reported for, and the rows that have changed since are tracked so that
+ * only those need to be linted again.
+ */
+class LintCache
+{
+   // an inclusive range of rows
+   static class Rows
+   {
+      public Rows(int first, int last)
+      {
+         this.first = first;
+         this.last = last;
+      }
+
+      public int getCount()
+      {
+         return last - first + 1;
+      }
+
+      public int first;
+      public int last;
+   }
+
+   /**
+    * @return True iff the cache holds the lint for the whole document, as
+    *    of the last time it was reset.
+    */
+   public boolean isValid()
+   {
+      return valid_;
+   }
+
+   public void invalidate()
+   {
+      valid_ = false;
+      items_.clear();
+      dirty_.clear();
+   }
+
+   /**
+    * @return A number that changes whenever the document does, so that
+    *    callers can tell whether lint computed for some version of the
+    *    document still applies.
+    */
+   public int getVersion()
+   {
+      return version_;
+   }
+
+   /**
+    * @return The rows changed since the lint was computed, in increasing
+    *    order.
+    */
+   public ArrayList<Rows> getDirtyRows()
+   {
+      ArrayList<Rows> rows = new ArrayList<Rows>();
+      for (Rows dirty : dirty_)
+         rows.add(new Rows(dirty.first, dirty.last));
+      return rows;
+   }
+
+   public JsArray<LintItem> getLint()
+   {
+      JsArray<LintItem> lint = JsArray.createArray().cast();
+      for (LintItem item : items_)
+         lint.push(item);
+      return lint;
+   }
+
+   /**
+    * Replaces the cached lint with the lint for the whole document.
+    */
+   public void reset(JsArray<LintItem> lint)
+   {
+      items_.clear();
+      for (int i = 0; i < lint.length(); i++)
+         items_.add(lint.get(i));
+      sortItems();
+
+      dirty_.clear();
+      valid_ = true;
+   }
+
+   /**
+    * Replaces the cached lint for the given rows (which must cover all of
+    * the dirty rows) with the given lint.
+    */
+   public void update(ArrayList<Rows> rows, JsArray<LintItem> lint)
+   {
+      Iterator<LintItem> it = items_.iterator();
+      while (it.hasNext())
+      {
+         int row = it.next().getStartRow();
+         for (Rows linted : rows)
+         {
+            if (row >= linted.first && row <= linted.last)
+            {
+               it.remove();
+               break;
+            }
+         }
+      }
+
+      for (int i = 0; i < lint.length(); i++)
+         items_.add(lint.get(i));
+      sortItems();
+
+      dirty_.clear();
+   }
+
+   public void onDocumentChanged(AceDocumentChangeEventNative event)
+   {
+      version_++;
+      if (!valid_)
+         return;
+
+      Range range = event.getRange();
+      int row = range.getStart().getRow();
+      int count = range.getEnd().getRow() - row;
+      if (event.getAction().startsWith("insert"))
+         insertRows(row, count);
+      else
+         removeRows(row, count);
+   }
+
+   // the given number of rows were inserted after the given row (which was
+   // itself edited)
+   private void insertRows(int row, int count)
+   {
+      for (LintItem item : items_)
+      {
+         int startRow = item.getStartRow();
+         int endRow = item.getEndRow();
+         if (endRow > row)
+            item.setRows(startRow > row ? startRow + count : startRow,
+                         endRow + count);
+      }
+
+      for (Rows dirty : dirty_)
+      {
+         if (dirty.first > row)
+            dirty.first += count;
+         if (dirty.last > row)
+            dirty.last += count;
+      }
+
+      markDirty(row, row + count);
+   }
+
+   // the given number of rows following the given row were removed (and the
+   // row itself edited)
+   private void removeRows(int row, int count)
+   {
+      Iterator<LintItem> it = items_.iterator();
+      while (it.hasNext())
+      {
+         LintItem item = it.next();
+         int startRow = item.getStartRow();
+         if (startRow > row && startRow <= row + count)
+            it.remove();
+         else if (item.getEndRow() > row)
+            item.setRows(startRow > row ? startRow - count : startRow,
+                         removedRow(item.getEndRow(), row, count));
+      }
+
+      for (Rows dirty : dirty_)
+      {
+         dirty.first = removedRow(dirty.first, row, count);
+         dirty.last = removedRow(dirty.last, row, count);
+      }
+
+      markDirty(row, row);
+   }
+
+   // the new position of the given row after a removal
+   private static int removedRow(int target, int row, int count)
+   {
+      if (target > row + count)
+         return target - count;
+      else if (target > row)
+         return row;
+      else
+         return target;
+   }
+
+   private void markDirty(int first, int last)
+   {
+      // fold the rows into the sorted list of dirty ranges, merging any
+      // ranges they overlap or adjoin
+      int index = 0;
+      while (index < dirty_.size() && dirty_.get(index).last < first - 1)
+         index++;
+
+      Rows rows = new Rows(first, last);
+      while (index < dirty_.size() && dirty_.get(index).first <= last + 1)
+      {
+         Rows dirty = dirty_.remove(index);
+         rows.first = Math.min(rows.first, dirty.first);
+         rows.last = Math.max(rows.last, dirty.last);
+      }
+      dirty_.add(index, rows);
+   }
+
+   private void sortItems()
+   {
+      Collections.sort(items_, new Comparator<LintItem>()
+      {
+         @Override
+         public int compare(LintItem lhs, LintItem rhs)
+         {
+            if (lhs.getStartRow() != rhs.getStartRow())
+               return lhs.getStartRow() - rhs.getStartRow();
+            return lhs.getStartColumn() - rhs.getStartColumn();
+         }
+      });
+   }
+
+   private boolean valid_ = false;
+   private int version_ = 0;
+   private final ArrayList<LintItem> items_ = new ArrayList<LintItem>();
+   private final ArrayList<Rows> dirty_ = new ArrayList<Rows>();
+}
@@ -14,6 +14,8 @@
  */
 package org.rstudio.studio.client.workbench.views.output.lint;
 
+import java.util.ArrayList;
+
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.Invalidation;
 import org.rstudio.studio.client.RStudioGinjector;
@@ -29,15 +31,18 @@ import org.rstudio.studio.client.workbench.views.output.lint.model.LintServerOpe
 import org.rstudio.studio.client.workbench.views.presentation.events.SourceFileSaveCompletedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
+import org.rstudio.studio.client.workbench.views.source.editors.text.Scope;
 import org.rstudio.studio.client.workbench.views.source.editors.text.TextEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceEditorNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
 import org.rstudio.studio.client.workbench.views.source.editors.text.cpp.CppCompletionContext;
 import org.rstudio.studio.client.workbench.views.source.editors.text.cpp.CppCompletionOperation;
 import org.rstudio.studio.client.workbench.views.source.editors.text.cpp.CppCompletionRequest;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.model.CppDiagnostic;
 
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.JsArrayInteger;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.event.logical.shared.ValueChangeEvent;
@@ -120,6 +125,16 @@ public class LintManager
          }
       };
       
+      // Keep the cached lint in step with the document
+      docDisplay_.addDocumentChangedHandler(new DocumentChangedEvent.Handler()
+      {
+         @Override
+         public void onDocumentChanged(DocumentChangedEvent event)
+         {
+            lintCache_.onDocumentChanged(event.getEvent());
+         }
+      });
+      
       // Background linting
       docDisplay_.addValueChangeHandler(new ValueChangeHandler<Void>()
       {
@@ -216,11 +231,15 @@ public class LintManager
           target_.getTextFileType().isC())
          performCppLintServerRequest(context);
       else
-         performRLintServerRequest(context);
+         performRLintServerRequest(context, true);
    }
 
    private void performCppLintServerRequest(final LintContext context)
    {
+      // the C++ diagnostics and the lint for any embedded R code are
+      // requested at the same time, and shown together once both arrive
+      final LintCollector collector = new LintCollector(context, 2);
+      
       cppCompletionContext_.cppCompletionOperation(new CppCompletionOperation(){
 
          @Override
@@ -234,59 +253,63 @@ public class LintManager
                @Override
                public void onResponseReceived(JsArray<CppDiagnostic> diag)
                {
-                  if (context.token.isInvalid())
-                     return;
-                  
-                  final JsArray<LintItem> cppLint =
-                        CppCompletionRequest.asLintArray(diag);
-                  
-                  server_.lintRSourceDocument(
-                        target_.getId(),
-                        target_.getPath(),
-                        context.showMarkers,
-                        context.explicit,
-                        new ServerRequestCallback<JsArray<LintItem>>()
-                        {
-                           @Override
-                           public void onResponseReceived(JsArray<LintItem> rLint)
-                           {
-                              if (context.token.isInvalid())
-                                 return;
-                              
-                              JsArray<LintItem> allLint = JsArray.createArray().cast();
-                              for (int i = 0; i < cppLint.length(); i++)
-                                 allLint.push(cppLint.get(i));
-                              for (int i = 0; i < rLint.length(); i++)
-                                 allLint.push(rLint.get(i));
-                              showLint(context, allLint);
-                           }
-
-                           @Override
-                           public void onError(ServerError error)
-                           {
-                              Debug.logError(error);
-                           }
-                        });
+                  collector.add(CppCompletionRequest.asLintArray(diag));
                }
                
                @Override
                public void onError(ServerError error)
                {
                   Debug.logError(error);
+                  collector.fail();
                }
             });
          } 
       });
+      
+      server_.lintRSourceDocument(
+            target_.getId(),
+            target_.getPath(),
+            context.showMarkers,
+            context.explicit,
+            null,
+            new ServerRequestCallback<JsArray<LintItem>>()
+            {
+               @Override
+               public void onResponseReceived(JsArray<LintItem> rLint)
+               {
+                  collector.add(rLint);
+               }
+
+               @Override
+               public void onError(ServerError error)
+               {
+                  Debug.logError(error);
+                  collector.fail();
+               }
+            });
    }
 
-   private void performRLintServerRequest(final LintContext context)
+   private void performRLintServerRequest(final LintContext context,
+                                          boolean incremental)
    {
-
+      final ArrayList<LintCache.Rows> rows = incremental ?
+            getRowsToLint(context) :
+            null;
+      
+      // nothing has changed since the last lint
+      if (rows != null && rows.isEmpty())
+      {
+         showLint(context, lintCache_.getLint());
+         return;
+      }
+      
+      final int version = lintCache_.getVersion();
       server_.lintRSourceDocument(
             target_.getId(),
             target_.getPath(),
             context.showMarkers,
             context.explicit,
+            rows == null ? null : asJsArray(rows),
             new ServerRequestCallback<JsArray<LintItem>>()
             {
                @Override
@@ -294,8 +317,35 @@ public class LintManager
                {
                   if (context.token.isInvalid())
                      return;
-
-                  showLint(context, lint);
+                  
+                  // the document changed while we were waiting, so the rows
+                  // of the lint may no longer line up with it; show it
+                  // anyway if we can, but don't keep it
+                  if (lintCache_.getVersion() != version)
+                  {
+                     if (rows == null)
+                        showLint(context, lint);
+                     return;
+                  }
+                  
+                  if (rows == null)
+                  {
+                     lintCache_.reset(lint);
+                     showLint(context, lint);
+                     return;
+                  }
+                  
+                  // a syntax error may just mean that a statement straddles
+                  // the edge of the rows we linted, so check the whole
+                  // document to be sure
+                  if (hasErrors(lint))
+                  {
+                     performRLintServerRequest(context, false);
+                     return;
+                  }
+                  
+                  lintCache_.update(rows, lint);
+                  showLint(context, lintCache_.getLint());
                }
 
                @Override
@@ -306,6 +356,161 @@ public class LintManager
             });
    }
    
+   // Returns the rows of the document that have changed since the cached
+   // lint was computed, widened to the top-level scopes they belong to, or
+   // null if the whole document should be linted.
+   private ArrayList<LintCache.Rows> getRowsToLint(LintContext context)
+   {
+      if (!lintCache_.isValid() || context.showMarkers || context.explicit)
+         return null;
+      
+      int lastRow = docDisplay_.getRowCount() - 1;
+      ArrayList<LintCache.Rows> scopes = new ArrayList<LintCache.Rows>();
+      addTopLevelScopes(docDisplay_.getScopeTree(), lastRow, scopes);
+      
+      ArrayList<LintCache.Rows> rows = new ArrayList<LintCache.Rows>();
+      int count = 0;
+      for (LintCache.Rows dirty : lintCache_.getDirtyRows())
+      {
+         LintCache.Rows widened = new LintCache.Rows(
+               getFirstRowOfScope(dirty.first, scopes),
+               getLastRowOfScope(Math.min(dirty.last, lastRow), lastRow, scopes));
+         
+         LintCache.Rows previous = rows.isEmpty() ?
+               null :
+               rows.get(rows.size() - 1);
+         if (previous != null && previous.last >= widened.first - 1)
+         {
+            count -= previous.getCount();
+            previous.last = Math.max(previous.last, widened.last);
+            count += previous.getCount();
+         }
+         else
+         {
+            rows.add(widened);
+            count += widened.getCount();
+         }
+      }
+      
+      // past a certain point it's simpler to lint the whole thing
+      if (count > (lastRow + 1) / 2)
+         return null;
+      
+      return rows;
+   }
+   
+   // Collects the rows spanned by the outermost brace scopes (e.g. function
+   // definitions), looking inside sections and chunks; these are linted as
+   // units. Rows between them are treated as a unit of their own.
+   private void addTopLevelScopes(JsArray<Scope> scopeTree,
+                                  int lastRow,
+                                  ArrayList<LintCache.Rows> scopes)
+   {
+      for (int i = 0; i < scopeTree.length(); i++)
+      {
+         Scope scope = scopeTree.get(i);
+         if (scope.isBrace())
+         {
+            Position end = scope.getEnd();
+            scopes.add(new LintCache.Rows(
+                  scope.getPreamble().getRow(),
+                  end == null ? lastRow : end.getRow()));
+         }
+         else
+         {
+            addTopLevelScopes(scope.getChildren(), lastRow, scopes);
+         }
+      }
+   }
+   
+   private int getFirstRowOfScope(int row, ArrayList<LintCache.Rows> scopes)
+   {
+      int first = 0;
+      for (LintCache.Rows scope : scopes)
+      {
+         if (scope.first > row)
+            break;
+         if (scope.last >= row)
+            return scope.first;
+         first = scope.last + 1;
+      }
+      return first;
+   }
+   
+   private int getLastRowOfScope(int row,
+                                 int lastRow,
+                                 ArrayList<LintCache.Rows> scopes)
+   {
+      for (LintCache.Rows scope : scopes)
+      {
+         if (scope.first > row)
+            return scope.first - 1;
+         if (scope.last >= row)
+            return scope.last;
+      }
+      return lastRow;
+   }
+   
+   private static JsArray<JsArrayInteger> asJsArray(
+         ArrayList<LintCache.Rows> rows)
+   {
+      JsArray<JsArrayInteger> result = JsArray.createArray().cast();
+      for (LintCache.Rows range : rows)
+      {
+         JsArrayInteger pair = JsArrayInteger.createArray().cast();
+         pair.push(range.first);
+         pair.push(range.last);
+         result.push(pair);
+      }
+      return result;
+   }
+   
+   private static boolean hasErrors(JsArray<LintItem> lint)
+   {
+      for (int i = 0; i < lint.length(); i++)
+         if ("error".equals(lint.get(i).getType()))
+            return true;
+      return false;
+   }
+   
+   // Gathers the lint from a number of concurrent requests, and shows it
+   // once they have all completed
+   private class LintCollector
+   {
+      public LintCollector(LintContext context, int count)
+      {
+         context_ = context;
+         pending_ = count;
+      }
+      
+      public void add(JsArray<LintItem> lint)
+      {
+         for (int i = 0; i < lint.length(); i++)
+            lint_.push(lint.get(i));
+         complete();
+      }
+      
+      public void fail()
+      {
+         failed_ = true;
+         complete();
+      }
+      
+      private void complete()
+      {
+         pending_--;
+         if (pending_ > 0 || failed_ || context_.token.isInvalid())
+            return;
+         
+         showLint(context_, lint_);
+      }
+      
+      private final LintContext context_;
+      private final JsArray<LintItem> lint_ = JsArray.createArray().cast();
+      private int pending_;
+      private boolean failed_ = false;
+   }
+   
    private void showLint(LintContext context,
                          JsArray<LintItem> lint)
    {
@@ -376,6 +581,7 @@ public class LintManager
    private final TextEditingTarget target_;
    private final DocDisplay docDisplay_;
    private final Invalidation invalidation_;
+   private final LintCache lintCache_ = new LintCache();
    
    private boolean explicit_;
    private boolean showMarkers_;
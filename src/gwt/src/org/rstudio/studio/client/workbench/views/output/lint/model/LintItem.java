@@ -66,6 +66,11 @@ public class LintItem extends JavaScriptObject
       return this["type"];
    }-*/;
    
+   public final native void setRows(int startRow, int endRow) /*-{
+      this["start.row"] = startRow;
+      this["end.row"] = endRow;
+   }-*/;
+   
    public final Range asRange()
    {
       return Range.fromPoints(
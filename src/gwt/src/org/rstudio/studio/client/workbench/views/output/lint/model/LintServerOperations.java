@@ -19,6 +19,7 @@ import org.rstudio.studio.client.workbench.snippets.model.SnippetData;
 import org.rstudio.studio.client.workbench.views.source.model.CppDiagnostic;
 
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.JsArrayInteger;
 
 public interface LintServerOperations
 {
@@ -26,6 +27,7 @@ public interface LintServerOperations
                             String documentPath,
                             boolean showMarkersPane,
                             boolean explicit,
+                            JsArray<JsArrayInteger> rows,
                             ServerRequestCallback<JsArray<LintItem>> requestCallback);
    
    void getCppDiagnostics(
@@ -112,8 +112,6 @@ public class Packages
                           GlobalDisplay globalDisplay,
                           OperationWithInput<PackageInstallRequest> operation);
       
-      void setPackageStatus(PackageStatus status);
-  
       void setObserver(PackagesDisplayObserver observer) ;
       void setProgress(boolean showProgress);
       
@@ -705,49 +703,26 @@ public class Packages
 
    public void onPackageStatusChanged(PackageStatusChangedEvent event)
    {
-      PackageStatus status = event.getPackageStatus();
-      view_.setPackageStatus(status);
-      
-      // also update the list of allPackages_
-      for (int i = 0; i<allPackages_.size(); i++)
+      setPackageStatus(event.getPackageStatus());
+   }
+   
+   private void setPackageStatus(PackageStatus status)
+   {
+      // only the rows of the packages that changed are redrawn
+      if (packagesIndex_.setLoaded(status.getName(),
+                                   status.getLib(),
+                                   status.isLoaded()))
       {
-         PackageInfo packageInfo = allPackages_.get(i);
-         if (packageInfo.getName().equals(status.getName()) &&
-             packageInfo.getLibrary().equals(status.getLib()))
-         {
-            allPackages_.set(i, status.isLoaded() ? packageInfo.asLoaded() :
-                                                    packageInfo.asUnloaded());
-         }
+         setViewPackageList();
       }
    }
    
    private void setViewPackageList()
    {
-      ArrayList<PackageInfo> packages = null;
-      
-      // apply filter (if any)
+      // apply filter (if any); prefix matches come first
+      ArrayList<PackageInfo> packages = packagesIndex_.filter(packageFilter_);
       if (packageFilter_.length() > 0)
       {
-         packages = new ArrayList<PackageInfo>();
-         
-         // first do prefix search
-         for (PackageInfo pkgInfo : allPackages_)
-         {
-            if (pkgInfo.getName().toLowerCase().startsWith(packageFilter_))
-               packages.add(pkgInfo);
-         }
-         
-         // then do contains search on name & desc
-         for (PackageInfo pkgInfo : allPackages_)
-         { 
-            if (pkgInfo.getName().toLowerCase().contains(packageFilter_) ||
-                pkgInfo.getDesc().toLowerCase().contains(packageFilter_))
-            {
-               if (!packages.contains(pkgInfo))
-                  packages.add(pkgInfo);
-            }
-         }
-
          // sort results by library (to preserve grouping)
          Collections.sort(packages, new Comparator<PackageInfo>()
                {
@@ -761,10 +736,6 @@ public class Packages
                   }
                });
       }
-      else
-      {
-         packages = allPackages_;
-      }
       
       view_.setPackageState(packratContext_, packages);
    }
@@ -795,7 +766,7 @@ public class Packages
                      PackageStatus pkgStatus = PackageStatus.create(packageName, 
                                                                     libName, 
                                                                     status);
-                     view_.setPackageStatus(pkgStatus);
+                     setPackageStatus(pkgStatus);
                   }
 
                   @Override
@@ -1222,11 +1193,11 @@ public class Packages
    private void setPackageState(PackageState newState)
    {
       // sort the packages
-      allPackages_ = new ArrayList<PackageInfo>();
+      ArrayList<PackageInfo> packages = new ArrayList<PackageInfo>();
       JsArray<PackageInfo> serverPackages = newState.getPackageList();
       for (int i = 0; i < serverPackages.length(); i++)
-         allPackages_.add(serverPackages.get(i));
-      Collections.sort(allPackages_, new Comparator<PackageInfo>() {
+         packages.add(serverPackages.get(i));
+      Collections.sort(packages, new Comparator<PackageInfo>() {
          public int compare(PackageInfo o1, PackageInfo o2)
          {
             // sort first by library, then by name
@@ -1250,7 +1221,7 @@ public class Packages
       getPackageNamesFromActions(newState.getSnapshotActions(),
                                  outOfSyncPackages);
       PackageLibraryType libraryType = PackageLibraryType.None;
-      for (PackageInfo pkgInfo: allPackages_)
+      for (PackageInfo pkgInfo: packages)
       {
          if (pkgInfo.getInPackratLibary() && 
              outOfSyncPackages.contains(pkgInfo.getName()))
@@ -1266,6 +1237,9 @@ public class Packages
          }
       }
       
+      // packages that are unchanged from the last state keep their rows
+      packagesIndex_.setPackages(packages);
+      
       packratContext_ = newState.getPackratContext();
       view_.setProgress(false);
       setViewPackageList();
@@ -1286,7 +1260,7 @@ public class Packages
    private final Display view_;
    private final PackagesServerOperations server_;
    private final PackratServerOperations packratServer_;
-   private ArrayList<PackageInfo> allPackages_ = new ArrayList<PackageInfo>();
+   private final PackagesIndex packagesIndex_ = new PackagesIndex();
    private PackratContext packratContext_;
    private String packageFilter_ = new String();
    private HandlerRegistration consolePromptHandlerReg_ = null;
@@ -0,0 +1,160 @@
+/*
+ * PackagesIndex.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.packages;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.rstudio.studio.client.workbench.views.packages.model.PackageInfo;
+
+/**
+ * Holds the installed packages, keyed by library and name, along with the
+ * lower case names and descriptions used to filter them.
+ *
+ * When the packages are replaced, those that haven't changed keep the
+ * objects they had before; a display can therefore tell which of its rows
+ * need to be redrawn by comparing the packages it has with the new ones.
+ */
+class PackagesIndex
+{
+   /**
+    * Replaces the packages with the given ones, in the order they're to be
+    * shown.
+    */
+   public void setPackages(List<PackageInfo> packages)
+   {
+      HashMap<String, Entry> previous = byKey_;
+      byKey_ = new HashMap<String, Entry>();
+      byName_.clear();
+      entries_.clear();
+
+      for (PackageInfo pkgInfo : packages)
+      {
+         String key = getKey(pkgInfo.getName(), pkgInfo.getLibrary());
+         String state = getState(pkgInfo);
+         Entry entry = previous.get(key);
+         if (entry == null || !entry.state.equals(state))
+            entry = new Entry(pkgInfo, state);
+         add(key, entry);
+      }
+   }
+
+   /**
+    * Marks the package as loaded (or unloaded); only one package of a given
+    * name can be loaded at a time, so any others of the same name are
+    * marked as unloaded.
+    *
+    * @return True if any of the packages changed.
+    */
+   public boolean setLoaded(String name, String library, boolean loaded)
+   {
+      ArrayList<Entry> entries = byName_.get(name);
+      if (entries == null)
+         return false;
+
+      boolean changed = false;
+      for (Entry entry : entries)
+      {
+         boolean isLoaded = loaded &&
+                            entry.pkgInfo.getLibrary().equals(library);
+         if (entry.pkgInfo.isLoaded() != isLoaded)
+         {
+            PackageInfo pkgInfo = isLoaded ? entry.pkgInfo.asLoaded() :
+                                             entry.pkgInfo.asUnloaded();
+            entry.pkgInfo = pkgInfo;
+            entry.state = getState(pkgInfo);
+            changed = true;
+         }
+      }
+      return changed;
+   }
+
+   /**
+    * @return The packages whose names start with the (lower case) filter,
+    *    followed by those whose names or descriptions otherwise contain it;
+    *    or all of the packages if the filter is empty.
+    */
+   public ArrayList<PackageInfo> filter(String filter)
+   {
+      ArrayList<PackageInfo> packages = new ArrayList<PackageInfo>();
+      if (filter.length() == 0)
+      {
+         for (Entry entry : entries_)
+            packages.add(entry.pkgInfo);
+         return packages;
+      }
+
+      ArrayList<PackageInfo> contains = new ArrayList<PackageInfo>();
+      for (Entry entry : entries_)
+      {
+         if (entry.name.startsWith(filter))
+            packages.add(entry.pkgInfo);
+         else if (entry.name.contains(filter) || entry.desc.contains(filter))
+            contains.add(entry.pkgInfo);
+      }
+      packages.addAll(contains);
+      return packages;
+   }
+
+   private void add(String key, Entry entry)
+   {
+      byKey_.put(key, entry);
+      entries_.add(entry);
+
+      String name = entry.pkgInfo.getName();
+      ArrayList<Entry> entries = byName_.get(name);
+      if (entries == null)
+      {
+         entries = new ArrayList<Entry>();
+         byName_.put(name, entries);
+      }
+      entries.add(entry);
+   }
+
+   private static String getKey(String name, String library)
+   {
+      return library + "/" + name;
+   }
+
+   // a serialization of all of the package's fields, used to tell whether
+   // it has changed
+   private static final native String getState(PackageInfo pkgInfo) /*-{
+      return JSON.stringify(pkgInfo);
+   }-*/;
+
+   private static class Entry
+   {
+      public Entry(PackageInfo pkgInfo, String state)
+      {
+         this.pkgInfo = pkgInfo;
+         this.state = state;
+         name = pkgInfo.getName().toLowerCase();
+         desc = pkgInfo.getDesc().toLowerCase();
+      }
+
+      public PackageInfo pkgInfo;
+      public String state;
+      public final String name;
+      public final String desc;
+   }
+
+   // the packages, in order
+   private final ArrayList<Entry> entries_ = new ArrayList<Entry>();
+
+   private HashMap<String, Entry> byKey_ = new HashMap<String, Entry>();
+   private final HashMap<String, ArrayList<Entry>> byName_ =
+         new HashMap<String, ArrayList<Entry>>();
+}
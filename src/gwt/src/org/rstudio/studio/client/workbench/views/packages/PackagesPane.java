@@ -20,6 +20,8 @@ import java.util.List;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.cellview.ImageButtonColumn;
 import org.rstudio.core.client.cellview.LinkColumn;
+import org.rstudio.core.client.cellview.ScrollingDataGrid;
+import org.rstudio.core.client.metrics.Metrics;
 import org.rstudio.core.client.theme.res.ThemeResources;
 import org.rstudio.core.client.widget.OperationWithInput;
 import org.rstudio.core.client.widget.SearchWidget;
@@ -39,7 +41,6 @@ import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallCo
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallOptions;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallRequest;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageLibraryUtils;
-import org.rstudio.studio.client.workbench.views.packages.model.PackageStatus;
 import org.rstudio.studio.client.workbench.views.packages.model.PackagesServerOperations;
 import org.rstudio.studio.client.workbench.views.packages.ui.InstallPackageDialog;
 import org.rstudio.studio.client.workbench.views.packages.ui.PackagesCellTableResources;
@@ -53,12 +54,13 @@ import com.google.gwt.core.shared.GWT;
 import com.google.gwt.dom.builder.shared.TableCellBuilder;
 import com.google.gwt.dom.builder.shared.TableRowBuilder;
 import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
 import com.google.gwt.event.logical.shared.ValueChangeEvent;
 import com.google.gwt.event.logical.shared.ValueChangeHandler;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.user.cellview.client.AbstractCellTable;
 import com.google.gwt.user.cellview.client.Column;
-import com.google.gwt.user.cellview.client.DataGrid;
 import com.google.gwt.user.cellview.client.DefaultCellTableBuilder;
 import com.google.gwt.user.cellview.client.HasKeyboardSelectionPolicy.KeyboardSelectionPolicy;
 import com.google.gwt.user.cellview.client.TextColumn;
@@ -68,6 +70,7 @@ import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.AbstractImagePrototype;
 import com.google.gwt.user.client.ui.LayoutPanel;
+import com.google.gwt.user.client.ui.ScrollPanel;
 import com.google.gwt.user.client.ui.SuggestOracle;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.gwt.view.client.ListDataProvider;
@@ -102,9 +105,23 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
    public void setPackageState(PackratContext packratContext, 
                                List<PackageInfo> packages)
    {
+      double startTime = Metrics.now();
+      
+      // the columns depend on whether Packrat mode is on, so the table only
+      // needs to be recreated when that changes; otherwise just the rows
+      // that changed are redrawn
+      boolean packratModeChanged = 
+            packratContext.isModeOn() != packratContext_.isModeOn();
       packratContext_ = packratContext;
-      packagesDataProvider_.setList(packages);
-      createPackagesTable();
+      if (packagesTable_ == null || packratModeChanged)
+      {
+         packagesDataProvider_.setList(packages);
+         createPackagesTable();
+      }
+      else
+      {
+         updatePackageList(packages);
+      }
 
       // show the bootstrap button if this state is eligible for Packrat but the
       // project isn't currently under Packrat control
@@ -117,6 +134,8 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
       
       // always show the separator before the packrat commands
       prePackratSeparator_.setVisible(true);
+      
+      Metrics.recordRender("packages", startTime);
    }
    
    @Override
@@ -178,52 +197,36 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
                                operation).showModal();
    }
    
-   @Override
-   public void setPackageStatus(PackageStatus status)
+   // Replaces the rows with the given packages, touching only those between
+   // the first and last packages that differ from the ones already shown
+   // (unchanged packages are the same objects as before).
+   private void updatePackageList(List<PackageInfo> packages)
    {
-      int row = packageRow(status.getName(), status.getLib()) ;
+      List<PackageInfo> rows = packagesDataProvider_.getList();
       
-      if (row != -1)
+      int start = 0;
+      while (start < rows.size() && start < packages.size() &&
+             rows.get(start) == packages.get(start))
       {
-         List<PackageInfo> packages = packagesDataProvider_.getList();
-        
-         packages.set(row, status.isLoaded() ? packages.get(row).asLoaded() :
-                                               packages.get(row).asUnloaded());
+         start++;
       }
       
-      // go through any duplicates to reconcile their status
-      List<PackageInfo> packages = packagesDataProvider_.getList();
-      for (int i=0; i<packages.size(); i++)
+      int end = rows.size();
+      int newEnd = packages.size();
+      while (end > start && newEnd > start &&
+             rows.get(end - 1) == packages.get(newEnd - 1))
       {
-         if (packages.get(i).getName().equals(status.getName()) &&
-             i != row)
-         {
-            packages.set(i, packages.get(i).asUnloaded());
-         }
+         end--;
+         newEnd--;
       }
-   }
-   
-   private int packageRow(String packageName, String packageLib)
-   {
-      // if we haven't retreived packages yet then return not found
-      if (packagesDataProvider_ == null)
-         return -1;
       
-      List<PackageInfo> packages = packagesDataProvider_.getList();
-      
-      // figure out which row of the table includes this package
-      int row = -1;
-      for (int i=0; i<packages.size(); i++)
-      {
-         PackageInfo packageInfo = packages.get(i);
-         if (packageInfo.getName().equals(packageName) &&
-             packageInfo.getLibrary().equals(packageLib))
-         {
-            row = i ;
-            break;
-         }
-      }
-      return row ;
+      int common = Math.min(end, newEnd) - start;
+      for (int i = start; i < start + common; i++)
+         rows.set(i, packages.get(i));
+      if (end > start + common)
+         rows.subList(start + common, end).clear();
+      else if (newEnd > start + common)
+         rows.addAll(start + common, packages.subList(start + common, newEnd));
    }
    
    @Override
@@ -356,8 +359,8 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
       {
          packagesTableContainer_.clear();
          actionCenter_ = null;
-         packagesTable_ = new DataGrid<PackageInfo>(
-            packagesDataProvider_.getList().size(), dataGridRes_);
+         packagesTable_ = new ScrollingDataGrid<PackageInfo>(
+            RENDER_INCREMENT, dataGridRes_, null);
       }
       catch (Exception e)
       {
@@ -502,6 +505,26 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
             PackageTableBuilder(packagesTable_));
       packagesTable_.setSkipRowHoverCheck(true);
       
+      // render more rows as the user scrolls towards the end of those
+      // rendered so far
+      packagesTable_.getScrollPanel().addScrollHandler(new ScrollHandler()
+      {
+         @Override
+         public void onScroll(ScrollEvent event)
+         {
+            ScrollPanel scrollPanel = packagesTable_.getScrollPanel();
+            int remaining = scrollPanel.getMaximumVerticalScrollPosition() -
+                            scrollPanel.getVerticalScrollPosition();
+            if (remaining < scrollPanel.getOffsetHeight() &&
+                packagesTable_.getPageSize() < 
+                   packagesDataProvider_.getList().size())
+            {
+               packagesTable_.setPageSize(
+                     packagesTable_.getPageSize() + RENDER_INCREMENT);
+            }
+         }
+      });
+      
       packagesTableContainer_.add(packagesTable_);
       layoutPackagesTable();
       
@@ -673,7 +696,7 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
       packagesTableContainer_.animate(ACTION_CENTER_ANIMATION_MS);
    }
    
-   private DataGrid<PackageInfo> packagesTable_;
+   private ScrollingDataGrid<PackageInfo> packagesTable_;
    private ListDataProvider<PackageInfo> packagesDataProvider_;
    private SearchWidget searchWidget_;
    private PackagesDisplayObserver observer_ ;
@@ -694,4 +717,7 @@ public class PackagesPane extends WorkbenchPane implements Packages.Display
    
    
    private final static int ACTION_CENTER_ANIMATION_MS = 250;
+   
+   // the number of rows rendered at a time
+   private final static int RENDER_INCREMENT = 200;
 }
@@ -0,0 +1,89 @@
+/*
+ * PlotCache.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.plots;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the images the server has rendered for the plots in the history,
+ * keyed by the plot's index and the size (and pixel ratio) it was rendered
+ * at. The images are strongly named, so once the browser has loaded one it
+ * can be shown again without a round trip; the entries are only valid for
+ * as long as the plots in the history stay as they are, so the cache must
+ * be cleared whenever they may have changed.
+ */
+class PlotCache
+{
+   /**
+    * @return The filename of the image rendered for the given plot at the
+    *    given size, or null if there is none.
+    */
+   public String get(int index, int width, int height, double pixelRatio)
+   {
+      return images_.get(getKey(index, width, height, pixelRatio));
+   }
+
+   public void put(int index,
+                   int width,
+                   int height,
+                   double pixelRatio,
+                   String filename)
+   {
+      images_.put(getKey(index, width, height, pixelRatio), filename);
+   }
+
+   public void clear()
+   {
+      images_.clear();
+      version_++;
+   }
+
+   /**
+    * @return A number that changes whenever the cache is cleared, so that
+    *    callers can tell whether an image requested earlier still belongs
+    *    in it.
+    */
+   public int getVersion()
+   {
+      return version_;
+   }
+
+   private static String getKey(int index,
+                                int width,
+                                int height,
+                                double pixelRatio)
+   {
+      return index + ":" + width + "x" + height + "@" + pixelRatio;
+   }
+
+   private int version_ = 0;
+
+   // the cached images, least recently used first
+   @SuppressWarnings("serial")
+   private final LinkedHashMap<String, String> images_ =
+         new LinkedHashMap<String, String>(16, 0.75f, true)
+   {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+      {
+         return size() > MAX_ENTRIES;
+      }
+   };
+
+   // the server only keeps the most recent of the images it renders for
+   // us, so there's no point in remembering many more than that
+   private static final int MAX_ENTRIES = 20;
+}
@@ -21,12 +21,14 @@ import com.google.gwt.event.logical.shared.HasResizeHandlers;
 import com.google.gwt.event.logical.shared.SelectionEvent;
 import com.google.gwt.event.logical.shared.SelectionHandler;
 import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.user.client.ui.Image;
 import com.google.gwt.user.client.ui.HasWidgets;
 import com.google.gwt.user.client.ui.Panel;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
 import org.rstudio.core.client.BrowseCap;
+import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.Point;
 import org.rstudio.core.client.Size;
 import org.rstudio.core.client.dom.WindowEx;
@@ -48,10 +50,15 @@ import org.rstudio.studio.client.server.VoidServerRequestCallback;
 import org.rstudio.studio.client.workbench.WorkbenchContext;
 import org.rstudio.studio.client.workbench.WorkbenchView;
 import org.rstudio.studio.client.workbench.commands.Commands;
+import org.rstudio.studio.client.workbench.events.BusyEvent;
+import org.rstudio.studio.client.workbench.events.BusyHandler;
+import org.rstudio.studio.client.workbench.events.WorkbenchMetricsChangedEvent;
+import org.rstudio.studio.client.workbench.events.WorkbenchMetricsChangedHandler;
 import org.rstudio.studio.client.workbench.exportplot.ExportPlotUtils;
 import org.rstudio.studio.client.workbench.exportplot.model.ExportPlotOptions;
 import org.rstudio.studio.client.workbench.exportplot.model.SavePlotAsImageContext;
 import org.rstudio.studio.client.workbench.model.Session;
+import org.rstudio.studio.client.workbench.model.WorkbenchMetrics;
 import org.rstudio.studio.client.workbench.prefs.model.UIPrefs;
 import org.rstudio.studio.client.workbench.views.BasePresenter;
 import org.rstudio.studio.client.workbench.views.console.events.ConsolePromptEvent;
@@ -152,6 +159,7 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
             @Override
             public void onManipulatorChanged(JSONObject values)
             { 
+               plotCache_.clear();
                server_.setManipulatorValues(values, 
                                             new ManipulatorRequestCallback()); 
             }           
@@ -172,6 +180,7 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
                   y *= (72.0 / 96.0);
                }
                
+               plotCache_.clear();
                server_.manipulatorPlotClicked(x, y, new ManipulatorRequestCallback());
             }   
          }
@@ -179,6 +188,38 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
       
       events.addHandler(DeferredInitCompletedEvent.TYPE, this);
       events.addHandler(PlotsZoomSizeChangedEvent.TYPE, this);
+
+      // running R code may add, remove, or draw on plots, so the cached
+      // images only hold until R is next busy; once it's done we can start
+      // caching again
+      events.addHandler(BusyEvent.TYPE, new BusyHandler()
+      {
+         @Override
+         public void onBusy(BusyEvent event)
+         {
+            busy_ = event.isBusy();
+            plotCache_.clear();
+            if (!busy_ && plotsState_ != null)
+               updatePlotCache(plotsState_);
+         }
+      });
+
+      // show the image we already have for the new size (if any) while the
+      // server renders the plot again
+      events.addHandler(WorkbenchMetricsChangedEvent.TYPE,
+                        new WorkbenchMetricsChangedHandler()
+      {
+         @Override
+         public void onWorkbenchMetricsChanged(WorkbenchMetricsChangedEvent event)
+         {
+            WorkbenchMetrics metrics = event.getWorkbenchMetrics();
+            deviceSize_ = new Size(metrics.getGraphicsWidth(),
+                                   metrics.getGraphicsHeight());
+            devicePixelRatio_ = metrics.getDevicePixelRatio();
+            if (plotsState_ != null)
+               showCachedPlot(plotsState_.getPlotIndex());
+         }
+      });
 }
    
    public void onPlotsChanged(PlotsChangedEvent event)
@@ -205,6 +246,11 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
          view_.showPlot(url);
       }
       
+      // remember the image, and get the neighbouring plots ready
+      plotsState_ = plotsState;
+      deviceSize_ = new Size(plotsState.getWidth(), plotsState.getHeight());
+      updatePlotCache(plotsState);
+      
       // activate the plots tab if requested
       if (plotsState.getActivatePlots())
          view_.bringToFront();
@@ -231,14 +277,16 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
    void onNextPlot()
    {
       view_.bringToFront();
-      setChangePlotProgress();
+      if (plotsState_ == null || !showCachedPlot(plotsState_.getPlotIndex() + 1))
+         setChangePlotProgress();
       server_.nextPlot(new PlotRequestCallback());
    }
 
    void onPreviousPlot()
    {
       view_.bringToFront();
-      setChangePlotProgress();
+      if (plotsState_ == null || !showCachedPlot(plotsState_.getPlotIndex() - 1))
+         setChangePlotProgress();
       server_.previousPlot(new PlotRequestCallback());
    }
    
@@ -258,6 +306,7 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
             public void execute(final ProgressIndicator indicator)
             {
                indicator.onProgress("Removing plot...");
+               plotCache_.clear();
                server_.removePlot(new VoidServerRequestCallback(indicator));
             }
          },
@@ -285,6 +334,7 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
             public void execute(final ProgressIndicator indicator)
             {
                indicator.onProgress("Clearing plots...");
+               plotCache_.clear();
                server_.clearPlots(new VoidServerRequestCallback(indicator));
             }
          },
@@ -504,6 +554,107 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
       }
    }
    
+   // Records the image just shown in the cache and asks the server to render
+   // the plots either side of it, so that stepping through the history can
+   // show them straight away.
+   private void updatePlotCache(PlotsState plotsState)
+   {
+      if (busy_)
+         return;
+
+      // the indexes of the plots change when any are removed
+      if (plotsState.getPlotCount() != plotCount_)
+      {
+         plotCache_.clear();
+         plotCount_ = plotsState.getPlotCount();
+      }
+
+      if (plotsState.getPlotCount() == 0 ||
+          plotsState.getFilename().startsWith("empty."))
+         return;
+
+      int index = plotsState.getPlotIndex();
+      plotCache_.put(index,
+                     plotsState.getWidth(),
+                     plotsState.getHeight(),
+                     getDevicePixelRatio(),
+                     plotsState.getFilename());
+
+      prefetchPlot(index + 1);
+      prefetchPlot(index - 1);
+   }
+
+   private void prefetchPlot(int index)
+   {
+      if (index < 0 || index >= plotCount_)
+         return;
+
+      final double pixelRatio = getDevicePixelRatio();
+      if (plotCache_.get(index,
+                         deviceSize_.width,
+                         deviceSize_.height,
+                         pixelRatio) != null)
+         return;
+
+      final int version = plotCache_.getVersion();
+      server_.prefetchPlot(index, new ServerRequestCallback<PlotsState>()
+      {
+         @Override
+         public void onResponseReceived(PlotsState image)
+         {
+            // ignore images of plots that may have changed since
+            if (image == null || busy_ || version != plotCache_.getVersion())
+               return;
+
+            plotCache_.put(image.getPlotIndex(),
+                           image.getWidth(),
+                           image.getHeight(),
+                           pixelRatio,
+                           image.getFilename());
+
+            // have the browser load it now so it can be shown at once
+            Image.prefetch(server_.getGraphicsUrl(image.getFilename()));
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            // not worth bothering the user about; we'll just have to wait
+            // for the plot when it's shown
+            Debug.logError(error);
+         }
+      });
+   }
+
+   // Shows the cached image of the given plot at the current size, if
+   // there is one.
+   private boolean showCachedPlot(int index)
+   {
+      if (busy_ || deviceSize_ == null || locator_.isActive())
+         return false;
+
+      String filename = plotCache_.get(index,
+                                       deviceSize_.width,
+                                       deviceSize_.height,
+                                       getDevicePixelRatio());
+      if (filename == null)
+         return false;
+
+      view_.showPlot(server_.getGraphicsUrl(filename));
+      return true;
+   }
+
+   // the pixel ratio the server renders plots at (see WorkbenchScreen)
+   private double getDevicePixelRatio()
+   {
+      if (devicePixelRatio_ > 0)
+         return devicePixelRatio_;
+      else if (BrowseCap.isMacintoshDesktop())
+         return BrowseCap.devicePixelRatio();
+      else
+         return 1.0;
+   }
+
    private void setChangePlotProgress()
    {
       if (!Desktop.isDesktop())
@@ -623,4 +774,12 @@ public class Plots extends BasePresenter implements PlotsChangedHandler,
    
    // size of most recently rendered plot
    Size plotSize_ = null;
+
+   // images of the plots in the history, and what they were rendered for
+   private final PlotCache plotCache_ = new PlotCache();
+   private PlotsState plotsState_ = null;
+   private int plotCount_ = 0;
+   private Size deviceSize_ = null;
+   private double devicePixelRatio_ = 0;
+   private boolean busy_ = false;
 }
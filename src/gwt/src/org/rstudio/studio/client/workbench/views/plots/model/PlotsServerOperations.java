@@ -37,6 +37,12 @@ public interface PlotsServerOperations
    void nextPlot(ServerRequestCallback<Void> requestCallback);
    void previousPlot(ServerRequestCallback<Void> requestCallback);
    
+   // renders an image of the plot at the given index in the history (at the
+   // current size) without making it the active plot; only the filename,
+   // size, and index of the result are set (null if there's no such plot)
+   void prefetchPlot(int index,
+                     ServerRequestCallback<PlotsState> requestCallback);
+   
    void removePlot(ServerRequestCallback<Void> requestCallback);
    
    void clearPlots(ServerRequestCallback<Void> requestCallback);
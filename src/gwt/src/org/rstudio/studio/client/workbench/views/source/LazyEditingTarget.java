@@ -0,0 +1,455 @@
+/*
+ * LazyEditingTarget.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source;
+
+import java.util.HashSet;
+
+import org.rstudio.core.client.command.AppCommand;
+import org.rstudio.core.client.events.EnsureHeightEvent;
+import org.rstudio.core.client.events.EnsureHeightHandler;
+import org.rstudio.core.client.events.EnsureVisibleEvent;
+import org.rstudio.core.client.events.EnsureVisibleHandler;
+import org.rstudio.core.client.files.FileSystemContext;
+import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.studio.client.common.ReadOnlyValue;
+import org.rstudio.studio.client.common.Value;
+import org.rstudio.studio.client.common.filetypes.FileType;
+import org.rstudio.studio.client.common.filetypes.TextFileType;
+import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.events.CollabEditStartParams;
+import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
+import org.rstudio.studio.client.workbench.views.source.model.SourcePosition;
+
+import com.google.gwt.event.logical.shared.CloseEvent;
+import com.google.gwt.event.logical.shared.CloseHandler;
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.gwt.event.shared.HandlerManager;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.resources.client.ImageResource;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.ui.HasValue;
+import com.google.gwt.user.client.ui.SimpleLayoutPanel;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.inject.Provider;
+
+/**
+ * Stands in for the editor of a saved, unmodified text document restored
+ * with the session, so that the editor (and its Ace instance) need only be
+ * created once the document is actually used. Until then it answers for the
+ * document from what's in the SourceDocument; anything else causes the
+ * real editor to be created (via the Hydrator), which is then put in the
+ * placeholder's tab and delegated to.
+ *
+ * Only the editor is deferred, not the document's contents: they still
+ * arrive with the session info and are held (in the SourceDocument) until
+ * the editor is created. Fetching them on demand would need the editor to
+ * be created asynchronously, and the EditingTarget interface (and its
+ * callers in Source) expect it synchronously.
+ */
+class LazyEditingTarget implements EditingTarget
+{
+   interface Hydrator
+   {
+      /**
+       * Creates the real editor for the placeholder and puts it in the
+       * placeholder's place.
+       */
+      EditingTarget hydrate(LazyEditingTarget placeholder);
+   }
+
+   /**
+    * @return True if the document can be restored lazily: that is, if it's
+    *    a text file on disk with no unsaved changes or collaborative
+    *    editing session.
+    */
+   public static boolean canRestoreLazily(SourceDocument document,
+                                          FileType type)
+   {
+      return type instanceof TextFileType &&
+             document.getPath() != null &&
+             !document.isDirty() &&
+             document.getCollabParams() == null;
+   }
+
+   public LazyEditingTarget(SourceDocument document,
+                            TextFileType type,
+                            Hydrator hydrator)
+   {
+      document_ = document;
+      type_ = type;
+      hydrator_ = hydrator;
+      name_ = new Value<String>(
+            FileSystemItem.getNameFromPath(document.getPath()));
+   }
+
+   public SourceDocument getDocument()
+   {
+      return document_;
+   }
+
+   public boolean isHydrated()
+   {
+      return target_ != null;
+   }
+
+   /**
+    * Called by the Hydrator once the real editor has been created.
+    */
+   public void setTarget(EditingTarget target)
+   {
+      target_ = target;
+      panel_.setWidget(target.asWidget());
+   }
+
+   private EditingTarget getTarget()
+   {
+      if (target_ == null)
+         hydrator_.hydrate(this);
+      return target_;
+   }
+
+   // Metadata, available without creating the editor ------------------------
+
+   @Override
+   public Widget asWidget()
+   {
+      return panel_;
+   }
+
+   @Override
+   public String getId()
+   {
+      return document_.getId();
+   }
+
+   @Override
+   public HasValue<String> getName()
+   {
+      return target_ != null ? target_.getName() : name_;
+   }
+
+   @Override
+   public String getTitle()
+   {
+      return getName().getValue();
+   }
+
+   @Override
+   public String getPath()
+   {
+      return target_ != null ? target_.getPath() : document_.getPath();
+   }
+
+   @Override
+   public String getContext()
+   {
+      return target_ != null ? target_.getContext() : null;
+   }
+
+   @Override
+   public ImageResource getIcon()
+   {
+      return target_ != null ? target_.getIcon() : type_.getDefaultIcon();
+   }
+
+   @Override
+   public String getTabTooltip()
+   {
+      return getPath();
+   }
+
+   @Override
+   public TextFileType getTextFileType()
+   {
+      return target_ != null ? target_.getTextFileType() : type_;
+   }
+
+   @Override
+   public String getExtendedFileType()
+   {
+      return target_ != null ? target_.getExtendedFileType() :
+                               document_.getExtendedType();
+   }
+
+   @Override
+   public ReadOnlyValue<Boolean> dirtyState()
+   {
+      return target_ != null ? target_.dirtyState() : dirtyState_;
+   }
+
+   @Override
+   public boolean isSaveCommandActive()
+   {
+      return target_ != null && target_.isSaveCommandActive();
+   }
+
+   @Override
+   public boolean onBeforeDismiss()
+   {
+      return target_ == null || target_.onBeforeDismiss();
+   }
+
+   @Override
+   public void onDismiss(int dismissType)
+   {
+      if (target_ != null)
+         target_.onDismiss(dismissType);
+   }
+
+   @Override
+   public void onDeactivate()
+   {
+      if (target_ != null)
+         target_.onDeactivate();
+   }
+
+   @Override
+   public void endDebugHighlighting()
+   {
+      if (target_ != null)
+         target_.endDebugHighlighting();
+   }
+
+   @Override
+   public void endCollabSession()
+   {
+      if (target_ != null)
+         target_.endCollabSession();
+   }
+
+   @Override
+   public void save(Command onCompleted)
+   {
+      // there's nothing to save until the document has been edited
+      if (target_ != null)
+         target_.save(onCompleted);
+      else if (onCompleted != null)
+         onCompleted.execute();
+   }
+
+   @Override
+   public HandlerRegistration addEnsureVisibleHandler(
+                                             EnsureVisibleHandler handler)
+   {
+      return handlers_.addHandler(EnsureVisibleEvent.TYPE, handler);
+   }
+
+   @Override
+   public HandlerRegistration addEnsureHeightHandler(
+                                             EnsureHeightHandler handler)
+   {
+      return handlers_.addHandler(EnsureHeightEvent.TYPE, handler);
+   }
+
+   @Override
+   public HandlerRegistration addCloseHandler(CloseHandler<Void> handler)
+   {
+      return handlers_.addHandler(CloseEvent.getType(), handler);
+   }
+
+   @Override
+   public void fireEvent(GwtEvent<?> event)
+   {
+      handlers_.fireEvent(event);
+   }
+
+   // Everything else needs the editor ---------------------------------------
+
+   @Override
+   public void adaptToExtendedFileType(String extendedType)
+   {
+      getTarget().adaptToExtendedFileType(extendedType);
+   }
+
+   @Override
+   public HashSet<AppCommand> getSupportedCommands()
+   {
+      return getTarget().getSupportedCommands();
+   }
+
+   @Override
+   public void manageCommands()
+   {
+      getTarget().manageCommands();
+   }
+
+   @Override
+   public boolean canCompilePdf()
+   {
+      return getTarget().canCompilePdf();
+   }
+
+   @Override
+   public void verifyCppPrerequisites()
+   {
+      getTarget().verifyCppPrerequisites();
+   }
+
+   @Override
+   public void focus()
+   {
+      getTarget().focus();
+   }
+
+   @Override
+   public void onActivate()
+   {
+      getTarget().onActivate();
+   }
+
+   @Override
+   public void onInitiallyLoaded()
+   {
+      getTarget().onInitiallyLoaded();
+   }
+
+   @Override
+   public void recordCurrentNavigationPosition()
+   {
+      getTarget().recordCurrentNavigationPosition();
+   }
+
+   @Override
+   public void navigateToPosition(SourcePosition position,
+                                  boolean recordCurrent)
+   {
+      getTarget().navigateToPosition(position, recordCurrent);
+   }
+
+   @Override
+   public void navigateToPosition(SourcePosition position,
+                                  boolean recordCurrent,
+                                  boolean highlightLine)
+   {
+      getTarget().navigateToPosition(position, recordCurrent, highlightLine);
+   }
+
+   @Override
+   public void restorePosition(SourcePosition position)
+   {
+      getTarget().restorePosition(position);
+   }
+
+   @Override
+   public SourcePosition currentPosition()
+   {
+      return getTarget().currentPosition();
+   }
+
+   @Override
+   public boolean isAtSourceRow(SourcePosition position)
+   {
+      return getTarget().isAtSourceRow(position);
+   }
+
+   @Override
+   public void forceLineHighlighting()
+   {
+      getTarget().forceLineHighlighting();
+   }
+
+   @Override
+   public void setCursorPosition(Position position)
+   {
+      getTarget().setCursorPosition(position);
+   }
+
+   @Override
+   public void ensureCursorVisible()
+   {
+      getTarget().ensureCursorVisible();
+   }
+
+   @Override
+   public Position search(String regex)
+   {
+      return getTarget().search(regex);
+   }
+
+   @Override
+   public Position search(Position startPos, String regex)
+   {
+      return getTarget().search(startPos, regex);
+   }
+
+   @Override
+   public void highlightDebugLocation(SourcePosition startPos,
+                                      SourcePosition endPos,
+                                      boolean executing)
+   {
+      getTarget().highlightDebugLocation(startPos, endPos, executing);
+   }
+
+   @Override
+   public void beginCollabSession(CollabEditStartParams params)
+   {
+      getTarget().beginCollabSession(params);
+   }
+
+   @Override
+   public void forceSaveCommandActive()
+   {
+      getTarget().forceSaveCommandActive();
+   }
+
+   @Override
+   public void saveWithPrompt(Command onCompleted, Command onCancelled)
+   {
+      getTarget().saveWithPrompt(onCompleted, onCancelled);
+   }
+
+   @Override
+   public void revertChanges(Command onCompleted)
+   {
+      getTarget().revertChanges(onCompleted);
+   }
+
+   @Override
+   public void initialize(SourceDocument document,
+                          FileSystemContext fileContext,
+                          FileType type,
+                          Provider<String> defaultNameProvider)
+   {
+      // placeholders are initialized by their constructor
+   }
+
+   @Override
+   public long getFileSizeLimit()
+   {
+      return getTarget().getFileSizeLimit();
+   }
+
+   @Override
+   public long getLargeFileSize()
+   {
+      return getTarget().getLargeFileSize();
+   }
+
+   @Override
+   public String getDefaultNamePrefix()
+   {
+      return getTarget().getDefaultNamePrefix();
+   }
+
+   private final SourceDocument document_;
+   private final TextFileType type_;
+   private final Hydrator hydrator_;
+   private final Value<String> name_;
+   private final Value<Boolean> dirtyState_ = new Value<Boolean>(false);
+   private final HandlerManager handlers_ = new HandlerManager(this);
+   private final SimpleLayoutPanel panel_ = new SimpleLayoutPanel();
+   private EditingTarget target_ = null;
+}
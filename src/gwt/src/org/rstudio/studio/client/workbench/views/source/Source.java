@@ -70,6 +70,7 @@ import org.rstudio.studio.client.common.GlobalProgressDelayer;
 import org.rstudio.studio.client.common.SimpleRequestCallback;
 import org.rstudio.studio.client.common.dependencies.DependencyManager;
 import org.rstudio.studio.client.common.filetypes.EditableFileType;
+import org.rstudio.studio.client.common.filetypes.FileType;
 import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
 import org.rstudio.studio.client.common.filetypes.TextFileType;
 import org.rstudio.studio.client.common.filetypes.events.OpenPresentationSourceFileEvent;
@@ -155,6 +156,7 @@ import org.rstudio.studio.client.workbench.views.source.model.SourcePosition;
 import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 
 public class Source implements InsertSourceHandler,
@@ -740,7 +742,7 @@ public class Source implements InsertSourceHandler,
                                       Command continuation)
                   {
                      view_.closeTab(
-                           editingTarget.asWidget(),
+                           getTabWidget(editingTarget),
                            false,
                            continuation);
                   }
@@ -803,6 +805,7 @@ public class Source implements InsertSourceHandler,
    {
       final JsArray<SourceDocument> docs =
             session.getSessionInfo().getSourceDocuments();
+      boolean restoredLazily = false;
 
       for (int i = 0; i < docs.length(); i++)
       {
@@ -821,6 +824,20 @@ public class Source implements InsertSourceHandler,
              (SourceWindowManager.isMainSourceWindow() && 
               !windowManager_.isSourceWindowOpen(docWindowId)))
          {
+            // the first tab is shown as soon as it's added, so it needs its
+            // editor straight away; the others get theirs once they're used
+            // (source windows restore a position in their initial document,
+            // so they create all of theirs up front)
+            FileType type = fileTypeRegistry_.getTypeByTypeName(doc.getType());
+            if (SourceWindowManager.isMainSourceWindow() &&
+                view_.getTabCount() > 0 &&
+                LazyEditingTarget.canRestoreLazily(doc, type))
+            {
+               addLazyTab(doc, (TextFileType) type);
+               restoredLazily = true;
+               continue;
+            }
+
             final EditingTarget editor = addTab(doc, true, OPEN_REPLAY);
             
             // if this is a source window, check to see if it was opened to
@@ -849,6 +866,11 @@ public class Source implements InsertSourceHandler,
             }
          }
       }
+
+      // as when every tab is created up front, leave the last one selected
+      // (unless the persisted active tab is selected later)
+      if (restoredLazily)
+         view_.selectTab(view_.getTabCount() - 1);
    }
    
    private void openEditPublishedDocs()
@@ -1256,7 +1278,7 @@ public class Source implements InsertSourceHandler,
             {
                if (firstTarget_ != null)
                {
-                  view_.selectTab(firstTarget_.asWidget());
+                  view_.selectTab(getTabWidget(firstTarget_));
                   firstTarget_.setCursorPosition(Position.create(0, 0));
                }
                
@@ -2141,9 +2163,9 @@ public class Source implements InsertSourceHandler,
    
    private EditingTarget getEditingTargetForId(String id)
    {
-      for (EditingTarget target : editors_)
-         if (id.equals(target.getId()))
-            return target;
+      for (int i = 0; i < editors_.size(); i++)
+         if (id.equals(editors_.get(i).getId()))
+            return getHydratedEditor(i);
 
       return null;
    }
@@ -2217,7 +2239,7 @@ public class Source implements InsertSourceHandler,
                   }
                   else
                   {
-                     view_.closeTab(target.asWidget(), false, continuation);
+                     view_.closeTab(getTabWidget(target), false, continuation);
                   }
                }
             });
@@ -2377,7 +2399,7 @@ public class Source implements InsertSourceHandler,
                else
                {
                   // untitled document -- just close the tab non-interactively
-                  view_.closeTab(saveTarget.asWidget(), false, continuation);
+                  view_.closeTab(getTabWidget(saveTarget), false, continuation);
                }
             }
          },
@@ -2676,7 +2698,7 @@ public class Source implements InsertSourceHandler,
                else
                {
                   view_.selectTab(i);
-                  editingTargetAction.execute(target);
+                  editingTargetAction.execute(getHydratedEditor(i));
                }
                return;
             }
@@ -2885,7 +2907,7 @@ public class Source implements InsertSourceHandler,
             view_.selectTab(i);
             pMruList_.get().add(thisPath);
             if (resultCallback != null)
-               resultCallback.onSuccess(target);
+               resultCallback.onSuccess(getHydratedEditor(i));
             return true;
          }
       }
@@ -3037,9 +3059,137 @@ public class Source implements InsertSourceHandler,
 
    private EditingTarget addTab(SourceDocument doc, Integer position, 
          int mode)
+   {
+      final EditingTarget target = createEditingTarget(doc);
+      final Widget widget = createWidget(target);
+
+      insertEditor(target, position);
+
+      view_.addTab(widget,
+                   target.getIcon(),
+                   target.getId(),
+                   target.getName().getValue(),
+                   target.getTabTooltip(), // used as tooltip, if non-null
+                   position,
+                   true);
+      fireDocTabsChanged();
+
+      addTabHandlers(target, widget);
+      
+      events_.fireEvent(new SourceDocAddedEvent(doc, mode));
+      
+      // adding a tab may enable commands that are only available when 
+      // multiple documents are open; if this is the second document, go check
+      if (editors_.size() == 2)
+         manageMultiTabCommands();
+      
+      // if the target had an editing session active, attempt to resume it
+      if (doc.getCollabParams() != null)
+         target.beginCollabSession(doc.getCollabParams());
+      
+      return target;
+   }
+
+   // adds a tab for a restored document without creating its editor, which
+   // is created when the document is first used (see hydrate); note that the
+   // document's contents are still sent with the session info and kept
+   // until then
+   private void addLazyTab(SourceDocument doc, TextFileType type)
+   {
+      LazyEditingTarget target = new LazyEditingTarget(doc, type, hydrator_);
+      Widget widget = target.asWidget();
+
+      insertEditor(target, null);
+
+      view_.addTab(widget,
+                   target.getIcon(),
+                   target.getId(),
+                   target.getName().getValue(),
+                   target.getTabTooltip(),
+                   null,
+                   false);
+      fireDocTabsChanged();
+
+      addTabHandlers(target, widget);
+
+      events_.fireEvent(new SourceDocAddedEvent(doc, OPEN_REPLAY));
+
+      if (editors_.size() == 2)
+         manageMultiTabCommands();
+   }
+
+   // creates the editor for a lazily restored document and puts it in the
+   // placeholder's tab
+   private EditingTarget hydrate(LazyEditingTarget placeholder)
+   {
+      EditingTarget target = createEditingTarget(placeholder.getDocument());
+      placeholder.setTarget(target);
+
+      // the placeholder's widget stays in the tab, holding the editor's
+      Widget widget = placeholder.asWidget();
+
+      int index = editors_.indexOf(placeholder);
+      if (index != -1)
+      {
+         editors_.set(index, target);
+         tabWidgets_.put(target, widget);
+      }
+      if (activeEditor_ == placeholder)
+         activeEditor_ = target;
+
+      // the editor may know better than the placeholder how to present the
+      // document (e.g. once it has detected its extended type)
+      view_.renameTab(widget,
+                      target.getIcon(),
+                      target.getName().getValue(),
+                      target.getPath());
+      addTabHandlers(target, widget);
+      fireDocTabsChanged();
+
+      return target;
+   }
+
+   // returns the editor in the given tab, first creating it if the tab's
+   // document was restored lazily
+   private EditingTarget getHydratedEditor(int index)
+   {
+      EditingTarget target = editors_.get(index);
+      if (target instanceof LazyEditingTarget)
+         target = hydrate((LazyEditingTarget) target);
+      return target;
+   }
+
+   // creates the editors of the lazily restored documents either side of
+   // the active one, so that switching to an adjacent tab is quick; they're
+   // created one at a time, while the user isn't switching tabs
+   private void hydrateNeighbors()
+   {
+      int active = view_.getActiveTabIndex();
+      if (active < 0)
+         return;
+
+      for (int index : new int[] { active + 1, active - 1 })
+      {
+         if (index >= 0 && index < editors_.size() &&
+             editors_.get(index) instanceof LazyEditingTarget)
+         {
+            getHydratedEditor(index);
+            hydrateNeighbors_.schedule(HYDRATE_NEIGHBORS_DELAY_MS);
+            return;
+         }
+      }
+   }
+
+   private Widget getTabWidget(EditingTarget target)
+   {
+      Widget widget = tabWidgets_.get(target);
+      return widget != null ? widget : target.asWidget();
+   }
+
+   private EditingTarget createEditingTarget(SourceDocument doc)
    {
       final String defaultNamePrefix = editingTargetSource_.getDefaultNamePrefix(doc);
-      final EditingTarget target = editingTargetSource_.getEditingTarget(
+      return editingTargetSource_.getEditingTarget(
             doc, fileContext_, new Provider<String>()
             {
                public String get()
@@ -3047,9 +3197,10 @@ public class Source implements InsertSourceHandler,
                   return getNextDefaultName(defaultNamePrefix);
                }
             });
-      
-      final Widget widget = createWidget(target);
+   }
 
+   private void insertEditor(EditingTarget target, Integer position)
+   {
       if (position == null)
       {
          editors_.add(target);
@@ -3069,16 +3220,10 @@ public class Source implements InsertSourceHandler,
          // add this tab in its "natural" position
          tabOrder_.add(position, position);
       }
+   }
 
-      view_.addTab(widget,
-                   target.getIcon(),
-                   target.getId(),
-                   target.getName().getValue(),
-                   target.getTabTooltip(), // used as tooltip, if non-null
-                   position,
-                   true);
-      fireDocTabsChanged();
-
+   private void addTabHandlers(final EditingTarget target, final Widget widget)
+   {
       target.getName().addValueChangeHandler(new ValueChangeHandler<String>()
       {
          public void onValueChange(ValueChangeEvent<String> event)
@@ -3116,19 +3261,6 @@ public class Source implements InsertSourceHandler,
             view_.closeTab(widget, false);
          }
       });
-      
-      events_.fireEvent(new SourceDocAddedEvent(doc, mode));
-      
-      // adding a tab may enable commands that are only available when 
-      // multiple documents are open; if this is the second document, go check
-      if (editors_.size() == 2)
-         manageMultiTabCommands();
-      
-      // if the target had an editing session active, attempt to resume it
-      if (doc.getCollabParams() != null)
-         target.beginCollabSession(doc.getCollabParams());
-      
-      return target;
    }
 
    private String getNextDefaultName(String defaultNamePrefix)
@@ -3230,6 +3362,7 @@ public class Source implements InsertSourceHandler,
    private void closeTabIndex(int idx, boolean closeDocument)
    {
       EditingTarget target = editors_.remove(idx);
+      tabWidgets_.remove(target);
 
       tabOrder_.remove(new Integer(idx));
       for (int i = 0; i < tabOrder_.size(); i++)
@@ -3354,8 +3487,9 @@ public class Source implements InsertSourceHandler,
 
       if (event.getSelectedItem() >= 0)
       {
-         activeEditor_ = editors_.get(event.getSelectedItem());
+         activeEditor_ = getHydratedEditor(event.getSelectedItem());
          activeEditor_.onActivate();
+         hydrateNeighbors_.schedule(HYDRATE_NEIGHBORS_DELAY_MS);
          
          // let any listeners know this tab was activated
          events_.fireEvent(new DocTabActivatedEvent(
@@ -3768,7 +3902,7 @@ public class Source implements InsertSourceHandler,
             suspendSourceNavigationAdding_ = true;
             try
             {
-               view_.selectTab(target.asWidget());
+               view_.selectTab(getTabWidget(target));
                target.restorePosition(navigation.getPosition());
             }
             finally
@@ -4138,7 +4272,7 @@ public class Source implements InsertSourceHandler,
          String editorPath = editors_.get(i).getPath();
          if (editorPath != null && editorPath.equals(path))
          {
-            onEditorLocated.execute(editors_.get(i));
+            onEditorLocated.execute(getHydratedEditor(i));
             break;
          }
       }
@@ -4152,7 +4286,7 @@ public class Source implements InsertSourceHandler,
          String editorId = editors_.get(i).getId();
          if (editorId != null && editorId.equals(id))
          {
-            onEditorLocated.execute(editors_.get(i));
+            onEditorLocated.execute(getHydratedEditor(i));
             break;
          }
       }
@@ -4313,6 +4447,29 @@ public class Source implements InsertSourceHandler,
    private static final String KEY_ACTIVETAB = "activeTab";
    private boolean initialized_;
    private Timer debugSelectionTimer_ = null;
+
+   // the widgets of the tabs whose editors were created lazily, which are
+   // the placeholders' rather than the editors' own
+   private final HashMap<EditingTarget, Widget> tabWidgets_ =
+         new HashMap<EditingTarget, Widget>();
+   private final LazyEditingTarget.Hydrator hydrator_ =
+         new LazyEditingTarget.Hydrator()
+   {
+      @Override
+      public EditingTarget hydrate(LazyEditingTarget placeholder)
+      {
+         return Source.this.hydrate(placeholder);
+      }
+   };
+   private final Timer hydrateNeighbors_ = new Timer()
+   {
+      @Override
+      public void run()
+      {
+         hydrateNeighbors();
+      }
+   };
+   private static final int HYDRATE_NEIGHBORS_DELAY_MS = 1000;
    
    private final SourceWindowManager windowManager_;
 
@@ -1325,6 +1325,12 @@ public class AceEditor implements DocDisplay,
       return getSession().getTextRange(range);
    }
 
+   @Override
+   public int positionToIndex(Position position)
+   {
+      return getSession().getDocument().positionToIndex(position, 0);
+   }
+
    @Override
    public Anchor createAnchor(Position pos)
    {
@@ -324,6 +324,7 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
                             Position end);
 
    String getTextForRange(Range range);
+   int positionToIndex(Position position);
    
    void tokenizeDocument();
    void retokenizeDocument();
@@ -27,8 +27,11 @@ import org.rstudio.studio.client.server.Void;
 import org.rstudio.studio.client.workbench.views.source.editors.text.spelling.CheckSpelling;
 import org.rstudio.studio.client.workbench.views.source.editors.text.spelling.InitialProgressDialog;
 import org.rstudio.studio.client.workbench.views.source.editors.text.spelling.SpellingDialog;
+import org.rstudio.studio.client.workbench.views.source.editors.text.spelling.SpellingPrefetcher;
 import org.rstudio.studio.client.workbench.views.source.model.DocUpdateSentinel;
 
+import com.google.gwt.event.dom.client.FocusEvent;
+import com.google.gwt.event.dom.client.FocusHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
 
 public class TextEditingTargetSpelling implements SpellChecker.Context
@@ -39,7 +42,17 @@ public class TextEditingTargetSpelling implements SpellChecker.Context
       docDisplay_ = docDisplay;
       docUpdateSentinel_ = docUpdateSentinel;
       spellChecker_ = new SpellChecker(this);
+      prefetcher_ = new SpellingPrefetcher(spellChecker_, docDisplay_);
       
+      // warm up the spelling cache once the document is first used
+      releaseOnDismiss(docDisplay_.addFocusHandler(new FocusHandler()
+      {
+         @Override
+         public void onFocus(FocusEvent event)
+         {
+            prefetcher_.start();
+         }
+      }));
    }
    
    public void checkSpelling()
@@ -116,6 +129,7 @@ public class TextEditingTargetSpelling implements SpellChecker.Context
    
    void onDismiss()
    {
+      prefetcher_.stop();
       while (releaseOnDismiss_.size() > 0)
          releaseOnDismiss_.remove(0).removeHandler();
    }
@@ -134,6 +148,7 @@ public class TextEditingTargetSpelling implements SpellChecker.Context
    private final DocDisplay docDisplay_;
    private final DocUpdateSentinel docUpdateSentinel_;
    private final SpellChecker spellChecker_;
+   private final SpellingPrefetcher prefetcher_;
  
    private ArrayList<HandlerRegistration> releaseOnDismiss_ = 
                                     new ArrayList<HandlerRegistration>();
@@ -31,4 +31,19 @@ public class AceDocumentChangeEventNative extends JavaScriptObject
    public final native String getText() /*-{
       return this.data.text;
    }-*/;
+
+   // the number of characters removed by a 'removeText' or 'removeLines'
+   // change, including line terminators
+   public final native int getRemovedLength() /*-{
+      var data = this.data;
+      if (data.action === "removeText")
+         return data.text.length;
+      if (data.action !== "removeLines")
+         return 0;
+
+      var length = 0;
+      for (var i = 0; i < data.lines.length; i++)
+         length += data.lines[i].length + data.nl.length;
+      return length;
+   }-*/;
 }
@@ -0,0 +1,153 @@
+/*
+ * SpellingPrefetcher.java
+ *
+ * Copyright (C) 2009-12 by RStudio, Inc.
+ *
+ * Unless you have received this program directly from RStudio pursuant
+ * to the terms of a commercial license agreement with RStudio, then
+ * this program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text.spelling;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.rstudio.core.client.Debug;
+import org.rstudio.studio.client.common.spelling.SpellChecker;
+import org.rstudio.studio.client.common.spelling.model.SpellCheckerResult;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Range;
+
+import com.google.gwt.user.client.Timer;
+
+/**
+ * Checks the spelling of the words in a document in the background, so that
+ * the results are already cached by the time they are needed. The words
+ * that are on screen are checked first; the rest of the document is then
+ * checked a slice at a time, pausing between slices so as not to get in the
+ * way of anything else.
+ */
+public class SpellingPrefetcher
+{
+   public SpellingPrefetcher(SpellChecker spellChecker, DocDisplay docDisplay)
+   {
+      spellChecker_ = spellChecker;
+      docDisplay_ = docDisplay;
+   }
+
+   public void start()
+   {
+      if (started_ || !docDisplay_.getFileType().canCheckSpelling())
+         return;
+      started_ = true;
+
+      // the visible rows first, then the whole document from the top
+      int firstRow = docDisplay_.getFirstVisibleRow();
+      int lastRow = docDisplay_.getLastVisibleRow();
+      end_ = Position.create(lastRow + 1, 0);
+      checkSlice(Position.create(firstRow, 0));
+   }
+
+   public void stop()
+   {
+      stopped_ = true;
+      timer_.cancel();
+   }
+
+   private void checkSlice(Position start)
+   {
+      if (stopped_)
+         return;
+
+      Iterable<Range> wordSource = docDisplay_.getWords(
+            docDisplay_.getFileType().getTokenPredicate(),
+            docDisplay_.getFileType().getCharPredicate(),
+            start,
+            end_);
+
+      ArrayList<String> words = new ArrayList<String>();
+      HashSet<String> seen = new HashSet<String>();
+      Position next = null;
+      int scanned = 0;
+      for (Range r : wordSource)
+      {
+         if (scanned++ == MAX_SLICE_WORDS)
+         {
+            next = r.getStart();
+            break;
+         }
+
+         if (r.getEnd().getColumn() - r.getStart().getColumn() > 250)
+            continue;
+
+         String word = docDisplay_.getTextForRange(r);
+         if (seen.add(word))
+            words.add(word);
+      }
+
+      // once done with the visible rows, move on to the whole document;
+      // once done with that, stop after this slice
+      if (next == null && end_ != null)
+      {
+         end_ = null;
+         next = Position.create(0, 0);
+      }
+
+      final Position resumeAt = next;
+      spellChecker_.checkSpelling(words,
+                                  new ServerRequestCallback<SpellCheckerResult>()
+      {
+         @Override
+         public void onResponseReceived(SpellCheckerResult result)
+         {
+            if (resumeAt != null)
+               scheduleSlice(resumeAt);
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            Debug.logError(error);
+            stop();
+         }
+      });
+   }
+
+   private void scheduleSlice(Position start)
+   {
+      if (stopped_)
+         return;
+      next_ = start;
+      timer_.schedule(IDLE_DELAY_MS);
+   }
+
+   private final Timer timer_ = new Timer()
+   {
+      @Override
+      public void run()
+      {
+         checkSlice(next_);
+      }
+   };
+
+   private final SpellChecker spellChecker_;
+   private final DocDisplay docDisplay_;
+
+   private boolean started_ = false;
+   private boolean stopped_ = false;
+   private Position next_;
+   private Position end_;
+
+   // the number of words looked at in each slice, and the time between
+   // slices
+   private static final int MAX_SLICE_WORDS = 500;
+   private static final int IDLE_DELAY_MS = 250;
+}
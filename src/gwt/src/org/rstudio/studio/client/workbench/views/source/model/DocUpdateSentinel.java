@@ -29,8 +29,10 @@ import org.rstudio.core.client.Barrier.Token;
 import org.rstudio.core.client.CommandWithArg;
 import org.rstudio.core.client.DebouncedCommand;
 import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.js.JsObject;
 import org.rstudio.core.client.patch.SubstringDiff;
+import org.rstudio.core.client.patch.TextChangeLog;
 import org.rstudio.core.client.widget.Operation;
 import org.rstudio.core.client.widget.ProgressIndicator;
 import org.rstudio.studio.client.application.events.EventBus;
@@ -44,7 +46,10 @@ import org.rstudio.studio.client.workbench.events.LastChanceSaveHandler;
 import org.rstudio.studio.client.workbench.model.ChangeTracker;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
 import org.rstudio.studio.client.workbench.views.source.editors.text.Fold;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceDocumentChangeEventNative;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Range;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.VimMarks;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.FoldChangeEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.SourceOnSaveChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.rmd.ChunkDefinition;
@@ -52,12 +57,14 @@ import org.rstudio.studio.client.workbench.views.source.events.SaveFailedEvent;
 import org.rstudio.studio.client.workbench.views.source.events.SaveFileEvent;
 import org.rstudio.studio.client.workbench.views.source.events.SaveInitiatedEvent;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
 public class DocUpdateSentinel
       implements ValueChangeHandler<Void>,
-      FoldChangeEvent.Handler
+      FoldChangeEvent.Handler,
+      DocumentChangedEvent.Handler
 {
    private class ReopenFileCallback extends ServerRequestCallback<SourceDocument>
    {
@@ -76,6 +83,10 @@ public class DocUpdateSentinel
       {
          sourceDoc_ = response;
          docDisplay_.setCode(sourceDoc_.getContents(), true);
+         
+         // setCode normalizes the contents, so we can't assume the editor
+         // now matches the server's copy
+         changeLog_.invalidate();
          dirtyState_.markClean();
 
          if (progress_ != null)
@@ -128,6 +139,7 @@ public class DocUpdateSentinel
 
       docDisplay_.addValueChangeHandler(this);
       docDisplay_.addFoldChangeHandler(this);
+      docDisplay_.addDocumentChangedHandler(this);
 
       // Web only
       closeHandlerReg_ = Window.addWindowClosingHandler(new ClosingHandler()
@@ -317,6 +329,7 @@ public class DocUpdateSentinel
          // indicators, even if present, will report it)
          Debug.log("Exception occurred during save: ");
          Debug.logException(ex);
+         changeLog_.invalidate();
          
          // report error to progress indicator if present
          if (progress != null)
@@ -370,12 +383,39 @@ public class DocUpdateSentinel
       JsArray<ChunkDefinition> oldChunkDefs = 
             sourceDoc_.getNotebookDoc().getChunkDefs();
       
+      // If we know exactly which edits were made since the server's copy
+      // was last updated, send just those; otherwise fall back to a single
+      // diff between the old and new contents. The hunks are relative to
+      // the last contents we sent, so they're only usable when no other save
+      // is outstanding.
+      ArrayList<TextChangeLog.Hunk> hunks = null;
+      String checksum = null;
+      if (changeLog_.isValid() && savesInFlight_ == 0)
+      {
+         hunks = changeLog_.getHunks();
+         checksum = StringUtil.crc32Utf8(newContents);
+      }
+      
+      // subsequent edits are relative to the contents we're about to send
+      changeLog_.reset();
+
       //String patch = DiffMatchPatch.diff(oldContents, newContents);
-      SubstringDiff diff = new SubstringDiff(oldContents, newContents);
+      SubstringDiff diff;
+      boolean unchanged;
+      if (hunks != null && checksum != null)
+      {
+         diff = null;
+         unchanged = hunks.isEmpty() || newContents.equals(oldContents);
+      }
+      else
+      {
+         diff = new SubstringDiff(oldContents, newContents);
+         unchanged = diff.isEmpty();
+      }
 
       // Don't auto-save when there are no changes. In addition to being
       // wasteful, it causes the server to think the document is dirty.
-      if (path == null && fileType == null && diff.isEmpty()
+      if (path == null && fileType == null && unchanged
           && foldSpec.equals(oldFoldSpec) 
           && (newChunkDefs == null || 
               ChunkDefinition.equalTo(newChunkDefs, oldChunkDefs)))
@@ -394,6 +434,7 @@ public class DocUpdateSentinel
          // check, then reloading the browser causes empty documents
          // to appear dirty.
          changesPending_ = false;
+         changeLog_.invalidate();
          return false;
       }
       
@@ -410,22 +451,18 @@ public class DocUpdateSentinel
          Debug.logException(e);
       }
 
-      server_.saveDocumentDiff(
-            sourceDoc_.getId(),
-            path,
-            fileType,
-            encoding,
-            foldSpec,
-            newChunkDefs,
-            diff.getReplacement(),
-            diff.getOffset(),
-            diff.getLength(),
-            hash,
+      ServerRequestCallback<String> callback = 
             new ServerRequestCallback<String>()
             {
                @Override
                public void onError(ServerError error)
                {
+                  savesInFlight_--;
+                  
+                  // the server doesn't have the contents our change log is
+                  // relative to
+                  changeLog_.invalidate();
+                  
                   Debug.logError(error);
                   if (progress != null)
                      progress.onError(error.getUserMessage());
@@ -446,6 +483,8 @@ public class DocUpdateSentinel
                @Override
                public void onResponseReceived(String newHash)
                {
+                  savesInFlight_--;
+                  
                   if (newHash != null)
                   {
                      // If the document hasn't changed further since the version
@@ -486,12 +525,14 @@ public class DocUpdateSentinel
                   {
                      // We just hit a race condition where two updates
                      // happened at once. Try again
+                     changeLog_.invalidate();
                      doSave(path, fileType, encoding, progress);
                   }
                   else
                   {
                      /*Debug.log("Diff-based save failed--falling back to " +
                                "snapshot save");*/
+                     savesInFlight_++;
                      server_.saveDocument(
                            sourceDoc_.getId(),
                            path,
@@ -503,7 +544,38 @@ public class DocUpdateSentinel
                            this);
                   }
                }
-            });
+            };
+
+      savesInFlight_++;
+      if (diff == null)
+      {
+         server_.saveDocumentHunks(
+               sourceDoc_.getId(),
+               path,
+               fileType,
+               encoding,
+               foldSpec,
+               newChunkDefs,
+               hunks,
+               hash,
+               checksum,
+               callback);
+      }
+      else
+      {
+         server_.saveDocumentDiff(
+               sourceDoc_.getId(),
+               path,
+               fileType,
+               encoding,
+               foldSpec,
+               newChunkDefs,
+               diff.getReplacement(),
+               diff.getOffset(),
+               diff.getLength(),
+               hash,
+               callback);
+      }
 
       return true;
    }
@@ -683,6 +755,31 @@ public class DocUpdateSentinel
       changesPending_ = true;
       autosaver_.nudge();
    }
+
+   @Override
+   public void onDocumentChanged(DocumentChangedEvent event)
+   {
+      if (!changeLog_.isValid())
+         return;
+      
+      AceDocumentChangeEventNative change = event.getEvent();
+      String action = change.getAction();
+      Range range = change.getRange();
+      int offset = docDisplay_.positionToIndex(range.getStart());
+      if (action.equals("insertText") || action.equals("insertLines"))
+      {
+         changeLog_.record(offset, 0, docDisplay_.getTextForRange(range));
+      }
+      else if (action.equals("removeText") || action.equals("removeLines"))
+      {
+         changeLog_.record(offset, change.getRemovedLength(), "");
+      }
+      else
+      {
+         // we don't know what this did to the document
+         changeLog_.invalidate();
+      }
+   }
    
    public String getPath()
    {
@@ -755,6 +852,8 @@ public class DocUpdateSentinel
    }
 
    private boolean changesPending_ = false;
+   private final TextChangeLog changeLog_ = new TextChangeLog();
+   private int savesInFlight_ = 0;
    private final ChangeTracker changeTracker_;
    private final SourceServerOperations server_;
    private final DocDisplay docDisplay_;
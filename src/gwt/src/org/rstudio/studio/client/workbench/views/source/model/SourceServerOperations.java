@@ -18,6 +18,7 @@ import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
 
 import org.rstudio.core.client.js.JsObject;
+import org.rstudio.core.client.patch.TextChangeLog;
 import org.rstudio.studio.client.common.codetools.CodeToolsServerOperations;
 import org.rstudio.studio.client.events.GetEditorContextEvent;
 import org.rstudio.studio.client.htmlpreview.model.HTMLPreviewServerOperations;
@@ -120,6 +121,26 @@ public interface SourceServerOperations extends FilesServerOperations,
                          String hash,
                          ServerRequestCallback<String> requestCallback);
 
+   /**
+    * Same as saveDocumentDiff, but sends a list of hunks (in increasing
+    * order of offset, with offsets and lengths relative to the contents the
+    * server is expected to have) so that edits in distant parts of the
+    * document needn't resend the text between them. The checksum is the
+    * CRC32 of the UTF-8 encoded contents after the hunks are applied; if the
+    * patched contents don't match it the save is abandoned and null is
+    * returned, as for saveDocumentDiff.
+    */
+   void saveDocumentHunks(String id,
+                          String path,
+                          String fileType,
+                          String encoding,
+                          String foldSpec,
+                          JsArray<ChunkDefinition> chunkOutput,
+                          List<TextChangeLog.Hunk> hunks,
+                          String hash,
+                          String checksum,
+                          ServerRequestCallback<String> requestCallback);
+
    void checkForExternalEdit(
          String id,
          ServerRequestCallback<CheckForExternalEditResult> requestCallback);
@@ -21,12 +21,15 @@ import com.google.gwt.dom.client.Element;
 import com.google.gwt.dom.client.NativeEvent;
 import com.google.gwt.dom.client.Node;
 import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.user.cellview.client.CellTable;
 import com.google.gwt.user.cellview.client.Column;
 import com.google.gwt.user.cellview.client.RowStyles;
 import com.google.gwt.user.cellview.client.TextColumn;
+import com.google.gwt.user.client.ui.ScrollPanel;
 import com.google.gwt.view.client.MultiSelectionModel;
 import com.google.gwt.view.client.ProvidesKey;
 import com.google.gwt.view.client.SelectionChangeEvent;
@@ -48,6 +51,7 @@ import org.rstudio.studio.client.workbench.views.vcs.common.events.DiffLinesActi
 import org.rstudio.studio.client.workbench.views.vcs.common.events.DiffLinesActionHandler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 
 public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements Display
@@ -383,8 +387,8 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
 
    private void refreshValue(ChunkOrLine value)
    {
-      int index = lines_.indexOf(value);
-      if (index >= 0)
+      Integer index = rowIndex_.get(value);
+      if (index != null && index < renderedRows_)
       {
          ArrayList<ChunkOrLine> list = new ArrayList<ChunkOrLine>();
          list.add(value);
@@ -426,6 +430,31 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
       useEndBorder_ = useEndBorder;
    }
 
+   /**
+    * Renders the rows a page at a time, rendering more of them as the given
+    * panel (which the table must be inside of) is scrolled towards the
+    * bottom, rather than rendering all of them at once.
+    */
+   public void setScrollPanel(final ScrollPanel scrollPanel)
+   {
+      scrollPanel_ = scrollPanel;
+      scrollPanel_.addScrollHandler(new ScrollHandler()
+      {
+         @Override
+         public void onScroll(ScrollEvent event)
+         {
+            int remaining = scrollPanel.getMaximumVerticalScrollPosition() -
+                            scrollPanel.getVerticalScrollPosition();
+            if (remaining < scrollPanel.getOffsetHeight() &&
+                renderedRows_ < lines_.size())
+            {
+               renderTarget_ = renderedRows_ + RENDER_INCREMENT;
+               renderRows();
+            }
+         }
+      });
+   }
+
    @Override
    public void setData(ArrayList<ChunkOrLine> diffData, PatchMode patchMode)
    {
@@ -441,20 +470,40 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
             break;
       }
 
-      lines_ = diffData;
-      setPageSize(diffData.size());
+      lines_ = new ArrayList<ChunkOrLine>();
+      rowIndex_.clear();
       selectionModel_.clear();
       firstSelectedLine_ = null;
-      setRowData(diffData);
 
       startRows_.clear();
       endRows_.clear();
+      borderState_ = Line.Type.Same;
+      suppressNextStart_ = true; // Suppress at start to avoid 2px border
+
+      // Keep rendering as many rows as before, so that the scroll position
+      // survives the data being refreshed
+      renderedRows_ = 0;
+      renderTarget_ = Math.max(renderTarget_, RENDER_INCREMENT);
+      setRowCount(0, true);
+      appendData(diffData);
+   }
+
+   @Override
+   public void appendData(ArrayList<ChunkOrLine> diffData)
+   {
+      int start = lines_.size();
+
+      // The last line no longer needs its own end border (it gets one below
+      // if it is where a region ends)
+      if (useEndBorder_ && start > 0)
+         endRows_.remove(start - 1);
 
-      Line.Type state = Line.Type.Same;
-      boolean suppressNextStart = true; // Suppress at start to avoid 2px border
-      for (int i = 0; i < lines_.size(); i++)
+      lines_.addAll(diffData);
+      for (int i = start; i < lines_.size(); i++)
       {
          ChunkOrLine chunkOrLine = lines_.get(i);
+         rowIndex_.put(chunkOrLine, i);
+
          Line line = chunkOrLine.getLine();
          boolean isChunk = line == null;
          Line.Type newState = isChunk ? Line.Type.Same : line.getType();
@@ -466,21 +515,50 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
          if (useEndBorder_ && i == lines_.size() - 1)
             endRows_.add(i);
 
-         if (newState != state)
+         if (newState != borderState_)
          {
             // Note: endRows_ doesn't include the borders between insertions and
             // deletions, or vice versa. This is to avoid 2px borders between
             // these regions when just about everything else is 1px.
-            if (state != Line.Type.Same && newState == Line.Type.Same && !isChunk)
+            if (borderState_ != Line.Type.Same && newState == Line.Type.Same && !isChunk)
                endRows_.add(i-1);
-            if (!suppressNextStart && newState != Line.Type.Same)
+            if (!suppressNextStart_ && newState != Line.Type.Same)
                startRows_.add(i);
 
-            state = newState;
+            borderState_ = newState;
          }
 
-         suppressNextStart = isChunk;
+         suppressNextStart_ = isChunk;
+      }
+
+      setRowCount(lines_.size(), true);
+
+      // the previous last row may need its border redrawn
+      int first = Math.max(0, start - 1);
+      if (first < renderedRows_)
+      {
+         setRowData(first, new ArrayList<ChunkOrLine>(
+                                 lines_.subList(first, renderedRows_)));
       }
+
+      renderRows();
+   }
+
+   // Renders any of the rows up to the render target that aren't already
+   // (or all of the rows if they aren't being paged)
+   private void renderRows()
+   {
+      int rows = scrollPanel_ == null
+                 ? lines_.size()
+                 : Math.min(renderTarget_, lines_.size());
+      if (rows <= renderedRows_)
+         return;
+
+      int start = renderedRows_;
+      renderedRows_ = rows;
+      setVisibleRange(0, rows);
+      setRowData(start, new ArrayList<ChunkOrLine>(
+                              lines_.subList(start, rows)));
    }
 
    @Override
@@ -497,6 +575,7 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
    @Override
    public void clear()
    {
+      renderTarget_ = 0;
       setData(new ArrayList<ChunkOrLine>(), PatchMode.Working);
    }
 
@@ -545,13 +624,24 @@ public class LineTableView extends MultiSelectCellTable<ChunkOrLine> implements
 
    private boolean showActions_ = true;
    private ArrayList<ChunkOrLine> lines_;
+   private final HashMap<ChunkOrLine, Integer> rowIndex_ =
+         new HashMap<ChunkOrLine, Integer>();
+   private int renderedRows_;
+   private int renderTarget_;
+   private ScrollPanel scrollPanel_;
    private SwitchableSelectionModel<ChunkOrLine> selectionModel_;
    private HashSet<Integer> startRows_ = new HashSet<Integer>();
    private HashSet<Integer> endRows_ = new HashSet<Integer>();
    private boolean useStartBorder_ = false;
    private boolean useEndBorder_ = true;
+   // The state of the border computation as of the last row added
+   private Line.Type borderState_;
+   private boolean suppressNextStart_;
    // Keep explicit track of the first selected line so we can render it differently
    private ChunkOrLine firstSelectedLine_;
+   // The number of rows rendered at a time when paging (which is plenty to
+   // fill the panel)
+   private static final int RENDER_INCREMENT = 500;
    private static final LineTableViewCellTableResources RES = GWT.create(LineTableViewCellTableResources.class);
    private static final LineActionButtonRenderer blueButtonRenderer_ = LineActionButtonRenderer.createBlue();
    private static final LineActionButtonRenderer grayButtonRenderer_ = LineActionButtonRenderer.createGray();
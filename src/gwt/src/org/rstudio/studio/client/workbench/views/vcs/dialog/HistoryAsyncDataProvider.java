@@ -28,6 +28,10 @@ import org.rstudio.studio.client.common.Value;
 import org.rstudio.studio.client.server.ServerError;
 import org.rstudio.studio.client.server.ServerRequestCallback;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public abstract class HistoryAsyncDataProvider extends AsyncDataProvider<CommitInfo>
 {
    @Inject
@@ -68,6 +72,11 @@ public abstract class HistoryAsyncDataProvider extends AsyncDataProvider<CommitI
 
    public void refreshCount()
    {
+      // the history may have changed, so the pages fetched so far can't be
+      // trusted (nor can any that are still on their way)
+      pages_.clear();
+      generation_++;
+
       getHistoryCount(
             rev_, 
             fileFilter_.getValue(), 
@@ -98,6 +107,15 @@ public abstract class HistoryAsyncDataProvider extends AsyncDataProvider<CommitI
       if (length == 0)
          return;
 
+      final String key = start + ":" + length;
+      ArrayList<CommitInfo> page = pages_.get(key);
+      if (page != null)
+      {
+         updateRowData(start, page);
+         return;
+      }
+
+      final int generation = generation_;
       getHistory(
             rev_, fileFilter_.getValue(),
             start, length, searchText_.getValue(),
@@ -107,9 +125,12 @@ public abstract class HistoryAsyncDataProvider extends AsyncDataProvider<CommitI
                public void onResponseReceived(RpcObjectList<CommitInfo> response)
                {
                   super.onResponseReceived(response);
+                  ArrayList<CommitInfo> page = response.toArrayList();
+                  if (generation == generation_)
+                     pages_.put(key, page);
                   if (response.length() < length)
                      updateRowCount(start + response.length(), true);
-                  updateRowData(start, response.toArrayList());
+                  updateRowData(start, page);
                }
 
                @Override
@@ -145,4 +166,21 @@ public abstract class HistoryAsyncDataProvider extends AsyncDataProvider<CommitI
    private HasValue<String> searchText_;
    private HasValue<FileSystemItem> fileFilter_;
    private HistoryStrategy strategy_;
+
+   // the pages fetched most recently (least recently used first), keyed by
+   // their start and length
+   @SuppressWarnings("serial")
+   private final LinkedHashMap<String, ArrayList<CommitInfo>> pages_ =
+         new LinkedHashMap<String, ArrayList<CommitInfo>>(16, 0.75f, true)
+   {
+      @Override
+      protected boolean removeEldestEntry(
+            Map.Entry<String, ArrayList<CommitInfo>> eldest)
+      {
+         return size() > MAX_PAGES;
+      }
+   };
+   private int generation_ = 0;
+
+   private static final int MAX_PAGES = 20;
 }
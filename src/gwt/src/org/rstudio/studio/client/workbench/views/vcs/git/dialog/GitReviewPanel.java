@@ -227,6 +227,8 @@ public class GitReviewPanel extends ResizeComposite implements Display
       Widget widget = GWT.<Binder>create(Binder.class).createAndBindUi(this);
       initWidget(widget);
 
+      lines_.setScrollPanel(diffScroll_);
+
       topToolbar_.addStyleName(RES.styles().toolbar());
 
       switchViewButton_ = new LeftRightToggleButton("Changes", "History", true);
@@ -464,6 +466,25 @@ public class GitReviewPanel extends ResizeComposite implements Display
 
       diffScroll_.setVerticalScrollPosition(vscroll);
       diffScroll_.setHorizontalScrollPosition(hscroll);
+
+      // the rest of the lines may not have arrived yet, in which case we
+      // scroll back down once they have
+      pendingVScroll_ = diffScroll_.getVerticalScrollPosition() < vscroll
+                        ? vscroll
+                        : -1;
+   }
+
+   @Override
+   public void appendData(ArrayList<ChunkOrLine> lines)
+   {
+      getLineTableDisplay().appendData(lines);
+
+      if (pendingVScroll_ >= 0)
+      {
+         diffScroll_.setVerticalScrollPosition(pendingVScroll_);
+         if (diffScroll_.getVerticalScrollPosition() >= pendingVScroll_)
+            pendingVScroll_ = -1;
+      }
    }
 
    @Override
@@ -667,6 +688,7 @@ public class GitReviewPanel extends ResizeComposite implements Display
    HorizontalPanel toolbarWrapper_;
 
    private ListBoxAdapter listBoxAdapter_;
+   private int pendingVScroll_ = -1;
 
    private ToolbarButton stageFilesButton_;
    private ToolbarButton revertFilesButton_;
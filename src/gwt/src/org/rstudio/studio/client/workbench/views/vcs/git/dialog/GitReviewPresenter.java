@@ -15,6 +15,7 @@
 package org.rstudio.studio.client.workbench.views.vcs.git.dialog;
 
 import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.NativeEvent;
 import com.google.gwt.event.dom.client.*;
@@ -106,6 +107,7 @@ public class GitReviewPresenter implements ReviewPresenter
       HasValue<Boolean> getCommitIsAmend();
 
       void setData(ArrayList<ChunkOrLine> lines, PatchMode patchMode);
+      void appendData(ArrayList<ChunkOrLine> lines);
 
       HasClickHandlers getOverrideSizeWarningButton();
       void showSizeWarning(long sizeInBytes);
@@ -682,30 +684,15 @@ public class GitReviewPresenter implements ReviewPresenter
 
                   // Use lastResponse_ to prevent unnecessary flicker
                   String response = diffResult.getDecodedValue();
-                  if (response.equals(currentResponse_))
+                  if (response.equals(currentResponse_) && !partialDiff_)
                      return;
                   currentResponse_ = response;
                   currentSourceEncoding_ = diffResult.getSourceEncoding();
 
-                  UnifiedParser parser = new UnifiedParser(response);
-                  parser.nextFilePair();
-
-                  ArrayList<ChunkOrLine> allLines = new ArrayList<ChunkOrLine>();
-
-                  activeChunks_.clear();
-                  for (DiffChunk chunk;
-                       null != (chunk = parser.nextChunk());)
-                  {
-                     activeChunks_.add(chunk);
-                     allLines.add(new ChunkOrLine(chunk));
-                     for (Line line : chunk.getLines())
-                        allLines.add(new ChunkOrLine(line));
-                  }
-
                   view_.setShowActions(
                         !"??".equals(item.getStatus()) &&
                         !"UU".equals(item.getStatus()));
-                  view_.setData(allLines, patchMode);
+                  showDiff(response, patchMode, token);
                }
 
                @Override
@@ -723,8 +710,64 @@ public class GitReviewPresenter implements ReviewPresenter
             });
    }
 
+   // Shows the first batch of the diff's chunks straight away, and then
+   // parses and appends the rest a batch at a time, so that large diffs
+   // don't hold up the UI
+   private void showDiff(String response,
+                         PatchMode patchMode,
+                         final Token token)
+   {
+      final UnifiedParser parser = new UnifiedParser(response);
+      parser.nextFilePair();
+
+      activeChunks_.clear();
+      ArrayList<ChunkOrLine> lines = parseChunks(parser);
+      view_.setData(lines, patchMode);
+      partialDiff_ = lines.size() >= PARSE_BATCH_LINES;
+      if (!partialDiff_)
+         return;
+
+      Scheduler.get().scheduleIncremental(new RepeatingCommand()
+      {
+         @Override
+         public boolean execute()
+         {
+            if (token.isInvalid())
+               return false;
+
+            ArrayList<ChunkOrLine> batch = parseChunks(parser);
+            if (batch.isEmpty())
+            {
+               partialDiff_ = false;
+               return false;
+            }
+
+            view_.appendData(batch);
+            return true;
+         }
+      });
+   }
+
+   // Parses chunks until there are at least PARSE_BATCH_LINES lines or the
+   // diff runs out, adding them to the active chunks
+   private ArrayList<ChunkOrLine> parseChunks(UnifiedParser parser)
+   {
+      ArrayList<ChunkOrLine> lines = new ArrayList<ChunkOrLine>();
+      for (DiffChunk chunk;
+           lines.size() < PARSE_BATCH_LINES &&
+           null != (chunk = parser.nextChunk());)
+      {
+         activeChunks_.add(chunk);
+         lines.add(new ChunkOrLine(chunk));
+         for (Line line : chunk.getLines())
+            lines.add(new ChunkOrLine(line));
+      }
+      return lines;
+   }
+
    private void clearDiff()
    {
+      diffInvalidation_.invalidate();
       softModeSwitch_ = false;
       currentResponse_ = null;
       currentFilename_ = null;
@@ -802,6 +845,9 @@ public class GitReviewPresenter implements ReviewPresenter
    private final GlobalDisplay globalDisplay_;
    private ArrayList<DiffChunk> activeChunks_ = new ArrayList<DiffChunk>();
    private String currentResponse_;
+   // True if the rest of the current response is still to be shown (or
+   // never will be, having been interrupted)
+   private boolean partialDiff_;
    private String currentSourceEncoding_;
    private String currentFilename_;
    // Hack to prevent us flipping to unstaged view when a line is unstaged
@@ -812,6 +858,7 @@ public class GitReviewPresenter implements ReviewPresenter
    private boolean initialized_;
    private static final String MODULE_GIT = "vcs_git";
    private static final String KEY_CONTEXT_LINES = "context_lines";
+   private static final int PARSE_BATCH_LINES = 2000;
 
    private boolean overrideSizeWarning_ = false;
 }